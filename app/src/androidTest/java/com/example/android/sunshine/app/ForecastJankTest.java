@@ -0,0 +1,109 @@
+package com.example.android.sunshine.app;
+
+import android.content.Context;
+import android.support.v7.widget.RecyclerView;
+import android.test.ActivityInstrumentationTestCase2;
+import android.util.Log;
+import android.view.ViewConfiguration;
+
+import com.example.android.sunshine.app.data.TestUtilities;
+import com.example.android.sunshine.app.data.WeatherContract.LocationEntry;
+import com.example.android.sunshine.app.data.WeatherContract.WeatherEntry;
+import com.example.android.sunshine.app.utils.Skip;
+
+/**
+ * Flings the forecast list up and down and holds the frames recorded by {@link FrameStats}
+ * to a jank budget, so a change that makes scrolling stutter fails the build.
+ */
+public class ForecastJankTest extends ActivityInstrumentationTestCase2<MainActivity> {
+
+    private static final String LOG_TAG = ForecastJankTest.class.getSimpleName();
+
+    private static final int FLINGS = 10;
+    private static final long TIMEOUT_MILLIS = 10000;
+
+    // Budgets, as shares of the recorded frames
+    private static final double MAX_JANK_SHARE = 0.25;
+    private static final double MAX_BIG_JANK_SHARE = 0.05;
+    private static final long MAX_P90_NANOS = 34 * 1000 * 1000;
+
+    private Context mContext;
+
+    public ForecastJankTest() {
+        super(MainActivity.class);
+    }
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        mContext = getInstrumentation().getTargetContext();
+        String locationSetting = Utility.getPreferredLocation(mContext);
+
+        mContext.getContentResolver().delete(WeatherEntry.CONTENT_URI, null, null);
+        mContext.getContentResolver().delete(LocationEntry.CONTENT_URI, null, null);
+
+        TestUtilities.insertForecast(mContext, locationSetting, "Jank City");
+    }
+
+    public void testFlingStaysWithinJankBudget() throws Exception {
+        if (!FrameStats.ENABLED) {
+            Skip.log(this, "frame stats are only collected in debug builds");
+            return;
+        }
+        MainActivity activity = getActivity();
+        final RecyclerView recyclerView =
+                (RecyclerView) activity.findViewById(R.id.recyclerview_forecast);
+        waitForRows(recyclerView);
+
+        FrameStats stats = FrameStats.get(FrameStats.FORECAST_LIST);
+        stats.reset();
+
+        final int velocity = ViewConfiguration.get(activity).getScaledMaximumFlingVelocity();
+        for (int i = 0; i < FLINGS; i++) {
+            final int direction = i % 2 == 0 ? 1 : -1;
+            getInstrumentation().runOnMainSync(new Runnable() {
+                @Override
+                public void run() {
+                    recyclerView.fling(0, direction * velocity);
+                }
+            });
+            waitForIdle(recyclerView);
+        }
+
+        Log.i(LOG_TAG, stats.toString());
+        long frames = stats.getFrameCount();
+        // Nothing measured is not within the budget
+        assertTrue("Error: No frames were recorded while flinging the forecast list", frames > 0);
+        assertTrue("Error: " + stats.getJankCount() + " of " + frames + " frames over 16ms",
+                stats.getJankCount() <= frames * MAX_JANK_SHARE);
+        assertTrue("Error: " + stats.getBigJankCount() + " of " + frames + " frames over 32ms",
+                stats.getBigJankCount() <= frames * MAX_BIG_JANK_SHARE);
+        assertTrue("Error: 90th percentile frame took " + stats.percentile(90) / 1e6 + "ms",
+                stats.percentile(90) <= MAX_P90_NANOS);
+    }
+
+    private void waitForRows(final RecyclerView recyclerView) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+        while (recyclerView.getAdapter().getItemCount() < ForecastSnapshot.MAX_DAYS) {
+            assertTrue("Error: The forecast was not loaded in time",
+                    System.currentTimeMillis() < deadline);
+            Thread.sleep(10);
+        }
+        getInstrumentation().waitForIdleSync();
+    }
+
+    private void waitForIdle(final RecyclerView recyclerView) throws InterruptedException {
+        final int[] state = new int[1];
+        long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+        do {
+            Thread.sleep(10);
+            getInstrumentation().runOnMainSync(new Runnable() {
+                @Override
+                public void run() {
+                    state[0] = recyclerView.getScrollState();
+                }
+            });
+            assertTrue("Error: The fling never settled", System.currentTimeMillis() < deadline);
+        } while (state[0] != RecyclerView.SCROLL_STATE_IDLE);
+    }
+}
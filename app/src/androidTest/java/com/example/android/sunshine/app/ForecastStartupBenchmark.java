@@ -0,0 +1,129 @@
+package com.example.android.sunshine.app;
+
+import android.app.Activity;
+import android.content.Context;
+import android.content.Intent;
+import android.support.v7.widget.RecyclerView;
+import android.test.ActivityInstrumentationTestCase2;
+import android.util.Log;
+import android.widget.TextView;
+
+import com.example.android.sunshine.app.data.TestUtilities;
+import com.example.android.sunshine.app.data.WeatherContract.LocationEntry;
+import com.example.android.sunshine.app.data.WeatherContract.WeatherEntry;
+import com.example.android.sunshine.app.utils.BenchmarkReport;
+import com.example.android.sunshine.app.utils.BenchmarkStats;
+
+import org.json.JSONObject;
+
+/**
+ * Measures the time from launching {@link MainActivity} to the first forecast row being laid
+ * out, with and without the {@link ForecastSnapshot} file in place.  {@link ForecastModel} is
+ * cleared before every launch, so the first frame comes from the snapshot or the provider.
+ *
+ * The launches share the test's process, which is the app's: the database stays open and
+ * the code stays compiled, so these are the in-process part of a start only.  Starts from a
+ * fresh process are measured on a workstation by the startup benchmark, whose no-snapshot
+ * and warm-db scenarios are the cold counterparts of these:
+ *
+ *     ./gradlew :core:startupBenchmark
+ *
+ * Results are appended to startup_benchmark.jsonl, see {@link BenchmarkReport}.
+ */
+public class ForecastStartupBenchmark extends ActivityInstrumentationTestCase2<MainActivity> {
+
+    private static final String LOG_TAG = ForecastStartupBenchmark.class.getSimpleName();
+
+    private static final int LAUNCHES = 10;
+    private static final long TIMEOUT_MILLIS = 10000;
+
+    private Context mContext;
+    private String mLocationSetting;
+    private BenchmarkReport mReport;
+
+    public ForecastStartupBenchmark() {
+        super(MainActivity.class);
+    }
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        mContext = getInstrumentation().getTargetContext();
+        mLocationSetting = Utility.getPreferredLocation(mContext);
+        mReport = new BenchmarkReport(mContext, "startup_benchmark");
+
+        mContext.getContentResolver().delete(WeatherEntry.CONTENT_URI, null, null);
+        mContext.getContentResolver().delete(LocationEntry.CONTENT_URI, null, null);
+
+        TestUtilities.insertForecast(mContext, mLocationSetting, "Benchmark City");
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        ForecastSnapshot.delete(mContext);
+        super.tearDown();
+    }
+
+    public void testTimeToFirstRow() throws Exception {
+        ForecastSnapshot.delete(mContext);
+        BenchmarkStats withoutSnapshot = measureLaunches("without snapshot");
+
+        ForecastSnapshot.write(mContext, mLocationSetting);
+        assertNotNull("Error: No forecast snapshot was written",
+                ForecastSnapshot.read(mContext, mLocationSetting));
+        BenchmarkStats withSnapshot = measureLaunches("with snapshot");
+
+        Log.i(LOG_TAG, withoutSnapshot.toString());
+        Log.i(LOG_TAG, withSnapshot.toString());
+
+        JSONObject result = mReport.newResult("startup_in_process");
+        result.put("launches", LAUNCHES);
+        BenchmarkReport.putStats(result, "first_row_without_snapshot", withoutSnapshot);
+        BenchmarkReport.putStats(result, "first_row_with_snapshot", withSnapshot);
+        mReport.write(result);
+    }
+
+    private BenchmarkStats measureLaunches(String name) throws Exception {
+        BenchmarkStats stats = new BenchmarkStats("Time to first forecast row, " + name);
+        for (int i = 0; i < LAUNCHES; i++) {
+            // Or the fragment draws the rows the last launch loaded
+            ForecastModel.getInstance(mContext).clear();
+            Intent intent = new Intent(Intent.ACTION_MAIN)
+                    .setClassName(mContext, MainActivity.class.getName())
+                    .addFlags(Intent.FLAG_ACTIVITY_NEW_TASK);
+
+            long start = System.nanoTime();
+            final Activity activity = getInstrumentation().startActivitySync(intent);
+            waitForFirstRow(activity);
+            stats.add(System.nanoTime() - start);
+
+            activity.finish();
+            getInstrumentation().waitForIdleSync();
+        }
+        return stats;
+    }
+
+    private void waitForFirstRow(final Activity activity) throws InterruptedException {
+        final boolean[] drawn = new boolean[1];
+        long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+        while (!drawn[0]) {
+            assertTrue("Error: No forecast row was laid out in time",
+                    System.currentTimeMillis() < deadline);
+            getInstrumentation().runOnMainSync(new Runnable() {
+                @Override
+                public void run() {
+                    RecyclerView recyclerView =
+                            (RecyclerView) activity.findViewById(R.id.recyclerview_forecast);
+                    if (recyclerView != null && recyclerView.getChildCount() > 0) {
+                        TextView date = (TextView) recyclerView.getChildAt(0)
+                                .findViewById(R.id.list_item_date_textview);
+                        drawn[0] = date != null && date.getText().length() > 0;
+                    }
+                }
+            });
+            if (!drawn[0]) {
+                Thread.sleep(2);
+            }
+        }
+    }
+}
@@ -0,0 +1,217 @@
+package com.example.android.sunshine.app;
+
+import android.app.Activity;
+import android.app.Instrumentation;
+import android.content.Context;
+import android.content.Intent;
+import android.content.pm.ActivityInfo;
+import android.os.Build;
+import android.preference.PreferenceManager;
+import android.support.v7.widget.RecyclerView;
+import android.test.ActivityInstrumentationTestCase2;
+import android.text.TextUtils;
+import android.util.Log;
+
+import com.example.android.sunshine.app.data.TestUtilities;
+import com.example.android.sunshine.app.data.WeatherContract.LocationEntry;
+import com.example.android.sunshine.app.data.WeatherContract.WeatherEntry;
+import com.example.android.sunshine.app.utils.CursorLeakCheck;
+import com.example.android.sunshine.app.utils.Skip;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Walks through the screens the way a user would, opening a day, rotating and switching the
+ * location, and fails if the main thread touched the disk or network in a way that isn't in
+ * the baseline of known violations.  On Pie and later {@link StrictModeMonitor} counts the
+ * violations, from Lollipop on they are read back from the log, see {@link StrictModeLog}.
+ * Earlier API levels and release builds skip the test, see {@link Skip}.  The same walk must
+ * not leak any cursor, see {@link CursorLeakCheck}.
+ */
+public class MainThreadIoTest extends ActivityInstrumentationTestCase2<MainActivity> {
+
+    private static final String LOG_TAG = MainThreadIoTest.class.getSimpleName();
+
+    // One StrictModeMonitor signature per line, # starts a comment
+    private static final String BASELINE = "strictmode_baseline.txt";
+
+    private static final String OTHER_LOCATION = "london,uk";
+    private static final long TIMEOUT_MILLIS = 10000;
+
+    private Context mContext;
+    private String mLocationSetting;
+
+    public MainThreadIoTest() {
+        super(MainActivity.class);
+    }
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        mContext = getInstrumentation().getTargetContext();
+        mLocationSetting = Utility.getPreferredLocation(mContext);
+
+        mContext.getContentResolver().delete(WeatherEntry.CONTENT_URI, null, null);
+        mContext.getContentResolver().delete(LocationEntry.CONTENT_URI, null, null);
+        TestUtilities.insertForecast(mContext, mLocationSetting, "Home City");
+        TestUtilities.insertForecast(mContext, OTHER_LOCATION, "Other City");
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        setLocation(mLocationSetting);
+        super.tearDown();
+    }
+
+    public void testNoNewMainThreadIo() throws Exception {
+        boolean listening = StrictModeMonitor.isListening();
+        if (!listening && !StrictModeLog.isSupported()) {
+            Skip.log(this, "main thread I/O is only checked on debug builds on Lollipop and "
+                    + "later, this is API level " + Build.VERSION.SDK_INT);
+            return;
+        }
+        Map<String, Integer> violations;
+        if (listening) {
+            StrictModeMonitor.reset();
+            walkThroughScreens();
+            violations = StrictModeMonitor.getViolations();
+        } else {
+            // Before Pie StrictMode only logs the violations
+            StrictModeLog.clear(getInstrumentation());
+            walkThroughScreens();
+            violations = StrictModeLog.read(getInstrumentation());
+        }
+
+        Set<String> baseline = readBaseline();
+        List<String> unexpected = new ArrayList<String>();
+        for (Map.Entry<String, Integer> violation : violations.entrySet()) {
+            Log.i(LOG_TAG, violation.getValue() + " x " + violation.getKey());
+            if (!baseline.contains(violation.getKey())) {
+                unexpected.add(violation.getKey());
+            }
+        }
+        assertTrue("Error: New main thread I/O, move it off the main thread or add it to "
+                        + BASELINE + ":\n" + TextUtils.join("\n", unexpected),
+                unexpected.isEmpty());
+    }
+
+    public void testNoCursorLeaks() throws Exception {
+        CursorLeakCheck.reset();
+        walkThroughScreens();
+        CursorLeakCheck.assertNoLeaks("the walk through the screens");
+    }
+
+    private void walkThroughScreens() throws Exception {
+        Activity activity = getActivity();
+        waitForRows(activity);
+
+        // In one-pane mode this starts DetailActivity, in two-pane mode it selects the day
+        Instrumentation.ActivityMonitor detailMonitor = getInstrumentation()
+                .addMonitor(DetailActivity.class.getName(), null, false);
+        final RecyclerView recyclerView =
+                (RecyclerView) activity.findViewById(R.id.recyclerview_forecast);
+        getInstrumentation().runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                recyclerView.getChildAt(0).performClick();
+            }
+        });
+        Activity detail = getInstrumentation().waitForMonitorWithTimeout(detailMonitor, 2000);
+        getInstrumentation().removeMonitor(detailMonitor);
+        if (detail != null) {
+            detail = rotate(detail, ActivityInfo.SCREEN_ORIENTATION_LANDSCAPE);
+            detail.finish();
+            getInstrumentation().waitForIdleSync();
+        }
+
+        activity = rotate(activity, ActivityInfo.SCREEN_ORIENTATION_LANDSCAPE);
+        waitForRows(activity);
+        activity = rotate(activity, ActivityInfo.SCREEN_ORIENTATION_PORTRAIT);
+        waitForRows(activity);
+
+        // Switch the location from the settings screen, MainActivity picks it up on resume
+        Instrumentation.ActivityMonitor settingsMonitor = getInstrumentation()
+                .addMonitor(SettingsActivity.class.getName(), null, false);
+        activity.startActivity(new Intent(activity, SettingsActivity.class));
+        Activity settings =
+                getInstrumentation().waitForMonitorWithTimeout(settingsMonitor, TIMEOUT_MILLIS);
+        getInstrumentation().removeMonitor(settingsMonitor);
+        assertNotNull("Error: SettingsActivity did not start", settings);
+        getInstrumentation().waitForIdleSync();
+        setLocation(OTHER_LOCATION);
+        settings.finish();
+        getInstrumentation().waitForIdleSync();
+        waitForRows(activity);
+
+        activity.setRequestedOrientation(ActivityInfo.SCREEN_ORIENTATION_UNSPECIFIED);
+        if (activity != getActivity()) {
+            // tearDown only finishes the one it started
+            activity.finish();
+        }
+        getInstrumentation().waitForIdleSync();
+    }
+
+    private Activity rotate(Activity activity, int orientation) {
+        Instrumentation.ActivityMonitor monitor = getInstrumentation()
+                .addMonitor(activity.getClass().getName(), null, false);
+        activity.setRequestedOrientation(orientation);
+        // Nothing is recreated if the screen was already that way round
+        Activity recreated = getInstrumentation().waitForMonitorWithTimeout(monitor, 2000);
+        getInstrumentation().removeMonitor(monitor);
+        getInstrumentation().waitForIdleSync();
+        return recreated != null ? recreated : activity;
+    }
+
+    private void waitForRows(final Activity activity) throws InterruptedException {
+        final boolean[] loaded = new boolean[1];
+        long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+        while (!loaded[0]) {
+            assertTrue("Error: The forecast was not loaded in time",
+                    System.currentTimeMillis() < deadline);
+            getInstrumentation().runOnMainSync(new Runnable() {
+                @Override
+                public void run() {
+                    RecyclerView recyclerView =
+                            (RecyclerView) activity.findViewById(R.id.recyclerview_forecast);
+                    loaded[0] = recyclerView != null && recyclerView.getChildCount() > 0;
+                }
+            });
+            if (!loaded[0]) {
+                Thread.sleep(10);
+            }
+        }
+        getInstrumentation().waitForIdleSync();
+    }
+
+    // Off the main thread, so the test's own writes aren't violations
+    private void setLocation(String locationSetting) {
+        PreferenceManager.getDefaultSharedPreferences(mContext).edit()
+                .putString(mContext.getString(R.string.pref_location_key), locationSetting)
+                .commit();
+    }
+
+    private Set<String> readBaseline() throws IOException {
+        Set<String> baseline = new HashSet<String>();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(
+                getInstrumentation().getContext().getAssets().open(BASELINE), "UTF-8"));
+        try {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                line = line.trim();
+                if (line.length() > 0 && !line.startsWith("#")) {
+                    baseline.add(line);
+                }
+            }
+        } finally {
+            reader.close();
+        }
+        return baseline;
+    }
+}
@@ -0,0 +1,132 @@
+package com.example.android.sunshine.app;
+
+import android.annotation.TargetApi;
+import android.app.Instrumentation;
+import android.os.Build;
+import android.os.ParcelFileDescriptor;
+import android.os.Process;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Reads the violations StrictModeMonitor logs back from logcat, for Lollipop to Oreo where it
+ * can't count them itself, and reduces each one to the signature the monitor would have
+ * given it.  StrictMode logs a violation at most once a second, so the counts are a lower
+ * bound, but every signature seen is there.
+ */
+@TargetApi(Build.VERSION_CODES.LOLLIPOP)
+class StrictModeLog {
+
+    // The brief format: priority/tag(pid): message, one line of a multi line message each
+    private static final Pattern LINE =
+            Pattern.compile("^[VDIWEF]/StrictMode\\(\\s*(\\d+)\\): ?(.*)$");
+    // Before Pie the violation is e.g. android.os.StrictMode$StrictModeDiskReadViolation
+    private static final Pattern VIOLATION = Pattern.compile("([\\w.$]+Violation)(:|$)");
+    private static final String START = "StrictMode policy violation";
+
+    static boolean isSupported() {
+        return StrictModeMonitor.ENABLED
+                && Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP;
+    }
+
+    /**
+     * Forgets what was logged so far, so {@link #read(Instrumentation)} only sees what comes
+     * after.
+     */
+    static void clear(Instrumentation instrumentation) throws IOException {
+        run(instrumentation, "logcat -c");
+    }
+
+    /**
+     * @return how often each signature was logged by this process since the last
+     * {@link #clear(Instrumentation)}.
+     */
+    static Map<String, Integer> read(Instrumentation instrumentation) throws IOException {
+        return parse(run(instrumentation, "logcat -d -v brief -s StrictMode"), Process.myPid());
+    }
+
+    static Map<String, Integer> parse(String log, int pid) {
+        Map<String, Integer> violations = new LinkedHashMap<String, Integer>();
+        String type = null;
+        List<StackTraceElement> stack = new ArrayList<StackTraceElement>();
+        boolean inStack = false;
+        for (String line : log.split("\n")) {
+            Matcher matcher = LINE.matcher(line.trim());
+            if (!matcher.matches() || Integer.parseInt(matcher.group(1)) != pid) {
+                continue;
+            }
+            String message = matcher.group(2).trim();
+            if (message.startsWith(START)) {
+                add(violations, type, stack);
+                Matcher violation = VIOLATION.matcher(message);
+                type = violation.find() ? typeOf(violation.group(1)) : null;
+                stack.clear();
+                inStack = type != null;
+            } else if (inStack && message.startsWith("at ")) {
+                stack.add(frameOf(message.substring(3)));
+            } else {
+                // Caused by, or the end of the stack
+                inStack = false;
+            }
+        }
+        add(violations, type, stack);
+        return violations;
+    }
+
+    private static void add(Map<String, Integer> violations, String type,
+                            List<StackTraceElement> stack) {
+        if (type == null) {
+            return;
+        }
+        String signature = StrictModeMonitor.signatureOf(type,
+                stack.toArray(new StackTraceElement[stack.size()]));
+        Integer count = violations.get(signature);
+        violations.put(signature, count == null ? 1 : count + 1);
+    }
+
+    // The simple name Pie gives the violation, e.g. DiskReadViolation
+    private static String typeOf(String className) {
+        String type = className.substring(
+                Math.max(className.lastIndexOf('.'), className.lastIndexOf('$')) + 1);
+        return type.startsWith("StrictMode") ? type.substring("StrictMode".length()) : type;
+    }
+
+    // e.g. com.example.android.sunshine.app.Settings.<init>(Settings.java:42)
+    private static StackTraceElement frameOf(String frame) {
+        int paren = frame.indexOf('(');
+        String method = paren < 0 ? frame : frame.substring(0, paren);
+        int dot = method.lastIndexOf('.');
+        return new StackTraceElement(dot < 0 ? "" : method.substring(0, dot),
+                method.substring(dot + 1), null, -1);
+    }
+
+    private static String run(Instrumentation instrumentation, String command)
+            throws IOException {
+        ParcelFileDescriptor output =
+                instrumentation.getUiAutomation().executeShellCommand(command);
+        InputStream in = new ParcelFileDescriptor.AutoCloseInputStream(output);
+        try {
+            // Reading to the end is also what waits for the command to finish
+            Reader reader = new BufferedReader(new InputStreamReader(in, "UTF-8"));
+            StringBuilder text = new StringBuilder();
+            char[] buffer = new char[8192];
+            int read;
+            while ((read = reader.read(buffer)) != -1) {
+                text.append(buffer, 0, read);
+            }
+            return text.toString();
+        } finally {
+            in.close();
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package com.example.android.sunshine.app;
+
+import android.content.ComponentCallbacks2;
+import android.graphics.Bitmap;
+import android.graphics.drawable.BitmapDrawable;
+import android.graphics.drawable.Drawable;
+import android.os.Build;
+import android.test.AndroidTestCase;
+import android.util.Log;
+import android.widget.ImageView;
+
+import com.example.android.sunshine.app.utils.Skip;
+
+@SuppressWarnings("deprecation")
+public class TestBitmapCache extends AndroidTestCase {
+
+    public static final String LOG_TAG = TestBitmapCache.class.getSimpleName();
+
+    private static final int MAX_BYTES = 8 * 1024 * 1024;
+
+    private BitmapCache mCache;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        mCache = new BitmapCache(mContext, MAX_BYTES);
+    }
+
+    public void testSameBitmapIsReturned() {
+        Bitmap first = mCache.getBitmap(R.drawable.art_clear, 0, 0);
+        assertNotNull(first);
+        assertSame(first, mCache.getBitmap(R.drawable.art_clear, 0, 0));
+        assertEquals(1, mCache.getDecodeCount());
+        assertEquals(0.5f, mCache.getHitRate(), 0.001f);
+        assertEquals(first.getRowBytes() * first.getHeight(), mCache.getBytesHeld());
+
+        assertNull(mCache.getBitmap(-1, 0, 0));
+        Log.i(LOG_TAG, mCache.toString());
+    }
+
+    public void testNaturalSizeMatchesTheDrawable() {
+        Drawable drawable = mContext.getResources().getDrawable(R.drawable.art_storm);
+        ImageView view = new ImageView(mContext);
+        mCache.setImageResource(view, R.drawable.art_storm);
+        assertEquals(drawable.getIntrinsicWidth(), view.getDrawable().getIntrinsicWidth(), 1);
+        assertEquals(drawable.getIntrinsicHeight(), view.getDrawable().getIntrinsicHeight(), 1);
+
+        mCache.setImageResource(view, -1);
+        assertNull(view.getDrawable());
+    }
+
+    public void testDecodesForTheTargetSize() {
+        Bitmap natural = mCache.getBitmap(R.drawable.art_rain, 0, 0);
+        int width = natural.getWidth() / 4;
+        int height = natural.getHeight() / 4;
+        Bitmap small = mCache.getBitmap(R.drawable.art_rain, width, height);
+
+        assertNotSame(natural, small);
+        // Sampled down, but never below the target
+        assertTrue(small.getWidth() >= width && small.getHeight() >= height);
+        assertTrue(small.getWidth() < natural.getWidth());
+
+        assertEquals(1, BitmapCache.calculateInSampleSize(100, 100, 100, 100));
+        assertEquals(2, BitmapCache.calculateInSampleSize(200, 200, 99, 100));
+        assertEquals(4, BitmapCache.calculateInSampleSize(400, 400, 64, 64));
+    }
+
+    public void testTrimMemory() {
+        mCache.getBitmap(R.drawable.art_fog, 0, 0);
+        mCache.getBitmap(R.drawable.art_snow, 0, 0);
+        assertTrue(mCache.getBytesHeld() > 0);
+
+        mCache.onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_COMPLETE);
+        assertEquals(0, mCache.getBytesHeld());
+    }
+
+    public void testEvictedBitmapIsReused() {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.HONEYCOMB) {
+            Skip.log(this, "bitmaps are only reused from Honeycomb on");
+            return;
+        }
+        // Too small to hold anything, so every bitmap is evicted right away
+        BitmapCache cache = new BitmapCache(mContext, 1);
+        ImageView view = new ImageView(mContext);
+        ImageView other = new ImageView(mContext);
+
+        cache.setImageResource(view, R.drawable.art_clouds);
+        Bitmap clouds = bitmapOf(view);
+        // Shown, so not decoded into
+        cache.setImageResource(other, R.drawable.art_light_clouds);
+        assertNotSame(clouds, bitmapOf(other));
+        assertEquals(0, cache.getReuseCount());
+
+        // Once the view moves on, the next decode goes into it
+        cache.setImageResource(view, R.drawable.art_fog);
+        cache.setImageResource(other, R.drawable.art_clouds);
+        assertSame(clouds, bitmapOf(other));
+        assertNotSame(bitmapOf(view), bitmapOf(other));
+        assertEquals(1, cache.getReuseCount());
+    }
+
+    private static Bitmap bitmapOf(ImageView view) {
+        return ((BitmapDrawable) view.getDrawable()).getBitmap();
+    }
+}
@@ -0,0 +1,104 @@
+package com.example.android.sunshine.app;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.os.Debug;
+import android.os.SystemClock;
+import android.test.AndroidTestCase;
+import android.util.Log;
+import android.view.View;
+
+import com.example.android.sunshine.app.utils.BenchmarkStats;
+
+@SuppressWarnings("deprecation")
+public class TestCompassView extends AndroidTestCase {
+
+    public static final String LOG_TAG = TestCompassView.class.getSimpleName();
+
+    private static final int SIZE = 200;
+    private static final long FRAME_MILLIS = 16;
+    // Far more frames than the animation takes
+    private static final int MAX_FRAMES = 500;
+
+    private CompassView mCompassView;
+    private Canvas mCanvas;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        mCompassView = new CompassView(mContext);
+        mCompassView.measure(View.MeasureSpec.makeMeasureSpec(SIZE, View.MeasureSpec.EXACTLY),
+                View.MeasureSpec.makeMeasureSpec(SIZE, View.MeasureSpec.EXACTLY));
+        mCompassView.layout(0, 0, SIZE, SIZE);
+        mCanvas = new Canvas(Bitmap.createBitmap(SIZE, SIZE, Bitmap.Config.ARGB_8888));
+        mCompassView.draw(mCanvas);
+    }
+
+    public void testTurnsTheShortWay() {
+        mCompassView.update(350);
+        drawUntilSettled();
+        assertEquals(350f, (mCompassView.getDirection() + 360) % 360, 0.01f);
+
+        // From 350 to 10 the needle passes north, not south
+        mCompassView.update(10);
+        int frames = 0;
+        while (mCompassView.isAnimating() && frames++ < MAX_FRAMES) {
+            mCompassView.draw(mCanvas);
+            float direction = (mCompassView.getDirection() + 360) % 360;
+            assertTrue("Error: The needle went the long way round, at " + direction,
+                    direction >= 349.99f || direction <= 10.01f);
+            SystemClock.sleep(FRAME_MILLIS);
+        }
+        assertFalse(mCompassView.isAnimating());
+        assertEquals(10f, (mCompassView.getDirection() + 360) % 360, 0.01f);
+    }
+
+    /*
+        Animates the needle frame by frame, the way the detail screen redraws in kiosk mode, and
+        reports the draw times.  Drawing a frame must not allocate, so an animation never causes
+        a garbage collection.
+     */
+    public void testAnimationDoesNotAllocate() {
+        // Warm up, so anything lazily created by the canvas already exists
+        mCompassView.update(90);
+        drawUntilSettled();
+
+        long[] frameNanos = new long[MAX_FRAMES];
+        int frames = 0;
+        int gcCount = Debug.getGlobalGcInvocationCount();
+
+        mCompassView.update(270);
+        Debug.resetThreadAllocSize();
+        Debug.startAllocCounting();
+        while (mCompassView.isAnimating() && frames < MAX_FRAMES) {
+            long start = System.nanoTime();
+            mCompassView.draw(mCanvas);
+            frameNanos[frames++] = System.nanoTime() - start;
+            SystemClock.sleep(FRAME_MILLIS);
+        }
+        Debug.stopAllocCounting();
+        long allocatedBytes = Debug.getThreadAllocSize();
+        int gcDuringAnimation = Debug.getGlobalGcInvocationCount() - gcCount;
+
+        BenchmarkStats stats = new BenchmarkStats("CompassView frame");
+        for (int i = 0; i < frames; i++) {
+            stats.add(frameNanos[i]);
+        }
+        Log.i(LOG_TAG, stats.toString());
+        Log.i(LOG_TAG, frames + " frames, " + allocatedBytes + " bytes allocated, "
+                + gcDuringAnimation + " GCs in the process");
+
+        assertTrue("Error: The animation never ran", frames > 1);
+        assertFalse("Error: The animation did not finish", mCompassView.isAnimating());
+        assertEquals("Error: Drawing an animation frame allocated", 0, allocatedBytes);
+    }
+
+    private void drawUntilSettled() {
+        int frames = 0;
+        while (mCompassView.isAnimating() && frames++ < MAX_FRAMES) {
+            mCompassView.draw(mCanvas);
+            SystemClock.sleep(FRAME_MILLIS);
+        }
+        mCompassView.draw(mCanvas);
+    }
+}
@@ -0,0 +1,117 @@
+package com.example.android.sunshine.app;
+
+import android.os.Debug;
+import android.test.AndroidTestCase;
+import android.util.Log;
+
+import java.text.SimpleDateFormat;
+import java.util.Locale;
+
+@SuppressWarnings("deprecation")
+public class TestDayFormatter extends AndroidTestCase {
+
+    public static final String LOG_TAG = TestDayFormatter.class.getSimpleName();
+
+    private static final long DAY_IN_MILLIS = 1000 * 60 * 60 * 24;
+    private static final int DAYS = 14;
+    private static final int PASSES = 2000;
+
+    private Locale mDefaultLocale;
+    private DayFormatter mFormatter;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        mDefaultLocale = Locale.getDefault();
+        mFormatter = DayFormatter.getInstance(mContext);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        Locale.setDefault(mDefaultLocale);
+        mFormatter.invalidate();
+        super.tearDown();
+    }
+
+    public void testFormats() {
+        Locale.setDefault(Locale.US);
+        long now = System.currentTimeMillis();
+
+        assertEquals(mContext.getString(R.string.today), mFormatter.getDayName(now));
+        assertEquals(mContext.getString(R.string.tomorrow),
+                mFormatter.getDayName(now + DAY_IN_MILLIS));
+        assertEquals(new SimpleDateFormat("EEEE", Locale.US).format(now + 3 * DAY_IN_MILLIS),
+                mFormatter.getDayName(now + 3 * DAY_IN_MILLIS));
+        assertEquals(new SimpleDateFormat("MMMM dd", Locale.US).format(now),
+                mFormatter.getFormattedMonthDay(now));
+        assertEquals(new SimpleDateFormat("EEE MMM dd", Locale.US).format(now + 10 * DAY_IN_MILLIS),
+                mFormatter.getFriendlyDayString(now + 10 * DAY_IN_MILLIS));
+        assertTrue(mFormatter.getFriendlyDayString(now)
+                .startsWith(mContext.getString(R.string.today)));
+        // Outside the memoized days still formats
+        assertEquals(new SimpleDateFormat("EEE MMM dd", Locale.US).format(now + 100 * DAY_IN_MILLIS),
+                mFormatter.getFriendlyDayString(now + 100 * DAY_IN_MILLIS));
+    }
+
+    public void testLocaleChange() {
+        long date = System.currentTimeMillis() + 10 * DAY_IN_MILLIS;
+        Locale.setDefault(Locale.US);
+        String english = mFormatter.getFriendlyDayString(date);
+
+        Locale ukrainian = new Locale("uk", "UA");
+        Locale.setDefault(ukrainian);
+        String localized = mFormatter.getFriendlyDayString(date);
+        assertFalse("Error: The memoized day survived a locale change", english.equals(localized));
+        assertEquals(new SimpleDateFormat("EEE dd MMM", ukrainian).format(date), localized);
+    }
+
+    /*
+        Formats the days of a forecast over and over, the way binding and loading do, and
+        reports formatted dates per second and bytes allocated per call, next to the
+        SimpleDateFormat-per-call approach this replaced.
+     */
+    public void testFormattingBenchmark() {
+        Locale.setDefault(Locale.US);
+        long today = System.currentTimeMillis();
+
+        // Warm up, so the memo and the formatters are filled
+        for (int i = 0; i < DAYS; i++) {
+            mFormatter.getFriendlyDayString(today + i * DAY_IN_MILLIS);
+        }
+
+        Debug.resetThreadAllocSize();
+        Debug.startAllocCounting();
+        long start = System.nanoTime();
+        for (int pass = 0; pass < PASSES; pass++) {
+            for (int i = 0; i < DAYS; i++) {
+                mFormatter.getFriendlyDayString(today + i * DAY_IN_MILLIS);
+            }
+        }
+        long cachedNanos = System.nanoTime() - start;
+        Debug.stopAllocCounting();
+        long cachedBytes = Debug.getThreadAllocSize();
+
+        Debug.resetThreadAllocSize();
+        Debug.startAllocCounting();
+        start = System.nanoTime();
+        for (int pass = 0; pass < PASSES / 20; pass++) {
+            for (int i = 0; i < DAYS; i++) {
+                new SimpleDateFormat("EEEE").format(today + i * DAY_IN_MILLIS);
+            }
+        }
+        long uncachedNanos = System.nanoTime() - start;
+        Debug.stopAllocCounting();
+        long uncachedBytes = Debug.getThreadAllocSize();
+
+        int cachedCalls = PASSES * DAYS;
+        int uncachedCalls = PASSES / 20 * DAYS;
+        Log.i(LOG_TAG, String.format(Locale.US,
+                "DayFormatter: %.0f dates/s, %.1f bytes/call", cachedCalls * 1e9 / cachedNanos,
+                (double) cachedBytes / cachedCalls));
+        Log.i(LOG_TAG, String.format(Locale.US,
+                "SimpleDateFormat per call: %.0f dates/s, %.1f bytes/call",
+                uncachedCalls * 1e9 / uncachedNanos, (double) uncachedBytes / uncachedCalls));
+
+        assertEquals("Error: Formatting a memoized day allocated", 0, cachedBytes);
+    }
+}
@@ -0,0 +1,136 @@
+package com.example.android.sunshine.app;
+
+import android.os.Debug;
+import android.test.AndroidTestCase;
+import android.util.Log;
+import android.widget.FrameLayout;
+
+import com.example.android.sunshine.app.data.WeatherContract;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Binding a forecast row must only assign the values {@link ForecastFormatter} prepared on the
+ * loader thread.  Allocations are counted with the (deprecated, but still the only per-thread)
+ * {@link Debug} allocation counters.
+ */
+@SuppressWarnings("deprecation")
+public class TestForecastAdapterBind extends AndroidTestCase {
+
+    public static final String LOG_TAG = TestForecastAdapterBind.class.getSimpleName();
+
+    private static final long DAY_IN_MILLIS = 1000 * 60 * 60 * 24;
+    private static final int DAYS = 14;
+    private static final int PASSES = 100;
+
+    private ForecastAdapter mAdapter;
+    private ForecastAdapter.ViewHolder[] mHolders;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        mAdapter = new ForecastAdapter(new ForecastAdapter.OnItemClickListener() {
+            @Override
+            public void onItemClick(ForecastRow row, int position) {
+            }
+        });
+        mAdapter.swapRows(formatDays());
+
+        FrameLayout parent = new FrameLayout(mContext);
+        mHolders = new ForecastAdapter.ViewHolder[DAYS];
+        for (int i = 0; i < DAYS; i++) {
+            mHolders[i] = mAdapter.onCreateViewHolder(parent, mAdapter.getItemViewType(i));
+            mAdapter.onBindViewHolder(mHolders[i], i);
+        }
+    }
+
+    public void testRebindDoesNotAllocate() {
+        assertEquals(0, countBindAllocations());
+    }
+
+    public void testRebindAfterEqualSyncDoesNotAllocate() throws InterruptedException {
+        // A sync that brings the same forecast formats new, equal strings
+        List<ForecastRow> synced = formatDays();
+        mAdapter.swapRows(synced);
+
+        // The new list is applied on the main thread once its diff is computed
+        long deadline = System.currentTimeMillis() + 5000;
+        while (mAdapter.getRows() != synced) {
+            assertTrue("Error: The new rows were never applied",
+                    System.currentTimeMillis() < deadline);
+            Thread.sleep(10);
+        }
+        assertEquals(0, countBindAllocations());
+    }
+
+    public void testBindFormatsNothing() {
+        // Scrolling binds other days into the holders.  What's left is the views' own work:
+        // at most what handing them the prepared values allocates, none of the formatting.
+        Debug.resetThreadAllocCount();
+        Debug.startAllocCounting();
+        for (int pass = 0; pass < PASSES; pass++) {
+            for (int i = 0; i < DAYS; i++) {
+                mAdapter.onBindViewHolder(mHolders[(i + pass + 1) % DAYS], i);
+            }
+        }
+        Debug.stopAllocCounting();
+        int bindAllocations = Debug.getThreadAllocCount();
+
+        // The same binds, setting every view unconditionally
+        BitmapCache bitmapCache = BitmapCache.getInstance(mContext);
+        Debug.resetThreadAllocCount();
+        Debug.startAllocCounting();
+        for (int pass = 0; pass < PASSES; pass++) {
+            for (int i = 0; i < DAYS; i++) {
+                ForecastAdapter.ViewHolder holder = mHolders[(i + pass + 1) % DAYS];
+                ForecastRow.Display display = mAdapter.getRows().get(i).display;
+                bitmapCache.setImageResource(holder.iconView,
+                        mAdapter.getItemViewType(i) == ForecastAdapter.VIEW_TYPE_TODAY
+                                ? display.artResId : display.iconResId);
+                holder.dateView.setText(display.dateText);
+                holder.descriptionView.setText(display.descriptionText);
+                holder.highTempView.setText(display.highText);
+                holder.lowTempView.setText(display.lowText);
+                holder.iconView.setContentDescription(display.iconDescription);
+                holder.itemView.setSelected(false);
+            }
+        }
+        Debug.stopAllocCounting();
+        int viewAllocations = Debug.getThreadAllocCount();
+
+        Log.i(LOG_TAG, "Allocations per scrolled bind: " +
+                (float) bindAllocations / (PASSES * DAYS) + ", setting the views alone: " +
+                (float) viewAllocations / (PASSES * DAYS));
+        assertTrue("Error: Binding allocates more than setting the views does, " +
+                bindAllocations + " against " + viewAllocations,
+                bindAllocations <= viewAllocations);
+    }
+
+    private int countBindAllocations() {
+        Debug.resetThreadAllocCount();
+        Debug.startAllocCounting();
+        for (int pass = 0; pass < PASSES; pass++) {
+            for (int i = 0; i < DAYS; i++) {
+                mAdapter.onBindViewHolder(mHolders[i], i);
+            }
+        }
+        Debug.stopAllocCounting();
+        return Debug.getThreadAllocCount();
+    }
+
+    private List<ForecastRow> formatDays() {
+        ForecastFormatter formatter = new ForecastFormatter(mContext);
+        List<ForecastRow> rows = new ArrayList<ForecastRow>();
+        long date = WeatherContract.normalizeDate(System.currentTimeMillis());
+        for (int i = 0; i < DAYS; i++, date += DAY_IN_MILLIS) {
+            int weatherId = i % 2 == 0 ? 800 : 501;
+            String description = i % 2 == 0 ? "Clear" : "Rain";
+            double max = 20 + i;
+            double min = 10 - i;
+            rows.add(new ForecastRow(i, "london,uk", date, description, max, min, weatherId,
+                    51.51, -0.13, formatter.format(date, description, max, min, weatherId)));
+        }
+        return rows;
+    }
+}
@@ -0,0 +1,175 @@
+package com.example.android.sunshine.app;
+
+import android.support.v7.widget.RecyclerView;
+import android.test.AndroidTestCase;
+import android.view.ViewGroup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+public class TestForecastDiff extends AndroidTestCase {
+
+    private static final long DAY_IN_MILLIS = 1000 * 60 * 60 * 24;
+
+    public void testNothingChanged() {
+        List<ForecastRow> rows = days(0, 14, 20);
+        ForecastDiff diff = ForecastDiff.compute(rows, days(0, 14, 20));
+        assertTrue("Error: Identical lists produced changes", diff.isEmpty());
+        assertFalse(diff.isFirstRowReplaced());
+    }
+
+    public void testOneDayChanged() {
+        List<ForecastRow> oldRows = days(0, 14, 20);
+        List<ForecastRow> newRows = new ArrayList<ForecastRow>(oldRows);
+        ForecastRow day = oldRows.get(5);
+        newRows.set(5, new ForecastRow(day.id + 100, day.locationSetting, day.date,
+                day.description, day.maxTemp + 1, day.minTemp, day.weatherId,
+                day.coordLat, day.coordLong, day.display));
+
+        RecordingObserver observer = dispatch(oldRows, newRows);
+        assertEquals("changed 5+1", observer.toString());
+    }
+
+    public void testNextDaySync() {
+        // The next day's sync drops today and adds a day at the end
+        RecordingObserver observer = dispatch(days(0, 14, 20), days(1, 14, 20));
+        assertEquals("removed 0+1 inserted 13+1", observer.toString());
+        assertTrue(ForecastDiff.compute(days(0, 14, 20), days(1, 14, 20)).isFirstRowReplaced());
+    }
+
+    public void testOtherLocation() {
+        List<ForecastRow> oldRows = days(0, 3, 20);
+        List<ForecastRow> newRows = new ArrayList<ForecastRow>();
+        for (ForecastRow row : oldRows) {
+            newRows.add(new ForecastRow(row.id, "kyiv,ua", row.date, row.description,
+                    row.maxTemp, row.minTemp, row.weatherId, row.coordLat, row.coordLong,
+                    row.display));
+        }
+        RecordingObserver observer = dispatch(oldRows, newRows);
+        assertEquals(newRows.size(), observer.replay(oldRows, newRows));
+    }
+
+    public void testRandomEdits() {
+        Random random = new Random(31);
+        for (int i = 0; i < 200; i++) {
+            List<ForecastRow> oldRows = randomDays(random);
+            List<ForecastRow> newRows = randomDays(random);
+            RecordingObserver observer = dispatch(oldRows, newRows);
+            assertEquals("Error: Replaying the diff did not give the new list",
+                    newRows.size(), observer.replay(oldRows, newRows));
+        }
+    }
+
+    private static List<ForecastRow> days(int firstDay, int count, double maxTemp) {
+        List<ForecastRow> rows = new ArrayList<ForecastRow>();
+        for (int day = firstDay; day < firstDay + count; day++) {
+            rows.add(new ForecastRow(day, "london,uk", day * DAY_IN_MILLIS, "Clear",
+                    maxTemp, 10, 800, 51.51, -0.13, null));
+        }
+        return rows;
+    }
+
+    private static List<ForecastRow> randomDays(Random random) {
+        List<ForecastRow> rows = new ArrayList<ForecastRow>();
+        for (int day = 0; day < 20; day++) {
+            if (random.nextBoolean()) {
+                rows.add(new ForecastRow(day, "london,uk", day * DAY_IN_MILLIS, "Clear",
+                        random.nextInt(3), 10, 800, 51.51, -0.13, null));
+            }
+        }
+        return rows;
+    }
+
+    private static RecordingObserver dispatch(List<ForecastRow> oldRows,
+                                              List<ForecastRow> newRows) {
+        RecyclerView.Adapter adapter = new RecyclerView.Adapter() {
+            @Override
+            public RecyclerView.ViewHolder onCreateViewHolder(ViewGroup parent, int viewType) {
+                return null;
+            }
+
+            @Override
+            public void onBindViewHolder(RecyclerView.ViewHolder holder, int position) {
+            }
+
+            @Override
+            public int getItemCount() {
+                return 0;
+            }
+        };
+        RecordingObserver observer = new RecordingObserver();
+        adapter.registerAdapterDataObserver(observer);
+        ForecastDiff.compute(oldRows, newRows).dispatchTo(adapter);
+        return observer;
+    }
+
+    private static class RecordingObserver extends RecyclerView.AdapterDataObserver {
+        private final StringBuilder mLog = new StringBuilder();
+        private final List<int[]> mOps = new ArrayList<int[]>();
+
+        @Override
+        public void onItemRangeInserted(int positionStart, int itemCount) {
+            record("inserted", 0, positionStart, itemCount);
+        }
+
+        @Override
+        public void onItemRangeRemoved(int positionStart, int itemCount) {
+            record("removed", 1, positionStart, itemCount);
+        }
+
+        @Override
+        public void onItemRangeChanged(int positionStart, int itemCount) {
+            record("changed", 2, positionStart, itemCount);
+        }
+
+        private void record(String name, int op, int positionStart, int itemCount) {
+            if (mLog.length() > 0) {
+                mLog.append(' ');
+            }
+            mLog.append(name).append(' ').append(positionStart).append('+').append(itemCount);
+            mOps.add(new int[]{op, positionStart, itemCount});
+        }
+
+        /**
+         * Applies the recorded notifications to the old list, taking inserted and changed rows
+         * from the new list, and checks every row ends up where the new list has it.
+         *
+         * @return the size of the resulting list.
+         */
+        int replay(List<ForecastRow> oldRows, List<ForecastRow> newRows) {
+            List<ForecastRow> rows = new ArrayList<ForecastRow>(oldRows);
+            List<Boolean> touched = new ArrayList<Boolean>();
+            for (int i = 0; i < rows.size(); i++) {
+                touched.add(false);
+            }
+            for (int[] op : mOps) {
+                for (int i = 0; i < op[2]; i++) {
+                    int position = op[1] + (op[0] == 1 ? 0 : i);
+                    if (op[0] == 0) {
+                        rows.add(position, null);
+                        touched.add(position, true);
+                    } else if (op[0] == 1) {
+                        rows.remove(position);
+                        touched.remove(position);
+                    } else {
+                        touched.set(position, true);
+                    }
+                }
+            }
+            assertEquals(newRows.size(), rows.size());
+            for (int i = 0; i < rows.size(); i++) {
+                if (!touched.get(i)) {
+                    assertTrue("Error: Row " + i + " was not updated",
+                            rows.get(i).sameContentAs(newRows.get(i)));
+                }
+            }
+            return rows.size();
+        }
+
+        @Override
+        public String toString() {
+            return mLog.toString();
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package com.example.android.sunshine.app;
+
+import android.test.AndroidTestCase;
+
+import com.example.android.sunshine.app.data.WeatherContract;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+public class TestForecastModel extends AndroidTestCase {
+
+    private static final long DAY_IN_MILLIS = 1000 * 60 * 60 * 24;
+    private static final int DAYS = 14;
+    private static final String LOCATION = "london,uk";
+
+    private ForecastModel mModel;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        mModel = ForecastModel.getInstance(mContext);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        mModel.clear();
+        super.tearDown();
+    }
+
+    public void testEveryDayIsFound() {
+        long today = WeatherContract.normalizeDate(System.currentTimeMillis());
+        mModel.publish(LOCATION, days(today, true));
+
+        for (int i = 0; i < DAYS; i++) {
+            ForecastRow row = mModel.getDay(LOCATION, today + i * DAY_IN_MILLIS);
+            assertNotNull("Error: Day " + i + " is missing", row);
+            assertEquals(today + i * DAY_IN_MILLIS, row.date);
+            assertEquals(50f + i, row.detail.humidity);
+        }
+
+        // Misses send the detail screen to the provider
+        assertNull(mModel.getDay(LOCATION, today + DAYS * DAY_IN_MILLIS));
+        assertNull(mModel.getDay("kyiv,ua", today));
+        mModel.clear();
+        assertNull(mModel.getDay(LOCATION, today));
+    }
+
+    public void testBothPanesShareTheRows() {
+        long today = WeatherContract.normalizeDate(System.currentTimeMillis());
+        List<ForecastRow> rows = days(today, true);
+        mModel.publish(LOCATION, rows);
+
+        // The list gets the loader's own list, the detail pane one of its rows
+        assertSame(rows, mModel.getRows(LOCATION));
+        assertSame(rows.get(3), mModel.getDay(LOCATION, today + 3 * DAY_IN_MILLIS));
+        assertNull(mModel.getRows("kyiv,ua"));
+        assertTrue(mModel.hasForecast());
+    }
+
+    public void testRowsWithoutDetailsAreMisses() {
+        long today = WeatherContract.normalizeDate(System.currentTimeMillis());
+        mModel.publish(LOCATION, days(today, false));
+        assertNull(mModel.getDay(LOCATION, today));
+    }
+
+    public void testListenersAreNotified() throws InterruptedException {
+        final CountDownLatch notified = new CountDownLatch(1);
+        ForecastModel.Listener listener = new ForecastModel.Listener() {
+            @Override
+            public void onForecastChanged() {
+                notified.countDown();
+            }
+        };
+        mModel.addListener(listener);
+        try {
+            mModel.publish(LOCATION, days(WeatherContract.normalizeDate(
+                    System.currentTimeMillis()), true));
+            assertTrue("Error: The listener was not notified",
+                    notified.await(5, TimeUnit.SECONDS));
+        } finally {
+            mModel.removeListener(listener);
+        }
+    }
+
+    private List<ForecastRow> days(long today, boolean withDetail) {
+        ForecastFormatter formatter = new ForecastFormatter(mContext);
+        List<ForecastRow> rows = new ArrayList<ForecastRow>();
+        for (int i = 0; i < DAYS; i++) {
+            long date = today + i * DAY_IN_MILLIS;
+            ForecastRow.Detail detail = withDetail
+                    ? new ForecastRow.Detail(50f + i, 1010f, 3.5f, 10f * i) : null;
+            rows.add(new ForecastRow(i, LOCATION, date, "Clear", 20, 10, 800, 51.51, -0.13,
+                    formatter.format(date, "Clear", 20, 10, 800), detail));
+        }
+        return rows;
+    }
+}
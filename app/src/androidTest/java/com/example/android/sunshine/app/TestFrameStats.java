@@ -0,0 +1,46 @@
+package com.example.android.sunshine.app;
+
+import android.test.AndroidTestCase;
+
+public class TestFrameStats extends AndroidTestCase {
+
+    private static final long MILLIS = 1000 * 1000;
+
+    public void testCountsAndPercentiles() {
+        FrameStats stats = new FrameStats("test");
+        for (int i = 0; i < 90; i++) {
+            stats.add(16 * MILLIS);
+        }
+        for (int i = 0; i < 8; i++) {
+            stats.add(20 * MILLIS);
+        }
+        stats.add(40 * MILLIS);
+        stats.add(50 * MILLIS);
+
+        assertEquals(100, stats.getFrameCount());
+        assertEquals(10, stats.getJankCount());
+        assertEquals(2, stats.getBigJankCount());
+        assertEquals(16 * MILLIS, stats.percentile(50));
+        assertEquals(16 * MILLIS, stats.percentile(90));
+        assertEquals(20 * MILLIS, stats.percentile(98));
+        assertEquals(50 * MILLIS, stats.percentile(100));
+
+        stats.reset();
+        assertEquals(0, stats.getFrameCount());
+        assertEquals(0, stats.percentile(50));
+    }
+
+    public void testBufferKeepsTheLatestFrames() {
+        FrameStats stats = new FrameStats("test");
+        for (int i = 0; i < FrameStats.CAPACITY; i++) {
+            stats.add(100 * MILLIS);
+        }
+        // The slow frames roll out, the counts keep them
+        for (int i = 0; i < FrameStats.CAPACITY; i++) {
+            stats.add(16 * MILLIS);
+        }
+        assertEquals(16 * MILLIS, stats.percentile(100));
+        assertEquals(2 * FrameStats.CAPACITY, stats.getFrameCount());
+        assertEquals(FrameStats.CAPACITY, stats.getBigJankCount());
+    }
+}
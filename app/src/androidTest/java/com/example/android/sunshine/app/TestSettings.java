@@ -0,0 +1,64 @@
+package com.example.android.sunshine.app;
+
+import android.content.SharedPreferences;
+import android.preference.PreferenceManager;
+import android.test.AndroidTestCase;
+
+public class TestSettings extends AndroidTestCase {
+
+    private static final long TIMEOUT_MILLIS = 5000;
+
+    private SharedPreferences mPrefs;
+    private String mLocation;
+    private String mUnits;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        mPrefs = PreferenceManager.getDefaultSharedPreferences(mContext);
+        mLocation = mPrefs.getString(mContext.getString(R.string.pref_location_key), null);
+        mUnits = mPrefs.getString(mContext.getString(R.string.pref_units_key), null);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        mPrefs.edit()
+                .putString(mContext.getString(R.string.pref_location_key), mLocation)
+                .putString(mContext.getString(R.string.pref_units_key), mUnits)
+                .commit();
+        super.tearDown();
+    }
+
+    public void testSnapshotIsReused() {
+        // Nothing changed, so the same snapshot comes back without reading the preferences
+        assertSame(Settings.get(mContext), Settings.get(mContext));
+        assertEquals(Utility.getPreferredLocation(mContext), Settings.get(mContext).location);
+    }
+
+    public void testSnapshotFollowsPreferences() throws InterruptedException {
+        Settings.get(mContext);
+        mPrefs.edit()
+                .putString(mContext.getString(R.string.pref_location_key), "94043")
+                .putString(mContext.getString(R.string.pref_units_key),
+                        mContext.getString(R.string.pref_units_imperial))
+                .commit();
+
+        // Listeners of a commit made off the main thread run on the main thread
+        long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+        while (!"94043".equals(Settings.get(mContext).location)) {
+            assertTrue("Error: The settings snapshot was not refreshed",
+                    System.currentTimeMillis() < deadline);
+            Thread.sleep(10);
+        }
+        assertFalse(Settings.get(mContext).metric);
+        assertFalse(Utility.isMetric(mContext));
+        assertEquals("94043", Utility.getPreferredLocation(mContext));
+    }
+
+    public void testLastNotificationIsImmediate() {
+        long time = System.currentTimeMillis();
+        Settings.setLastNotification(mContext, time);
+        assertEquals(time, Settings.get(mContext).lastNotification);
+        assertEquals(time, mPrefs.getLong(mContext.getString(R.string.pref_last_notification), 0));
+    }
+}
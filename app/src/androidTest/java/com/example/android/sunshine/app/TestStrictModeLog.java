@@ -0,0 +1,53 @@
+package com.example.android.sunshine.app;
+
+import junit.framework.TestCase;
+
+import java.util.Map;
+
+public class TestStrictModeLog extends TestCase {
+
+    private static final int PID = 2080;
+
+    // What a Marshmallow device logs for two reads on the main thread, and a leaked database
+    // of another process in between
+    private static final String LOG = ""
+            + "--------- beginning of main\n"
+            + "D/StrictMode( 2080): StrictMode policy violation; ~duration=12 ms: "
+            + "android.os.StrictMode$StrictModeDiskReadViolation: policy=31 violation=2\n"
+            + "D/StrictMode( 2080): \tat android.os.StrictMode$AndroidBlockGuardPolicy"
+            + ".onReadFromDisk(StrictMode.java:1263)\n"
+            + "D/StrictMode( 2080): \tat libcore.io.BlockGuardOs.open(BlockGuardOs.java:182)\n"
+            + "D/StrictMode( 2080): \tat com.example.android.sunshine.app.ForecastSnapshot"
+            + ".read(ForecastSnapshot.java:88)\n"
+            + "D/StrictMode( 2080): \tat com.example.android.sunshine.app.ForecastFragment"
+            + ".onCreateView(ForecastFragment.java:140)\n"
+            + "E/StrictMode( 1999): A SQLiteConnection object for database 'x.db' was leaked!\n"
+            + "D/StrictMode( 2080): StrictMode policy violation: "
+            + "android.os.StrictMode$StrictModeDiskWriteViolation: policy=31 violation=1\n"
+            + "D/StrictMode( 2080): \tat android.os.StrictMode$AndroidBlockGuardPolicy"
+            + ".onWriteToDisk(StrictMode.java:1234)\n"
+            + "D/StrictMode( 2080): \tat android.app.SharedPreferencesImpl"
+            + ".commit(SharedPreferencesImpl.java:500)\n"
+            + "D/StrictMode( 2080): StrictMode policy violation; ~duration=3 ms: "
+            + "android.os.StrictMode$StrictModeDiskReadViolation: policy=31 violation=2\n"
+            + "D/StrictMode( 2080): \tat com.example.android.sunshine.app.ForecastSnapshot"
+            + ".read(ForecastSnapshot.java:88)\n"
+            + "D/StrictMode( 2080): Caused by: java.lang.Throwable\n"
+            + "D/StrictMode( 2080): \tat com.example.android.sunshine.app.Settings"
+            + ".<init>(Settings.java:30)\n";
+
+    public void testSignatures() {
+        Map<String, Integer> violations = StrictModeLog.parse(LOG, PID);
+        assertEquals(2, violations.size());
+        // The same signatures StrictModeMonitor gives on Pie, and the baseline holds
+        assertEquals(Integer.valueOf(2), violations.get(
+                "DiskReadViolation com.example.android.sunshine.app.ForecastSnapshot.read"));
+        // Nothing of ours on the stack
+        assertEquals(Integer.valueOf(1), violations.get(
+                "DiskWriteViolation android.app.SharedPreferencesImpl.commit"));
+    }
+
+    public void testOtherProcess() {
+        assertTrue(StrictModeLog.parse(LOG, PID + 1).isEmpty());
+    }
+}
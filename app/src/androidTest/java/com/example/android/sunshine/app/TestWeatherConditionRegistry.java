@@ -0,0 +1,84 @@
+package com.example.android.sunshine.app;
+
+import android.test.AndroidTestCase;
+
+public class TestWeatherConditionRegistry extends AndroidTestCase {
+
+    // Codes around and beyond the ones OpenWeatherMap sends
+    private static final int FIRST_CODE = -1;
+    private static final int LAST_CODE = 1000;
+
+    /*
+        Goes through every code and checks the registry against the mapping written out by hand,
+        so a mistake in the range table can't hide behind the same mistake in the test.  The
+        mapping is the one Utility's if/else chains had, codes they didn't cover included.
+     */
+    public void testEveryCode() {
+        for (int code = FIRST_CODE; code <= LAST_CODE; code++) {
+            int expected = expectedCategory(code);
+            WeatherConditionRegistry.Condition condition = WeatherConditionRegistry.get(code);
+            assertEquals("Error: Wrong category for code " + code, expected, condition.category);
+
+            if (expected == WeatherConditionRegistry.CATEGORY_UNKNOWN) {
+                assertSame(WeatherConditionRegistry.UNKNOWN, condition);
+                assertEquals(-1, Utility.getIconResourceForWeatherCondition(code));
+                assertEquals(-1, Utility.getArtResourceForWeatherCondition(code));
+                assertNull(Utility.getLocaleForecastDescription(mContext, code));
+            } else {
+                assertEquals(condition.iconResId, Utility.getIconResourceForWeatherCondition(code));
+                assertEquals(condition.artResId, Utility.getArtResourceForWeatherCondition(code));
+                assertEquals(mContext.getString(condition.descriptionResId),
+                        Utility.getLocaleForecastDescription(mContext, code));
+            }
+        }
+    }
+
+    public void testConditions() {
+        WeatherConditionRegistry.Condition storm = WeatherConditionRegistry.get(211);
+        assertEquals(R.drawable.ic_storm, storm.iconResId);
+        assertEquals(R.drawable.art_storm, storm.artResId);
+        assertEquals(R.string.storm, storm.descriptionResId);
+        assertEquals(3, storm.severity);
+
+        WeatherConditionRegistry.Condition clouds = WeatherConditionRegistry.get(804);
+        assertEquals(R.drawable.ic_cloudy, clouds.iconResId);
+        assertEquals(R.drawable.art_clouds, clouds.artResId);
+        assertEquals(R.string.clouds, clouds.descriptionResId);
+
+        assertEquals(0, WeatherConditionRegistry.get(800).severity);
+        assertTrue(WeatherConditionRegistry.get(502).severity
+                > WeatherConditionRegistry.get(301).severity);
+
+        // Every code in the same category shares one condition
+        assertSame(WeatherConditionRegistry.get(500), WeatherConditionRegistry.get(531));
+        assertSame(WeatherConditionRegistry.get(511), WeatherConditionRegistry.get(600));
+    }
+
+    private static int expectedCategory(int code) {
+        if (code >= 200 && code <= 232) {
+            return WeatherConditionRegistry.CATEGORY_STORM;
+        } else if (code >= 300 && code <= 321) {
+            return WeatherConditionRegistry.CATEGORY_LIGHT_RAIN;
+        } else if (code >= 500 && code <= 504) {
+            return WeatherConditionRegistry.CATEGORY_RAIN;
+        } else if (code == 511) {
+            return WeatherConditionRegistry.CATEGORY_SNOW;
+        } else if (code >= 520 && code <= 531) {
+            return WeatherConditionRegistry.CATEGORY_RAIN;
+        } else if (code >= 600 && code <= 622) {
+            return WeatherConditionRegistry.CATEGORY_SNOW;
+        } else if (code >= 701 && code <= 760) {
+            // The old chain went up to 761 here, which left the dust branch below unreachable
+            return WeatherConditionRegistry.CATEGORY_FOG;
+        } else if (code == 761 || code == 781) {
+            return WeatherConditionRegistry.CATEGORY_STORM;
+        } else if (code == 800) {
+            return WeatherConditionRegistry.CATEGORY_CLEAR;
+        } else if (code == 801) {
+            return WeatherConditionRegistry.CATEGORY_LIGHT_CLOUDS;
+        } else if (code >= 802 && code <= 804) {
+            return WeatherConditionRegistry.CATEGORY_CLOUDS;
+        }
+        return WeatherConditionRegistry.CATEGORY_UNKNOWN;
+    }
+}
@@ -0,0 +1,140 @@
+package com.example.android.sunshine.app.data;
+
+import android.content.ContentResolver;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+import android.net.Uri;
+import android.test.ProviderTestCase2;
+import android.util.Log;
+
+import com.example.android.sunshine.app.data.WeatherContract.LocationEntry;
+import com.example.android.sunshine.app.utils.BenchmarkBudget;
+import com.example.android.sunshine.app.utils.BenchmarkReport;
+import com.example.android.sunshine.app.utils.BenchmarkStats;
+
+import org.json.JSONObject;
+
+import java.util.Random;
+
+/**
+ * Measures prefix search over 50k stored locations the way the search dialog runs it, through
+ * the location/search uri of a {@link WeatherProvider} with the limit the suggestions ask for.
+ * Runs against a provider of its own on a temporary database file, see
+ * {@link WeatherDbHelper.Mode#TEMP_FILE}, so the app's locations are left alone.
+ *
+ * Results are appended to search_benchmark.jsonl, see {@link BenchmarkReport}.  The median is
+ * held to the ceiling in the search_budget.properties asset, if it has one.
+ */
+public class LocationSearchBenchmark extends ProviderTestCase2<WeatherProvider> {
+
+    private static final String LOG_TAG = LocationSearchBenchmark.class.getSimpleName();
+
+    private static final String BUDGET = "search_budget.properties";
+
+    private static final int LOCATIONS = 50000;
+    private static final int QUERIES = 500;
+    // What the search dialog asks for
+    private static final String LIMIT = "20";
+
+    private static final String[] SYLLABLES = {
+            "ka", "lo", "mi", "ber", "sto", "ran", "vel", "do", "ne", "tur",
+            "gra", "lin", "pe", "so", "chi", "mar", "ko", "ta", "vil", "zen"
+    };
+
+    private ContentResolver mResolver;
+    private BenchmarkReport mReport;
+
+    public LocationSearchBenchmark() {
+        super(WeatherProvider.class, WeatherContract.CONTENT_AUTHORITY);
+    }
+
+    @Override
+    protected void setUp() throws Exception {
+        // Before the provider, and its helper, are created
+        WeatherDbHelper.setDefaultMode(WeatherDbHelper.Mode.TEMP_FILE);
+        super.setUp();
+        mResolver = getMockContentResolver();
+        mReport = new BenchmarkReport(getContext(), "search_benchmark");
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        super.tearDown();
+        WeatherDbHelper.setDefaultMode(WeatherDbHelper.Mode.DISK);
+    }
+
+    public void testPrefixSearch() throws Exception {
+        Random random = new Random(29);
+        String[] names = insertLocations(random);
+
+        BenchmarkStats stats = new BenchmarkStats("Location prefix search, " +
+                LOCATIONS + " locations");
+        for (int i = 0; i < QUERIES; i++) {
+            String name = names[random.nextInt(names.length)];
+            Uri uri = LocationEntry.buildLocationSearchUri(
+                    name.substring(0, 3 + random.nextInt(name.length() - 3)))
+                    .buildUpon()
+                    .appendQueryParameter(LocationEntry.PARAM_LIMIT, LIMIT)
+                    .build();
+
+            long start = System.nanoTime();
+            Cursor cursor = mResolver.query(uri, null, null, null, null);
+            // Runs the query, it is only run when first read
+            int count = cursor.getCount();
+            cursor.close();
+            stats.add(System.nanoTime() - start);
+            assertTrue("Error: A stored location was not found by its prefix", count > 0);
+        }
+        Log.i(LOG_TAG, stats.toString());
+
+        JSONObject result = mReport.newResult("location_search");
+        result.put("locations", LOCATIONS);
+        result.put("limit", Integer.parseInt(LIMIT));
+        result.put("database", WeatherDbHelper.getDefaultMode().toString());
+        BenchmarkReport.putStats(result, "search", stats);
+        mReport.write(result);
+
+        BenchmarkBudget budget = new BenchmarkBudget(getContext(), BUDGET);
+        budget.check("median_us", stats.median() / 1e3);
+        budget.assertWithin();
+    }
+
+    /*
+        Straight into the provider's database in one transaction, inserting 50k locations
+        through the provider one at a time would take minutes.  The triggers fill the search
+        index all the same.
+     */
+    private String[] insertLocations(Random random) {
+        String[] names = new String[LOCATIONS];
+        SQLiteDatabase db = getProvider().getOpenHelper().getWritableDatabase();
+        SQLiteStatement insert = db.compileStatement("INSERT INTO " + LocationEntry.TABLE_NAME +
+                " (" + LocationEntry.COLUMN_LOCATION_SETTING + ", " +
+                LocationEntry.COLUMN_CITY_NAME + ", " +
+                LocationEntry.COLUMN_COORD_LAT + ", " +
+                LocationEntry.COLUMN_COORD_LONG + ") VALUES (?, ?, ?, ?)");
+        db.beginTransaction();
+        try {
+            for (int i = 0; i < LOCATIONS; i++) {
+                StringBuilder name = new StringBuilder();
+                int syllables = 2 + random.nextInt(3);
+                for (int s = 0; s < syllables; s++) {
+                    name.append(SYLLABLES[random.nextInt(SYLLABLES.length)]);
+                }
+                name.setCharAt(0, Character.toUpperCase(name.charAt(0)));
+                names[i] = name.toString();
+
+                insert.bindString(1, names[i].toLowerCase() + "," + i);
+                insert.bindString(2, names[i]);
+                insert.bindDouble(3, random.nextDouble() * 180 - 90);
+                insert.bindDouble(4, random.nextDouble() * 360 - 180);
+                insert.executeInsert();
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+            insert.close();
+        }
+        return names;
+    }
+}
@@ -0,0 +1,228 @@
+package com.example.android.sunshine.app.data;
+
+import android.content.ContentResolver;
+import android.content.ContentUris;
+import android.content.ContentValues;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.net.Uri;
+import android.test.ProviderTestCase2;
+import android.util.Log;
+
+import com.example.android.sunshine.app.data.WeatherContract.LocationEntry;
+import com.example.android.sunshine.app.data.WeatherContract.WeatherEntry;
+import com.example.android.sunshine.app.utils.BenchmarkBudget;
+import com.example.android.sunshine.app.utils.BenchmarkReport;
+import com.example.android.sunshine.app.utils.BenchmarkStats;
+import com.example.android.sunshine.core.Forecast;
+import com.example.android.sunshine.core.ForecastParser;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Locale;
+
+/**
+ * Measures seeding an empty database from a {@link WeatherSnapshot} against replaying the same
+ * forecasts as JSON the way the sync adapter stores them: parsing each location's forecast,
+ * looking the location up and inserting it, then a bulkInsert of its days through the
+ * provider.  Both the plain and the compressed snapshot are imported, straight into the
+ * database as the provider's importer does, leaving out the pipe.
+ *
+ * Runs against a provider of its own on a temporary database file, see
+ * {@link WeatherDbHelper.Mode#TEMP_FILE}, so the app's data is left alone.
+ *
+ * Results are appended to snapshot_benchmark.jsonl, see {@link BenchmarkReport}, and held to
+ * the ceilings in the snapshot_budget.properties asset.
+ */
+public class SnapshotBenchmark extends ProviderTestCase2<WeatherProvider> {
+
+    private static final String LOG_TAG = SnapshotBenchmark.class.getSimpleName();
+
+    private static final String BUDGET = "snapshot_budget.properties";
+
+    private static final long START_DATE = 1451606400000L;  // January 1st, 2016
+
+    // The first round of each warms up the code paths and the database file
+    private static final int WARMUP_ROUNDS = 1;
+    private static final int ROUNDS = 5;
+
+    private ContentResolver mResolver;
+    private BenchmarkReport mReport;
+    private BenchmarkBudget mBudget;
+
+    public SnapshotBenchmark() {
+        super(WeatherProvider.class, WeatherContract.CONTENT_AUTHORITY);
+    }
+
+    @Override
+    protected void setUp() throws Exception {
+        // Before the provider, and its helper, are created
+        WeatherDbHelper.setDefaultMode(WeatherDbHelper.Mode.TEMP_FILE);
+        super.setUp();
+        mResolver = getMockContentResolver();
+        mReport = new BenchmarkReport(getContext(), "snapshot_benchmark");
+        mBudget = new BenchmarkBudget(getContext(), BUDGET);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        super.tearDown();
+        WeatherDbHelper.setDefaultMode(WeatherDbHelper.Mode.DISK);
+    }
+
+    public void testTenLocations() throws Exception {
+        benchmark(10);
+        mBudget.assertWithin();
+    }
+
+    public void testHundredLocations() throws Exception {
+        benchmark(100);
+        mBudget.assertWithin();
+    }
+
+    private void benchmark(int locations) throws Exception {
+        int days = TestUtilities.FORECAST_DAYS;
+        WeatherDataGenerator generator = new WeatherDataGenerator(locations, START_DATE);
+        String[] settings = new String[locations];
+        String[] forecasts = new String[locations];
+        for (int i = 0; i < locations; i++) {
+            settings[i] = generator.location(i).setting;
+            forecasts[i] = generator.toForecastJson(i, days);
+        }
+        int rows = locations * (days + 1);
+
+        BenchmarkStats replay = new BenchmarkStats("Replaying the JSON of " + locations
+                + " locations");
+        for (int round = 0; round < WARMUP_ROUNDS + ROUNDS; round++) {
+            clear();
+            long start = System.nanoTime();
+            replay(generator, settings, forecasts);
+            long elapsed = System.nanoTime() - start;
+            if (round >= WARMUP_ROUNDS) {
+                replay.add(elapsed);
+            }
+        }
+        assertEquals("Error: Not every row was replayed", rows, countRows());
+
+        // The snapshot of what the replay stored
+        SQLiteDatabase db = getProvider().getOpenHelper().getWritableDatabase();
+        byte[] snapshot = export(db, 0);
+        byte[] compressed = export(db, WeatherSnapshot.FLAG_COMPRESSED);
+
+        BenchmarkStats plainImport = measureImport(db, "Importing the snapshot of " + locations
+                + " locations", snapshot, rows);
+        BenchmarkStats compressedImport = measureImport(db, "Importing the compressed "
+                + "snapshot of " + locations + " locations", compressed, rows);
+
+        for (BenchmarkStats stats : new BenchmarkStats[] {replay, plainImport, compressedImport}) {
+            Log.i(LOG_TAG, stats.toString());
+        }
+        double speedup = (double) replay.median() / plainImport.median();
+        Log.i(LOG_TAG, String.format(Locale.US, "The snapshot imports %.1fx faster", speedup));
+
+        JSONObject result = mReport.newResult("snapshot");
+        result.put("locations", locations);
+        result.put("rows", rows);
+        result.put("snapshot_bytes", snapshot.length);
+        result.put("compressed_snapshot_bytes", compressed.length);
+        BenchmarkReport.putStats(result, "replay", replay);
+        BenchmarkReport.putStats(result, "import", plainImport);
+        BenchmarkReport.putStats(result, "import_compressed", compressedImport);
+        result.put("speedup", speedup);
+        mReport.write(result);
+
+        mBudget.check(locations + ".import_ms", plainImport.median() / 1e6);
+        mBudget.check(locations + ".import_compressed_ms", compressedImport.median() / 1e6);
+        mBudget.check(locations + ".import_pct", 100.0 / speedup);
+    }
+
+    // What the sync adapter does with each location's forecast, minus the network
+    private void replay(WeatherDataGenerator generator, String[] settings, String[] forecasts)
+            throws JSONException {
+        for (int i = 0; i < forecasts.length; i++) {
+            Forecast forecast = ForecastParser.parse(forecasts[i]);
+            long locationId = addLocation(settings[i], forecast);
+
+            ContentValues[] values = new ContentValues[forecast.days.size()];
+            for (int d = 0; d < values.length; d++) {
+                Forecast.Day day = forecast.days.get(d);
+                ContentValues weatherValues = new ContentValues();
+                weatherValues.put(WeatherEntry.COLUMN_LOC_KEY, locationId);
+                weatherValues.put(WeatherEntry.COLUMN_DATE, generator.dateOf(d));
+                weatherValues.put(WeatherEntry.COLUMN_HUMIDITY, day.humidity);
+                weatherValues.put(WeatherEntry.COLUMN_PRESSURE, day.pressure);
+                weatherValues.put(WeatherEntry.COLUMN_WIND_SPEED, day.windSpeed);
+                weatherValues.put(WeatherEntry.COLUMN_DEGREES, day.windDirection);
+                weatherValues.put(WeatherEntry.COLUMN_MAX_TEMP, day.high);
+                weatherValues.put(WeatherEntry.COLUMN_MIN_TEMP, day.low);
+                weatherValues.put(WeatherEntry.COLUMN_SHORT_DESC, day.description);
+                weatherValues.put(WeatherEntry.COLUMN_WEATHER_ID, day.weatherId);
+                values[d] = weatherValues;
+            }
+            mResolver.bulkInsert(WeatherEntry.CONTENT_URI, values);
+        }
+    }
+
+    private long addLocation(String locationSetting, Forecast forecast) {
+        Cursor cursor = mResolver.query(LocationEntry.CONTENT_URI,
+                new String[] {LocationEntry._ID},
+                LocationEntry.COLUMN_LOCATION_SETTING + " = ?",
+                new String[] {locationSetting}, null);
+        try {
+            if (cursor.moveToFirst()) {
+                return cursor.getLong(0);
+            }
+        } finally {
+            cursor.close();
+        }
+        ContentValues values = new ContentValues();
+        values.put(LocationEntry.COLUMN_LOCATION_SETTING, locationSetting);
+        values.put(LocationEntry.COLUMN_CITY_NAME, forecast.cityName);
+        values.put(LocationEntry.COLUMN_COORD_LAT, forecast.latitude);
+        values.put(LocationEntry.COLUMN_COORD_LONG, forecast.longitude);
+        return ContentUris.parseId(mResolver.insert(LocationEntry.CONTENT_URI, values));
+    }
+
+    private BenchmarkStats measureImport(SQLiteDatabase db, String name, byte[] snapshot,
+                                         int rows) throws IOException {
+        BenchmarkStats stats = new BenchmarkStats(name);
+        for (int round = 0; round < WARMUP_ROUNDS + ROUNDS; round++) {
+            clear();
+            long start = System.nanoTime();
+            int imported = WeatherSnapshot.read(db, new ByteArrayInputStream(snapshot));
+            long elapsed = System.nanoTime() - start;
+            if (round >= WARMUP_ROUNDS) {
+                stats.add(elapsed);
+            }
+            assertEquals("Error: Not every row was imported", rows, imported);
+        }
+        assertEquals("Error: The imported rows are not in the database", rows, countRows());
+        return stats;
+    }
+
+    private static byte[] export(SQLiteDatabase db, int flags) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        WeatherSnapshot.write(db, out, flags);
+        return out.toByteArray();
+    }
+
+    private void clear() {
+        mResolver.delete(WeatherEntry.CONTENT_URI, null, null);
+        mResolver.delete(LocationEntry.CONTENT_URI, null, null);
+    }
+
+    private int countRows() {
+        int rows = 0;
+        for (Uri uri : new Uri[] {
+                LocationEntry.CONTENT_URI, WeatherEntry.CONTENT_URI}) {
+            Cursor cursor = mResolver.query(uri, null, null, null, null);
+            rows += cursor.getCount();
+            cursor.close();
+        }
+        return rows;
+    }
+}
@@ -198,6 +198,81 @@ public class TestDb extends AndroidTestCase {
         dbHelper.close();
     }
 
+    /*
+        The memory and temporary file modes give a test a database of its own, with the same
+        tables, and leave nothing behind once closed.
+     */
+    public void testMemoryMode() {
+        WeatherDbHelper dbHelper = new WeatherDbHelper(mContext, WeatherDbHelper.Mode.MEMORY);
+        SQLiteDatabase db = dbHelper.getWritableDatabase();
+        assertNull(dbHelper.getName());
+        assertTrue("Error: The location table was not created",
+                db.insert(WeatherContract.LocationEntry.TABLE_NAME, null,
+                        TestUtilities.createNorthPoleLocationValues()) != -1);
+        assertEquals(0, pragma(db, "synchronous"));
+        dbHelper.close();
+
+        // A new helper starts from an empty database
+        dbHelper = new WeatherDbHelper(mContext, WeatherDbHelper.Mode.MEMORY);
+        Cursor cursor = dbHelper.getReadableDatabase().query(
+                WeatherContract.LocationEntry.TABLE_NAME, null, null, null, null, null, null);
+        assertEquals(0, cursor.getCount());
+        cursor.close();
+        dbHelper.close();
+    }
+
+    public void testTempFileMode() {
+        WeatherDbHelper.Mode mode = new WeatherDbHelper.Mode(
+                WeatherDbHelper.Mode.STORAGE_TEMP_FILE, "OFF", "TRUNCATE");
+        WeatherDbHelper dbHelper = new WeatherDbHelper(mContext, mode);
+        WeatherDbHelper other = new WeatherDbHelper(mContext, mode);
+        assertFalse("Error: Two temporary databases share a file",
+                dbHelper.getName().equals(other.getName()));
+        assertFalse(WeatherDbHelper.DATABASE_NAME.equals(dbHelper.getName()));
+
+        SQLiteDatabase db = dbHelper.getWritableDatabase();
+        assertTrue(mContext.getDatabasePath(dbHelper.getName()).exists());
+        assertEquals(0, pragma(db, "synchronous"));
+        Cursor cursor = db.rawQuery("PRAGMA journal_mode", null);
+        assertTrue(cursor.moveToFirst());
+        assertTrue("truncate".equalsIgnoreCase(cursor.getString(0)));
+        cursor.close();
+
+        dbHelper.close();
+        assertFalse("Error: The temporary database was not deleted on close",
+                mContext.getDatabasePath(dbHelper.getName()).exists());
+        other.close();
+    }
+
+    public void testDefaultMode() {
+        assertSame(WeatherDbHelper.Mode.DISK, WeatherDbHelper.getDefaultMode());
+        assertEquals(WeatherDbHelper.DATABASE_NAME, new WeatherDbHelper(mContext).getName());
+
+        WeatherDbHelper.setDefaultMode(WeatherDbHelper.Mode.MEMORY);
+        try {
+            assertSame(WeatherDbHelper.Mode.MEMORY, new WeatherDbHelper(mContext).getMode());
+        } finally {
+            WeatherDbHelper.setDefaultMode(WeatherDbHelper.Mode.DISK);
+        }
+
+        try {
+            new WeatherDbHelper.Mode(WeatherDbHelper.Mode.STORAGE_DISK, "OFF; DROP TABLE", null);
+            fail("Error: An unknown synchronous setting was accepted");
+        } catch (IllegalArgumentException expected) {
+            // Pragmas are built into SQL, so only known values get through
+        }
+    }
+
+    private static long pragma(SQLiteDatabase db, String name) {
+        Cursor cursor = db.rawQuery("PRAGMA " + name, null);
+        try {
+            assertTrue(cursor.moveToFirst());
+            return cursor.getLong(0);
+        } finally {
+            cursor.close();
+        }
+    }
+
 
     /*
         Students: This is a helper method for the testWeatherTable quiz. You can move your
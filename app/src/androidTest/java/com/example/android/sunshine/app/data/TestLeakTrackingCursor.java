@@ -0,0 +1,102 @@
+package com.example.android.sunshine.app.data;
+
+import android.database.Cursor;
+import android.database.MatrixCursor;
+import android.test.AndroidTestCase;
+
+import com.example.android.sunshine.app.data.WeatherContract.WeatherEntry;
+import com.example.android.sunshine.app.utils.CursorLeakCheck;
+import com.example.android.sunshine.app.utils.Skip;
+
+public class TestLeakTrackingCursor extends AndroidTestCase {
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        CursorLeakCheck.reset();
+    }
+
+    public void testCloseIsCounted() {
+        if (!LeakTrackingCursor.ENABLED) {
+            Skip.log(this, "cursors are only tracked in debug builds");
+            return;
+        }
+        int live = LeakTrackingCursor.getLiveCount();
+        long windowBytes = LeakTrackingCursor.getLiveWindowBytes();
+
+        Cursor windowed = LeakTrackingCursor.wrap(newCursor(), true, "windowed");
+        Cursor plain = LeakTrackingCursor.wrap(newCursor(), false, "plain");
+        assertEquals(live + 2, LeakTrackingCursor.getLiveCount());
+        assertEquals(windowBytes + LeakTrackingCursor.WINDOW_BYTES,
+                LeakTrackingCursor.getLiveWindowBytes());
+
+        windowed.close();
+        // Closing twice only counts once
+        windowed.close();
+        plain.close();
+        assertTrue(windowed.isClosed());
+        assertEquals(live, LeakTrackingCursor.getLiveCount());
+        assertEquals(windowBytes, LeakTrackingCursor.getLiveWindowBytes());
+
+        CursorLeakCheck.assertNoLeaks("closing both cursors");
+    }
+
+    public void testLeakIsReported() {
+        if (!LeakTrackingCursor.ENABLED) {
+            Skip.log(this, "cursors are only tracked in debug builds");
+            return;
+        }
+        int live = LeakTrackingCursor.getLiveCount();
+        leakCursor();
+
+        for (int i = 0; i < 10 && LeakTrackingCursor.getLeakCount() == 0; i++) {
+            Runtime.getRuntime().gc();
+            System.runFinalization();
+        }
+        assertEquals(1, LeakTrackingCursor.getLeakCount());
+        assertEquals(live, LeakTrackingCursor.getLiveCount());
+        // The stack is where the cursor was queried
+        Throwable leak = LeakTrackingCursor.getLeaks().get(0);
+        assertTrue(leak.getMessage().contains("leaked uri"));
+        assertEquals("leakCursor", findFrame(leak, getClass().getName()));
+
+        LeakTrackingCursor.reset();
+        assertEquals(0, LeakTrackingCursor.getLeakCount());
+        assertTrue(LeakTrackingCursor.getLeaks().isEmpty());
+    }
+
+    // Its own method, so no reference to the cursor stays behind in this frame
+    private static void leakCursor() {
+        Cursor cursor = LeakTrackingCursor.wrap(newCursor(), true, "leaked uri");
+        cursor.moveToFirst();
+    }
+
+    public void testProviderCursorsAreTracked() {
+        if (!LeakTrackingCursor.ENABLED) {
+            Skip.log(this, "cursors are only tracked in debug builds");
+            return;
+        }
+        int live = LeakTrackingCursor.getLiveCount();
+        Cursor cursor = mContext.getContentResolver().query(
+                WeatherEntry.CONTENT_URI, null, null, null, null);
+        assertNotNull(cursor);
+        assertEquals(live + 1, LeakTrackingCursor.getLiveCount());
+        cursor.close();
+        assertEquals(live, LeakTrackingCursor.getLiveCount());
+    }
+
+    private static MatrixCursor newCursor() {
+        MatrixCursor cursor = new MatrixCursor(new String[] {WeatherEntry._ID});
+        cursor.addRow(new Object[] {1L});
+        return cursor;
+    }
+
+    private static String findFrame(Throwable throwable, String className) {
+        for (StackTraceElement frame : throwable.getStackTrace()) {
+            if (frame.getClassName().equals(className)) {
+                return frame.getMethodName();
+            }
+        }
+        return null;
+    }
+}
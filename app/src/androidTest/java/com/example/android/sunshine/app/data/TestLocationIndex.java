@@ -0,0 +1,249 @@
+package com.example.android.sunshine.app.data;
+
+import android.content.ContentValues;
+import android.database.Cursor;
+import android.test.AndroidTestCase;
+import android.util.Log;
+
+import com.example.android.sunshine.app.data.WeatherContract.LocationEntry;
+import com.example.android.sunshine.app.data.WeatherContract.WeatherEntry;
+import com.example.android.sunshine.app.utils.BenchmarkStats;
+
+import java.util.Arrays;
+import java.util.Random;
+
+public class TestLocationIndex extends AndroidTestCase {
+
+    public static final String LOG_TAG = TestLocationIndex.class.getSimpleName();
+
+    private static final int BENCHMARK_LOCATIONS = 100000;
+    private static final int BENCHMARK_QUERIES = 200;
+    private static final int K = 5;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        mContext.getContentResolver().delete(WeatherEntry.CONTENT_URI, null, null);
+        mContext.getContentResolver().delete(LocationEntry.CONTENT_URI, null, null);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        mContext.getContentResolver().delete(LocationEntry.CONTENT_URI, null, null);
+        super.tearDown();
+    }
+
+    public void testNearestMatchesLinearScan() {
+        Random random = new Random(30);
+        LocationIndex index = randomIndex(random, 5000);
+        for (int i = 0; i < 500; i++) {
+            double lat = randomLat(random);
+            double lon = randomLon(random);
+            int[] expected = linearNearest(index, lat, lon, K);
+            int[] actual = index.nearest(lat, lon, K);
+            assertEquals("Error: Wrong neighbour count", expected.length, actual.length);
+            for (int n = 0; n < K; n++) {
+                // Compare distances rather than indices in case two locations tie
+                assertEquals("Error: Neighbour " + n + " is not the closest",
+                        index.distanceKm(expected[n], lat, lon),
+                        index.distanceKm(actual[n], lat, lon), 1e-9);
+            }
+        }
+    }
+
+    public void testNearestAcrossAntimeridianAndPoles() {
+        LocationIndex index = new LocationIndex(
+                new long[]{1, 2, 3, 4},
+                new String[]{"suva", "apia", "longyearbyen", "london"},
+                new String[]{"Suva", "Apia", "Longyearbyen", "London"},
+                new double[]{-18.14, -13.83, 78.22, 51.51},
+                new double[]{178.44, -171.77, 15.65, -0.13});
+
+        // Suva is at +178.44 but still the closest to a point at -179.5
+        assertEquals(1, index.ids[index.nearest(-18.14, -179.5, 1)[0]]);
+        // From the north pole Longyearbyen is closest whatever the longitude says
+        assertEquals(3, index.ids[index.nearest(90, -120, 1)[0]]);
+        // Asking for more neighbours than there are returns them all, closest first
+        int[] all = index.nearest(51, 0, 10);
+        assertEquals(4, all.length);
+        assertEquals(4, index.ids[all[0]]);
+    }
+
+    public void testWithinBox() {
+        Random random = new Random(31);
+        LocationIndex index = randomIndex(random, 5000);
+
+        assertSameLocations(linearWithinBox(index, 40, -10, 60, 30),
+                index.withinBox(40, -10, 60, 30));
+        // minLon > maxLon wraps around the antimeridian
+        assertSameLocations(linearWithinBox(index, -30, 170, 10, -170),
+                index.withinBox(-30, 170, 10, -170));
+        assertEquals(0, index.withinBox(10, 0, -10, 20).length);
+    }
+
+    public void testProviderNearAndBoundingBox() {
+        insertLocation("london,uk", "London", 51.51, -0.13);
+        insertLocation("paris,fr", "Paris", 48.86, 2.35);
+        insertLocation("kyiv,ua", "Kyiv", 50.45, 30.52);
+
+        // A fix in Calais
+        Cursor cursor = mContext.getContentResolver().query(
+                LocationEntry.buildLocationNearUri(50.95, 1.86, 2), null, null, null, null);
+        assertEquals(2, cursor.getCount());
+        assertTrue(cursor.moveToFirst());
+        assertEquals("London", cursor.getString(
+                cursor.getColumnIndex(LocationEntry.COLUMN_CITY_NAME)));
+        double distance = cursor.getDouble(cursor.getColumnIndex(LocationEntry.COLUMN_DISTANCE));
+        assertTrue("Error: Calais is not about 150km from London: " + distance,
+                distance > 140 && distance < 165);
+        cursor.close();
+
+        cursor = mContext.getContentResolver().query(
+                LocationEntry.buildLocationBoundingBoxUri(45, -5, 52, 5),
+                new String[]{LocationEntry.COLUMN_LOCATION_SETTING}, null, null, null);
+        assertEquals(2, cursor.getCount());
+        cursor.close();
+
+        // The index must pick up new locations
+        insertLocation("calais,fr", "Calais", 50.95, 1.86);
+        cursor = mContext.getContentResolver().query(
+                LocationEntry.buildLocationNearUri(50.95, 1.86, 1), null, null, null, null);
+        assertTrue(cursor.moveToFirst());
+        assertEquals("Calais", cursor.getString(
+                cursor.getColumnIndex(LocationEntry.COLUMN_CITY_NAME)));
+        cursor.close();
+    }
+
+    /*
+        Nearest neighbours and bounding boxes over 100k locations, compared with scanning
+        every location.
+     */
+    public void testIndexBenchmark() {
+        Random random = new Random(32);
+
+        long start = System.nanoTime();
+        LocationIndex index = randomIndex(random, BENCHMARK_LOCATIONS);
+        Log.i(LOG_TAG, "Built index of " + BENCHMARK_LOCATIONS + " locations in " +
+                (System.nanoTime() - start) / 1000000 + "ms");
+
+        BenchmarkStats indexedNear = new BenchmarkStats("k-d tree " + K + " nearest");
+        BenchmarkStats linearNear = new BenchmarkStats("Linear scan " + K + " nearest");
+        BenchmarkStats indexedBox = new BenchmarkStats("Sorted bounding box");
+        BenchmarkStats linearBox = new BenchmarkStats("Linear scan bounding box");
+
+        for (int i = 0; i < BENCHMARK_QUERIES; i++) {
+            double lat = randomLat(random);
+            double lon = randomLon(random);
+
+            start = System.nanoTime();
+            int[] indexed = index.nearest(lat, lon, K);
+            indexedNear.add(System.nanoTime() - start);
+
+            start = System.nanoTime();
+            int[] linear = linearNearest(index, lat, lon, K);
+            linearNear.add(System.nanoTime() - start);
+
+            assertEquals(index.distanceKm(linear[0], lat, lon),
+                    index.distanceKm(indexed[0], lat, lon), 1e-9);
+
+            double minLat = Math.max(-90, lat - 2);
+            double maxLat = Math.min(90, lat + 2);
+            start = System.nanoTime();
+            int[] inBox = index.withinBox(minLat, lon - 2, maxLat, lon + 2);
+            indexedBox.add(System.nanoTime() - start);
+
+            start = System.nanoTime();
+            int[] scanned = linearWithinBox(index, minLat, lon - 2, maxLat, lon + 2);
+            linearBox.add(System.nanoTime() - start);
+
+            assertEquals(scanned.length, inBox.length);
+        }
+
+        Log.i(LOG_TAG, indexedNear.toString());
+        Log.i(LOG_TAG, linearNear.toString());
+        Log.i(LOG_TAG, indexedBox.toString());
+        Log.i(LOG_TAG, linearBox.toString());
+        assertTrue("Error: The k-d tree is not faster than a linear scan",
+                indexedNear.median() < linearNear.median());
+        assertTrue("Error: The bounding box index is not faster than a linear scan",
+                indexedBox.median() < linearBox.median());
+    }
+
+    private static LocationIndex randomIndex(Random random, int count) {
+        long[] ids = new long[count];
+        String[] settings = new String[count];
+        double[] lats = new double[count];
+        double[] lons = new double[count];
+        for (int i = 0; i < count; i++) {
+            ids[i] = i + 1;
+            settings[i] = "location," + i;
+            lats[i] = randomLat(random);
+            lons[i] = randomLon(random);
+        }
+        return new LocationIndex(ids, settings, settings, lats, lons);
+    }
+
+    // Uniform over the sphere rather than over latitude
+    private static double randomLat(Random random) {
+        return Math.toDegrees(Math.asin(random.nextDouble() * 2 - 1));
+    }
+
+    private static double randomLon(Random random) {
+        return random.nextDouble() * 360 - 180;
+    }
+
+    private static int[] linearNearest(LocationIndex index, double lat, double lon, int k) {
+        int[] best = new int[k];
+        double[] bestDistance = new double[k];
+        Arrays.fill(bestDistance, Double.POSITIVE_INFINITY);
+        for (int i = 0; i < index.size(); i++) {
+            double distance = index.distanceKm(i, lat, lon);
+            if (distance < bestDistance[k - 1]) {
+                int n = k - 1;
+                while (n > 0 && bestDistance[n - 1] > distance) {
+                    bestDistance[n] = bestDistance[n - 1];
+                    best[n] = best[n - 1];
+                    n--;
+                }
+                bestDistance[n] = distance;
+                best[n] = i;
+            }
+        }
+        return best;
+    }
+
+    private static int[] linearWithinBox(LocationIndex index, double minLat, double minLon,
+                                         double maxLat, double maxLon) {
+        int[] matches = new int[index.size()];
+        int count = 0;
+        for (int i = 0; i < index.size(); i++) {
+            double lat = index.lats[i];
+            double lon = index.lons[i];
+            boolean inLon = minLon <= maxLon
+                    ? lon >= minLon && lon <= maxLon
+                    : lon >= minLon || lon <= maxLon;
+            if (lat >= minLat && lat <= maxLat && inLon) {
+                matches[count++] = i;
+            }
+        }
+        return Arrays.copyOf(matches, count);
+    }
+
+    private static void assertSameLocations(int[] expected, int[] actual) {
+        int[] sortedExpected = expected.clone();
+        int[] sortedActual = actual.clone();
+        Arrays.sort(sortedExpected);
+        Arrays.sort(sortedActual);
+        assertTrue("Error: Bounding box results differ from a linear scan",
+                Arrays.equals(sortedExpected, sortedActual));
+    }
+
+    private void insertLocation(String locationSetting, String cityName, double lat, double lon) {
+        ContentValues values = new ContentValues();
+        values.put(LocationEntry.COLUMN_LOCATION_SETTING, locationSetting);
+        values.put(LocationEntry.COLUMN_CITY_NAME, cityName);
+        values.put(LocationEntry.COLUMN_COORD_LAT, lat);
+        values.put(LocationEntry.COLUMN_COORD_LONG, lon);
+        mContext.getContentResolver().insert(LocationEntry.CONTENT_URI, values);
+    }
+}
@@ -0,0 +1,107 @@
+package com.example.android.sunshine.app.data;
+
+import android.app.SearchManager;
+import android.content.ContentUris;
+import android.content.ContentValues;
+import android.database.Cursor;
+import android.net.Uri;
+import android.test.AndroidTestCase;
+
+import com.example.android.sunshine.app.data.WeatherContract.LocationEntry;
+import com.example.android.sunshine.app.data.WeatherContract.WeatherEntry;
+
+public class TestLocationSearch extends AndroidTestCase {
+
+    public static final String LOG_TAG = TestLocationSearch.class.getSimpleName();
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        mContext.getContentResolver().delete(WeatherEntry.CONTENT_URI, null, null);
+        mContext.getContentResolver().delete(LocationEntry.CONTENT_URI, null, null);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        mContext.getContentResolver().delete(LocationEntry.CONTENT_URI, null, null);
+        super.tearDown();
+    }
+
+    public void testBuildPrefixMatch() {
+        assertEquals("new* yo*", WeatherProvider.buildPrefixMatch("new yo"));
+        assertEquals("kiev* u*", WeatherProvider.buildPrefixMatch("kiev,u"));
+        assertEquals("Киї*", WeatherProvider.buildPrefixMatch("Киї"));
+        // FTS operators and quotes are dropped rather than passed through
+        assertEquals("a* b*", WeatherProvider.buildPrefixMatch("\"a\" -b*"));
+        assertNull(WeatherProvider.buildPrefixMatch("  ,. "));
+        assertNull(WeatherProvider.buildPrefixMatch(null));
+    }
+
+    public void testSearchFollowsLocationTable() {
+        long londonId = insertLocation("london,uk", "London");
+        insertLocation("londrina,br", "Londrina");
+        insertLocation("lyon,fr", "Lyon");
+
+        assertSearchCount("lond", 2);
+        assertSearchCount("lon", 2);
+        assertSearchCount("ly", 1);
+        assertSearchCount("uk", 1);
+        assertSearchCount("paris", 0);
+
+        // Renaming the location must update the index
+        ContentValues values = new ContentValues();
+        values.put(LocationEntry.COLUMN_CITY_NAME, "Paris");
+        values.put(LocationEntry.COLUMN_LOCATION_SETTING, "paris,fr");
+        mContext.getContentResolver().update(LocationEntry.CONTENT_URI, values,
+                LocationEntry._ID + " = ?", new String[]{Long.toString(londonId)});
+        assertSearchCount("lond", 1);
+        assertSearchCount("par", 1);
+
+        // So must deleting it
+        mContext.getContentResolver().delete(LocationEntry.CONTENT_URI,
+                LocationEntry._ID + " = ?", new String[]{Long.toString(londonId)});
+        assertSearchCount("par", 0);
+    }
+
+    public void testSearchSuggestions() {
+        insertLocation("london,uk", "London");
+
+        Uri suggestUri = WeatherContract.BASE_CONTENT_URI.buildUpon()
+                .appendPath(SearchManager.SUGGEST_URI_PATH_QUERY)
+                .appendPath("Lon")
+                .appendQueryParameter(SearchManager.SUGGEST_PARAMETER_LIMIT, "10")
+                .build();
+        Cursor cursor = mContext.getContentResolver().query(suggestUri, null, null, null, null);
+        assertTrue("Error: No suggestion for a stored location", cursor.moveToFirst());
+        assertEquals("London", cursor.getString(
+                cursor.getColumnIndex(SearchManager.SUGGEST_COLUMN_TEXT_1)));
+        assertEquals("london,uk", cursor.getString(
+                cursor.getColumnIndex(SearchManager.SUGGEST_COLUMN_INTENT_EXTRA_DATA)));
+        cursor.close();
+
+        // Before anything is typed there is nothing to suggest
+        Uri emptyUri = WeatherContract.BASE_CONTENT_URI.buildUpon()
+                .appendPath(SearchManager.SUGGEST_URI_PATH_QUERY).build();
+        cursor = mContext.getContentResolver().query(emptyUri, null, null, null, null);
+        assertEquals(0, cursor.getCount());
+        cursor.close();
+    }
+
+    private long insertLocation(String locationSetting, String cityName) {
+        ContentValues values = new ContentValues();
+        values.put(LocationEntry.COLUMN_LOCATION_SETTING, locationSetting);
+        values.put(LocationEntry.COLUMN_CITY_NAME, cityName);
+        values.put(LocationEntry.COLUMN_COORD_LAT, 0.0);
+        values.put(LocationEntry.COLUMN_COORD_LONG, 0.0);
+        Uri uri = mContext.getContentResolver().insert(LocationEntry.CONTENT_URI, values);
+        return ContentUris.parseId(uri);
+    }
+
+    private void assertSearchCount(String prefix, int expected) {
+        Cursor cursor = mContext.getContentResolver().query(
+                LocationEntry.buildLocationSearchUri(prefix), null, null, null, null);
+        assertEquals("Error: Unexpected search results for '" + prefix + "'",
+                expected, cursor.getCount());
+        cursor.close();
+    }
+}
@@ -0,0 +1,151 @@
+package com.example.android.sunshine.app.data;
+
+import android.content.ContentValues;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.test.AndroidTestCase;
+
+import com.example.android.sunshine.app.data.WeatherContract.DiagnosticsEntry;
+import com.example.android.sunshine.app.data.WeatherContract.LocationEntry;
+import com.example.android.sunshine.app.data.WeatherContract.WeatherEntry;
+
+import java.util.Arrays;
+
+public class TestProviderStats extends AndroidTestCase {
+
+    private static final int[] MATCHES = {
+            -1, WeatherProvider.WEATHER, WeatherProvider.LOCATION
+    };
+
+    public void testBuckets() {
+        assertEquals(0, ProviderStats.bucketOf(0));
+        assertEquals(1, ProviderStats.bucketOf(1));
+        assertEquals(2, ProviderStats.bucketOf(3));
+        assertEquals(11, ProviderStats.bucketOf(1024));
+        assertEquals(ProviderStats.BUCKETS - 1, ProviderStats.bucketOf(Long.MAX_VALUE / 1000));
+
+        ProviderStats stats = new ProviderStats(MATCHES);
+        ProviderStats.Entry entry = stats.get(ProviderStats.QUERY, WeatherProvider.WEATHER);
+        for (int i = 0; i < 99; i++) {
+            entry.record(1, 10000);
+        }
+        entry.record(1, 5000000);
+        assertEquals(100, entry.calls.get());
+        assertEquals(5000000, entry.maxNanos.get());
+        // 10us is in [8, 16), 5000us in [4096, 8192)
+        assertEquals(16, entry.percentileMicros(99));
+        assertEquals(8192, entry.percentileMicros(100));
+
+        // Anything not kept apart is counted as the first match
+        assertSame(stats.get(ProviderStats.QUERY, -1),
+                stats.get(ProviderStats.QUERY, WeatherProvider.SNAPSHOT));
+    }
+
+    public void testConcurrentRecords() throws InterruptedException {
+        final ProviderStats stats = new ProviderStats(MATCHES);
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (int i = 0; i < 10000; i++) {
+                        stats.record(ProviderStats.BULK_INSERT, WeatherProvider.WEATHER, 2, i);
+                    }
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        ProviderStats.Entry entry = stats.get(ProviderStats.BULK_INSERT, WeatherProvider.WEATHER);
+        assertEquals(40000, entry.calls.get());
+        assertEquals(80000, entry.rows.get());
+        assertEquals(9999, entry.maxNanos.get());
+        assertEquals(1, stats.entries().size());
+
+        assertEquals(1, stats.reset());
+        assertEquals(0, stats.entries().size());
+    }
+
+    public void testWindowFills() {
+        SQLiteDatabase db = SQLiteDatabase.create(null);
+        try {
+            db.execSQL("CREATE TABLE big (value TEXT)");
+            // 40 rows of 100k characters are more than one 2MB cursor window holds
+            char[] chars = new char[100000];
+            Arrays.fill(chars, 'x');
+            ContentValues values = new ContentValues();
+            values.put("value", new String(chars));
+            for (int i = 0; i < 40; i++) {
+                db.insert("big", null, values);
+            }
+
+            ProviderStats stats = new ProviderStats(MATCHES);
+            Cursor cursor = db.query("big", null, null, null, null, null, null);
+            assertEquals(40, cursor.getCount());
+            cursor = stats.trackWindowFills(WeatherProvider.WEATHER, cursor);
+            ProviderStats.Entry entry = stats.get(ProviderStats.QUERY, WeatherProvider.WEATHER);
+            assertEquals(1, entry.windowFills.get());
+
+            int rows = 0;
+            while (cursor.moveToNext()) {
+                assertEquals(100000, cursor.getString(0).length());
+                rows++;
+            }
+            cursor.close();
+            assertEquals(40, rows);
+            assertTrue("Error: Only " + entry.windowFills.get() + " window fill(s)",
+                    entry.windowFills.get() > 1);
+        } finally {
+            db.close();
+        }
+    }
+
+    public void testDiagnosticsUri() {
+        mContext.getContentResolver().delete(WeatherEntry.CONTENT_URI, null, null);
+        mContext.getContentResolver().delete(LocationEntry.CONTENT_URI, null, null);
+        mContext.getContentResolver().delete(DiagnosticsEntry.CONTENT_URI, null, null);
+
+        mContext.getContentResolver().insert(LocationEntry.CONTENT_URI,
+                TestUtilities.createNorthPoleLocationValues());
+        for (int i = 0; i < 3; i++) {
+            mContext.getContentResolver().query(
+                    WeatherEntry.buildWeatherLocation(TestUtilities.TEST_LOCATION),
+                    null, null, null, null).close();
+        }
+
+        assertEquals(DiagnosticsEntry.CONTENT_TYPE,
+                mContext.getContentResolver().getType(DiagnosticsEntry.CONTENT_URI));
+        Cursor cursor = mContext.getContentResolver().query(
+                DiagnosticsEntry.CONTENT_URI, null, null, null, null);
+        assertEquals(2, cursor.getCount());
+        boolean sawInsert = false;
+        boolean sawQuery = false;
+        while (cursor.moveToNext()) {
+            String operation = cursor.getString(
+                    cursor.getColumnIndex(DiagnosticsEntry.COLUMN_OPERATION));
+            String uri = cursor.getString(cursor.getColumnIndex(DiagnosticsEntry.COLUMN_URI));
+            long calls = cursor.getLong(cursor.getColumnIndex(DiagnosticsEntry.COLUMN_CALLS));
+            long rows = cursor.getLong(cursor.getColumnIndex(DiagnosticsEntry.COLUMN_ROWS));
+            if ("insert".equals(operation)) {
+                assertEquals("LOCATION", uri);
+                assertEquals(1, calls);
+                assertEquals(1, rows);
+                sawInsert = true;
+            } else {
+                assertEquals("query", operation);
+                assertEquals("WEATHER_WITH_LOCATION", uri);
+                assertEquals(3, calls);
+                assertEquals(0, rows);
+                assertTrue(cursor.getDouble(
+                        cursor.getColumnIndex(DiagnosticsEntry.COLUMN_P99_MS)) > 0);
+                sawQuery = true;
+            }
+        }
+        cursor.close();
+        assertTrue(sawInsert && sawQuery);
+
+        mContext.getContentResolver().delete(LocationEntry.CONTENT_URI, null, null);
+    }
+}
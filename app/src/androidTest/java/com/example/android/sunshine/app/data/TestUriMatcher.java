@@ -36,6 +36,16 @@ public class TestUriMatcher extends AndroidTestCase {
     private static final Uri TEST_WEATHER_WITH_LOCATION_AND_DATE_DIR = WeatherContract.WeatherEntry.buildWeatherLocationWithDate(LOCATION_QUERY, TEST_DATE);
     // content://com.example.android.sunshine.app/location"
     private static final Uri TEST_LOCATION_DIR = WeatherContract.LocationEntry.CONTENT_URI;
+    // content://com.example.android.sunshine.app/location/search/Lon"
+    private static final Uri TEST_LOCATION_SEARCH = WeatherContract.LocationEntry.buildLocationSearchUri("Lon");
+    // content://com.example.android.sunshine.app/location/near?lat=51.5&lon=-0.12&k=3"
+    private static final Uri TEST_LOCATION_NEAR = WeatherContract.LocationEntry.buildLocationNearUri(51.5, -0.12, 3);
+    // content://com.example.android.sunshine.app/location/bbox?minLat=50&minLon=-1&maxLat=52&maxLon=1"
+    private static final Uri TEST_LOCATION_BBOX = WeatherContract.LocationEntry.buildLocationBoundingBoxUri(50, -1, 52, 1);
+    // content://com.example.android.sunshine.app/snapshot"
+    private static final Uri TEST_SNAPSHOT = WeatherContract.SnapshotEntry.buildSnapshotUri(true);
+    // content://com.example.android.sunshine.app/diagnostics"
+    private static final Uri TEST_DIAGNOSTICS = WeatherContract.DiagnosticsEntry.CONTENT_URI;
 
     /*
         Students: This function tests that your UriMatcher returns the correct integer value
@@ -53,5 +63,15 @@ public class TestUriMatcher extends AndroidTestCase {
                 testMatcher.match(TEST_WEATHER_WITH_LOCATION_AND_DATE_DIR), WeatherProvider.WEATHER_WITH_LOCATION_AND_DATE);
         assertEquals("Error: The LOCATION URI was matched incorrectly.",
                 testMatcher.match(TEST_LOCATION_DIR), WeatherProvider.LOCATION);
+        assertEquals("Error: The LOCATION SEARCH URI was matched incorrectly.",
+                testMatcher.match(TEST_LOCATION_SEARCH), WeatherProvider.LOCATION_SEARCH);
+        assertEquals("Error: The LOCATION NEAR URI was matched incorrectly.",
+                testMatcher.match(TEST_LOCATION_NEAR), WeatherProvider.LOCATION_NEAR);
+        assertEquals("Error: The LOCATION BBOX URI was matched incorrectly.",
+                testMatcher.match(TEST_LOCATION_BBOX), WeatherProvider.LOCATION_BBOX);
+        assertEquals("Error: The SNAPSHOT URI was matched incorrectly.",
+                testMatcher.match(TEST_SNAPSHOT), WeatherProvider.SNAPSHOT);
+        assertEquals("Error: The DIAGNOSTICS URI was matched incorrectly.",
+                testMatcher.match(TEST_DIAGNOSTICS), WeatherProvider.DIAGNOSTICS);
     }
 }
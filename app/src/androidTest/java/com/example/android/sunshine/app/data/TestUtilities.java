@@ -1,5 +1,7 @@
 package com.example.android.sunshine.app.data;
 
+import android.content.ContentResolver;
+import android.content.ContentUris;
 import android.content.ContentValues;
 import android.content.Context;
 import android.database.ContentObserver;
@@ -23,6 +25,10 @@ import java.util.Set;
 public class TestUtilities extends AndroidTestCase {
     static final String TEST_LOCATION = "99705";
     static final long TEST_DATE = 1419033600L;  // December 20th, 2014
+    static final long TEST_SEED = 2014;
+
+    // A full forecast, as many days as the sync stores
+    public static final int FORECAST_DAYS = 14;
 
     static void validateCursor(String error, Cursor valueCursor, ContentValues expectedValues) {
         assertTrue("Empty cursor returned. " + error, valueCursor.moveToFirst());
@@ -77,6 +83,38 @@ public class TestUtilities extends AndroidTestCase {
         return testValues;
     }
 
+    /*
+        For tests that need more than one row: any number of locations and days, the same ones
+        every run.  See WeatherDataGenerator.insert for the fast way to store them.
+     */
+    static WeatherDataGenerator createWeatherDataGenerator() {
+        // TEST_DATE is in seconds
+        return new WeatherDataGenerator(TEST_SEED, TEST_DATE * 1000);
+    }
+
+    /*
+        For the UI tests and benchmarks: adds a location under the given setting with a
+        forecast of FORECAST_DAYS made up days from today, through the provider like a sync
+        would.  The weather changes from day to day, so the rows bind different icons and
+        strings.
+
+        @return the row id of the location.
+     */
+    public static long insertForecast(Context context, String locationSetting, String cityName) {
+        WeatherDataGenerator generator =
+                new WeatherDataGenerator(TEST_SEED, System.currentTimeMillis());
+        ContentValues location = generator.location(0).toContentValues();
+        location.put(WeatherContract.LocationEntry.COLUMN_LOCATION_SETTING, locationSetting);
+        location.put(WeatherContract.LocationEntry.COLUMN_CITY_NAME, cityName);
+
+        ContentResolver resolver = context.getContentResolver();
+        long locationId = ContentUris.parseId(
+                resolver.insert(WeatherContract.LocationEntry.CONTENT_URI, location));
+        resolver.bulkInsert(WeatherContract.WeatherEntry.CONTENT_URI,
+                generator.createWeatherValues(0, locationId, FORECAST_DAYS));
+        return locationId;
+    }
+
     /*
         Students: You can uncomment this function once you have finished creating the
         LocationEntry part of the WeatherContract as well as the WeatherDbHelper.
@@ -0,0 +1,116 @@
+package com.example.android.sunshine.app.data;
+
+import android.content.ContentValues;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.test.AndroidTestCase;
+
+import com.example.android.sunshine.app.WeatherConditionRegistry;
+import com.example.android.sunshine.app.data.WeatherContract.LocationEntry;
+import com.example.android.sunshine.app.data.WeatherContract.WeatherEntry;
+import com.example.android.sunshine.core.Forecast;
+import com.example.android.sunshine.core.ForecastParser;
+import com.example.android.sunshine.core.WeatherCategories;
+
+import java.util.HashSet;
+import java.util.Set;
+
+public class TestWeatherDataGenerator extends AndroidTestCase {
+
+    private static final int LOCATIONS = 20;
+    private static final int DAYS = 365;
+
+    public void testSameSeedSameData() {
+        WeatherDataGenerator first = TestUtilities.createWeatherDataGenerator();
+        WeatherDataGenerator second = TestUtilities.createWeatherDataGenerator();
+        for (int i = 0; i < LOCATIONS; i++) {
+            assertEquals(first.location(i).setting, second.location(i).setting);
+            // A location's days don't depend on the locations made before it
+            ContentValues[] days = first.createWeatherValues(i, i, DAYS);
+            ContentValues[] again = second.createWeatherValues(i, i, DAYS);
+            for (int d = 0; d < DAYS; d++) {
+                assertEquals(days[d], again[d]);
+            }
+        }
+    }
+
+    public void testDaysArePlausible() {
+        WeatherDataGenerator generator = TestUtilities.createWeatherDataGenerator();
+        Set<String> settings = new HashSet<String>();
+        Set<Integer> categories = new HashSet<Integer>();
+        for (int i = 0; i < LOCATIONS; i++) {
+            WeatherDataGenerator.Location location = generator.location(i);
+            assertTrue("Error: Duplicate setting " + location.setting,
+                    settings.add(location.setting));
+            assertTrue(Math.abs(location.latitude) <= 85);
+            assertTrue(Math.abs(location.longitude) <= 180);
+
+            WeatherDataGenerator.Days series = generator.days(i);
+            long previousDate = 0;
+            for (int d = 0; d < DAYS; d++) {
+                WeatherDataGenerator.Day day = series.next();
+                assertTrue("Error: Dates go backwards", day.date > previousDate);
+                previousDate = day.date;
+                assertTrue(day.low < day.high);
+                assertTrue("Error: " + day.low + "C", day.low > -70 && day.high < 60);
+                assertTrue(day.humidity >= 0 && day.humidity <= 100);
+                assertTrue(day.pressure > 900 && day.pressure < 1100);
+                assertTrue(day.windSpeed >= 0);
+                assertTrue(day.degrees >= 0 && day.degrees < 360);
+
+                WeatherConditionRegistry.Condition condition =
+                        WeatherConditionRegistry.get(day.weatherId);
+                assertNotSame("Error: Unknown code " + day.weatherId,
+                        WeatherConditionRegistry.UNKNOWN, condition);
+                categories.add(condition.category);
+            }
+        }
+        // A year around the world sees every kind of weather
+        assertEquals(WeatherCategories.COUNT - 1, categories.size());
+    }
+
+    public void testFastInsert() {
+        WeatherDataGenerator generator = TestUtilities.createWeatherDataGenerator();
+        // A database of its own, the app's weather.db is left alone
+        WeatherDbHelper dbHelper = new WeatherDbHelper(mContext, WeatherDbHelper.Mode.MEMORY);
+        SQLiteDatabase db = dbHelper.getWritableDatabase();
+        long[] locationIds = generator.insert(db, LOCATIONS, DAYS);
+
+        Cursor cursor = db.query(WeatherEntry.TABLE_NAME, null, null, null, null, null, null);
+        assertEquals(LOCATIONS * DAYS, cursor.getCount());
+        cursor.close();
+
+        // The rows are the ones the provider path would have stored
+        ContentValues expected = generator.createWeatherValues(3, locationIds[3], DAYS)[10];
+        cursor = db.query(WeatherEntry.TABLE_NAME, null,
+                WeatherEntry.COLUMN_LOC_KEY + " = ? AND " + WeatherEntry.COLUMN_DATE + " = ?",
+                new String[] {Long.toString(locationIds[3]), Long.toString(generator.dateOf(10))},
+                null, null, null);
+        TestUtilities.validateCursor("Error: Generated row differs", cursor, expected);
+
+        cursor = db.query(LocationEntry.TABLE_NAME, null, LocationEntry._ID + " = ?",
+                new String[] {Long.toString(locationIds[3])}, null, null, null);
+        TestUtilities.validateCursor("Error: Generated location differs", cursor,
+                generator.location(3).toContentValues());
+        dbHelper.close();
+    }
+
+    public void testForecastJsonParses() throws Exception {
+        WeatherDataGenerator generator = TestUtilities.createWeatherDataGenerator();
+        Forecast forecast = ForecastParser.parse(generator.toForecastJson(5, 14));
+        WeatherDataGenerator.Location location = generator.location(5);
+        assertEquals(location.cityName, forecast.cityName);
+        assertEquals(location.latitude, forecast.latitude);
+        assertEquals(14, forecast.days.size());
+
+        WeatherDataGenerator.Days series = generator.days(5);
+        for (Forecast.Day parsed : forecast.days) {
+            WeatherDataGenerator.Day day = series.next();
+            assertEquals(day.high, parsed.high);
+            assertEquals(day.low, parsed.low);
+            assertEquals(day.humidity, parsed.humidity);
+            assertEquals(day.weatherId, parsed.weatherId);
+            assertEquals(day.description, parsed.description);
+        }
+    }
+}
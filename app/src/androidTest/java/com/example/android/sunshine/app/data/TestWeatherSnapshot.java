@@ -0,0 +1,287 @@
+package com.example.android.sunshine.app.data;
+
+import android.content.ContentUris;
+import android.content.ContentValues;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.net.Uri;
+import android.os.Build;
+import android.os.ParcelFileDescriptor;
+import android.test.AndroidTestCase;
+
+import com.example.android.sunshine.app.data.WeatherContract.LocationEntry;
+import com.example.android.sunshine.app.data.WeatherContract.SnapshotEntry;
+import com.example.android.sunshine.app.data.WeatherContract.WeatherEntry;
+import com.example.android.sunshine.app.utils.PollingCheck;
+import com.example.android.sunshine.app.utils.Skip;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.concurrent.Callable;
+
+public class TestWeatherSnapshot extends AndroidTestCase {
+
+    private static final int WEATHER_RECORDS = 14;
+
+    private long mLocationRowId;
+    private ContentValues[] mWeatherValues;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        deleteAllRecords();
+
+        Uri locationUri = mContext.getContentResolver().insert(
+                LocationEntry.CONTENT_URI, TestUtilities.createNorthPoleLocationValues());
+        mLocationRowId = ContentUris.parseId(locationUri);
+
+        mWeatherValues = new ContentValues[WEATHER_RECORDS];
+        long date = TestUtilities.TEST_DATE;
+        for (int i = 0; i < WEATHER_RECORDS; i++, date += 1000 * 60 * 60 * 24) {
+            ContentValues values = TestUtilities.createWeatherValues(mLocationRowId);
+            values.put(WeatherEntry.COLUMN_DATE, WeatherContract.normalizeDate(date));
+            values.put(WeatherEntry.COLUMN_MAX_TEMP, 75 + i);
+            mWeatherValues[i] = values;
+        }
+        mContext.getContentResolver().bulkInsert(WeatherEntry.CONTENT_URI, mWeatherValues);
+    }
+
+    private void deleteAllRecords() {
+        mContext.getContentResolver().delete(WeatherEntry.CONTENT_URI, null, null);
+        mContext.getContentResolver().delete(LocationEntry.CONTENT_URI, null, null);
+    }
+
+    public void testRoundTrip() throws IOException {
+        roundTrip(0);
+    }
+
+    public void testCompressedRoundTrip() throws IOException {
+        roundTrip(WeatherSnapshot.FLAG_COMPRESSED);
+    }
+
+    private void roundTrip(int flags) throws IOException {
+        WeatherDbHelper dbHelper = new WeatherDbHelper(mContext);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        WeatherSnapshot.write(dbHelper.getReadableDatabase(), out, flags);
+
+        deleteAllRecords();
+
+        int imported = WeatherSnapshot.read(dbHelper.getWritableDatabase(),
+                new ByteArrayInputStream(out.toByteArray()));
+        assertEquals("Error: Unexpected number of records imported from the snapshot",
+                WEATHER_RECORDS + 1, imported);
+        dbHelper.close();
+
+        validateRecords("roundTrip");
+    }
+
+    public void testRejectsUnknownData() {
+        assertImportFails("Garbage", new byte[] {1, 2, 3, 4, 5, 6, 7, 8});
+    }
+
+    public void testRejectsBadLengths() throws IOException {
+        ByteArrayOutputStream snapshot = new ByteArrayOutputStream();
+        DataOutputStream out = snapshotHeader(snapshot);
+        out.writeInt(-1);
+        assertImportFails("A negative row count", snapshot.toByteArray());
+
+        snapshot = new ByteArrayOutputStream();
+        out = snapshotHeader(snapshot);
+        out.writeInt(WeatherSnapshot.MAX_ROWS + 1);
+        assertImportFails("A row count out of range", snapshot.toByteArray());
+
+        // A column block far longer than the stream, which must not be allocated
+        snapshot = new ByteArrayOutputStream();
+        out = snapshotHeader(snapshot);
+        out.writeInt(1);
+        out.writeByte(1);
+        out.writeUTF("unknown");
+        out.writeByte(0);
+        out.writeInt(Integer.MAX_VALUE);
+        assertImportFails("A block length out of range", snapshot.toByteArray());
+
+        // One row of a long column takes 8 bytes, not 9
+        snapshot = new ByteArrayOutputStream();
+        out = snapshotHeader(snapshot);
+        out.writeInt(1);
+        out.writeByte(1);
+        out.writeUTF(LocationEntry._ID);
+        out.writeByte(1);
+        out.writeInt(9);
+        out.write(new byte[9]);
+        assertImportFails("A block longer than its values", snapshot.toByteArray());
+    }
+
+    public void testRejectsDuplicateLocations() throws IOException {
+        SQLiteDatabase source = createUncheckedDatabase();
+        insertLocation(source, 1, "94043", "Mountain View");
+        insertLocation(source, 2, "94043", "Mountain View");
+        ByteArrayOutputStream snapshot = new ByteArrayOutputStream();
+        WeatherSnapshot.write(source, snapshot, 0);
+        source.close();
+
+        assertImportFails("A location setting twice", snapshot.toByteArray());
+    }
+
+    public void testNullTextRoundTrips() throws IOException {
+        SQLiteDatabase source = createUncheckedDatabase();
+        insertLocation(source, 1, "94043", null);
+        ByteArrayOutputStream snapshot = new ByteArrayOutputStream();
+        WeatherSnapshot.write(source, snapshot, 0);
+        source.close();
+
+        SQLiteDatabase target = createUncheckedDatabase();
+        WeatherSnapshot.read(target, new ByteArrayInputStream(snapshot.toByteArray()));
+        Cursor cursor = target.query(LocationEntry.TABLE_NAME,
+                new String[] {LocationEntry.COLUMN_CITY_NAME}, null, null, null, null, null);
+        assertTrue(cursor.moveToFirst());
+        assertTrue("Error: A null city name came back as \"" + cursor.getString(0) + "\"",
+                cursor.isNull(0));
+        cursor.close();
+        target.close();
+    }
+
+    public void testProviderReportsFailedImport() throws Exception {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.KITKAT) {
+            Skip.log(this, "before KitKat a pipe can't carry the error back");
+            return;
+        }
+        ByteArrayOutputStream snapshot = new ByteArrayOutputStream();
+        snapshotHeader(snapshot).writeInt(-1);
+
+        final ParcelFileDescriptor descriptor = mContext.getContentResolver()
+                .openFileDescriptor(SnapshotEntry.CONTENT_URI, "w");
+        FileOutputStream out = new FileOutputStream(descriptor.getFileDescriptor());
+        out.write(snapshot.toByteArray());
+        out.flush();
+        PollingCheck.check("Error: The failed import was not reported to the writer", 5000,
+                new Callable<Boolean>() {
+                    @Override
+                    public Boolean call() {
+                        try {
+                            descriptor.checkError();
+                            return false;
+                        } catch (IOException expected) {
+                            return true;
+                        }
+                    }
+                });
+        descriptor.close();
+
+        Cursor cursor = mContext.getContentResolver()
+                .query(WeatherEntry.CONTENT_URI, null, null, null, null);
+        assertEquals(WEATHER_RECORDS, cursor.getCount());
+        cursor.close();
+    }
+
+    private void assertImportFails(String what, byte[] snapshot) {
+        WeatherDbHelper dbHelper = new WeatherDbHelper(mContext);
+        try {
+            WeatherSnapshot.read(dbHelper.getWritableDatabase(),
+                    new ByteArrayInputStream(snapshot));
+            fail("Error: " + what + " was accepted in a weather snapshot");
+        } catch (IOException expected) {
+            // The existing data must survive a failed import
+            Cursor cursor = mContext.getContentResolver()
+                    .query(WeatherEntry.CONTENT_URI, null, null, null, null);
+            assertEquals(WEATHER_RECORDS, cursor.getCount());
+            cursor.close();
+        } finally {
+            dbHelper.close();
+        }
+    }
+
+    private static DataOutputStream snapshotHeader(OutputStream snapshot) throws IOException {
+        DataOutputStream out = new DataOutputStream(snapshot);
+        out.writeInt(WeatherSnapshot.MAGIC);
+        out.writeShort(WeatherSnapshot.VERSION);
+        out.writeByte(0);
+        return out;
+    }
+
+    // The snapshot's tables without any constraints, to write what weather.db would refuse
+    private static SQLiteDatabase createUncheckedDatabase() {
+        SQLiteDatabase db = SQLiteDatabase.create(null);
+        db.execSQL("CREATE TABLE " + LocationEntry.TABLE_NAME + " ("
+                + LocationEntry._ID + " INTEGER, "
+                + LocationEntry.COLUMN_LOCATION_SETTING + " TEXT, "
+                + LocationEntry.COLUMN_CITY_NAME + " TEXT, "
+                + LocationEntry.COLUMN_COORD_LAT + " REAL, "
+                + LocationEntry.COLUMN_COORD_LONG + " REAL)");
+        db.execSQL("CREATE TABLE " + WeatherEntry.TABLE_NAME + " ("
+                + WeatherEntry.COLUMN_LOC_KEY + " INTEGER, "
+                + WeatherEntry.COLUMN_DATE + " INTEGER, "
+                + WeatherEntry.COLUMN_SHORT_DESC + " TEXT, "
+                + WeatherEntry.COLUMN_WEATHER_ID + " INTEGER, "
+                + WeatherEntry.COLUMN_MIN_TEMP + " REAL, "
+                + WeatherEntry.COLUMN_MAX_TEMP + " REAL, "
+                + WeatherEntry.COLUMN_HUMIDITY + " REAL, "
+                + WeatherEntry.COLUMN_PRESSURE + " REAL, "
+                + WeatherEntry.COLUMN_WIND_SPEED + " REAL, "
+                + WeatherEntry.COLUMN_DEGREES + " REAL)");
+        return db;
+    }
+
+    private static void insertLocation(SQLiteDatabase db, long id, String locationSetting,
+                                       String cityName) {
+        ContentValues values = new ContentValues();
+        values.put(LocationEntry._ID, id);
+        values.put(LocationEntry.COLUMN_LOCATION_SETTING, locationSetting);
+        values.put(LocationEntry.COLUMN_CITY_NAME, cityName);
+        values.put(LocationEntry.COLUMN_COORD_LAT, 37.4);
+        values.put(LocationEntry.COLUMN_COORD_LONG, -122.1);
+        db.insert(LocationEntry.TABLE_NAME, null, values);
+    }
+
+    public void testProviderStreams() throws IOException {
+        InputStream in = mContext.getContentResolver()
+                .openInputStream(SnapshotEntry.buildSnapshotUri(true));
+        ByteArrayOutputStream snapshot = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            snapshot.write(buffer, 0, read);
+        }
+        in.close();
+
+        deleteAllRecords();
+
+        // The import finishes asynchronously and notifies the weather uri when it's done
+        TestUtilities.TestContentObserver weatherObserver = TestUtilities.getTestContentObserver();
+        mContext.getContentResolver()
+                .registerContentObserver(WeatherEntry.CONTENT_URI, true, weatherObserver);
+
+        OutputStream out = mContext.getContentResolver()
+                .openOutputStream(SnapshotEntry.CONTENT_URI);
+        out.write(snapshot.toByteArray());
+        out.close();
+
+        weatherObserver.waitForNotificationOrFail();
+        mContext.getContentResolver().unregisterContentObserver(weatherObserver);
+
+        validateRecords("testProviderStreams");
+    }
+
+    private void validateRecords(String error) {
+        Cursor cursor = mContext.getContentResolver().query(
+                LocationEntry.CONTENT_URI, null, null, null, null);
+        TestUtilities.validateCursor(error + ". Error validating LocationEntry.",
+                cursor, TestUtilities.createNorthPoleLocationValues());
+
+        cursor = mContext.getContentResolver().query(
+                WeatherEntry.CONTENT_URI, null, null, null, WeatherEntry.COLUMN_DATE + " ASC");
+        assertEquals(WEATHER_RECORDS, cursor.getCount());
+        cursor.moveToFirst();
+        for (int i = 0; i < WEATHER_RECORDS; i++, cursor.moveToNext()) {
+            TestUtilities.validateCurrentRecord(error + ". Error validating WeatherEntry " + i,
+                    cursor, mWeatherValues[i]);
+        }
+        cursor.close();
+    }
+}
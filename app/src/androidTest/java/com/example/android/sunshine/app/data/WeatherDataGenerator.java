@@ -0,0 +1,441 @@
+package com.example.android.sunshine.app.data;
+
+import android.content.ContentValues;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+
+import com.example.android.sunshine.app.data.WeatherContract.LocationEntry;
+import com.example.android.sunshine.app.data.WeatherContract.WeatherEntry;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Makes up locations and their weather in any amount, for the benchmarks and stress tests that
+ * need more than {@link TestUtilities}' single rows.  The same seed always gives the same data.
+ *
+ * Locations are scattered around real cities, so their latitudes are the ones people live at.
+ * Each location's days follow from its latitude: temperatures by latitude and season with a
+ * few days' persistence, wet spells, snow below freezing and storms in the heat, pressure,
+ * humidity and wind to go with the condition.  Every location has a random generator of its
+ * own, so location i has the same weather however many others are made along with it, whether
+ * it is inserted or exported as JSON.
+ */
+public class WeatherDataGenerator {
+
+    private static final long DAY_IN_MILLIS = 1000 * 60 * 60 * 24;
+
+    // Name, country, latitude, longitude
+    private static final Object[][] CITIES = {
+            {"London", "gb", 51.51, -0.13},
+            {"Paris", "fr", 48.86, 2.35},
+            {"Kyiv", "ua", 50.45, 30.52},
+            {"Moscow", "ru", 55.75, 37.62},
+            {"Reykjavik", "is", 64.14, -21.94},
+            {"Cairo", "eg", 30.04, 31.24},
+            {"Lagos", "ng", 6.45, 3.40},
+            {"Nairobi", "ke", -1.29, 36.82},
+            {"Johannesburg", "za", -26.20, 28.05},
+            {"Mumbai", "in", 19.08, 72.88},
+            {"Singapore", "sg", 1.35, 103.82},
+            {"Beijing", "cn", 39.90, 116.41},
+            {"Tokyo", "jp", 35.68, 139.69},
+            {"Sydney", "au", -33.87, 151.21},
+            {"Anchorage", "us", 61.22, -149.90},
+            {"Los Angeles", "us", 34.05, -118.24},
+            {"New York", "us", 40.71, -74.01},
+            {"Mexico City", "mx", 19.43, -99.13},
+            {"Sao Paulo", "br", -23.55, -46.63},
+            {"Buenos Aires", "ar", -34.60, -58.38},
+    };
+
+    // OpenWeatherMap condition codes by kind of weather
+    private static final int[] STORM = {200, 201, 202, 211, 212, 221, 230, 231};
+    private static final int[] DRIZZLE = {300, 301, 310, 311, 321};
+    private static final int[] RAIN = {500, 501, 502, 503, 520, 521, 522, 531};
+    private static final int[] SNOW = {600, 601, 602, 611, 615, 616, 620, 621};
+    private static final int[] FOG = {701, 711, 721, 741};
+    private static final int[] CLOUDS = {801, 802, 803, 804};
+    private static final int FREEZING_RAIN = 511;
+    private static final int CLEAR = 800;
+
+    private final long mSeed;
+    private final long mStartDate;
+    // Normalized dates by day, shared by every location
+    private long[] mDates = new long[0];
+
+    /**
+     * @param startDate the date of every location's first day
+     */
+    public WeatherDataGenerator(long seed, long startDate) {
+        mSeed = seed;
+        mStartDate = WeatherContract.normalizeDate(startDate);
+    }
+
+    /**
+     * One made up location.
+     */
+    public static final class Location {
+        public final int index;
+        public final String setting;
+        public final String cityName;
+        public final double latitude;
+        public final double longitude;
+
+        Location(int index, String setting, String cityName, double latitude, double longitude) {
+            this.index = index;
+            this.setting = setting;
+            this.cityName = cityName;
+            this.latitude = latitude;
+            this.longitude = longitude;
+        }
+
+        public ContentValues toContentValues() {
+            ContentValues values = new ContentValues();
+            values.put(LocationEntry.COLUMN_LOCATION_SETTING, setting);
+            values.put(LocationEntry.COLUMN_CITY_NAME, cityName);
+            values.put(LocationEntry.COLUMN_COORD_LAT, latitude);
+            values.put(LocationEntry.COLUMN_COORD_LONG, longitude);
+            return values;
+        }
+    }
+
+    /**
+     * One made up day, in the units the sync adapter stores.
+     */
+    public static final class Day {
+        public final long date;
+        public final double high;
+        public final double low;
+        public final int humidity;
+        public final double pressure;
+        public final double windSpeed;
+        public final double degrees;
+        public final int weatherId;
+        public final String description;
+
+        Day(long date, double high, double low, int humidity, double pressure,
+            double windSpeed, double degrees, int weatherId, String description) {
+            this.date = date;
+            this.high = high;
+            this.low = low;
+            this.humidity = humidity;
+            this.pressure = pressure;
+            this.windSpeed = windSpeed;
+            this.degrees = degrees;
+            this.weatherId = weatherId;
+            this.description = description;
+        }
+
+        public ContentValues toContentValues(long locationId) {
+            ContentValues values = new ContentValues();
+            values.put(WeatherEntry.COLUMN_LOC_KEY, locationId);
+            values.put(WeatherEntry.COLUMN_DATE, date);
+            values.put(WeatherEntry.COLUMN_DEGREES, degrees);
+            // A REAL column, so the value reads back the same from either insert path
+            values.put(WeatherEntry.COLUMN_HUMIDITY, (double) humidity);
+            values.put(WeatherEntry.COLUMN_PRESSURE, pressure);
+            values.put(WeatherEntry.COLUMN_MAX_TEMP, high);
+            values.put(WeatherEntry.COLUMN_MIN_TEMP, low);
+            values.put(WeatherEntry.COLUMN_SHORT_DESC, description);
+            values.put(WeatherEntry.COLUMN_WIND_SPEED, windSpeed);
+            values.put(WeatherEntry.COLUMN_WEATHER_ID, weatherId);
+            return values;
+        }
+    }
+
+    /**
+     * One location's days, in order from the start date.
+     */
+    public final class Days {
+        private final Random mRandom;
+        private final double mLatitude;
+        // The location's climate
+        private final double mMeanTemperature;
+        private final double mSeasonalSwing;
+        private final double mWetDayChance;
+        // Carried from day to day
+        private int mDay;
+        private double mAnomaly;
+        private boolean mWet;
+        private double mDegrees;
+
+        Days(Location location) {
+            mRandom = new Random(mSeed * 1000003 + location.index * 2 + 1);
+            mLatitude = location.latitude;
+            double absLatitude = Math.abs(mLatitude);
+            mMeanTemperature = 28 - 0.45 * absLatitude;
+            mSeasonalSwing = 0.25 * absLatitude;
+            mWetDayChance = 0.1 + 0.3 * mRandom.nextDouble();
+            mDegrees = mRandom.nextDouble() * 360;
+        }
+
+        public Day next() {
+            long date = dateOf(mDay);
+            // Close enough for the seasons
+            int dayOfYear = (int) ((date / DAY_IN_MILLIS) % 365);
+            mDay++;
+
+            // Warmest around late July up north, late January down south
+            double season = Math.cos(2 * Math.PI * (dayOfYear - 200) / 365.0);
+            mAnomaly = 0.7 * mAnomaly + mRandom.nextGaussian() * 2.5;
+            double mean = mMeanTemperature + mSeasonalSwing * season * Math.signum(mLatitude)
+                    + mAnomaly;
+            double range = Math.max(1, 7 + mRandom.nextGaussian() * 2);
+
+            // Wet days come in spells
+            mWet = mRandom.nextDouble() < (mWet ? 0.6 : mWetDayChance);
+            int weatherId;
+            if (mWet) {
+                if (mean < -1) {
+                    weatherId = pick(SNOW);
+                } else if (mean < 1) {
+                    weatherId = mRandom.nextBoolean() ? FREEZING_RAIN : pick(SNOW);
+                } else if (mean > 20 && mRandom.nextDouble() < 0.25) {
+                    weatherId = pick(STORM);
+                } else if (mRandom.nextDouble() < 0.25) {
+                    weatherId = pick(DRIZZLE);
+                } else {
+                    weatherId = pick(RAIN);
+                }
+            } else {
+                double sky = mRandom.nextDouble();
+                if (sky < 0.04) {
+                    weatherId = pick(FOG);
+                } else if (sky < 0.45) {
+                    weatherId = CLEAR;
+                } else {
+                    weatherId = pick(CLOUDS);
+                }
+                // Clear skies spread the day and night further apart
+                range += weatherId == CLEAR ? 3 : 0;
+            }
+            boolean storm = weatherId < 300;
+
+            int humidity = mWet ? 80 + mRandom.nextInt(21) : 35 + mRandom.nextInt(50);
+            double pressure = 1013 + mRandom.nextGaussian() * 7 - (mWet ? 6 : 0) - (storm ? 8 : 0);
+            double windSpeed = Math.abs(mRandom.nextGaussian()) * 4 + (storm ? 6 : 0);
+            mDegrees = (mDegrees + mRandom.nextGaussian() * 40 + 360) % 360;
+
+            return new Day(date, round(mean + range / 2), round(mean - range / 2), humidity,
+                    round(pressure), round(windSpeed), Math.floor(mDegrees),
+                    weatherId, describe(weatherId));
+        }
+
+        private int pick(int[] codes) {
+            return codes[mRandom.nextInt(codes.length)];
+        }
+    }
+
+    /**
+     * @return the normalized date of the given day after the start date.  Before Lollipop
+     * {@link android.text.format.Time} only normalizes dates up to 2037.
+     */
+    public long dateOf(int day) {
+        if (day >= mDates.length) {
+            int filled = mDates.length;
+            mDates = Arrays.copyOf(mDates, Math.max(day + 1, filled * 2));
+            for (int i = filled; i < mDates.length; i++) {
+                mDates[i] = WeatherContract.normalizeDate(mStartDate + i * DAY_IN_MILLIS);
+            }
+        }
+        return mDates[day];
+    }
+
+    public Location location(int index) {
+        Random random = new Random(mSeed * 1000003 + index * 2);
+        Object[] city = CITIES[random.nextInt(CITIES.length)];
+        double latitude = (Double) city[2] + random.nextGaussian() * 2;
+        double longitude = (Double) city[3] + random.nextGaussian() * 2;
+        latitude = Math.max(-85, Math.min(85, latitude));
+        longitude = ((longitude + 540) % 360) - 180;
+        String name = (String) city[0];
+        // The index keeps the settings unique
+        String setting = name.toLowerCase().replace(' ', '-') + "-" + index + "," + city[1];
+        return new Location(index, setting, name + " " + index,
+                round(latitude, 10000), round(longitude, 10000));
+    }
+
+    public Days days(int locationIndex) {
+        return new Days(location(locationIndex));
+    }
+
+    /**
+     * @return the location's days as the values the provider takes.
+     */
+    public ContentValues[] createWeatherValues(int locationIndex, long locationId, int days) {
+        Days series = days(locationIndex);
+        ContentValues[] values = new ContentValues[days];
+        for (int i = 0; i < days; i++) {
+            values[i] = series.next().toContentValues(locationId);
+        }
+        return values;
+    }
+
+    /**
+     * Writes the locations and their days straight to the tables, the fastest way there is:
+     * one transaction and precompiled inserts, without going through ContentValues or the
+     * provider.  Dates are normalized already, as the provider would.
+     *
+     * @return the row ids of the locations, by index.
+     */
+    public long[] insert(SQLiteDatabase db, int locations, int days) {
+        long[] locationIds = new long[locations];
+        SQLiteStatement insertLocation = db.compileStatement("INSERT INTO " +
+                LocationEntry.TABLE_NAME + " (" +
+                LocationEntry.COLUMN_LOCATION_SETTING + ", " +
+                LocationEntry.COLUMN_CITY_NAME + ", " +
+                LocationEntry.COLUMN_COORD_LAT + ", " +
+                LocationEntry.COLUMN_COORD_LONG + ") VALUES (?, ?, ?, ?)");
+        SQLiteStatement insertWeather = db.compileStatement("INSERT INTO " +
+                WeatherEntry.TABLE_NAME + " (" +
+                WeatherEntry.COLUMN_LOC_KEY + ", " +
+                WeatherEntry.COLUMN_DATE + ", " +
+                WeatherEntry.COLUMN_SHORT_DESC + ", " +
+                WeatherEntry.COLUMN_WEATHER_ID + ", " +
+                WeatherEntry.COLUMN_MIN_TEMP + ", " +
+                WeatherEntry.COLUMN_MAX_TEMP + ", " +
+                WeatherEntry.COLUMN_HUMIDITY + ", " +
+                WeatherEntry.COLUMN_PRESSURE + ", " +
+                WeatherEntry.COLUMN_WIND_SPEED + ", " +
+                WeatherEntry.COLUMN_DEGREES + ") VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)");
+        db.beginTransaction();
+        try {
+            for (int i = 0; i < locations; i++) {
+                Location location = location(i);
+                insertLocation.bindString(1, location.setting);
+                insertLocation.bindString(2, location.cityName);
+                insertLocation.bindDouble(3, location.latitude);
+                insertLocation.bindDouble(4, location.longitude);
+                locationIds[i] = insertLocation.executeInsert();
+
+                Days series = new Days(location);
+                for (int d = 0; d < days; d++) {
+                    Day day = series.next();
+                    insertWeather.bindLong(1, locationIds[i]);
+                    insertWeather.bindLong(2, day.date);
+                    insertWeather.bindString(3, day.description);
+                    insertWeather.bindLong(4, day.weatherId);
+                    insertWeather.bindDouble(5, day.low);
+                    insertWeather.bindDouble(6, day.high);
+                    insertWeather.bindDouble(7, day.humidity);
+                    insertWeather.bindDouble(8, day.pressure);
+                    insertWeather.bindDouble(9, day.windSpeed);
+                    insertWeather.bindDouble(10, day.degrees);
+                    insertWeather.executeInsert();
+                }
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+            insertLocation.close();
+            insertWeather.close();
+        }
+        return locationIds;
+    }
+
+    /**
+     * @return the location's days the way OpenWeatherMap's daily forecast sends them, for the
+     * sync benchmarks.
+     */
+    public String toForecastJson(int locationIndex, int days) throws JSONException {
+        Location location = location(locationIndex);
+        JSONObject coord = new JSONObject();
+        coord.put("lon", location.longitude);
+        coord.put("lat", location.latitude);
+        JSONObject city = new JSONObject();
+        city.put("id", locationIndex);
+        city.put("name", location.cityName);
+        city.put("coord", coord);
+        city.put("country", location.setting.substring(location.setting.indexOf(',') + 1)
+                .toUpperCase());
+        city.put("population", 0);
+
+        JSONArray list = new JSONArray();
+        Days series = new Days(location);
+        for (int i = 0; i < days; i++) {
+            Day day = series.next();
+            JSONObject temp = new JSONObject();
+            temp.put("day", round((day.high + day.low) / 2));
+            temp.put("min", day.low);
+            temp.put("max", day.high);
+            temp.put("night", day.low);
+            temp.put("eve", day.high);
+            temp.put("morn", day.low);
+            JSONObject weather = new JSONObject();
+            weather.put("id", day.weatherId);
+            weather.put("main", day.description);
+            weather.put("description", day.description.toLowerCase());
+            weather.put("icon", day.weatherId == CLEAR ? "01d" : "04d");
+            JSONObject item = new JSONObject();
+            item.put("dt", day.date / 1000);
+            item.put("temp", temp);
+            item.put("pressure", day.pressure);
+            item.put("humidity", day.humidity);
+            item.put("weather", new JSONArray().put(weather));
+            item.put("speed", day.windSpeed);
+            item.put("deg", day.degrees);
+            item.put("clouds", day.weatherId == CLEAR ? 0 : 75);
+            list.put(item);
+        }
+
+        JSONObject forecast = new JSONObject();
+        forecast.put("city", city);
+        forecast.put("cod", "200");
+        forecast.put("message", 0);
+        forecast.put("cnt", days);
+        forecast.put("list", list);
+        return forecast.toString();
+    }
+
+    /**
+     * Writes forecast_0.json ... to the directory, one forecast per location.
+     */
+    public void exportForecasts(File dir, int locations, int days)
+            throws IOException, JSONException {
+        for (int i = 0; i < locations; i++) {
+            Writer writer = new FileWriter(new File(dir, "forecast_" + i + ".json"));
+            try {
+                writer.write(toForecastJson(i, days));
+            } finally {
+                writer.close();
+            }
+        }
+    }
+
+    // The "main" OpenWeatherMap sends with each code, what the sync adapter stores
+    static String describe(int weatherId) {
+        if (weatherId < 300) {
+            return "Thunderstorm";
+        } else if (weatherId < 500) {
+            return "Drizzle";
+        } else if (weatherId < 600) {
+            return "Rain";
+        } else if (weatherId < 700) {
+            return "Snow";
+        } else if (weatherId == 741) {
+            return "Fog";
+        } else if (weatherId < 800) {
+            return "Mist";
+        } else if (weatherId == CLEAR) {
+            return "Clear";
+        }
+        return "Clouds";
+    }
+
+    private static double round(double value) {
+        return round(value, 100);
+    }
+
+    private static double round(double value, double scale) {
+        return Math.round(value * scale) / scale;
+    }
+}
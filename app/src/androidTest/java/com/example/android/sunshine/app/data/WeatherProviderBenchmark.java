@@ -0,0 +1,306 @@
+package com.example.android.sunshine.app.data;
+
+import android.content.ContentResolver;
+import android.content.ContentUris;
+import android.content.ContentValues;
+import android.database.Cursor;
+import android.net.Uri;
+import android.os.Build;
+import android.test.ProviderTestCase2;
+import android.test.suitebuilder.annotation.LargeTest;
+import android.util.Log;
+
+import com.example.android.sunshine.app.data.WeatherContract.LocationEntry;
+import com.example.android.sunshine.app.data.WeatherContract.WeatherEntry;
+import com.example.android.sunshine.app.utils.BenchmarkReport;
+import com.example.android.sunshine.app.utils.BenchmarkStats;
+import com.example.android.sunshine.app.utils.Skip;
+
+import org.json.JSONObject;
+
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Measures the {@link WeatherProvider} at 1k, 10k, 100k and 1M weather rows, spread over 1 and
+ * over 100 locations: bulkInsert rows per second, query latency for each weather and location
+ * URI shape, how fast a cursor over one location's rows is read, and deleting the older half
+ * of the rows the way the sync adapter drops past days.
+ *
+ * Runs against a provider of its own on a temporary database file, with the same journal and
+ * synchronous settings as weather.db, so the numbers are the app's but its data is left
+ * alone.  The file is deleted when the provider shuts down, see
+ * {@link WeatherDbHelper.Mode#TEMP_FILE}.  With one location every row is another day, so
+ * the bigger sizes reach far into the future.  Dates past 2037 are skipped before Lollipop,
+ * where {@link android.text.format.Time} can't normalize them.
+ *
+ * Results are appended to provider_benchmark.jsonl, see {@link BenchmarkReport}.
+ */
+public class WeatherProviderBenchmark extends ProviderTestCase2<WeatherProvider> {
+
+    private static final String LOG_TAG = WeatherProviderBenchmark.class.getSimpleName();
+
+    private static final long DAY_IN_MILLIS = 1000 * 60 * 60 * 24;
+    private static final long START_DATE = 1451606400000L;  // January 1st, 2016
+
+    // Rows per bulkInsert, what a few syncs of 100 locations would write.  Also keeps a
+    // million rows from being in memory as ContentValues at once.
+    private static final int BATCH_ROWS = 1000;
+
+    // Samples per query shape, fewer when each query returns many rows
+    private static final int MAX_QUERIES = 100;
+    private static final int MIN_QUERIES = 5;
+    private static final int QUERY_ROW_BUDGET = 100000;
+
+    // The forecast list asks for two weeks from today
+    private static final int FORECAST_DAYS = 14;
+
+    private ContentResolver mResolver;
+    private BenchmarkReport mReport;
+    private WeatherDataGenerator mGenerator;
+
+    public WeatherProviderBenchmark() {
+        super(WeatherProvider.class, WeatherContract.CONTENT_AUTHORITY);
+    }
+
+    @Override
+    protected void setUp() throws Exception {
+        // Before the provider, and its helper, are created
+        WeatherDbHelper.setDefaultMode(WeatherDbHelper.Mode.TEMP_FILE);
+        super.setUp();
+        mResolver = getMockContentResolver();
+        mReport = new BenchmarkReport(getContext(), "provider_benchmark");
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        // Shutting the provider down deletes the rows, a million take a lot of room
+        super.tearDown();
+        WeatherDbHelper.setDefaultMode(WeatherDbHelper.Mode.DISK);
+    }
+
+    public void testThousandRows() throws Exception {
+        benchmark(1000, 1);
+        benchmark(1000, 100);
+    }
+
+    public void testTenThousandRows() throws Exception {
+        benchmark(10000, 1);
+        benchmark(10000, 100);
+    }
+
+    @LargeTest
+    public void testHundredThousandRows() throws Exception {
+        benchmark(100000, 1);
+        benchmark(100000, 100);
+    }
+
+    @LargeTest
+    public void testMillionRows() throws Exception {
+        benchmark(1000000, 1);
+        benchmark(1000000, 100);
+    }
+
+    private void benchmark(int rows, int locations) throws Exception {
+        mResolver.delete(WeatherEntry.CONTENT_URI, null, null);
+        mResolver.delete(LocationEntry.CONTENT_URI, null, null);
+
+        int days = rows / locations;
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.LOLLIPOP
+                && START_DATE + days * DAY_IN_MILLIS > Integer.MAX_VALUE * 1000L) {
+            Skip.log(this, rows + " rows for " + locations
+                    + " location(s), the dates don't fit in a 32-bit time_t");
+            return;
+        }
+
+        mGenerator = new WeatherDataGenerator(rows + locations, START_DATE);
+        Random random = new Random(rows + locations);
+        String[] settings = new String[locations];
+        long[] locationIds = new long[locations];
+        for (int i = 0; i < locations; i++) {
+            WeatherDataGenerator.Location location = mGenerator.location(i);
+            settings[i] = location.setting;
+            locationIds[i] = ContentUris.parseId(
+                    mResolver.insert(LocationEntry.CONTENT_URI, location.toContentValues()));
+        }
+
+        JSONObject result = mReport.newResult("provider");
+        result.put("rows", rows);
+        result.put("locations", locations);
+        result.put("database", WeatherDbHelper.getDefaultMode().toString());
+
+        measureBulkInsert(result, locationIds, days);
+        measureQueries(result, random, settings, locationIds, days);
+        measureIteration(result, settings[0], days);
+        measureDelete(result, rows, days);
+
+        mReport.write(result);
+    }
+
+    private void measureBulkInsert(JSONObject result, long[] locationIds, int days)
+            throws Exception {
+        BenchmarkStats stats = new BenchmarkStats("bulkInsert of " + BATCH_ROWS + " rows");
+        WeatherDataGenerator.Days[] series = new WeatherDataGenerator.Days[locationIds.length];
+        for (int i = 0; i < series.length; i++) {
+            series[i] = mGenerator.days(i);
+        }
+        ContentValues[] batch = new ContentValues[BATCH_ROWS];
+        int filled = 0;
+        int inserted = 0;
+        // Day by day, each location's row for the day, the order syncs of all locations write
+        for (int day = 0; day < days; day++) {
+            for (int i = 0; i < locationIds.length; i++) {
+                batch[filled++] = series[i].next().toContentValues(locationIds[i]);
+                if (filled == batch.length) {
+                    inserted += bulkInsert(stats, batch);
+                    filled = 0;
+                }
+            }
+        }
+        if (filled > 0) {
+            ContentValues[] rest = new ContentValues[filled];
+            System.arraycopy(batch, 0, rest, 0, filled);
+            inserted += bulkInsert(stats, rest);
+        }
+        assertEquals("Error: Not every row was inserted", days * locationIds.length, inserted);
+
+        Log.i(LOG_TAG, stats.toString());
+        BenchmarkReport.putStats(result, "bulk_insert_batch", stats);
+        result.put("bulk_insert_rows_per_s", inserted * 1e9 / stats.total());
+    }
+
+    private int bulkInsert(BenchmarkStats stats, ContentValues[] values) {
+        long start = System.nanoTime();
+        int inserted = mResolver.bulkInsert(WeatherEntry.CONTENT_URI, values);
+        stats.add(System.nanoTime() - start);
+        return inserted;
+    }
+
+    private void measureQueries(JSONObject result, Random random, String[] settings,
+                                long[] locationIds, int days) throws Exception {
+        int forecastDays = Math.min(FORECAST_DAYS, days);
+        int queries = queriesFor(forecastDays);
+
+        // "weather" with a selection, one location's day
+        BenchmarkStats weather = new BenchmarkStats("weather");
+        String selection = WeatherEntry.COLUMN_LOC_KEY + " = ? AND " +
+                WeatherEntry.COLUMN_DATE + " = ?";
+        for (int i = 0; i < queries; i++) {
+            int location = random.nextInt(settings.length);
+            String[] selectionArgs = {Long.toString(locationIds[location]),
+                    Long.toString(dateOf(random.nextInt(days)))};
+            // One row, as the date and location are unique together
+            measureQuery(weather, WeatherEntry.CONTENT_URI, selection, selectionArgs, 1);
+        }
+
+        // "weather/*" with a start date, the forecast list
+        BenchmarkStats weatherWithLocation = new BenchmarkStats("weather/*");
+        for (int i = 0; i < queries; i++) {
+            String setting = settings[random.nextInt(settings.length)];
+            Uri uri = WeatherEntry.buildWeatherLocationWithStartDate(
+                    setting, dateOf(days - forecastDays));
+            measureQuery(weatherWithLocation, uri, null, null, forecastDays);
+        }
+
+        // "weather/*/#", the detail screen
+        BenchmarkStats weatherWithDate = new BenchmarkStats("weather/*/#");
+        for (int i = 0; i < queries; i++) {
+            String setting = settings[random.nextInt(settings.length)];
+            Uri uri = WeatherEntry.buildWeatherLocationWithDate(
+                    setting, dateOf(random.nextInt(days)));
+            measureQuery(weatherWithDate, uri, null, null, 1);
+        }
+
+        // "location" with a selection, what the sync adapter looks up before inserting
+        BenchmarkStats location = new BenchmarkStats("location");
+        String locationSelection = LocationEntry.COLUMN_LOCATION_SETTING + " = ?";
+        for (int i = 0; i < queries; i++) {
+            String[] selectionArgs = {settings[random.nextInt(settings.length)]};
+            measureQuery(location, LocationEntry.CONTENT_URI, locationSelection, selectionArgs, 1);
+        }
+
+        for (BenchmarkStats stats : new BenchmarkStats[] {
+                weather, weatherWithLocation, weatherWithDate, location}) {
+            Log.i(LOG_TAG, stats.toString());
+        }
+        BenchmarkReport.putStats(result, "query_weather", weather);
+        BenchmarkReport.putStats(result, "query_weather_location", weatherWithLocation);
+        BenchmarkReport.putStats(result, "query_weather_location_date", weatherWithDate);
+        BenchmarkReport.putStats(result, "query_location", location);
+    }
+
+    /**
+     * Times the query up to the rows being counted, which is when SQLite actually runs it.
+     */
+    private void measureQuery(BenchmarkStats stats, Uri uri, String selection,
+                              String[] selectionArgs, int expectedRows) {
+        long start = System.nanoTime();
+        Cursor cursor = mResolver.query(uri, null, selection, selectionArgs, null);
+        int count = cursor.getCount();
+        stats.add(System.nanoTime() - start);
+        cursor.close();
+        assertEquals("Error: Unexpected row count for " + uri, expectedRows, count);
+    }
+
+    private void measureIteration(JSONObject result, String setting, int days) throws Exception {
+        int passes = queriesFor(days);
+        BenchmarkStats stats = new BenchmarkStats("Reading " + days + " rows");
+        Uri uri = WeatherEntry.buildWeatherLocation(setting);
+        for (int i = 0; i < passes; i++) {
+            long start = System.nanoTime();
+            Cursor cursor = mResolver.query(uri, null, null, null,
+                    WeatherEntry.COLUMN_DATE + " ASC");
+            int dateColumn = cursor.getColumnIndex(WeatherEntry.COLUMN_DATE);
+            int descriptionColumn = cursor.getColumnIndex(WeatherEntry.COLUMN_SHORT_DESC);
+            int maxColumn = cursor.getColumnIndex(WeatherEntry.COLUMN_MAX_TEMP);
+            int minColumn = cursor.getColumnIndex(WeatherEntry.COLUMN_MIN_TEMP);
+            int weatherIdColumn = cursor.getColumnIndex(WeatherEntry.COLUMN_WEATHER_ID);
+            int read = 0;
+            long checksum = 0;
+            // The columns the forecast list binds
+            while (cursor.moveToNext()) {
+                checksum += cursor.getLong(dateColumn);
+                checksum += cursor.getString(descriptionColumn).length();
+                checksum += (long) (cursor.getDouble(maxColumn) - cursor.getDouble(minColumn));
+                checksum += cursor.getInt(weatherIdColumn);
+                read++;
+            }
+            cursor.close();
+            stats.add(System.nanoTime() - start);
+            assertEquals("Error: Not every row was read", days, read);
+            assertTrue(checksum != 0);
+        }
+
+        Log.i(LOG_TAG, stats.toString());
+        BenchmarkReport.putStats(result, "iterate", stats);
+        result.put("iterate_rows_per_s", days * 1e9 / stats.median());
+    }
+
+    private void measureDelete(JSONObject result, int rows, int days) throws Exception {
+        // Everything before the middle day, the way the sync adapter deletes past days
+        String[] selectionArgs = {Long.toString(dateOf(days / 2 - 1))};
+        long start = System.nanoTime();
+        int deleted = mResolver.delete(WeatherEntry.CONTENT_URI,
+                WeatherEntry.COLUMN_DATE + " <= ?", selectionArgs);
+        long deleteNanos = System.nanoTime() - start;
+        assertEquals("Error: Unexpected number of rows deleted", rows / days * (days / 2), deleted);
+
+        start = System.nanoTime();
+        mResolver.delete(WeatherEntry.CONTENT_URI, null, null);
+        long deleteAllNanos = System.nanoTime() - start;
+
+        Log.i(LOG_TAG, String.format(Locale.US, "Deleted %d rows in %.3fms, the rest in %.3fms",
+                deleted, deleteNanos / 1e6, deleteAllNanos / 1e6));
+        result.put("delete_rows", deleted);
+        result.put("delete_ns", deleteNanos);
+        result.put("delete_all_ns", deleteAllNanos);
+    }
+
+    private static int queriesFor(int rowsPerQuery) {
+        return Math.max(MIN_QUERIES, Math.min(MAX_QUERIES, QUERY_ROW_BUDGET / rowsPerQuery));
+    }
+
+    private long dateOf(int day) {
+        return mGenerator.dateOf(day);
+    }
+}
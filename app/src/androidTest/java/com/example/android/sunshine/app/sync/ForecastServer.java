@@ -0,0 +1,134 @@
+package com.example.android.sunshine.app.sync;
+
+import android.net.Uri;
+import android.util.Log;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A minimal HTTP server on the loopback interface that answers forecast requests with
+ * responses prepared up front, looked up by the location in the q parameter.  Each
+ * connection gets one response and is closed, so what the sync adapter measures is its own
+ * fetch and not the network.
+ */
+class ForecastServer implements Runnable {
+
+    private static final String LOG_TAG = ForecastServer.class.getSimpleName();
+
+    static final String PATH = "/data/2.5/forecast/daily";
+
+    private final ServerSocket mSocket;
+    private final Map<String, byte[]> mResponses = new HashMap<String, byte[]>();
+    private final AtomicInteger mRequests = new AtomicInteger();
+    private Thread mThread;
+
+    ForecastServer() throws IOException {
+        mSocket = new ServerSocket(0, 50, InetAddress.getByName("127.0.0.1"));
+    }
+
+    /**
+     * Answers requests for the location setting with the given forecast JSON.
+     */
+    synchronized void put(String locationSetting, String json) {
+        try {
+            mResponses.put(locationSetting, json.getBytes("UTF-8"));
+        } catch (IOException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    private synchronized byte[] get(String locationSetting) {
+        return mResponses.get(locationSetting);
+    }
+
+    /**
+     * @return the base URL to give {@link SunshineSyncAdapter#setForecastBaseUrl(String)}.
+     */
+    String getBaseUrl() {
+        return "http://127.0.0.1:" + mSocket.getLocalPort() + PATH;
+    }
+
+    int getRequestCount() {
+        return mRequests.get();
+    }
+
+    void start() {
+        mThread = new Thread(this, LOG_TAG);
+        mThread.start();
+    }
+
+    void stop() throws InterruptedException {
+        try {
+            mSocket.close();
+        } catch (IOException e) {
+            Log.e(LOG_TAG, "Error closing server socket", e);
+        }
+        mThread.join();
+    }
+
+    @Override
+    public void run() {
+        while (!mSocket.isClosed()) {
+            Socket socket;
+            try {
+                socket = mSocket.accept();
+            } catch (IOException e) {
+                // Closed by stop()
+                return;
+            }
+            try {
+                serve(socket);
+            } catch (IOException e) {
+                Log.e(LOG_TAG, "Error serving request", e);
+            } finally {
+                try {
+                    socket.close();
+                } catch (IOException e) {
+                    Log.e(LOG_TAG, "Error closing connection", e);
+                }
+            }
+        }
+    }
+
+    private void serve(Socket socket) throws IOException {
+        BufferedReader reader = new BufferedReader(
+                new InputStreamReader(socket.getInputStream(), "UTF-8"));
+        // "GET /data/2.5/forecast/daily?q=... HTTP/1.1", then the headers up to a blank line
+        String requestLine = reader.readLine();
+        String header;
+        do {
+            header = reader.readLine();
+        } while (header != null && header.length() > 0);
+        mRequests.incrementAndGet();
+
+        byte[] body = null;
+        String[] parts = requestLine != null ? requestLine.split(" ") : new String[0];
+        if (parts.length == 3 && "GET".equals(parts[0])) {
+            Uri uri = Uri.parse(parts[1]);
+            if (PATH.equals(uri.getPath())) {
+                body = get(uri.getQueryParameter("q"));
+            }
+        }
+
+        OutputStream out = socket.getOutputStream();
+        String status = body != null ? "200 OK" : "404 Not Found";
+        if (body == null) {
+            body = new byte[0];
+        }
+        out.write(("HTTP/1.1 " + status + "\r\n"
+                + "Content-Type: application/json; charset=utf-8\r\n"
+                + "Content-Length: " + body.length + "\r\n"
+                + "Connection: close\r\n\r\n").getBytes("UTF-8"));
+        out.write(body);
+        out.flush();
+    }
+}
@@ -0,0 +1,326 @@
+package com.example.android.sunshine.app.sync;
+
+import android.content.ContentResolver;
+import android.content.Context;
+import android.content.ContextWrapper;
+import android.content.SharedPreferences;
+import android.content.SyncResult;
+import android.database.Cursor;
+import android.os.Bundle;
+import android.os.Debug;
+import android.preference.PreferenceManager;
+import android.test.ProviderTestCase2;
+import android.test.suitebuilder.annotation.LargeTest;
+import android.util.Log;
+
+import com.example.android.sunshine.app.R;
+import com.example.android.sunshine.app.Settings;
+import com.example.android.sunshine.app.data.WeatherContract;
+import com.example.android.sunshine.app.data.WeatherContract.LocationEntry;
+import com.example.android.sunshine.app.data.WeatherContract.WeatherEntry;
+import com.example.android.sunshine.app.data.WeatherDataGenerator;
+import com.example.android.sunshine.app.data.WeatherDbHelper;
+import com.example.android.sunshine.app.data.WeatherProvider;
+import com.example.android.sunshine.app.utils.BenchmarkBudget;
+import com.example.android.sunshine.app.utils.BenchmarkReport;
+import com.example.android.sunshine.app.utils.BenchmarkStats;
+import com.example.android.sunshine.app.utils.CursorLeakCheck;
+
+import org.json.JSONObject;
+
+import java.io.File;
+
+/**
+ * Runs {@link SunshineSyncAdapter#onPerformSync} end to end for 1, 10 and 100 locations, one
+ * sync per location as the periodic sync would, and measures each round: wall time, the time
+ * of each sync phase, the bytes the syncing thread allocated and how far the heap grew.  The
+ * forecasts come from a {@link ForecastServer} on the loopback interface, the rows go to a
+ * provider of its own on a temporary database file, set up like weather.db, see
+ * {@link WeatherDbHelper.Mode#TEMP_FILE}.  The forecast snapshot and the settings the syncs
+ * read and write are scratch ones too, see {@link SyncContext}, so the installed app is left
+ * alone even by a run that fails or is killed.
+ *
+ * The medians are held to the ceilings in the sync_budget.properties asset, so a change that
+ * makes syncing slower or hungrier fails, and every cursor the syncs query must be closed,
+ * see {@link CursorLeakCheck}.  Results are appended to sync_benchmark.jsonl, see
+ * {@link BenchmarkReport}, before either is checked.
+ */
+public class SyncBenchmark extends ProviderTestCase2<WeatherProvider> {
+
+    private static final String LOG_TAG = SyncBenchmark.class.getSimpleName();
+
+    private static final String BUDGET = "sync_budget.properties";
+
+    // What the sync adapter asks for
+    private static final int FORECAST_DAYS = 14;
+
+    private static final long SEED = 2014;
+    private static final long START_DATE = 1451606400000L;  // January 1st, 2016
+
+    // Measured rounds, after one to warm up
+    private static final int ROUNDS = 5;
+
+    private ForecastServer mServer;
+    private SyncContext mSyncContext;
+    private SunshineSyncAdapter mAdapter;
+    private BenchmarkReport mReport;
+    private WeatherDataGenerator mGenerator;
+
+    public SyncBenchmark() {
+        super(WeatherProvider.class, WeatherContract.CONTENT_AUTHORITY);
+    }
+
+    @Override
+    protected void setUp() throws Exception {
+        // Before the provider, and its helper, are created
+        WeatherDbHelper.setDefaultMode(WeatherDbHelper.Mode.TEMP_FILE);
+        super.setUp();
+        mReport = new BenchmarkReport(getContext(), "sync_benchmark");
+        mGenerator = new WeatherDataGenerator(SEED, START_DATE);
+
+        mServer = new ForecastServer();
+        mServer.start();
+        mSyncContext = new SyncContext(getContext(), getMockContentResolver());
+        mAdapter = new SunshineSyncAdapter(mSyncContext, false);
+        mAdapter.setForecastBaseUrl(mServer.getBaseUrl());
+
+        // The first location stands in for the preferred one, so each round writes the
+        // snapshot once.  Notifications are held back, one a day would only land in a round
+        // now and then.
+        Settings.reset();
+        setPreferredLocation(mGenerator.location(0).setting);
+        Settings.setLastNotification(mSyncContext, System.currentTimeMillis());
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        mServer.stop();
+        mSyncContext.delete();
+        // The app's own settings are read again on next use
+        Settings.reset();
+        super.tearDown();
+        WeatherDbHelper.setDefaultMode(WeatherDbHelper.Mode.DISK);
+    }
+
+    public void testOneLocation() throws Exception {
+        benchmark(1);
+    }
+
+    public void testTenLocations() throws Exception {
+        benchmark(10);
+    }
+
+    @LargeTest
+    public void testHundredLocations() throws Exception {
+        benchmark(100);
+    }
+
+    private void benchmark(int locations) throws Exception {
+        ContentResolver resolver = getMockContentResolver();
+        resolver.delete(WeatherEntry.CONTENT_URI, null, null);
+        resolver.delete(LocationEntry.CONTENT_URI, null, null);
+
+        String[] settings = new String[locations];
+        for (int i = 0; i < locations; i++) {
+            settings[i] = mGenerator.location(i).setting;
+            mServer.put(settings[i], mGenerator.toForecastJson(i, FORECAST_DAYS));
+        }
+
+        BenchmarkStats wall = new BenchmarkStats("Sync of " + locations + " location(s)");
+        BenchmarkStats[] phases = new BenchmarkStats[SunshineSyncAdapter.PHASE_NAMES.length];
+        for (int p = 0; p < phases.length; p++) {
+            phases[p] = new BenchmarkStats(SunshineSyncAdapter.PHASE_NAMES[p]);
+        }
+        BenchmarkStats allocated = new BenchmarkStats("Allocated bytes");
+        BenchmarkStats peakHeap = new BenchmarkStats("Heap growth bytes");
+
+        CursorLeakCheck.reset();
+        for (int round = 0; round <= ROUNDS; round++) {
+            long[] phaseNanos = new long[phases.length];
+
+            // Start from a collected heap, so the growth is this round's
+            Runtime runtime = Runtime.getRuntime();
+            runtime.gc();
+            System.runFinalization();
+            runtime.gc();
+            HeapSampler sampler = new HeapSampler();
+            sampler.start();
+
+            startAllocCounting();
+            long start = System.nanoTime();
+            for (String setting : settings) {
+                Bundle extras = new Bundle();
+                extras.putString(SunshineSyncAdapter.EXTRA_LOCATION, setting);
+                mAdapter.onPerformSync(null, extras, WeatherContract.CONTENT_AUTHORITY, null,
+                        new SyncResult());
+                long[] syncPhases = mAdapter.getPhaseNanos();
+                for (int p = 0; p < phaseNanos.length; p++) {
+                    phaseNanos[p] += syncPhases[p];
+                }
+            }
+            long elapsed = System.nanoTime() - start;
+            long allocatedBytes = stopAllocCounting();
+            long heapGrowth = sampler.stop();
+
+            if (round > 0) {
+                wall.add(elapsed);
+                for (int p = 0; p < phases.length; p++) {
+                    phases[p].add(phaseNanos[p]);
+                }
+                allocated.add(allocatedBytes);
+                peakHeap.add(heapGrowth);
+            }
+        }
+
+        // Every sync fetched its forecast and stored it
+        assertEquals((ROUNDS + 1) * locations, mServer.getRequestCount());
+        Cursor cursor = resolver.query(WeatherEntry.CONTENT_URI, null, null, null, null);
+        assertEquals(locations * FORECAST_DAYS, cursor.getCount());
+        cursor.close();
+
+        Log.i(LOG_TAG, wall.toString());
+        JSONObject result = mReport.newResult("sync");
+        result.put("locations", locations);
+        result.put("database", WeatherDbHelper.getDefaultMode().toString());
+        BenchmarkReport.putStats(result, "wall", wall);
+        for (BenchmarkStats phase : phases) {
+            Log.i(LOG_TAG, phase.toString());
+        }
+        for (int p = 0; p < phases.length; p++) {
+            BenchmarkReport.putStats(result, SunshineSyncAdapter.PHASE_NAMES[p], phases[p]);
+        }
+        result.put("allocated_median_bytes", allocated.median());
+        result.put("heap_growth_max_bytes", peakHeap.max());
+        mReport.write(result);
+
+        CursorLeakCheck.assertNoLeaks("syncing " + locations + " location(s)");
+
+        BenchmarkBudget budget = new BenchmarkBudget(getContext(), BUDGET);
+        budget.check(locations + ".wall_ms", wall.median() / 1e6);
+        for (int p = 0; p < phases.length; p++) {
+            budget.check(locations + "." + SunshineSyncAdapter.PHASE_NAMES[p] + "_ms",
+                    phases[p].median() / 1e6);
+        }
+        budget.check(locations + ".allocated_kb", allocated.median() / 1024.0);
+        budget.check(locations + ".heap_growth_kb", peakHeap.max() / 1024.0);
+        budget.assertWithin();
+    }
+
+    private void setPreferredLocation(String locationSetting) {
+        SharedPreferences prefs = PreferenceManager.getDefaultSharedPreferences(mSyncContext);
+        prefs.edit()
+                .putString(getContext().getString(R.string.pref_location_key), locationSetting)
+                .commit();
+    }
+
+    // Deprecated for being a burden on the runtime, but still the only count of what one
+    // thread allocates
+    @SuppressWarnings("deprecation")
+    private static void startAllocCounting() {
+        Debug.resetThreadAllocSize();
+        Debug.startAllocCounting();
+    }
+
+    @SuppressWarnings("deprecation")
+    private static long stopAllocCounting() {
+        long bytes = Debug.getThreadAllocSize();
+        Debug.stopAllocCounting();
+        return bytes;
+    }
+
+    /**
+     * Samples the used Java heap every millisecond and keeps the largest growth over where it
+     * started.  A sample can fall between a peak and the collection after it, so this is a
+     * lower bound on the real peak.
+     */
+    private static class HeapSampler extends Thread {
+        private final long mBaseline;
+        private volatile boolean mRunning = true;
+        private long mPeak;
+
+        HeapSampler() {
+            super(LOG_TAG + " heap sampler");
+            mBaseline = used();
+        }
+
+        private static long used() {
+            Runtime runtime = Runtime.getRuntime();
+            return runtime.totalMemory() - runtime.freeMemory();
+        }
+
+        @Override
+        public void run() {
+            while (mRunning) {
+                mPeak = Math.max(mPeak, used());
+                try {
+                    Thread.sleep(1);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        }
+
+        /**
+         * @return the largest growth of the heap seen, in bytes.
+         */
+        long stop() throws InterruptedException {
+            mRunning = false;
+            join();
+            return Math.max(0, Math.max(mPeak, used()) - mBaseline);
+        }
+    }
+
+    /**
+     * The app's context, but with the benchmark's provider behind its content resolver, files
+     * in a scratch directory and preferences under names of their own.  It is its own
+     * application context, which is where {@link Settings} reads the preferences from.
+     */
+    private static class SyncContext extends ContextWrapper {
+        private static final String PREFERENCES_PREFIX = "sync_benchmark_";
+
+        private final ContentResolver mResolver;
+        private final File mFilesDir;
+
+        SyncContext(Context base, ContentResolver resolver) {
+            super(base);
+            mResolver = resolver;
+            mFilesDir = new File(base.getCacheDir(), "sync_benchmark");
+            mFilesDir.mkdirs();
+        }
+
+        @Override
+        public ContentResolver getContentResolver() {
+            return mResolver;
+        }
+
+        @Override
+        public Context getApplicationContext() {
+            return this;
+        }
+
+        @Override
+        public File getFilesDir() {
+            return mFilesDir;
+        }
+
+        @Override
+        public SharedPreferences getSharedPreferences(String name, int mode) {
+            return super.getSharedPreferences(PREFERENCES_PREFIX + name, mode);
+        }
+
+        /**
+         * Empties the scratch preferences and deletes the scratch files, the forecast
+         * snapshot among them.
+         */
+        void delete() {
+            PreferenceManager.getDefaultSharedPreferences(this).edit().clear().commit();
+            File[] files = mFilesDir.listFiles();
+            if (files != null) {
+                for (File file : files) {
+                    file.delete();
+                }
+            }
+            mFilesDir.delete();
+        }
+    }
+}
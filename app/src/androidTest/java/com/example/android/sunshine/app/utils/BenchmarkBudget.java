@@ -0,0 +1,55 @@
+package com.example.android.sunshine.app.utils;
+
+import android.content.Context;
+
+import junit.framework.Assert;
+
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Properties;
+
+/**
+ * Ceilings for a benchmark's measurements, read from a properties file in the test APK's
+ * assets.  Metrics without a ceiling are only reported, so a ceiling that doesn't hold on some
+ * device can be left out rather than the check.  {@link #check} every metric, then
+ * {@link #assertWithin()} once the results are written.
+ */
+public class BenchmarkBudget {
+
+    private final String mAsset;
+    private final Properties mCeilings = new Properties();
+    private final List<String> mOverBudget = new ArrayList<String>();
+
+    public BenchmarkBudget(Context context, String asset) throws Exception {
+        mAsset = asset;
+        // The test package is the app's plus .test
+        InputStream in = context.getPackageManager()
+                .getResourcesForApplication(context.getPackageName() + ".test")
+                .getAssets().open(asset);
+        try {
+            mCeilings.load(in);
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * Notes the metric if it is over its ceiling.
+     */
+    public void check(String metric, double value) {
+        String limit = mCeilings.getProperty(metric);
+        if (limit == null) {
+            return;
+        }
+        if (value > Double.parseDouble(limit)) {
+            mOverBudget.add(String.format(Locale.US, "%s=%.1f, over %s", metric, value, limit));
+        }
+    }
+
+    public void assertWithin() {
+        Assert.assertTrue("Error: Over the budget in " + mAsset + ": " + mOverBudget,
+                mOverBudget.isEmpty());
+    }
+}
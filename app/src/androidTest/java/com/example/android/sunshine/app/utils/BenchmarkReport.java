@@ -0,0 +1,83 @@
+package com.example.android.sunshine.app.utils;
+
+import android.content.Context;
+import android.os.Build;
+import android.util.Log;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Appends benchmark results as JSON lines, one object per result, so runs from different
+ * releases can be compared by a script.  On KitKat and later the file is kept in the app's
+ * external files dir, where it can be pulled with adb:
+ *
+ *     adb pull /sdcard/Android/data/com.example.android.sunshine.app/files/<name>.jsonl
+ *
+ * Older releases need a storage permission the app doesn't have for that, so the file goes
+ * to the internal files dir.  Every line is logged too, under the BenchmarkReport tag.
+ */
+public class BenchmarkReport {
+
+    private static final String LOG_TAG = BenchmarkReport.class.getSimpleName();
+
+    private final File mFile;
+
+    public BenchmarkReport(Context context, String name) {
+        File dir = null;
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT) {
+            dir = context.getExternalFilesDir(null);
+        }
+        if (dir == null) {
+            dir = context.getFilesDir();
+        }
+        mFile = new File(dir, name + ".jsonl");
+    }
+
+    public File getFile() {
+        return mFile;
+    }
+
+    /**
+     * @return a result for the named benchmark, with the device it ran on.  Add the parameters
+     * and measurements and {@link #write} it.
+     */
+    public JSONObject newResult(String benchmark) throws JSONException {
+        JSONObject result = new JSONObject();
+        result.put("benchmark", benchmark);
+        result.put("timestamp", System.currentTimeMillis());
+        result.put("device", Build.MODEL);
+        result.put("sdk", Build.VERSION.SDK_INT);
+        return result;
+    }
+
+    /**
+     * Adds the summary of the samples, in nanoseconds, under the given prefix.
+     */
+    public static void putStats(JSONObject result, String prefix, BenchmarkStats stats)
+            throws JSONException {
+        result.put(prefix + "_count", stats.count());
+        result.put(prefix + "_min_ns", stats.min());
+        result.put(prefix + "_median_ns", stats.median());
+        result.put(prefix + "_p90_ns", stats.percentile(90));
+        result.put(prefix + "_p99_ns", stats.percentile(99));
+        result.put(prefix + "_max_ns", stats.max());
+    }
+
+    public void write(JSONObject result) throws IOException {
+        String line = result.toString();
+        Log.i(LOG_TAG, line);
+        Writer writer = new FileWriter(mFile, true);
+        try {
+            writer.write(line);
+            writer.write('\n');
+        } finally {
+            writer.close();
+        }
+    }
+}
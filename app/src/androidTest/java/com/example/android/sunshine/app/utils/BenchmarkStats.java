@@ -0,0 +1,70 @@
+package com.example.android.sunshine.app.utils;
+
+import com.example.android.sunshine.core.Percentiles;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Collects timing samples for the benchmark tests and summarizes them.
+ */
+public class BenchmarkStats {
+
+    private final String mName;
+    private long[] mSamples = new long[16];
+    private int mCount;
+
+    public BenchmarkStats(String name) {
+        mName = name;
+    }
+
+    public void add(long sampleNanos) {
+        if (mCount == mSamples.length) {
+            mSamples = Arrays.copyOf(mSamples, mCount * 2);
+        }
+        mSamples[mCount++] = sampleNanos;
+    }
+
+    public int count() {
+        return mCount;
+    }
+
+    /**
+     * @param percentile between 0 and 100
+     * @return the sample at the given percentile, in nanoseconds (nearest-rank method)
+     */
+    public long percentile(double percentile) {
+        if (mCount == 0) {
+            return 0;
+        }
+        long[] sorted = Arrays.copyOf(mSamples, mCount);
+        Arrays.sort(sorted);
+        return Percentiles.percentile(sorted, percentile);
+    }
+
+    public long median() {
+        return percentile(50);
+    }
+
+    public long min() {
+        return percentile(0);
+    }
+
+    public long max() {
+        return percentile(100);
+    }
+
+    public long total() {
+        long total = 0;
+        for (int i = 0; i < mCount; i++) {
+            total += mSamples[i];
+        }
+        return total;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.US, "%s: n=%d min=%.3fms median=%.3fms p90=%.3fms max=%.3fms",
+                mName, mCount, min() / 1e6, median() / 1e6, percentile(90) / 1e6, max() / 1e6);
+    }
+}
@@ -0,0 +1,46 @@
+package com.example.android.sunshine.app.utils;
+
+import android.util.Log;
+
+import com.example.android.sunshine.app.data.LeakTrackingCursor;
+
+import junit.framework.Assert;
+
+import java.util.List;
+
+/**
+ * Fails a test when a flow left a provider cursor to the garbage collector instead of closing
+ * it, see {@link LeakTrackingCursor}.  Call {@link #reset()} before the flow and
+ * {@link #assertNoLeaks(String)} after it.
+ */
+public class CursorLeakCheck {
+
+    private static final String LOG_TAG = CursorLeakCheck.class.getSimpleName();
+
+    // Finalizers run after the collection that finds the cursors, and finalizing a cursor
+    // can leave more garbage behind
+    private static final int COLLECTIONS = 3;
+
+    public static void reset() {
+        collectGarbage();
+        LeakTrackingCursor.reset();
+    }
+
+    public static void assertNoLeaks(String flow) {
+        collectGarbage();
+        List<Throwable> leaks = LeakTrackingCursor.getLeaks();
+        for (Throwable leak : leaks) {
+            Log.e(LOG_TAG, "Leaked by " + flow, leak);
+        }
+        Assert.assertEquals("Error: Cursors leaked by " + flow + ", see the log for where "
+                        + "they were queried: " + leaks,
+                0, LeakTrackingCursor.getLeakCount());
+    }
+
+    private static void collectGarbage() {
+        for (int i = 0; i < COLLECTIONS; i++) {
+            Runtime.getRuntime().gc();
+            System.runFinalization();
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package com.example.android.sunshine.app.utils;
+
+import android.util.Log;
+
+import junit.framework.TestCase;
+
+/**
+ * The suite's one policy for a check this build or device can't run, e.g. a monitor that
+ * only exists in debug builds or an API the device is too old for: the test returns without
+ * checking and says so here, so a green run that checked nothing can be told from one that
+ * did with {@code adb logcat -s Skip}.  A check that could run but measured nothing is a
+ * failure, not a skip.
+ */
+public final class Skip {
+
+    private static final String LOG_TAG = Skip.class.getSimpleName();
+
+    private Skip() {
+    }
+
+    /**
+     * Logs that the test is skipped.  Return from the test right after.
+     */
+    public static void log(TestCase test, String reason) {
+        Log.w(LOG_TAG, "Skipped " + test.getClass().getSimpleName() + "." + test.getName()
+                + ": " + reason);
+    }
+}
@@ -0,0 +1,63 @@
+package com.example.android.sunshine.app;
+
+import android.os.Bundle;
+import android.support.v7.app.ActionBarActivity;
+import android.view.Menu;
+import android.view.MenuItem;
+import android.widget.ScrollView;
+import android.widget.TextView;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+
+/**
+ * Debug builds only: shows the {@link FrameStats} collected so far in this process.  Open it
+ * from MainActivity's menu after scrolling the forecast and opening a few days.
+ */
+public class FrameStatsActivity extends ActionBarActivity {
+
+    private static final int MENU_RESET = 1;
+
+    private TextView mStatsView;
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        int padding = getResources().getDimensionPixelSize(R.dimen.activity_horizontal_margin);
+        mStatsView = new TextView(this);
+        mStatsView.setPadding(padding, padding, padding, padding);
+        ScrollView scrollView = new ScrollView(this);
+        scrollView.addView(mStatsView);
+        setContentView(scrollView);
+    }
+
+    @Override
+    protected void onResume() {
+        super.onResume();
+        showStats();
+    }
+
+    @Override
+    public boolean onCreateOptionsMenu(Menu menu) {
+        menu.add(Menu.NONE, MENU_RESET, Menu.NONE, R.string.action_reset_frame_stats);
+        return true;
+    }
+
+    @Override
+    public boolean onOptionsItemSelected(MenuItem item) {
+        if (item.getItemId() == MENU_RESET) {
+            FrameStats.resetAll();
+            showStats();
+            return true;
+        }
+        return super.onOptionsItemSelected(item);
+    }
+
+    private void showStats() {
+        StringWriter stats = new StringWriter();
+        PrintWriter writer = new PrintWriter(stats);
+        FrameStats.dump("", writer);
+        writer.flush();
+        mStatsView.setText(stats.toString());
+    }
+}
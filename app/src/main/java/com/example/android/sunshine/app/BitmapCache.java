@@ -0,0 +1,372 @@
+package com.example.android.sunshine.app;
+
+import android.annotation.TargetApi;
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.content.res.Configuration;
+import android.content.res.Resources;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.os.Build;
+import android.support.v4.graphics.BitmapCompat;
+import android.support.v4.util.LruCache;
+import android.util.DisplayMetrics;
+import android.util.Log;
+import android.util.TypedValue;
+import android.widget.ImageView;
+
+import java.lang.ref.SoftReference;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.WeakHashMap;
+
+/**
+ * Memory-bounded LRU cache of the weather icons and art, shared by the forecast list, the
+ * detail screen and the notification.
+ *
+ * Bitmaps are keyed by resource id and target size and decoded with the largest
+ * {@code inSampleSize} that still covers the target.  Cached bitmaps that get evicted while no
+ * ImageView shows them are kept (softly) for decoding into through {@code inBitmap} on
+ * Honeycomb and later.  Memory is given back from {@code onTrimMemory}.
+ */
+public class BitmapCache {
+
+    public static final String LOG_TAG = BitmapCache.class.getSimpleName();
+
+    // Fraction of the heap the cache may use
+    private static final int HEAP_FRACTION = 16;
+
+    private static volatile BitmapCache sInstance;
+
+    private final Resources mResources;
+    private final LruCache<Long, Bitmap> mCache;
+
+    // Guarded by this: how many ImageViews show each bitmap, -1 for bitmaps handed out
+    // through getBitmap(), which are never decoded into again
+    private final WeakHashMap<Bitmap, Integer> mUseCounts = new WeakHashMap<Bitmap, Integer>();
+    // Guarded by this: the bitmaps in mCache, kept in step with it by entryRemoved()
+    private final Set<Bitmap> mCached = new HashSet<Bitmap>();
+    // Guarded by this: evicted bitmaps nothing shows any more
+    private final List<SoftReference<Bitmap>> mReusable = new ArrayList<SoftReference<Bitmap>>();
+    private int mDecodeCount;
+    private int mReuseCount;
+
+    public static BitmapCache getInstance(Context context) {
+        BitmapCache instance = sInstance;
+        if (instance == null) {
+            synchronized (BitmapCache.class) {
+                instance = sInstance;
+                if (instance == null) {
+                    Context appContext = context.getApplicationContext();
+                    instance = new BitmapCache(appContext,
+                            (int) (Runtime.getRuntime().maxMemory() / HEAP_FRACTION));
+                    if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.ICE_CREAM_SANDWICH) {
+                        instance.registerTrimCallbacks(appContext);
+                    }
+                    sInstance = instance;
+                }
+            }
+        }
+        return instance;
+    }
+
+    BitmapCache(Context context, int maxBytes) {
+        mResources = context.getResources();
+        mCache = new LruCache<Long, Bitmap>(maxBytes) {
+            @Override
+            protected int sizeOf(Long key, Bitmap bitmap) {
+                return BitmapCompat.getAllocationByteCount(bitmap);
+            }
+
+            @Override
+            protected void entryRemoved(boolean evicted, Long key, Bitmap oldValue,
+                                        Bitmap newValue) {
+                synchronized (BitmapCache.this) {
+                    mCached.remove(oldValue);
+                    if (!mUseCounts.containsKey(oldValue)) {
+                        addReusable(oldValue);
+                    }
+                }
+            }
+        };
+    }
+
+    /**
+     * Shows the drawable in the view at its natural size, like
+     * {@link ImageView#setImageResource(int)} but through the cache.
+     * @param resId drawable resource id, or -1 (no relation found) to clear the view
+     */
+    public void setImageResource(ImageView view, int resId) {
+        Bitmap previous = (Bitmap) view.getTag(R.id.bitmap_cache_bitmap);
+        Bitmap bitmap = obtain(resId, 0, 0, true);
+        if (previous != null) {
+            synchronized (this) {
+                Integer count = mUseCounts.get(previous);
+                if (count != null && count > 0) {
+                    if (count == 1) {
+                        mUseCounts.remove(previous);
+                        // Still cached, it only becomes reusable once it's evicted
+                        if (!isCached(previous)) {
+                            addReusable(previous);
+                        }
+                    } else {
+                        mUseCounts.put(previous, count - 1);
+                    }
+                }
+            }
+        }
+        if (bitmap == previous) {
+            // Pinned once more and released once, the view keeps it
+            return;
+        }
+        view.setTag(R.id.bitmap_cache_bitmap, bitmap);
+        view.setImageBitmap(bitmap);
+    }
+
+    /**
+     * @param reqWidth target width in pixels, 0 for the drawable's natural size
+     * @param reqHeight target height in pixels, 0 for the drawable's natural size
+     * @return the bitmap, at least as large as the target, or null if it can't be decoded.
+     * The caller may keep it as long as it likes.
+     */
+    public Bitmap getBitmap(int resId, int reqWidth, int reqHeight) {
+        return obtain(resId, reqWidth, reqHeight, false);
+    }
+
+    /**
+     * Looks the bitmap up, or decodes it, and pins it in the same step under the lock
+     * entryRemoved() takes, so it can't be evicted, made reusable and decoded into before
+     * the caller shows it.
+     * @param shown true to count one more view showing it, false to hand it out for good
+     */
+    private Bitmap obtain(int resId, int reqWidth, int reqHeight, boolean shown) {
+        if (resId <= 0) {
+            return null;
+        }
+        Long key = ((long) resId << 32) | ((reqWidth & 0xffffL) << 16) | (reqHeight & 0xffffL);
+        synchronized (this) {
+            Bitmap bitmap = mCache.get(key);
+            if (bitmap != null) {
+                pin(bitmap, shown);
+                return bitmap;
+            }
+        }
+        // Two threads may decode the same bitmap; the later one wins, both are valid
+        Bitmap bitmap = decode(resId, reqWidth, reqHeight);
+        if (bitmap != null) {
+            synchronized (this) {
+                pin(bitmap, shown);
+                mCached.add(bitmap);
+            }
+            mCache.put(key, bitmap);
+        }
+        return bitmap;
+    }
+
+    // Guarded by this
+    private void pin(Bitmap bitmap, boolean shown) {
+        Integer count = mUseCounts.get(bitmap);
+        if (!shown) {
+            mUseCounts.put(bitmap, -1);
+        } else if (count == null || count >= 0) {
+            mUseCounts.put(bitmap, count == null ? 1 : count + 1);
+        }
+    }
+
+    private Bitmap decode(int resId, int reqWidth, int reqHeight) {
+        // Decode the pixels of the file the resources picked, unscaled, and work out the
+        // density scaling ourselves so the sample size is based on the real dimensions
+        TypedValue value = new TypedValue();
+        mResources.getValue(resId, value, true);
+        int targetDensity = mResources.getDisplayMetrics().densityDpi;
+        int density = value.density;
+        if (density == TypedValue.DENSITY_DEFAULT) {
+            density = DisplayMetrics.DENSITY_DEFAULT;
+        } else if (density == TypedValue.DENSITY_NONE) {
+            density = targetDensity;
+        }
+
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inScaled = false;
+        options.inJustDecodeBounds = true;
+        BitmapFactory.decodeResource(mResources, resId, options);
+        if (options.outWidth <= 0 || options.outHeight <= 0) {
+            Log.w(LOG_TAG, "Unable to decode resource " + resId);
+            return null;
+        }
+        if (reqWidth <= 0 || reqHeight <= 0) {
+            reqWidth = Math.round(options.outWidth * (float) targetDensity / density);
+            reqHeight = Math.round(options.outHeight * (float) targetDensity / density);
+        }
+
+        options.inJustDecodeBounds = false;
+        options.inSampleSize = calculateInSampleSize(
+                options.outWidth, options.outHeight, reqWidth, reqHeight);
+        Bitmap bitmap;
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.HONEYCOMB) {
+            bitmap = decodeReusing(resId, options);
+        } else {
+            bitmap = BitmapFactory.decodeResource(mResources, resId, options);
+        }
+        if (bitmap != null) {
+            // Shown at the target size, whatever the sample size left us with
+            bitmap.setDensity(Math.round(bitmap.getWidth() * (float) targetDensity / reqWidth));
+            synchronized (this) {
+                mDecodeCount++;
+            }
+        }
+        return bitmap;
+    }
+
+    @TargetApi(Build.VERSION_CODES.HONEYCOMB)
+    private Bitmap decodeReusing(int resId, BitmapFactory.Options options) {
+        // Only mutable bitmaps can be decoded into later
+        options.inMutable = true;
+        options.inBitmap = takeReusable(options);
+        if (options.inBitmap != null) {
+            try {
+                Bitmap bitmap = BitmapFactory.decodeResource(mResources, resId, options);
+                synchronized (this) {
+                    mReuseCount++;
+                }
+                return bitmap;
+            } catch (IllegalArgumentException e) {
+                // The candidate didn't fit after all
+                Log.w(LOG_TAG, "Unable to reuse bitmap for resource " + resId, e);
+                options.inBitmap = null;
+            }
+        }
+        return BitmapFactory.decodeResource(mResources, resId, options);
+    }
+
+    private synchronized Bitmap takeReusable(BitmapFactory.Options options) {
+        Iterator<SoftReference<Bitmap>> iterator = mReusable.iterator();
+        while (iterator.hasNext()) {
+            Bitmap candidate = iterator.next().get();
+            if (candidate == null || candidate.isRecycled()) {
+                iterator.remove();
+            } else if (canDecodeInto(candidate, options)) {
+                iterator.remove();
+                return candidate;
+            }
+        }
+        return null;
+    }
+
+    private static boolean canDecodeInto(Bitmap candidate, BitmapFactory.Options options) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT) {
+            // Any bitmap with enough bytes, rounding the sampled size up to be safe
+            int width = (options.outWidth + options.inSampleSize - 1) / options.inSampleSize;
+            int height = (options.outHeight + options.inSampleSize - 1) / options.inSampleSize;
+            return width * height * bytesPerPixel(candidate.getConfig())
+                    <= BitmapCompat.getAllocationByteCount(candidate);
+        }
+        // Before KitKat only a bitmap of exactly the same size, decoded without sampling
+        return options.inSampleSize == 1
+                && candidate.getWidth() == options.outWidth
+                && candidate.getHeight() == options.outHeight;
+    }
+
+    private static int bytesPerPixel(Bitmap.Config config) {
+        if (config == Bitmap.Config.ARGB_8888) {
+            return 4;
+        } else if (config == Bitmap.Config.RGB_565 || config == Bitmap.Config.ARGB_4444) {
+            return 2;
+        }
+        return 1;
+    }
+
+    static int calculateInSampleSize(int width, int height, int reqWidth, int reqHeight) {
+        // The largest power of two that keeps both sides at least as large as requested
+        int sampleSize = 1;
+        while (width / (sampleSize * 2) >= reqWidth && height / (sampleSize * 2) >= reqHeight) {
+            sampleSize *= 2;
+        }
+        return sampleSize;
+    }
+
+    private void addReusable(Bitmap bitmap) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.HONEYCOMB && bitmap.isMutable()) {
+            mReusable.add(new SoftReference<Bitmap>(bitmap));
+        }
+    }
+
+    // Guarded by this
+    private boolean isCached(Bitmap bitmap) {
+        return mCached.contains(bitmap);
+    }
+
+    /**
+     * Gives memory back when the system asks for it, see
+     * {@link ComponentCallbacks2#onTrimMemory(int)}.
+     */
+    public void onTrimMemory(int level) {
+        if (level >= ComponentCallbacks2.TRIM_MEMORY_MODERATE) {
+            // Near the top of the kill list: drop everything
+            mCache.evictAll();
+            synchronized (this) {
+                mReusable.clear();
+            }
+        } else if (level >= ComponentCallbacks2.TRIM_MEMORY_BACKGROUND) {
+            mCache.trimToSize(mCache.maxSize() / 2);
+        }
+    }
+
+    @TargetApi(Build.VERSION_CODES.ICE_CREAM_SANDWICH)
+    private void registerTrimCallbacks(Context context) {
+        context.registerComponentCallbacks(new ComponentCallbacks2() {
+            @Override
+            public void onTrimMemory(int level) {
+                BitmapCache.this.onTrimMemory(level);
+            }
+
+            @Override
+            public void onConfigurationChanged(Configuration newConfig) {
+            }
+
+            @Override
+            public void onLowMemory() {
+                BitmapCache.this.onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_COMPLETE);
+            }
+        });
+    }
+
+    /**
+     * @return the share of lookups that found their bitmap in the cache, between 0 and 1.
+     */
+    public float getHitRate() {
+        int hits = mCache.hitCount();
+        int lookups = hits + mCache.missCount();
+        return lookups == 0 ? 0 : (float) hits / lookups;
+    }
+
+    /**
+     * @return the bytes held by the cached bitmaps.
+     */
+    public int getBytesHeld() {
+        return mCache.size();
+    }
+
+    public synchronized int getDecodeCount() {
+        return mDecodeCount;
+    }
+
+    /**
+     * @return how many decodes went into an evicted bitmap instead of a new one.
+     */
+    public synchronized int getReuseCount() {
+        return mReuseCount;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.US,
+                "BitmapCache: %d bitmaps, %d of %d bytes, hit rate %.2f, %d decodes, %d reused",
+                mCache.snapshot().size(), getBytesHeld(), mCache.maxSize(), getHitRate(),
+                getDecodeCount(), getReuseCount());
+    }
+}
@@ -1,26 +1,76 @@
 package com.example.android.sunshine.app;
 
 import android.content.Context;
+import android.graphics.Bitmap;
 import android.graphics.Canvas;
 import android.graphics.Paint;
+import android.support.v4.content.ContextCompat;
+import android.support.v4.view.ViewCompat;
 import android.util.AttributeSet;
 import android.view.View;
-
-// Custom View
+import android.view.animation.AnimationUtils;
+import android.view.animation.DecelerateInterpolator;
+import android.view.animation.Interpolator;
+
+/**
+ * Custom View showing the wind direction as a needle over a round dial.
+ *
+ * Everything onDraw needs is prepared ahead of time: the paints when the view is created, the
+ * geometry and the dial when its size changes.  The dial never changes, so it is drawn once into
+ * a bitmap; with hardware acceleration that bitmap is uploaded as a texture once and reused
+ * every frame, the way a hardware layer would be.  {@link #update(float)} turns the needle to
+ * the new direction over a short animation driven by the frame clock, without allocating.
+ */
 public class CompassView extends View {
 
+    private static final long ANIMATION_DURATION_MILLIS = 600;
+    private static final float NEEDLE_WIDTH = 5;
+
+    private final Paint dialPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final Paint needlePaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final Paint bitmapPaint = new Paint(Paint.FILTER_BITMAP_FLAG);
+    private final Interpolator interpolator = new DecelerateInterpolator();
+
+    // Geometry, set in onSizeChanged
+    private float centerX;
+    private float centerY;
+    private float radius;
+    private Bitmap dialBitmap;
+
+    // Needle, in degrees clockwise from north
     private float direction;
+    private float animationFrom;
+    private float animationTo;
+    private long animationStart;
+    private boolean animating;
+
+    // Needle end point, recomputed only when the drawn direction changes
+    private float drawnDirection = Float.NaN;
+    private float needleX;
+    private float needleY;
 
     public CompassView(Context context) {
         super(context);
+        init(context);
     }
 
     public CompassView(Context context, AttributeSet attrs) {
         super(context, attrs);
+        init(context);
     }
 
     public CompassView(Context context, AttributeSet attrs, int defStyleAttr) {
         super(context, attrs, defStyleAttr);
+        init(context);
+    }
+
+    private void init(Context context) {
+        dialPaint.setStyle(Paint.Style.FILL);
+        dialPaint.setColor(ContextCompat.getColor(context, R.color.grey));
+
+        needlePaint.setStyle(Paint.Style.FILL);
+        needlePaint.setStrokeWidth(NEEDLE_WIDTH);
+        needlePaint.setColor(ContextCompat.getColor(context, R.color.sunshine_blue));
     }
 
     @Override
@@ -52,40 +102,101 @@ public class CompassView extends View {
     }
 
     @Override
-    protected void onDraw(Canvas canvas) {
+    protected void onSizeChanged(int w, int h, int oldw, int oldh) {
+        super.onSizeChanged(w, h, oldw, oldh);
 
-        int width = getMeasuredWidth();
-        int height = getMeasuredHeight();
-        int radius;
+        centerX = w / 2f;
+        centerY = h / 2f;
+        radius = Math.min(w, h) / 2f;
+        drawnDirection = Float.NaN;
 
-        if(width > height){
-            radius = height/2;
-        }else{
-            radius = width/2;
+        if (dialBitmap != null) {
+            dialBitmap.recycle();
+            dialBitmap = null;
+        }
+        if (w > 0 && h > 0) {
+            // Draw circle, once
+            dialBitmap = Bitmap.createBitmap(w, h, Bitmap.Config.ARGB_8888);
+            new Canvas(dialBitmap).drawCircle(centerX, centerY, radius, dialPaint);
+        }
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        super.onDetachedFromWindow();
+        // Nothing is drawn while detached, so just jump to the end
+        if (animating) {
+            animating = false;
+            direction = animationTo;
         }
+    }
 
-        Paint paint = new Paint(Paint.ANTI_ALIAS_FLAG);
-        paint.setStyle(Paint.Style.FILL);
-        paint.setStrokeWidth(5);
+    @Override
+    protected void onDraw(Canvas canvas) {
+        if (animating) {
+            float fraction = (float) (AnimationUtils.currentAnimationTimeMillis() - animationStart)
+                    / ANIMATION_DURATION_MILLIS;
+            if (fraction >= 1) {
+                animating = false;
+                direction = animationTo;
+            } else {
+                direction = animationFrom
+                        + (animationTo - animationFrom) * interpolator.getInterpolation(fraction);
+                ViewCompat.postInvalidateOnAnimation(this);
+            }
+        }
 
-        // Draw circle
-        paint.setColor(getResources().getColor(R.color.grey));
-        canvas.drawCircle(width / 2, height / 2, radius, paint);
+        if (dialBitmap != null) {
+            canvas.drawBitmap(dialBitmap, 0, 0, bitmapPaint);
+        }
 
         //Draw line
-        paint.setColor(getResources().getColor(R.color.sunshine_blue));
-        canvas.drawLine(
-                width / 2,
-                height / 2,
-                (float) ( width / 2 + (Math.sin(direction * (Math.PI / 180)) * radius) ),
-                (float) ( height / 2 - (Math.cos(direction * (Math.PI / 180)) * radius) ),
-                paint);
-
+        if (direction != drawnDirection) {
+            double radians = Math.toRadians(direction);
+            needleX = (float) (centerX + Math.sin(radians) * radius);
+            needleY = (float) (centerY - Math.cos(radians) * radius);
+            drawnDirection = direction;
+        }
+        canvas.drawLine(centerX, centerY, needleX, needleY, needlePaint);
     }
 
+    /**
+     * Turns the needle to the given wind direction, the short way round.
+     */
     public void update(float dir){
-        direction = dir;
+        float from = direction % 360;
+        float delta = (dir - from) % 360;
+        if (delta > 180) {
+            delta -= 360;
+        } else if (delta < -180) {
+            delta += 360;
+        }
+
+        direction = from;
+        if (delta == 0) {
+            animating = false;
+            return;
+        }
+        // Picks up from wherever a running animation got to
+        animationFrom = from;
+        animationTo = from + delta;
+        animationStart = AnimationUtils.currentAnimationTimeMillis();
+        animating = true;
         // To force drawing on page by calling the invalidate() method
         invalidate();
     }
+
+    /**
+     * @return whether the needle is still turning towards the last direction it was given.
+     */
+    public boolean isAnimating() {
+        return animating;
+    }
+
+    /**
+     * @return the direction the needle points to right now, in degrees.
+     */
+    public float getDirection() {
+        return direction;
+    }
 }
@@ -0,0 +1,220 @@
+package com.example.android.sunshine.app;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.text.format.Time;
+
+import java.text.SimpleDateFormat;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.Locale;
+import java.util.TimeZone;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Formats forecast days for display: "Today, June 24", "Tomorrow", "Wednesday", "Mon Jun 24".
+ *
+ * Results are memoized by Julian day for the days ahead of today, so formatting the forecast
+ * list again costs a lookup.  The {@link SimpleDateFormat}s behind them are cached per locale
+ * and pattern.  Everything is dropped when the locale or time zone changes and at midnight,
+ * when "Tomorrow" turns into "Today".  Safe to use from any thread.
+ */
+public class DayFormatter {
+
+    // Days from today that are memoized, more than a forecast ever shows
+    private static final int MEMO_DAYS = 32;
+
+    private static final String PATTERN_DAY_NAME = "EEEE";
+    private static final String PATTERN_MONTH_DAY = "MMMM dd";
+    private static final String PATTERN_MONTH_DAY_DAY_FIRST = "dd MMMM";
+    private static final String PATTERN_SHORT_DATE = "EEE MMM dd";
+    private static final String PATTERN_SHORT_DATE_DAY_FIRST = "EEE dd MMM";
+
+    private static volatile DayFormatter sInstance;
+
+    private final Context mContext;
+    private final ConcurrentHashMap<String, SimpleDateFormat> mFormats =
+            new ConcurrentHashMap<String, SimpleDateFormat>();
+    private volatile State mState;
+
+    public static DayFormatter getInstance(Context context) {
+        DayFormatter instance = sInstance;
+        if (instance == null) {
+            synchronized (DayFormatter.class) {
+                instance = sInstance;
+                if (instance == null) {
+                    instance = new DayFormatter(context.getApplicationContext());
+                    sInstance = instance;
+                }
+            }
+        }
+        return instance;
+    }
+
+    private DayFormatter(Context context) {
+        mContext = context;
+
+        IntentFilter filter = new IntentFilter();
+        filter.addAction(Intent.ACTION_LOCALE_CHANGED);
+        filter.addAction(Intent.ACTION_TIMEZONE_CHANGED);
+        filter.addAction(Intent.ACTION_TIME_CHANGED);
+        filter.addAction(Intent.ACTION_DATE_CHANGED);
+        context.registerReceiver(new BroadcastReceiver() {
+            @Override
+            public void onReceive(Context context, Intent intent) {
+                invalidate();
+            }
+        }, filter);
+    }
+
+    /**
+     * Drops every memoized day and cached formatter.
+     */
+    public void invalidate() {
+        // Formatters keep the time zone they were created with
+        mFormats.clear();
+        mState = null;
+    }
+
+    /**
+     * @return a user-friendly representation of the date, see
+     * {@link Utility#getFriendlyDayString(Context, long)}.
+     */
+    public String getFriendlyDayString(long dateInMilliseconds) {
+        State state = currentState();
+        int offset = Time.getJulianDay(dateInMilliseconds, state.gmtOffset) - state.today;
+        String friendly = lookup(state.friendlyDays, offset);
+        if (friendly == null) {
+            if (offset == 0) {
+                // "Today, June 24"
+                friendly = mContext.getString(R.string.format_full_friendly_date,
+                        state.todayName, getFormattedMonthDay(dateInMilliseconds));
+            } else if (offset < 7) {
+                // Less than a week in the future, just the day name
+                friendly = getDayName(dateInMilliseconds);
+            } else {
+                // Otherwise "Mon Jun 3" OR "Mon 3 Jun"
+                friendly = format(state, state.dayFirst
+                        ? PATTERN_SHORT_DATE_DAY_FIRST : PATTERN_SHORT_DATE, dateInMilliseconds);
+            }
+            store(state.friendlyDays, offset, friendly);
+        }
+        return friendly;
+    }
+
+    /**
+     * @return "Today", "Tomorrow" or the name of the day of the week.
+     */
+    public String getDayName(long dateInMilliseconds) {
+        State state = currentState();
+        int offset = Time.getJulianDay(dateInMilliseconds, state.gmtOffset) - state.today;
+        String name = lookup(state.dayNames, offset);
+        if (name == null) {
+            if (offset == 0) {
+                name = state.todayName;
+            } else if (offset == 1) {
+                name = state.tomorrowName;
+            } else {
+                name = format(state, PATTERN_DAY_NAME, dateInMilliseconds);
+            }
+            store(state.dayNames, offset, name);
+        }
+        return name;
+    }
+
+    /**
+     * @return the day in the form "December 06" (or "06 December" in uk and ru).
+     */
+    public String getFormattedMonthDay(long dateInMilliseconds) {
+        State state = currentState();
+        int offset = Time.getJulianDay(dateInMilliseconds, state.gmtOffset) - state.today;
+        String monthDay = lookup(state.monthDays, offset);
+        if (monthDay == null) {
+            monthDay = format(state, state.dayFirst
+                    ? PATTERN_MONTH_DAY_DAY_FIRST : PATTERN_MONTH_DAY, dateInMilliseconds);
+            store(state.monthDays, offset, monthDay);
+        }
+        return monthDay;
+    }
+
+    private State currentState() {
+        State state = mState;
+        // The locale check is a reference comparison, the time check a field read
+        if (state == null || state.locale != Locale.getDefault()
+                || System.currentTimeMillis() >= state.validUntil) {
+            state = new State(mContext);
+            mState = state;
+        }
+        return state;
+    }
+
+    private String format(State state, String pattern, long dateInMilliseconds) {
+        String key = state.locale + "|" + pattern;
+        SimpleDateFormat format = mFormats.get(key);
+        if (format == null) {
+            format = new SimpleDateFormat(pattern, state.locale);
+            SimpleDateFormat existing = mFormats.putIfAbsent(key, format);
+            if (existing != null) {
+                format = existing;
+            }
+        }
+        // SimpleDateFormat is not thread-safe
+        synchronized (format) {
+            return format.format(new Date(dateInMilliseconds));
+        }
+    }
+
+    private static String lookup(AtomicReferenceArray<String> memo, int offset) {
+        return offset >= 0 && offset < MEMO_DAYS ? memo.get(offset) : null;
+    }
+
+    private static void store(AtomicReferenceArray<String> memo, int offset, String value) {
+        if (offset >= 0 && offset < MEMO_DAYS) {
+            memo.set(offset, value);
+        }
+    }
+
+    /**
+     * Everything that depends on the locale, the time zone and the current day.
+     */
+    private static final class State {
+        final Locale locale;
+        final boolean dayFirst;
+        final long gmtOffset;
+        final int today;
+        // The next midnight, when today becomes yesterday
+        final long validUntil;
+        final String todayName;
+        final String tomorrowName;
+
+        // Indexed by days from today
+        final AtomicReferenceArray<String> friendlyDays = new AtomicReferenceArray<String>(MEMO_DAYS);
+        final AtomicReferenceArray<String> dayNames = new AtomicReferenceArray<String>(MEMO_DAYS);
+        final AtomicReferenceArray<String> monthDays = new AtomicReferenceArray<String>(MEMO_DAYS);
+
+        State(Context context) {
+            locale = Locale.getDefault();
+            String language = locale.getLanguage();
+            dayFirst = language.equals("uk") || language.equals("ru");
+
+            long now = System.currentTimeMillis();
+            gmtOffset = TimeZone.getDefault().getOffset(now) / 1000;
+            today = Time.getJulianDay(now, gmtOffset);
+
+            Calendar midnight = Calendar.getInstance();
+            midnight.setTimeInMillis(now);
+            midnight.set(Calendar.HOUR_OF_DAY, 0);
+            midnight.set(Calendar.MINUTE, 0);
+            midnight.set(Calendar.SECOND, 0);
+            midnight.set(Calendar.MILLISECOND, 0);
+            midnight.add(Calendar.DAY_OF_MONTH, 1);
+            validUntil = midnight.getTimeInMillis();
+
+            todayName = context.getString(R.string.today);
+            tomorrowName = context.getString(R.string.tomorrow);
+        }
+    }
+}
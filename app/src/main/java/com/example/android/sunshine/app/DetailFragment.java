@@ -6,7 +6,6 @@ import android.net.Uri;
 import android.os.Bundle;
 import android.support.v4.app.Fragment;
 import android.support.v4.app.LoaderManager;
-import android.support.v4.content.CursorLoader;
 import android.support.v4.content.Loader;
 import android.support.v4.view.MenuItemCompat;
 import android.support.v7.widget.ShareActionProvider;
@@ -22,16 +21,17 @@ import android.widget.TextView;
 
 import com.example.android.sunshine.app.data.WeatherContract;
 
-import java.util.Locale;
-
 /**
  * A placeholder fragment containing a simple view.
  */
-public class DetailFragment extends Fragment implements LoaderManager.LoaderCallbacks<Cursor> {
+public class DetailFragment extends Fragment
+        implements LoaderManager.LoaderCallbacks<Cursor>, ForecastModel.Listener {
 
     private static final String LOG_TAG = DetailFragment.class.getSimpleName();
 
     static final String DETAIL_URI = "URI";
+    // Set when the forecast list in the same activity keeps the ForecastModel filled
+    static final String SHARES_FORECAST = "SHARES_FORECAST";
 
     private static final String FORECAST_SHARE_HASHTAG = " #SunshineApp";
 
@@ -40,39 +40,13 @@ public class DetailFragment extends Fragment implements LoaderManager.LoaderCall
     private String forecastStr;
 
     private Uri mUri;
+    private boolean mSharesForecast;
 
     // 1. Create a Loader ID integer constant
     private static final int DETAIL_LOADER = 0;
 
-    // 1.1 Create a Projection for the columns which need get from the database
-    private static final String[] DETAIL_COLUMNS = {
-            WeatherContract.WeatherEntry.TABLE_NAME + "." + WeatherContract.WeatherEntry._ID,
-            WeatherContract.WeatherEntry.COLUMN_DATE,
-            WeatherContract.WeatherEntry.COLUMN_SHORT_DESC,
-            WeatherContract.WeatherEntry.COLUMN_MAX_TEMP,
-            WeatherContract.WeatherEntry.COLUMN_MIN_TEMP,
-            WeatherContract.WeatherEntry.COLUMN_HUMIDITY,
-            WeatherContract.WeatherEntry.COLUMN_PRESSURE,
-            WeatherContract.WeatherEntry.COLUMN_WIND_SPEED,
-            WeatherContract.WeatherEntry.COLUMN_DEGREES,
-            WeatherContract.WeatherEntry.COLUMN_WEATHER_ID,
-            // This works because the WeatherProvider returns location data joined with
-            // weather data, even though they're stored in two different tables.
-            WeatherContract.LocationEntry.COLUMN_LOCATION_SETTING
-    };
-
-    // Corresponding constants
-    // Must change if the Projection changes
-    private static final int COL_WEATHER_ID = 0;
-    private static final int COL_WEATHER_DATE = 1;
-    private static final int COL_WEATHER_DESC = 2;
-    private static final int COL_WEATHER_MAX_TEMP = 3;
-    private static final int COL_WEATHER_MIN_TEMP = 4;
-    public static final int COL_WEATHER_HUMIDITY = 5;
-    public static final int COL_WEATHER_PRESSURE = 6;
-    public static final int COL_WEATHER_WIND_SPEED = 7;
-    public static final int COL_WEATHER_DEGREES = 8;
-    public static final int COL_WEATHER_CONDITION_ID = 9;
+    // Frames recorded after binding a day, enough to cover its layout and drawing
+    private static final int BIND_FRAMES = 4;
 
     private ImageView mIconView;
     private TextView mFriendlyDateView;
@@ -102,6 +76,7 @@ public class DetailFragment extends Fragment implements LoaderManager.LoaderCall
 
         if (arguments != null) {
             mUri = arguments.getParcelable(DetailFragment.DETAIL_URI);
+            mSharesForecast = arguments.getBoolean(DetailFragment.SHARES_FORECAST);
         }
 
         View rootView = inflater.inflate(R.layout.fragment_detail, container, false);
@@ -150,8 +125,51 @@ public class DetailFragment extends Fragment implements LoaderManager.LoaderCall
 
     @Override
     public void onActivityCreated(Bundle savedInstanceState) {
-        getLoaderManager().initLoader(DETAIL_LOADER, null, this);
         super.onActivityCreated(savedInstanceState);
+        // Usually the forecast list already read this day, so it's shown right away
+        if (!bindFromModel()) {
+            getLoaderManager().initLoader(DETAIL_LOADER, null, this);
+        }
+    }
+
+    @Override
+    public void onStart() {
+        super.onStart();
+        ForecastModel.getInstance(getActivity()).addListener(this);
+    }
+
+    @Override
+    public void onStop() {
+        ForecastModel.getInstance(getActivity()).removeListener(this);
+        super.onStop();
+    }
+
+    @Override
+    public void onForecastChanged() {
+        // New data, or the old data was dropped because the weather changed
+        if (bindFromModel() || mUri == null) {
+            return;
+        }
+        // Next to the forecast list, the list's loader fills the model again right away
+        if (!mSharesForecast || ForecastModel.getInstance(getActivity()).hasForecast()) {
+            getLoaderManager().restartLoader(DETAIL_LOADER, null, this);
+        }
+    }
+
+    /**
+     * Shows another day in the same fragment and views, so the two-pane layout doesn't need a
+     * fragment transaction and a new layout for each selection.
+     */
+    public void setUri(Uri uri) {
+        mUri = uri;
+        // Keep the arguments current, they are what's restored after a configuration change
+        Bundle arguments = getArguments();
+        if (arguments != null) {
+            arguments.putParcelable(DetailFragment.DETAIL_URI, uri);
+        }
+        if (getView() != null && !bindFromModel()) {
+            getLoaderManager().restartLoader(DETAIL_LOADER, null, this);
+        }
     }
 
     public void onLocationChanged(String newLocationStr) {
@@ -163,26 +181,50 @@ public class DetailFragment extends Fragment implements LoaderManager.LoaderCall
             // Then we create a new Uri with the new location and the date we're already displaying
             Uri updatedUri = WeatherContract.WeatherEntry
                     .buildWeatherLocationWithDate(newLocationStr, date);
-            mUri = updatedUri;
-            getLoaderManager().restartLoader(DETAIL_LOADER, null, this);
+            setUri(updatedUri);
+        }
+    }
+
+    // Binds the day from the shared ForecastModel, returns false if it isn't there
+    private boolean bindFromModel() {
+        if (mUri == null) {
+            return false;
+        }
+        ForecastRow row = ForecastModel.getInstance(getActivity()).getDay(
+                WeatherContract.WeatherEntry.getLocationSettingFromUri(mUri),
+                WeatherContract.WeatherEntry.getDateFromUri(mUri));
+        if (row == null) {
+            return false;
         }
+        bind(row);
+        return true;
     }
 
     @Override
     public Loader<Cursor> onCreateLoader(int id, Bundle args) {
         Log.v(LOG_TAG, "onCreateLoader()");
 
+        Tracing.beginSection("DetailFragment.onCreateLoader");
+        try {
+            return createLoader();
+        } finally {
+            Tracing.endSection();
+        }
+    }
+
+    private Loader<Cursor> createLoader() {
         if (null != mUri) {
             // Create and return a CursorLoader that will take care of
             // creating a Cursor for the data being displayed.
             // Whether this DetailFragment in in the MainActivity or
             // the DetailActivity it should have mUri set.
             // Then we're going to use mUri to query the content provider
-            // for the data to display in this DetailFragment
-            return new CursorLoader(
+            // for the data to display in this DetailFragment.
+            // Only used when the day isn't in the ForecastModel.
+            return new StartupOrchestrator.ReadyCursorLoader(
                     getActivity(),
                     mUri,
-                    DETAIL_COLUMNS, //PROJECTION
+                    ForecastFragment.FORECAST_COLUMNS, //PROJECTION
                     null,
                     null,
                     null
@@ -196,95 +238,71 @@ public class DetailFragment extends Fragment implements LoaderManager.LoaderCall
 
         Log.v(LOG_TAG, "onLoadFinished()");
 
-        if (data != null && data.moveToFirst()) {
-
-            // Read weather condition ID from cursor
-            int weatherId = data.getInt(COL_WEATHER_CONDITION_ID);
-            // Use weather art image
-            mIconView.setImageResource(Utility.getArtResourceForWeatherCondition(weatherId));
-
-            // Read date from cursor and update views for day of week and date
-            long date = data.getLong(COL_WEATHER_DATE);
-            String friendlyDateText = Utility.getDayName(getActivity(), date);
-            String dateText = Utility.getFormattedMonthDay(getActivity(), date);
-            mFriendlyDateView.setText(friendlyDateText);
-            mDateView.setText(dateText);
-
-            // Read description from cursor and update view
-            String description = data.getString(COL_WEATHER_DESC);
-
-            String language = Locale.getDefault().getLanguage();
-            // Set weather description in line with current locale
-            if (language.equals("uk") || language.equals("ru")) {
-                mDescriptionView.setText(Utility.getLocaleForecastDescription(
-                        getActivity(),
-                        weatherId
-                ));
-            } else {
-                mDescriptionView.setText(description);
+        Tracing.beginSection("DetailFragment.onLoadFinished");
+        try {
+            if (data != null && data.moveToFirst()) {
+                bind(ForecastRow.fromCursor(data, new ForecastFormatter(getActivity())));
             }
+        } finally {
+            Tracing.endSection();
+        }
+    }
 
-            // Accessibility: add a content description to the icon field
-            mIconView.setContentDescription(description);
-
-            // Read high temperature from cursor and update view
-            double high = data.getDouble(COL_WEATHER_MAX_TEMP);
-            String highString = Utility.formatTemperature(getActivity(), high);
-            mHighTempView.setText(highString);
-
-            // Read low temperature from cursor and update view
-            double low = data.getDouble(COL_WEATHER_MIN_TEMP);
-            String lowString = Utility.formatTemperature(getActivity(), low);
-            mLowTempView.setText(lowString);
-
-            // Read humidity from cursor and update view
-            float humidity = data.getFloat(COL_WEATHER_HUMIDITY);
-            mHumidityView.setText(getActivity().getString(R.string.format_humidity, humidity));
-
-            // Read pressure from cursor and update view
-            float pressure = data.getFloat(COL_WEATHER_PRESSURE);
-            mPressureView.setText(getActivity().getString(R.string.format_pressure, pressure));
-
-            // Read wind speed and direction from cursor and update view
-            float windSpeedStr = data.getFloat(COL_WEATHER_WIND_SPEED);
-            float windDirStr = data.getFloat(COL_WEATHER_DEGREES);
-            String windDescription = Utility.getFormattedWind(getActivity(), windSpeedStr, windDirStr);
+    private void bind(ForecastRow row) {
+        FrameStats.get(FrameStats.DETAIL_BIND).record(BIND_FRAMES);
+        ForecastRow.Display display = row.display;
+
+        // Use weather art image
+        BitmapCache.getInstance(getActivity()).setImageResource(mIconView, display.artResId);
+
+        // Update views for day of week and date
+        String friendlyDateText = Utility.getDayName(getActivity(), row.date);
+        String dateText = Utility.getFormattedMonthDay(getActivity(), row.date);
+        mFriendlyDateView.setText(friendlyDateText);
+        mDateView.setText(dateText);
+
+        // Weather description, already in line with current locale
+        mDescriptionView.setText(display.descriptionText);
+
+        // Accessibility: add a content description to the icon field
+        mIconView.setContentDescription(display.iconDescription);
+
+        // Update views for high and low temperature
+        mHighTempView.setText(display.highText);
+        mLowTempView.setText(display.lowText);
+
+        // Update views for humidity, pressure, wind speed and direction
+        ForecastRow.Detail detail = row.detail;
+        if (detail != null) {
+            mHumidityView.setText(
+                    getActivity().getString(R.string.format_humidity, detail.humidity));
+            mPressureView.setText(
+                    getActivity().getString(R.string.format_pressure, detail.pressure));
+            String windDescription =
+                    Utility.getFormattedWind(getActivity(), detail.windSpeed, detail.degrees);
             mWindView.setText(windDescription);
 
             // Set wind direction in CompassView
-            mCmpassView.update(windDirStr);
+            mCmpassView.update(detail.degrees);
             mWindDegreesView.setText(getActivity().getString(
-                    R.string.format_wind_direction_degrees, windDirStr));
+                    R.string.format_wind_direction_degrees, detail.degrees));
 
             // Accessibility
             mCmpassView.setContentDescription(windDescription);
+        }
 
-            // Forecast string for the share intent
-            // Set weather description in line with current locale
-            if (language.equals("uk") || language.equals("ru")) {
-                forecastStr = String.format(
-                        "%s : %s  %s/%s",
-                        dateText,
-                        Utility.getLocaleForecastDescription(
-                                getActivity(),
-                                weatherId),
-                        highString,
-                        lowString
-                );
-            } else {
-                forecastStr = String.format(
-                        "%s : %s  %s/%s",
-                        dateText,
-                        description,
-                        highString,
-                        lowString
-                );
-            }
-
-            // If onCreateOptionsMenu has already happened, we need to update the share intent now.
-            if (shareActionProvider != null) {
-                shareActionProvider.setShareIntent(createShareForecastIntent());
-            }
+        // Forecast string for the share intent
+        forecastStr = String.format(
+                "%s : %s  %s/%s",
+                dateText,
+                display.descriptionText,
+                display.highText,
+                display.lowText
+        );
+
+        // If onCreateOptionsMenu has already happened, we need to update the share intent now.
+        if (shareActionProvider != null) {
+            shareActionProvider.setShareIntent(createShareForecastIntent());
         }
     }
 
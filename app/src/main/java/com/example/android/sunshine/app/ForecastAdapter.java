@@ -1,50 +1,130 @@
 package com.example.android.sunshine.app;
 
-import android.content.Context;
-import android.database.Cursor;
-import android.support.v4.widget.CursorAdapter;
+import android.os.Handler;
+import android.os.Looper;
+import android.support.v7.widget.RecyclerView;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
 import android.widget.ImageView;
 import android.widget.TextView;
 
-import java.util.Locale;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
 
 /**
  * {@link ForecastAdapter} exposes a list of weather forecasts
- * from a {@link android.database.Cursor} to a {@link android.widget.ListView}.
+ * from a list of immutable {@link ForecastRow}s to a {@link RecyclerView}.
+ * New lists are compared with the current one on a background thread and only the days
+ * that changed are rebound.
  */
-public class ForecastAdapter extends CursorAdapter {
+public class ForecastAdapter extends RecyclerView.Adapter<ForecastAdapter.ViewHolder> {
 
-    private static final int VIEW_TYPE_TODAY = 0;
-    private static final int VIEW_TYPE_FUTURE_DAY = 1;
-    private static final int VIEW_TYPE_COUNT = 2;
+    static final int VIEW_TYPE_TODAY = 0;
+    static final int VIEW_TYPE_FUTURE_DAY = 1;
+
+    // Diffs are computed one at a time, in the order the lists arrive
+    private static final Executor sDiffExecutor = Executors.newSingleThreadExecutor();
+
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final OnItemClickListener clickListener;
+
+    private List<ForecastRow> rows = Collections.emptyList();
+    // Incremented for every list handed to swapRows, so only the latest diff gets applied
+    private int generation;
 
     // Flag to determine if we want to use a separate view for "today".
     private boolean useTodayLayoutFlag = true;
 
+    // In two-pane mode the selected day stays highlighted
+    private boolean selectionEnabled;
+    private int selectedPosition = RecyclerView.NO_POSITION;
+
+    public interface OnItemClickListener {
+        void onItemClick(ForecastRow row, int position);
+    }
+
     /**
      * Cache of the children views for a forecast list item.
      */
-    public static class ViewHolder {
+    public class ViewHolder extends RecyclerView.ViewHolder implements View.OnClickListener {
         public final ImageView iconView;
         public final TextView dateView;
         public final TextView descriptionView;
         public final TextView highTempView;
         public final TextView lowTempView;
+        private final BitmapCache bitmapCache;
+
+        // What the views currently show, so binding the same values again does nothing
+        private int boundIconResId;
+        private String boundDate;
+        private String boundDescription;
+        private String boundHigh;
+        private String boundLow;
+        private String boundIconDescription;
 
         public ViewHolder(View view) {
+            super(view);
             iconView = (ImageView) view.findViewById(R.id.list_item_icon);
             dateView = (TextView) view.findViewById(R.id.list_item_date_textview);
             descriptionView = (TextView) view.findViewById(R.id.list_item_forecast_textview);
             highTempView = (TextView) view.findViewById(R.id.list_item_high_textview);
             lowTempView = (TextView) view.findViewById(R.id.list_item_low_textview);
+            bitmapCache = BitmapCache.getInstance(view.getContext());
+            view.setOnClickListener(this);
         }
+
+        @Override
+        public void onClick(View view) {
+            int position = getAdapterPosition();
+            if (position == RecyclerView.NO_POSITION) {
+                return;
+            }
+            setSelectedPosition(position);
+            clickListener.onItemClick(rows.get(position), position);
+        }
+
+        // Only assigns prepared values; nothing here may allocate
+        void bind(ForecastRow.Display display, boolean today, boolean selected) {
+            int iconResId = today ? display.artResId : display.iconResId;
+            if (iconResId != boundIconResId) {
+                bitmapCache.setImageResource(iconView, iconResId);
+                boundIconResId = iconResId;
+            }
+            if (!equal(display.dateText, boundDate)) {
+                dateView.setText(display.dateText);
+                boundDate = display.dateText;
+            }
+            if (!equal(display.descriptionText, boundDescription)) {
+                descriptionView.setText(display.descriptionText);
+                boundDescription = display.descriptionText;
+            }
+            if (!equal(display.highText, boundHigh)) {
+                highTempView.setText(display.highText);
+                boundHigh = display.highText;
+            }
+            if (!equal(display.lowText, boundLow)) {
+                lowTempView.setText(display.lowText);
+                boundLow = display.lowText;
+            }
+            // Accessibility: add a content description to the icon field
+            if (!equal(display.iconDescription, boundIconDescription)) {
+                iconView.setContentDescription(display.iconDescription);
+                boundIconDescription = display.iconDescription;
+            }
+            itemView.setSelected(selected);
+        }
+    }
+
+    private static boolean equal(String a, String b) {
+        return a == null ? b == null : a.equals(b);
     }
 
-    public ForecastAdapter(Context context, Cursor c, int flags) {
-        super(context, c, flags);
+    public ForecastAdapter(OnItemClickListener clickListener) {
+        this.clickListener = clickListener;
+        setHasStableIds(true);
     }
 
     /*
@@ -53,11 +133,10 @@ public class ForecastAdapter extends CursorAdapter {
 
     // Method returns a new list item layout, but has no data in it
     @Override
-    public View newView(Context context, Cursor cursor, ViewGroup parent) {
+    public ViewHolder onCreateViewHolder(ViewGroup parent, int viewType) {
 
         // Choose the layout type
         // Determine layoutId from viewType
-        int viewType = getItemViewType(cursor.getPosition());
         int layoutId = -1;
 
         if (viewType == VIEW_TYPE_TODAY) {
@@ -66,91 +145,129 @@ public class ForecastAdapter extends CursorAdapter {
             layoutId = R.layout.list_item_forecast;
         }
 
-        View view = LayoutInflater.from(context).inflate(layoutId, parent, false);
-        ViewHolder viewHolder = new ViewHolder(view);
-        view.setTag(viewHolder);
-
-        return view;
+        View view = LayoutInflater.from(parent.getContext()).inflate(layoutId, parent, false);
+        return new ViewHolder(view);
     }
 
     /*
-        This is where we fill-in the views with the contents of the cursor.
+        This is where we fill-in the views with the contents of the row.
+        The row was formatted by the loader, see ForecastFormatter.
      */
+    @Override
+    public void onBindViewHolder(ViewHolder viewHolder, int position) {
+        Tracing.beginSection("ForecastAdapter.bindView");
+        try {
+            viewHolder.bind(rows.get(position).display,
+                    getItemViewType(position) == VIEW_TYPE_TODAY,
+                    selectionEnabled && position == selectedPosition);
+        } finally {
+            Tracing.endSection();
+        }
+    }
 
-    // Method takes an existing list item layout and update it with the data from Cursor
     @Override
-    public void bindView(View view, Context context, Cursor cursor) {
+    public int getItemCount() {
+        return rows.size();
+    }
 
-        ViewHolder viewHolder = (ViewHolder) view.getTag();
+    // A day keeps its id across syncs, unlike the weather _id
+    @Override
+    public long getItemId(int position) {
+        return rows.get(position).date;
+    }
 
-        // Choose the layout type
-        // Determine layoutId from viewType
-        int viewType = getItemViewType(cursor.getPosition());
+    public List<ForecastRow> getRows() {
+        return rows;
+    }
 
-        if (viewType == VIEW_TYPE_TODAY) {
-            // Use weather art image
-            viewHolder.iconView.setImageResource(
-                    Utility.getArtResourceForWeatherCondition(
-                            cursor.getInt(ForecastFragment.COL_WEATHER_CONDITION_ID
-                            )
-                    )
-            );
-        } else if (viewType == VIEW_TYPE_FUTURE_DAY) {
-            // Use weather icon image
-            viewHolder.iconView.setImageResource(
-                    Utility.getIconResourceForWeatherCondition(
-                            cursor.getInt(ForecastFragment.COL_WEATHER_CONDITION_ID)
-                    )
-            );
+    /**
+     * Shows a new list.  The diff against the current list is computed in the background and
+     * dispatched as item-level changes; lists superseded before their diff is done are dropped.
+     */
+    public void swapRows(List<ForecastRow> newRows) {
+        swapRows(newRows, null);
+    }
+
+    /**
+     * Same as {@link #swapRows(List)}, and runs whenApplied on the main thread once the
+     * adapter shows the list.  It doesn't run if a later list supersedes this one first.
+     */
+    public void swapRows(final List<ForecastRow> newRows, final Runnable whenApplied) {
+        final List<ForecastRow> oldRows = rows;
+        final int swapGeneration = ++generation;
+        if (oldRows.isEmpty() || newRows.isEmpty()) {
+            // Nothing to compare
+            applyRows(newRows, null, whenApplied);
+            return;
         }
 
-        // Read date from cursor
-        long dateInMilliseconds = cursor.getLong(ForecastFragment.COL_WEATHER_DATE);
-        // Find TextView and set formatted date on it
-        viewHolder.dateView.setText(Utility.getFriendlyDayString(context, dateInMilliseconds));
-
-        // Read weather forecast from cursor
-        String forecastDescription = cursor.getString(ForecastFragment.COL_WEATHER_DESC);
-
-        // Find TextView and set weather forecast on it in line with current locale
-        String language = Locale.getDefault().getLanguage();
-        if (language.equals("uk") || language.equals("ru")) {
-            viewHolder.descriptionView.setText(
-                    Utility.getLocaleForecastDescription(
-                            context,
-                            cursor.getInt(ForecastFragment.COL_WEATHER_CONDITION_ID)
-                    ));
-        } else {
-            viewHolder.descriptionView.setText(forecastDescription);
+        sDiffExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                final ForecastDiff diff = ForecastDiff.compute(oldRows, newRows);
+                mainHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (swapGeneration != generation) {
+                            return;
+                        }
+                        // Only valid if nothing else was shown in the meantime
+                        applyRows(newRows, rows == oldRows ? diff : null, whenApplied);
+                    }
+                });
+            }
+        });
+    }
 
+    private void applyRows(List<ForecastRow> newRows, ForecastDiff diff, Runnable whenApplied) {
+        rows = newRows;
+        if (selectedPosition >= newRows.size()) {
+            selectedPosition = RecyclerView.NO_POSITION;
         }
+        if (diff == null) {
+            notifyDataSetChanged();
+        } else {
+            diff.dispatchTo(this);
+            if (useTodayLayoutFlag && diff.isFirstRowReplaced()) {
+                // The view type depends on the position: the new first day needs the today
+                // layout and the old one, if it moved down, the future day layout.
+                notifyItemRangeChanged(0, Math.min(2, newRows.size()));
+            }
+        }
+        if (whenApplied != null) {
+            whenApplied.run();
+        }
+    }
 
-        // Accessibility: add a content description to the icon field
-        viewHolder.iconView.setContentDescription(forecastDescription);
-
-        // Read high temperature from cursor
-        double high = cursor.getDouble(ForecastFragment.COL_WEATHER_MAX_TEMP);
-        // Find TextView and set high temperature on it
-        viewHolder.highTempView.setText(Utility.formatTemperature(context, high));
+    public void setUseTodayLayout(boolean useTodayLayout) {
+        useTodayLayoutFlag = useTodayLayout;
+    }
 
-        // Read low temperature from cursor
-        double low = cursor.getDouble(ForecastFragment.COL_WEATHER_MIN_TEMP);
-        // Find TextView and set low temperature on it
-        viewHolder.lowTempView.setText(Utility.formatTemperature(context, low));
+    public void setSelectionEnabled(boolean selectionEnabled) {
+        this.selectionEnabled = selectionEnabled;
+    }
 
+    public int getSelectedPosition() {
+        return selectedPosition;
     }
 
-    public void setUseTodayLayout(boolean useTodayLayout) {
-        useTodayLayoutFlag = useTodayLayout;
+    public void setSelectedPosition(int position) {
+        if (!selectionEnabled || position == selectedPosition) {
+            selectedPosition = position;
+            return;
+        }
+        int previous = selectedPosition;
+        selectedPosition = position;
+        if (previous != RecyclerView.NO_POSITION) {
+            notifyItemChanged(previous);
+        }
+        if (position != RecyclerView.NO_POSITION) {
+            notifyItemChanged(position);
+        }
     }
 
     @Override
     public int getItemViewType(int position) {
         return (position == 0 && useTodayLayoutFlag) ? VIEW_TYPE_TODAY : VIEW_TYPE_FUTURE_DAY;
     }
-
-    @Override
-    public int getViewTypeCount() {
-        return VIEW_TYPE_COUNT;
-    }
-}
\ No newline at end of file
+}
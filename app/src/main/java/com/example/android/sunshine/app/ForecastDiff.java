@@ -0,0 +1,125 @@
+package com.example.android.sunshine.app;
+
+import android.support.v7.widget.RecyclerView;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The item-level changes between two forecast lists.  Both lists are sorted by
+ * {@link ForecastRow#compareKey} (the loader's "date ASC" order, one location at a time), so a
+ * single merge pass finds every insert, removal and change without a general-purpose diff.
+ * Computing is safe on any thread; dispatching must happen on the UI thread right after the
+ * adapter switched to the new list.
+ */
+public final class ForecastDiff {
+
+    private static final int OP_INSERT = 0;
+    private static final int OP_REMOVE = 1;
+    private static final int OP_CHANGE = 2;
+
+    // Consecutive triples of (op, position, count), positions as seen while dispatching in order
+    private final int[] mOps;
+    private final int mOpCount;
+    private final boolean mFirstRowReplaced;
+
+    private ForecastDiff(int[] ops, int opCount, boolean firstRowReplaced) {
+        mOps = ops;
+        mOpCount = opCount;
+        mFirstRowReplaced = firstRowReplaced;
+    }
+
+    public static ForecastDiff compute(List<ForecastRow> oldRows, List<ForecastRow> newRows) {
+        Builder builder = new Builder();
+        int oldIndex = 0;
+        int newIndex = 0;
+        int position = 0;
+        while (oldIndex < oldRows.size() || newIndex < newRows.size()) {
+            int order;
+            if (oldIndex == oldRows.size()) {
+                order = 1;
+            } else if (newIndex == newRows.size()) {
+                order = -1;
+            } else {
+                order = oldRows.get(oldIndex).compareKey(newRows.get(newIndex));
+            }
+
+            if (order < 0) {
+                // Only in the old list
+                builder.add(OP_REMOVE, position);
+                oldIndex++;
+            } else if (order > 0) {
+                // Only in the new list
+                builder.add(OP_INSERT, position);
+                position++;
+                newIndex++;
+            } else {
+                if (!oldRows.get(oldIndex).sameContentAs(newRows.get(newIndex))) {
+                    builder.add(OP_CHANGE, position);
+                }
+                position++;
+                oldIndex++;
+                newIndex++;
+            }
+        }
+
+        boolean firstRowReplaced = !oldRows.isEmpty() && !newRows.isEmpty()
+                && oldRows.get(0).compareKey(newRows.get(0)) != 0;
+        return new ForecastDiff(builder.mOps, builder.mCount, firstRowReplaced);
+    }
+
+    public boolean isEmpty() {
+        return mOpCount == 0;
+    }
+
+    /**
+     * @return true if a different day is now at the top of the list, which matters to adapters
+     * that give the first row its own view type.
+     */
+    public boolean isFirstRowReplaced() {
+        return mFirstRowReplaced;
+    }
+
+    public void dispatchTo(RecyclerView.Adapter adapter) {
+        for (int i = 0; i < mOpCount; i += 3) {
+            int position = mOps[i + 1];
+            int count = mOps[i + 2];
+            switch (mOps[i]) {
+                case OP_INSERT:
+                    adapter.notifyItemRangeInserted(position, count);
+                    break;
+                case OP_REMOVE:
+                    adapter.notifyItemRangeRemoved(position, count);
+                    break;
+                case OP_CHANGE:
+                    adapter.notifyItemRangeChanged(position, count);
+                    break;
+            }
+        }
+    }
+
+    private static class Builder {
+        int[] mOps = new int[12];
+        int mCount;
+
+        // Merges into the previous op when it covers the neighbouring position
+        void add(int op, int position) {
+            if (mCount > 0 && mOps[mCount - 3] == op) {
+                int start = mOps[mCount - 2];
+                int count = mOps[mCount - 1];
+                // Removals all happen at the same position, the others move forward
+                int next = op == OP_REMOVE ? start : start + count;
+                if (position == next) {
+                    mOps[mCount - 1] = count + 1;
+                    return;
+                }
+            }
+            if (mCount == mOps.length) {
+                mOps = Arrays.copyOf(mOps, mCount * 2);
+            }
+            mOps[mCount++] = op;
+            mOps[mCount++] = position;
+            mOps[mCount++] = 1;
+        }
+    }
+}
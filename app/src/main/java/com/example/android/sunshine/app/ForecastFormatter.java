@@ -0,0 +1,67 @@
+package com.example.android.sunshine.app;
+
+import android.content.Context;
+import android.text.format.Time;
+
+import java.util.Locale;
+
+/**
+ * Turns forecast data into the strings and resource ids a list row shows.  Runs on the loader
+ * thread, so binding a row only assigns the prepared values.  The units preference, language
+ * and current day are read once when the formatter is created; {@link #isCurrent(Context)}
+ * tells the loader when its rows need formatting again.
+ */
+class ForecastFormatter {
+
+    private final Context mContext;
+    private final boolean mMetric;
+    private final String mLanguage;
+    private final boolean mLocalizedDescriptions;
+    private final int mJulianDay;
+
+    ForecastFormatter(Context context) {
+        mContext = context.getApplicationContext();
+        mMetric = Utility.isMetric(context);
+        mLanguage = Locale.getDefault().getLanguage();
+        mLocalizedDescriptions = mLanguage.equals("uk") || mLanguage.equals("ru");
+        mJulianDay = currentJulianDay();
+    }
+
+    /**
+     * @return false if the units, the language or the current day changed since this formatter
+     * was created.
+     */
+    boolean isCurrent(Context context) {
+        return mMetric == Utility.isMetric(context)
+                && mLanguage.equals(Locale.getDefault().getLanguage())
+                && mJulianDay == currentJulianDay();
+    }
+
+    ForecastRow.Display format(long date, String description, double maxTemp, double minTemp,
+                               int weatherId) {
+        // Weather description in line with current locale
+        String descriptionText = description;
+        if (mLocalizedDescriptions) {
+            String localized = Utility.getLocaleForecastDescription(mContext, weatherId);
+            if (localized != null) {
+                descriptionText = localized;
+            }
+        }
+
+        return new ForecastRow.Display(
+                Utility.getFriendlyDayString(mContext, date),
+                descriptionText,
+                Utility.formatTemperature(mContext, maxTemp, mMetric),
+                Utility.formatTemperature(mContext, minTemp, mMetric),
+                Utility.getIconResourceForWeatherCondition(weatherId),
+                Utility.getArtResourceForWeatherCondition(weatherId),
+                // Accessibility: the icon is described by the forecast
+                descriptionText);
+    }
+
+    private static int currentJulianDay() {
+        Time time = new Time();
+        time.setToNow();
+        return Time.getJulianDay(System.currentTimeMillis(), time.gmtoff);
+    }
+}
@@ -1,13 +1,16 @@
 package com.example.android.sunshine.app;
 
+import android.app.Activity;
 import android.content.Intent;
 import android.database.Cursor;
 import android.net.Uri;
+import android.os.Build;
 import android.os.Bundle;
 import android.support.v4.app.Fragment;
 import android.support.v4.app.LoaderManager;
-import android.support.v4.content.CursorLoader;
 import android.support.v4.content.Loader;
+import android.support.v7.widget.LinearLayoutManager;
+import android.support.v7.widget.RecyclerView;
 import android.util.Log;
 import android.view.LayoutInflater;
 import android.view.Menu;
@@ -15,34 +18,39 @@ import android.view.MenuInflater;
 import android.view.MenuItem;
 import android.view.View;
 import android.view.ViewGroup;
-import android.widget.AdapterView;
-import android.widget.ListView;
+import android.view.ViewTreeObserver;
 
 import com.example.android.sunshine.app.data.WeatherContract;
 import com.example.android.sunshine.app.sync.SunshineSyncAdapter;
 
-public class ForecastFragment extends Fragment implements LoaderManager.LoaderCallbacks<Cursor> {
+import java.util.List;
+
+public class ForecastFragment extends Fragment
+        implements LoaderManager.LoaderCallbacks<List<ForecastRow>> {
 
     public static final String LOG_TAG = ForecastFragment.class.getSimpleName();
 
     private ForecastAdapter forecastAdapter;
 
-    private ListView listView;
+    private RecyclerView recyclerView;
 
-    private int currentPosition = ListView.INVALID_POSITION;
+    private int currentPosition = RecyclerView.NO_POSITION;
 
     private static final String SELECTED_KEY = "selected_position";
 
     // Flag to determine if we want to use a separate view for "today".
     private boolean useTodayLayoutFlag;
 
+    // Set once the loader's first days are on screen, see reportFullyDrawn
+    private boolean reportedDrawn;
+
     // 1. Create a Loader ID integer constant
     private static final int FORECAST_LOADER = 0;
 
     // 1.1 Create a Projection for the columns which need get from the database
     // For the forecast view we're showing only a small subset of the stored data.
     // Specify the columns we need.
-    private static final String[] FORECAST_COLUMNS = {
+    static final String[] FORECAST_COLUMNS = {
             // In this case the id needs to be fully qualified with a table name, since
             // the content provider joins the location & weather tables in the background
             // (both have an _id column)
@@ -57,7 +65,13 @@ public class ForecastFragment extends Fragment implements LoaderManager.LoaderCa
             WeatherContract.WeatherEntry.COLUMN_WEATHER_ID,
             WeatherContract.LocationEntry.COLUMN_LOCATION_SETTING,
             WeatherContract.LocationEntry.COLUMN_COORD_LAT,
-            WeatherContract.LocationEntry.COLUMN_COORD_LONG
+            WeatherContract.LocationEntry.COLUMN_COORD_LONG,
+            // Not shown in the list, but prefetched so the detail screen can show any day
+            // without querying again, see ForecastModel
+            WeatherContract.WeatherEntry.COLUMN_HUMIDITY,
+            WeatherContract.WeatherEntry.COLUMN_PRESSURE,
+            WeatherContract.WeatherEntry.COLUMN_WIND_SPEED,
+            WeatherContract.WeatherEntry.COLUMN_DEGREES
     };
 
     // These indices are tied to FORECAST_COLUMNS.  If FORECAST_COLUMNS changes, these
@@ -71,6 +85,10 @@ public class ForecastFragment extends Fragment implements LoaderManager.LoaderCa
     static final int COL_LOCATION_SETTING = 6;
     static final int COL_COORD_LAT = 7;
     static final int COL_COORD_LONG = 8;
+    static final int COL_WEATHER_HUMIDITY = 9;
+    static final int COL_WEATHER_PRESSURE = 10;
+    static final int COL_WEATHER_WIND_SPEED = 11;
+    static final int COL_WEATHER_DEGREES = 12;
 
     /**
      * A callback interface that all activities containing this fragment must
@@ -121,10 +139,10 @@ public class ForecastFragment extends Fragment implements LoaderManager.LoaderCa
 
     private void openPreferredLocationInMap() {
         if (null != forecastAdapter) {
-            Cursor c = forecastAdapter.getCursor();
-            if (null != c) {
-                String posLat = c.getString(COL_COORD_LAT);
-                String posLong = c.getString(COL_COORD_LONG);
+            List<ForecastRow> rows = forecastAdapter.getRows();
+            if (!rows.isEmpty()) {
+                String posLat = Double.toString(rows.get(0).coordLat);
+                String posLong = Double.toString(rows.get(0).coordLong);
 
                 // Using the URI scheme for showing a location found on a map.  This super-handy
                 // intent can is detailed in the "Common Intents" page of Android's developer site:
@@ -150,6 +168,8 @@ public class ForecastFragment extends Fragment implements LoaderManager.LoaderCa
         useTodayLayoutFlag = useTodayLayout;
         if (forecastAdapter != null) {
             forecastAdapter.setUseTodayLayout(useTodayLayoutFlag);
+            // Only the two-pane layout keeps the selected day highlighted
+            forecastAdapter.setSelectionEnabled(!useTodayLayoutFlag);
         }
     }
 
@@ -159,45 +179,61 @@ public class ForecastFragment extends Fragment implements LoaderManager.LoaderCa
         View rootView = inflater.inflate(R.layout.fragment_main, container, false);
 
         // The ForecastAdapter will take data from a source and
-        // use it to populate the ListView it's attached to
-        forecastAdapter = new ForecastAdapter(getActivity(), null, 0);
-
-        // Get a reference to the ListView, and attach this adapter to it
-        listView = (ListView) rootView.findViewById(R.id.listview_forecast);
-        listView.setAdapter(forecastAdapter);
-
-        listView.setOnItemClickListener(new AdapterView.OnItemClickListener() {
-
+        // use it to populate the RecyclerView it's attached to
+        forecastAdapter = new ForecastAdapter(new ForecastAdapter.OnItemClickListener() {
             @Override
-            public void onItemClick(AdapterView adapterView, View view, int position, long l) {
-                // CursorAdapter returns a cursor at the correct position for getItem(), or null
-                // if it cannot seek to that position.
-                Cursor cursor = (Cursor) adapterView.getItemAtPosition(position);
-                if (cursor != null) {
-                    String locationSetting = Utility.getPreferredLocation(getActivity());
-                    ((Callback) getActivity())
-                            .onItemSelected(
-                                    // We pass the Uri that represents
-                                    // the selected location and date
-                                    WeatherContract.WeatherEntry.buildWeatherLocationWithDate(
-                                    locationSetting, cursor.getLong(COL_WEATHER_DATE))
-                            );
-                }
+            public void onItemClick(ForecastRow row, int position) {
+                String locationSetting = Utility.getPreferredLocation(getActivity());
+                ((Callback) getActivity())
+                        .onItemSelected(
+                                // We pass the Uri that represents
+                                // the selected location and date
+                                WeatherContract.WeatherEntry.buildWeatherLocationWithDate(
+                                        locationSetting, row.date)
+                        );
                 // Whenever an item is clicked,
                 // we update the position
                 currentPosition = position;
             }
         });
 
-        // II. Read currentPosition in listView.
+        // Get a reference to the RecyclerView, and attach this adapter to it
+        recyclerView = (RecyclerView) rootView.findViewById(R.id.recyclerview_forecast);
+        recyclerView.setLayoutManager(new LinearLayoutManager(getActivity()));
+        recyclerView.setHasFixedSize(true);
+        recyclerView.setAdapter(forecastAdapter);
+
+        // Frame times while the list scrolls, see FrameStats
+        recyclerView.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrollStateChanged(RecyclerView recyclerView, int newState) {
+                FrameStats stats = FrameStats.get(FrameStats.FORECAST_LIST);
+                if (newState == RecyclerView.SCROLL_STATE_IDLE) {
+                    stats.stop();
+                } else {
+                    stats.start();
+                }
+            }
+        });
+
+        // A forecast has at most one "today" row, and never more future days than the
+        // sync stores, so once the pool is filled scrolling never inflates again.
+        RecyclerView.RecycledViewPool viewPool = recyclerView.getRecycledViewPool();
+        viewPool.setMaxRecycledViews(ForecastAdapter.VIEW_TYPE_TODAY, 1);
+        viewPool.setMaxRecycledViews(ForecastAdapter.VIEW_TYPE_FUTURE_DAY,
+                ForecastSnapshot.MAX_DAYS);
+
+        // II. Read currentPosition in recyclerView.
         // If the app gets killed, then we can restore the position
         // from the savedInstanceState Bundle.
         if (savedInstanceState != null && savedInstanceState.containsKey(SELECTED_KEY)) {
-            // The listView probably hasn't even been populated yet.
+            // The recyclerView probably hasn't even been populated yet.
             // Actually perform the swapout in onLoadFinished method.
             currentPosition = savedInstanceState.getInt(SELECTED_KEY);
         }
 
+        forecastAdapter.setSelectionEnabled(!useTodayLayoutFlag);
+        forecastAdapter.setSelectedPosition(currentPosition);
         forecastAdapter.setUseTodayLayout(useTodayLayoutFlag);
 
         return rootView;
@@ -206,6 +242,25 @@ public class ForecastFragment extends Fragment implements LoaderManager.LoaderCa
     // 3. Init Loader with LoaderManager
     @Override
     public void onActivityCreated(Bundle savedInstanceState) {
+        // Draw the first frame from the forecast already in memory, or else from the
+        // snapshot written by the last sync.
+        // The loader replaces it with the provider's data once the query is done.
+        if (forecastAdapter.getItemCount() == 0) {
+            String locationSetting = Utility.getPreferredLocation(getActivity());
+            List<ForecastRow> rows =
+                    ForecastModel.getInstance(getActivity()).getRows(locationSetting);
+            if (rows == null) {
+                Cursor snapshotCursor = ForecastSnapshot.read(getActivity(), locationSetting);
+                if (snapshotCursor != null) {
+                    rows = ForecastRow.listFromCursor(
+                            snapshotCursor, new ForecastFormatter(getActivity()));
+                    snapshotCursor.close();
+                }
+            }
+            if (rows != null) {
+                forecastAdapter.swapRows(rows);
+            }
+        }
         getLoaderManager().initLoader(FORECAST_LOADER, null, this);
         super.onActivityCreated(savedInstanceState);
     }
@@ -224,9 +279,9 @@ public class ForecastFragment extends Fragment implements LoaderManager.LoaderCa
     @Override
     public void onSaveInstanceState(Bundle outState) {
         // When tablets rotate, the currently selected list item needs to be saved
-        // When no item is selected, currentPosition will be set to Listview.INVALID_POSITION
+        // When no item is selected, currentPosition will be set to RecyclerView.NO_POSITION
         // Should check for that before storing
-        if (currentPosition != ListView.INVALID_POSITION) {
+        if (currentPosition != RecyclerView.NO_POSITION) {
             outState.putInt(SELECTED_KEY, currentPosition);
         }
         super.onSaveInstanceState(outState);
@@ -236,44 +291,79 @@ public class ForecastFragment extends Fragment implements LoaderManager.LoaderCa
     // Three Loader callback functions:
 
     @Override
-    public Loader<Cursor> onCreateLoader(int id, Bundle args) {
+    public Loader<List<ForecastRow>> onCreateLoader(int id, Bundle args) {
         // Method is called when a new Loader needs to be created.
         // ForecastFragment only uses one loader, so we don't care about checking the id.
-        // To only show current and future dates,
-        // filter the query to return weather only for dates after or including today.
-
-        // Sort order:  Ascending, by date.
-        String sortOrder = WeatherContract.WeatherEntry.COLUMN_DATE + " ASC";
-
-        String locationSetting = Utility.getPreferredLocation(getActivity());
-
-        Uri weatherForLocationUri = WeatherContract.WeatherEntry.buildWeatherLocationWithStartDate(
-                locationSetting, System.currentTimeMillis());
-
-        return new CursorLoader(
-                getActivity(),
-                weatherForLocationUri,
-                FORECAST_COLUMNS, //PROJECTION
-                null,
-                null,
-                sortOrder);
+        // ForecastLoader only returns current and future dates, ascending by date.
+        Tracing.beginSection("ForecastFragment.onCreateLoader");
+        try {
+            String locationSetting = Utility.getPreferredLocation(getActivity());
+            return new ForecastLoader(getActivity(), locationSetting);
+        } finally {
+            Tracing.endSection();
+        }
     }
 
     @Override
-    public void onLoadFinished(Loader<Cursor> cursorLoader, Cursor cursor) {
-        forecastAdapter.swapCursor(cursor);
+    public void onLoadFinished(Loader<List<ForecastRow>> loader, List<ForecastRow> rows) {
+        Tracing.beginSection("ForecastFragment.onLoadFinished");
+        try {
+            if (reportedDrawn || rows.isEmpty()) {
+                // An empty forecast, before the first sync, is not fully drawn yet: wait
+                // for the load that brings the days
+                forecastAdapter.swapRows(rows);
+            } else {
+                // The snapshot may already show the same days, so wait for the provider's
+                // rows and not for the first row on screen
+                forecastAdapter.swapRows(rows, new Runnable() {
+                    @Override
+                    public void run() {
+                        // Not when the snapshot's rows were bound, they don't come from
+                        // the database
+                        StartupTimeline.mark(StartupTimeline.FIRST_BIND);
+                        reportFullyDrawn();
+                    }
+                });
+            }
 
-        // If we don't need to restart the loader,
-        // and there's a desired position to restore to.
-        if (currentPosition != ListView.INVALID_POSITION) {
+            // If we don't need to restart the loader,
+            // and there's a desired position to restore to.
+            if (currentPosition != RecyclerView.NO_POSITION && currentPosition < rows.size()) {
 
-            // III. Smoothly scroll to the currentPosition of selected item
-            listView.smoothScrollToPosition(currentPosition);
+                // III. Smoothly scroll to the currentPosition of selected item
+                recyclerView.smoothScrollToPosition(currentPosition);
+            }
+        } finally {
+            Tracing.endSection();
         }
     }
 
+    // Tells the system, and StartupTimeline, when the next frame has been drawn with the
+    // loader's rows.  reportFullyDrawn is what am start -W and the launch stats wait for.
+    private void reportFullyDrawn() {
+        reportedDrawn = true;
+        recyclerView.getViewTreeObserver().addOnPreDrawListener(
+                new ViewTreeObserver.OnPreDrawListener() {
+                    @Override
+                    public boolean onPreDraw() {
+                        recyclerView.getViewTreeObserver().removeOnPreDrawListener(this);
+                        if (StartupTimeline.mark(StartupTimeline.FORECAST_DRAWN)) {
+                            StartupTimeline.log();
+                        }
+                        Activity activity = getActivity();
+                        if (activity != null
+                                && Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT) {
+                            activity.reportFullyDrawn();
+                        }
+                        return true;
+                    }
+                });
+        // Identical rows change nothing on screen, make sure there is a frame to wait for
+        recyclerView.invalidate();
+    }
+
     @Override
-    public void onLoaderReset(Loader<Cursor> cursorLoader) {
-        forecastAdapter.swapCursor(null);
+    public void onLoaderReset(Loader<List<ForecastRow>> loader) {
+        // The rows are immutable, there is nothing to release
     }
 }
@@ -0,0 +1,118 @@
+package com.example.android.sunshine.app;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.net.Uri;
+import android.support.v4.content.AsyncTaskLoader;
+
+import com.example.android.sunshine.app.data.WeatherContract;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Loads the forecast of a location as immutable {@link ForecastRow}s.  The cursor is read,
+ * formatted and closed on the loader thread, so the UI thread never touches it.  Like
+ * {@link android.support.v4.content.CursorLoader} it reloads when the weather for the
+ * location changes, and also when the formatting is out of date (units, language or day).
+ */
+public class ForecastLoader extends AsyncTaskLoader<List<ForecastRow>> {
+
+    private final ForceLoadContentObserver mObserver = new ForceLoadContentObserver();
+    private final String mLocationSetting;
+    private List<ForecastRow> mRows;
+    // Written on the loader thread, checked when the loader is started again
+    private volatile ForecastFormatter mFormatter;
+    private boolean mObserving;
+
+    public ForecastLoader(Context context, String locationSetting) {
+        super(context);
+        mLocationSetting = locationSetting;
+    }
+
+    @Override
+    public List<ForecastRow> loadInBackground() {
+        StartupOrchestrator.awaitReady();
+        Tracing.beginSection("ForecastLoader.loadInBackground");
+        try {
+            return load();
+        } finally {
+            Tracing.endSection();
+        }
+    }
+
+    private List<ForecastRow> load() {
+        // To only show current and future dates,
+        // filter the query to return weather only for dates after or including today.
+        Uri weatherForLocationUri = WeatherContract.WeatherEntry.buildWeatherLocationWithStartDate(
+                mLocationSetting, System.currentTimeMillis());
+
+        // Sort order:  Ascending, by date.
+        Cursor cursor = getContext().getContentResolver().query(
+                weatherForLocationUri,
+                ForecastFragment.FORECAST_COLUMNS,
+                null,
+                null,
+                WeatherContract.WeatherEntry.COLUMN_DATE + " ASC");
+        if (cursor == null) {
+            return Collections.emptyList();
+        }
+        ForecastFormatter formatter = new ForecastFormatter(getContext());
+        mFormatter = formatter;
+        List<ForecastRow> rows;
+        try {
+            rows = ForecastRow.listFromCursor(cursor, formatter);
+        } finally {
+            cursor.close();
+        }
+        StartupTimeline.mark(StartupTimeline.LOADER_QUERY);
+        // The rows carry every day's details, the detail screen reads them from there
+        ForecastModel.getInstance(getContext()).publish(mLocationSetting, rows);
+        return rows;
+    }
+
+    @Override
+    public void deliverResult(List<ForecastRow> rows) {
+        if (isReset()) {
+            return;
+        }
+        mRows = rows;
+        if (isStarted()) {
+            super.deliverResult(rows);
+        }
+    }
+
+    @Override
+    protected void onStartLoading() {
+        if (!mObserving) {
+            // Sync notifies on the weather uri, not on the uri we query
+            getContext().getContentResolver().registerContentObserver(
+                    WeatherContract.WeatherEntry.CONTENT_URI, true, mObserver);
+            mObserving = true;
+        }
+        if (mRows != null) {
+            deliverResult(mRows);
+        }
+        boolean formattingChanged = mFormatter != null && !mFormatter.isCurrent(getContext());
+        if (takeContentChanged() || mRows == null || formattingChanged) {
+            forceLoad();
+        }
+    }
+
+    @Override
+    protected void onStopLoading() {
+        cancelLoad();
+    }
+
+    @Override
+    protected void onReset() {
+        super.onReset();
+        onStopLoading();
+        if (mObserving) {
+            getContext().getContentResolver().unregisterContentObserver(mObserver);
+            mObserving = false;
+        }
+        mRows = null;
+        mFormatter = null;
+    }
+}
@@ -0,0 +1,139 @@
+package com.example.android.sunshine.app;
+
+import android.content.Context;
+import android.database.ContentObserver;
+import android.os.Handler;
+import android.os.Looper;
+
+import com.example.android.sunshine.app.data.WeatherContract;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * The last forecast {@link ForecastLoader} read, kept in memory with every day's details so the
+ * detail screen can show any day of the list without querying the provider.  It is a cache, not
+ * a source of truth: it is cleared whenever the weather in the provider changes and filled
+ * again by the next load.  Listeners are told on the main thread whenever it changes.
+ */
+public class ForecastModel {
+
+    public interface Listener {
+        void onForecastChanged();
+    }
+
+    private static volatile ForecastModel sInstance;
+
+    private final Handler mHandler = new Handler(Looper.getMainLooper());
+    private final CopyOnWriteArrayList<Listener> mListeners = new CopyOnWriteArrayList<Listener>();
+    private final Runnable mNotifyListeners = new Runnable() {
+        @Override
+        public void run() {
+            for (Listener listener : mListeners) {
+                listener.onForecastChanged();
+            }
+        }
+    };
+
+    private volatile Forecast mForecast;
+
+    public static ForecastModel getInstance(Context context) {
+        ForecastModel instance = sInstance;
+        if (instance == null) {
+            synchronized (ForecastModel.class) {
+                instance = sInstance;
+                if (instance == null) {
+                    instance = new ForecastModel(context.getApplicationContext());
+                    sInstance = instance;
+                }
+            }
+        }
+        return instance;
+    }
+
+    private ForecastModel(Context context) {
+        // Sync notifies on the weather uri, whatever changed
+        context.getContentResolver().registerContentObserver(
+                WeatherContract.WeatherEntry.CONTENT_URI, true, new ContentObserver(mHandler) {
+                    @Override
+                    public void onChange(boolean selfChange) {
+                        clear();
+                    }
+                });
+    }
+
+    /**
+     * Replaces the forecast.  Called from the loader thread.
+     * @param rows current and future days of the location, ascending by date
+     */
+    public void publish(String locationSetting, List<ForecastRow> rows) {
+        mForecast = new Forecast(locationSetting, rows);
+        notifyListeners();
+    }
+
+    public void clear() {
+        if (mForecast != null) {
+            mForecast = null;
+            notifyListeners();
+        }
+    }
+
+    public boolean hasForecast() {
+        return mForecast != null;
+    }
+
+    /**
+     * @return the forecast of the location, the same list the loader delivered, or null if the
+     * model doesn't have it.
+     */
+    public List<ForecastRow> getRows(String locationSetting) {
+        Forecast forecast = mForecast;
+        if (forecast == null || !forecast.locationSetting.equals(locationSetting)) {
+            return null;
+        }
+        return forecast.rows;
+    }
+
+    /**
+     * @return the day with its details, or null if the model doesn't have it.
+     */
+    public ForecastRow getDay(String locationSetting, long date) {
+        List<ForecastRow> rows = getRows(locationSetting);
+        if (rows == null) {
+            return null;
+        }
+        for (ForecastRow row : rows) {
+            if (row.date == date) {
+                return row.detail != null ? row : null;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Listeners are called on the main thread.
+     */
+    public void addListener(Listener listener) {
+        mListeners.addIfAbsent(listener);
+    }
+
+    public void removeListener(Listener listener) {
+        mListeners.remove(listener);
+    }
+
+    private void notifyListeners() {
+        // Several changes in a row are reported once
+        mHandler.removeCallbacks(mNotifyListeners);
+        mHandler.post(mNotifyListeners);
+    }
+
+    private static final class Forecast {
+        final String locationSetting;
+        final List<ForecastRow> rows;
+
+        Forecast(String locationSetting, List<ForecastRow> rows) {
+            this.locationSetting = locationSetting;
+            this.rows = rows;
+        }
+    }
+}
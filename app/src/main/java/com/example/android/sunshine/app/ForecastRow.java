@@ -0,0 +1,199 @@
+package com.example.android.sunshine.app;
+
+import android.database.Cursor;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * One day of the forecast list, read from a cursor over {@link ForecastFragment#FORECAST_COLUMNS}.
+ * Rows are immutable so lists of them can be handed between the loader thread, the diff thread
+ * and the UI thread without copying.  A row is identified by its location and date; the weather
+ * _id changes on every sync and is kept only for reference.  Each row carries its
+ * {@link Display}, formatted when the row was read.
+ */
+public final class ForecastRow {
+
+    public final long id;
+    public final String locationSetting;
+    public final long date;
+    public final String description;
+    public final double maxTemp;
+    public final double minTemp;
+    public final int weatherId;
+    public final double coordLat;
+    public final double coordLong;
+    public final Display display;
+    // Null when the row was read without them, e.g. from the ForecastSnapshot
+    public final Detail detail;
+
+    public ForecastRow(long id, String locationSetting, long date, String description,
+                       double maxTemp, double minTemp, int weatherId,
+                       double coordLat, double coordLong, Display display) {
+        this(id, locationSetting, date, description, maxTemp, minTemp, weatherId,
+                coordLat, coordLong, display, null);
+    }
+
+    public ForecastRow(long id, String locationSetting, long date, String description,
+                       double maxTemp, double minTemp, int weatherId,
+                       double coordLat, double coordLong, Display display, Detail detail) {
+        this.id = id;
+        this.locationSetting = locationSetting;
+        this.date = date;
+        this.description = description;
+        this.maxTemp = maxTemp;
+        this.minTemp = minTemp;
+        this.weatherId = weatherId;
+        this.coordLat = coordLat;
+        this.coordLong = coordLong;
+        this.display = display;
+        this.detail = detail;
+    }
+
+    /**
+     * Reads and formats the row at the cursor's current position.
+     */
+    static ForecastRow fromCursor(Cursor cursor, ForecastFormatter formatter) {
+        long date = cursor.getLong(ForecastFragment.COL_WEATHER_DATE);
+        String description = cursor.getString(ForecastFragment.COL_WEATHER_DESC);
+        double maxTemp = cursor.getDouble(ForecastFragment.COL_WEATHER_MAX_TEMP);
+        double minTemp = cursor.getDouble(ForecastFragment.COL_WEATHER_MIN_TEMP);
+        int weatherId = cursor.getInt(ForecastFragment.COL_WEATHER_CONDITION_ID);
+        Detail detail = null;
+        if (!cursor.isNull(ForecastFragment.COL_WEATHER_HUMIDITY)) {
+            detail = new Detail(
+                    cursor.getFloat(ForecastFragment.COL_WEATHER_HUMIDITY),
+                    cursor.getFloat(ForecastFragment.COL_WEATHER_PRESSURE),
+                    cursor.getFloat(ForecastFragment.COL_WEATHER_WIND_SPEED),
+                    cursor.getFloat(ForecastFragment.COL_WEATHER_DEGREES));
+        }
+        return new ForecastRow(
+                cursor.getLong(ForecastFragment.COL_WEATHER_ID),
+                cursor.getString(ForecastFragment.COL_LOCATION_SETTING),
+                date,
+                description,
+                maxTemp,
+                minTemp,
+                weatherId,
+                cursor.getDouble(ForecastFragment.COL_COORD_LAT),
+                cursor.getDouble(ForecastFragment.COL_COORD_LONG),
+                formatter.format(date, description, maxTemp, minTemp, weatherId),
+                detail);
+    }
+
+    /**
+     * @return an unmodifiable list of every row of the cursor, which is left open.
+     */
+    static List<ForecastRow> listFromCursor(Cursor cursor, ForecastFormatter formatter) {
+        List<ForecastRow> rows = new ArrayList<ForecastRow>(cursor.getCount());
+        for (int i = 0; cursor.moveToPosition(i); i++) {
+            rows.add(fromCursor(cursor, formatter));
+        }
+        return Collections.unmodifiableList(rows);
+    }
+
+    /**
+     * Orders rows the way the forecast list shows them: by date, then by location.
+     */
+    public int compareKey(ForecastRow other) {
+        if (date != other.date) {
+            return date < other.date ? -1 : 1;
+        }
+        return equal(locationSetting, other.locationSetting) ? 0
+                : locationSetting == null ? -1
+                : other.locationSetting == null ? 1
+                : locationSetting.compareTo(other.locationSetting);
+    }
+
+    /**
+     * @return true if both rows show the same thing, ignoring the weather _id.  The display is
+     * compared too, since "Tomorrow" becomes "Today" without the data changing.
+     */
+    public boolean sameContentAs(ForecastRow other) {
+        return date == other.date
+                && weatherId == other.weatherId
+                && Double.compare(maxTemp, other.maxTemp) == 0
+                && Double.compare(minTemp, other.minTemp) == 0
+                && Double.compare(coordLat, other.coordLat) == 0
+                && Double.compare(coordLong, other.coordLong) == 0
+                && equal(locationSetting, other.locationSetting)
+                && equal(description, other.description)
+                && equal(display, other.display);
+    }
+
+    private static boolean equal(Object a, Object b) {
+        return a == null ? b == null : a.equals(b);
+    }
+
+    /**
+     * The rest of the day's weather, shown on the detail screen.
+     */
+    public static final class Detail {
+        public final float humidity;
+        public final float pressure;
+        public final float windSpeed;
+        public final float degrees;
+
+        public Detail(float humidity, float pressure, float windSpeed, float degrees) {
+            this.humidity = humidity;
+            this.pressure = pressure;
+            this.windSpeed = windSpeed;
+            this.degrees = degrees;
+        }
+    }
+
+    /**
+     * What the forecast list shows for a row: strings, resource ids and content descriptions
+     * ready to be assigned to the views.
+     */
+    public static final class Display {
+        public final String dateText;
+        public final String descriptionText;
+        public final String highText;
+        public final String lowText;
+        public final int iconResId;
+        public final int artResId;
+        public final String iconDescription;
+
+        public Display(String dateText, String descriptionText, String highText, String lowText,
+                       int iconResId, int artResId, String iconDescription) {
+            this.dateText = dateText;
+            this.descriptionText = descriptionText;
+            this.highText = highText;
+            this.lowText = lowText;
+            this.iconResId = iconResId;
+            this.artResId = artResId;
+            this.iconDescription = iconDescription;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Display)) {
+                return false;
+            }
+            Display other = (Display) o;
+            return iconResId == other.iconResId
+                    && artResId == other.artResId
+                    && equal(dateText, other.dateText)
+                    && equal(descriptionText, other.descriptionText)
+                    && equal(highText, other.highText)
+                    && equal(lowText, other.lowText)
+                    && equal(iconDescription, other.iconDescription);
+        }
+
+        @Override
+        public int hashCode() {
+            int result = dateText != null ? dateText.hashCode() : 0;
+            result = 31 * result + (descriptionText != null ? descriptionText.hashCode() : 0);
+            result = 31 * result + (highText != null ? highText.hashCode() : 0);
+            result = 31 * result + (lowText != null ? lowText.hashCode() : 0);
+            result = 31 * result + iconResId;
+            result = 31 * result + artResId;
+            return result;
+        }
+    }
+}
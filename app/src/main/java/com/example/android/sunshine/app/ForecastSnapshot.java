@@ -0,0 +1,268 @@
+package com.example.android.sunshine.app;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.database.MatrixCursor;
+import android.net.Uri;
+import android.util.Log;
+
+import com.example.android.sunshine.app.data.WeatherContract;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * A small fixed-layout file holding the forecast list of the preferred location, so the list
+ * can be drawn from a {@link MappedByteBuffer} before the {@link ForecastFragment} loader has
+ * opened the database.  The content provider stays the source of truth: the snapshot is
+ * rewritten after every sync and replaced on screen as soon as the loader delivers.
+ *
+ * Header (HEADER_SIZE bytes): magic, version, row count, write time, latitude, longitude and
+ * the location setting.  Each row (ROW_SIZE bytes): weather _id, date, condition id, max and
+ * min temperature and the short description.
+ */
+public class ForecastSnapshot {
+
+    private static final String LOG_TAG = ForecastSnapshot.class.getSimpleName();
+
+    static final String FILE_NAME = "forecast.snapshot";
+
+    static final int MAX_DAYS = 14;
+
+    private static final int MAGIC = 0x46434153;
+    private static final int VERSION = 1;
+
+    private static final int HEADER_SIZE = 128;
+    private static final int MAX_LOCATION_BYTES = HEADER_SIZE - 38;
+    private static final int ROW_SIZE = 64;
+    private static final int MAX_DESCRIPTION_BYTES = ROW_SIZE - 37;
+
+    private ForecastSnapshot() {
+    }
+
+    /**
+     * Rewrites the snapshot from the content provider.  Called by the sync adapter once the
+     * new forecast is stored.
+     */
+    public static void write(Context context, String locationSetting) {
+        Uri weatherForLocationUri = WeatherContract.WeatherEntry.buildWeatherLocationWithStartDate(
+                locationSetting, System.currentTimeMillis());
+        Cursor cursor = context.getContentResolver().query(
+                weatherForLocationUri,
+                ForecastFragment.FORECAST_COLUMNS,
+                null,
+                null,
+                WeatherContract.WeatherEntry.COLUMN_DATE + " ASC");
+        if (cursor == null) {
+            return;
+        }
+        try {
+            write(context, locationSetting, cursor);
+        } finally {
+            cursor.close();
+        }
+    }
+
+    static void write(Context context, String locationSetting, Cursor cursor) {
+        byte[] location = encode(locationSetting, MAX_LOCATION_BYTES);
+        if (!decode(location).equals(locationSetting)) {
+            // Too long to be stored; the snapshot would never match on read
+            delete(context);
+            return;
+        }
+
+        int count = Math.min(cursor.getCount(), MAX_DAYS);
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + count * ROW_SIZE);
+
+        double lat = 0;
+        double lon = 0;
+        for (int i = 0; i < count && cursor.moveToPosition(i); i++) {
+            if (i == 0) {
+                lat = cursor.getDouble(ForecastFragment.COL_COORD_LAT);
+                lon = cursor.getDouble(ForecastFragment.COL_COORD_LONG);
+            }
+            int row = HEADER_SIZE + i * ROW_SIZE;
+            buffer.putLong(row, cursor.getLong(ForecastFragment.COL_WEATHER_ID));
+            buffer.putLong(row + 8, cursor.getLong(ForecastFragment.COL_WEATHER_DATE));
+            buffer.putInt(row + 16, cursor.getInt(ForecastFragment.COL_WEATHER_CONDITION_ID));
+            buffer.putDouble(row + 20, cursor.getDouble(ForecastFragment.COL_WEATHER_MAX_TEMP));
+            buffer.putDouble(row + 28, cursor.getDouble(ForecastFragment.COL_WEATHER_MIN_TEMP));
+            byte[] description = encode(
+                    cursor.getString(ForecastFragment.COL_WEATHER_DESC), MAX_DESCRIPTION_BYTES);
+            buffer.put(row + 36, (byte) description.length);
+            for (int b = 0; b < description.length; b++) {
+                buffer.put(row + 37 + b, description[b]);
+            }
+        }
+
+        buffer.putInt(0, MAGIC);
+        buffer.putInt(4, VERSION);
+        buffer.putInt(8, count);
+        buffer.putLong(12, System.currentTimeMillis());
+        buffer.putDouble(20, lat);
+        buffer.putDouble(28, lon);
+        buffer.putShort(36, (short) location.length);
+        for (int b = 0; b < location.length; b++) {
+            buffer.put(38 + b, location[b]);
+        }
+
+        // Write next to the live file and rename, so a reader never maps a half-written file
+        File file = getFile(context);
+        File temp = new File(file.getPath() + ".tmp");
+        FileOutputStream out = null;
+        try {
+            out = new FileOutputStream(temp);
+            out.write(buffer.array());
+            out.getFD().sync();
+            out.close();
+            out = null;
+            if (!temp.renameTo(file)) {
+                Log.w(LOG_TAG, "Unable to replace " + file);
+            }
+        } catch (IOException e) {
+            Log.e(LOG_TAG, "Error writing forecast snapshot", e);
+        } finally {
+            if (out != null) {
+                try {
+                    out.close();
+                } catch (IOException e) {
+                    Log.e(LOG_TAG, "Error closing forecast snapshot", e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Maps the snapshot and returns its rows laid out like {@link ForecastFragment#FORECAST_COLUMNS},
+     * or null if there is no usable snapshot for the given location.  Days before today are
+     * skipped, so a stale snapshot never shows yesterday's weather.
+     */
+    public static Cursor read(Context context, String locationSetting) {
+        File file = getFile(context);
+        if (!file.exists()) {
+            return null;
+        }
+
+        FileInputStream in = null;
+        try {
+            in = new FileInputStream(file);
+            FileChannel channel = in.getChannel();
+            if (channel.size() < HEADER_SIZE) {
+                return null;
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+
+            int count = buffer.getInt(8);
+            if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION
+                    || count < 0 || count > MAX_DAYS
+                    || channel.size() < HEADER_SIZE + count * ROW_SIZE) {
+                return null;
+            }
+
+            int locationLength = buffer.getShort(36);
+            if (locationLength < 0 || locationLength > MAX_LOCATION_BYTES
+                    || !locationSetting.equals(decode(buffer, 38, locationLength))) {
+                return null;
+            }
+            double lat = buffer.getDouble(20);
+            double lon = buffer.getDouble(28);
+
+            long today = WeatherContract.normalizeDate(System.currentTimeMillis());
+            MatrixCursor cursor = new MatrixCursor(ForecastFragment.FORECAST_COLUMNS, count);
+            for (int i = 0; i < count; i++) {
+                int row = HEADER_SIZE + i * ROW_SIZE;
+                long date = buffer.getLong(row + 8);
+                if (date < today) {
+                    continue;
+                }
+                int descriptionLength = Math.min(buffer.get(row + 36), MAX_DESCRIPTION_BYTES);
+                // Must match the order of FORECAST_COLUMNS
+                cursor.addRow(new Object[] {
+                        buffer.getLong(row),
+                        date,
+                        decode(buffer, row + 37, descriptionLength),
+                        buffer.getDouble(row + 20),
+                        buffer.getDouble(row + 28),
+                        buffer.getInt(row + 16),
+                        locationSetting,
+                        lat,
+                        lon,
+                        // The snapshot has no details, ForecastRow leaves them out
+                        null,
+                        null,
+                        null,
+                        null
+                });
+            }
+            if (cursor.getCount() == 0) {
+                cursor.close();
+                return null;
+            }
+            return cursor;
+        } catch (IOException e) {
+            Log.e(LOG_TAG, "Error reading forecast snapshot", e);
+            return null;
+        } finally {
+            if (in != null) {
+                try {
+                    in.close();
+                } catch (IOException e) {
+                    Log.e(LOG_TAG, "Error closing forecast snapshot", e);
+                }
+            }
+        }
+    }
+
+    public static void delete(Context context) {
+        getFile(context).delete();
+    }
+
+    private static File getFile(Context context) {
+        return new File(context.getFilesDir(), FILE_NAME);
+    }
+
+    // UTF-8 bytes of the string, truncated to whole characters within maxBytes
+    private static byte[] encode(String value, int maxBytes) {
+        if (value == null) {
+            return new byte[0];
+        }
+        try {
+            byte[] bytes = value.getBytes("UTF-8");
+            int length = Math.min(bytes.length, maxBytes);
+            // Don't cut a multi-byte character in half
+            while (length < bytes.length && length > 0 && (bytes[length] & 0xC0) == 0x80) {
+                length--;
+            }
+            if (length == bytes.length) {
+                return bytes;
+            }
+            byte[] truncated = new byte[length];
+            System.arraycopy(bytes, 0, truncated, 0, length);
+            return truncated;
+        } catch (UnsupportedEncodingException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    private static String decode(byte[] bytes) {
+        try {
+            return new String(bytes, "UTF-8");
+        } catch (UnsupportedEncodingException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    private static String decode(ByteBuffer buffer, int offset, int length) {
+        byte[] bytes = new byte[Math.max(length, 0)];
+        for (int b = 0; b < bytes.length; b++) {
+            bytes[b] = buffer.get(offset + b);
+        }
+        return decode(bytes);
+    }
+}
@@ -0,0 +1,207 @@
+package com.example.android.sunshine.app;
+
+import android.annotation.TargetApi;
+import android.os.Build;
+import android.view.Choreographer;
+
+import com.example.android.sunshine.core.Percentiles;
+
+import java.io.PrintWriter;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Frame durations of one part of the UI, e.g. the forecast list while it scrolls.  While
+ * {@link #start()}ed, a {@link Choreographer.FrameCallback} records the time between
+ * consecutive frames into a rolling buffer of the last {@link #CAPACITY} frames, and counts the
+ * frames that took longer than one (16ms) or two (32ms) vsync periods, i.e. missed one or more.
+ *
+ * Only collected in debug builds and on Jelly Bean and later, where Choreographer exists.
+ * All methods must be called on the main thread, except the dump methods.
+ */
+public class FrameStats {
+
+    public static final String FORECAST_LIST = "forecast_list";
+    public static final String DETAIL_BIND = "detail_bind";
+
+    static final int CAPACITY = 512;
+
+    // Just over one and two 60Hz vsync periods (16.7ms), so on-time frames never count
+    private static final long JANK_NANOS = 17 * 1000 * 1000;
+    private static final long BIG_JANK_NANOS = 34 * 1000 * 1000;
+
+    static final boolean ENABLED = BuildConfig.DEBUG
+            && Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN;
+
+    private static final Map<String, FrameStats> sStats = new LinkedHashMap<String, FrameStats>();
+
+    private final String mName;
+    private final long[] mFrameNanos = new long[CAPACITY];
+    // Guarded by this, the dump methods read from other threads
+    private int mNext;
+    private long mFrameCount;
+    private long mJankCount;
+    private long mBigJankCount;
+
+    // Main thread only
+    private Object mCallback;
+    private boolean mRunning;
+    private int mFramesLeft;
+    private long mLastFrameTimeNanos;
+
+    public static FrameStats get(String name) {
+        synchronized (sStats) {
+            FrameStats stats = sStats.get(name);
+            if (stats == null) {
+                stats = new FrameStats(name);
+                sStats.put(name, stats);
+            }
+            return stats;
+        }
+    }
+
+    FrameStats(String name) {
+        mName = name;
+    }
+
+    /**
+     * Records every frame until {@link #stop()}.
+     */
+    public void start() {
+        record(Integer.MAX_VALUE);
+    }
+
+    /**
+     * Records the next frames, e.g. the ones drawing a change just made to the views.
+     */
+    public void record(int frames) {
+        if (!ENABLED) {
+            return;
+        }
+        mFramesLeft = frames;
+        if (!mRunning) {
+            mRunning = true;
+            // The first callback only marks where the measured frames start
+            mLastFrameTimeNanos = 0;
+            postFrameCallback();
+        }
+    }
+
+    public void stop() {
+        mFramesLeft = 0;
+    }
+
+    @TargetApi(Build.VERSION_CODES.JELLY_BEAN)
+    private void postFrameCallback() {
+        if (mCallback == null) {
+            mCallback = new Choreographer.FrameCallback() {
+                @Override
+                public void doFrame(long frameTimeNanos) {
+                    onFrame(frameTimeNanos);
+                }
+            };
+        }
+        Choreographer.getInstance().postFrameCallback((Choreographer.FrameCallback) mCallback);
+    }
+
+    private void onFrame(long frameTimeNanos) {
+        if (mLastFrameTimeNanos != 0) {
+            add(frameTimeNanos - mLastFrameTimeNanos);
+            mFramesLeft--;
+        }
+        mLastFrameTimeNanos = frameTimeNanos;
+        if (mFramesLeft > 0) {
+            postFrameCallback();
+        } else {
+            mRunning = false;
+        }
+    }
+
+    synchronized void add(long frameNanos) {
+        mFrameNanos[mNext] = frameNanos;
+        mNext = (mNext + 1) % CAPACITY;
+        mFrameCount++;
+        if (frameNanos > JANK_NANOS) {
+            mJankCount++;
+        }
+        if (frameNanos > BIG_JANK_NANOS) {
+            mBigJankCount++;
+        }
+    }
+
+    public synchronized void reset() {
+        mNext = 0;
+        mFrameCount = 0;
+        mJankCount = 0;
+        mBigJankCount = 0;
+    }
+
+    public synchronized long getFrameCount() {
+        return mFrameCount;
+    }
+
+    /**
+     * @return frames that took longer than 16ms.
+     */
+    public synchronized long getJankCount() {
+        return mJankCount;
+    }
+
+    /**
+     * @return frames that took longer than 32ms.
+     */
+    public synchronized long getBigJankCount() {
+        return mBigJankCount;
+    }
+
+    /**
+     * @param percentile between 0 and 100
+     * @return the frame duration at the given percentile of the frames still in the buffer,
+     * in nanoseconds (nearest-rank method), 0 if there are none.
+     */
+    public long percentile(double percentile) {
+        long[] sorted;
+        synchronized (this) {
+            int count = (int) Math.min(mFrameCount, CAPACITY);
+            if (count == 0) {
+                return 0;
+            }
+            sorted = Arrays.copyOf(mFrameNanos, count);
+        }
+        Arrays.sort(sorted);
+        return Percentiles.percentile(sorted, percentile);
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.US,
+                "%s: %d frames, %d over 16ms, %d over 32ms, p50 %.1fms, p90 %.1fms, p99 %.1fms",
+                mName, getFrameCount(), getJankCount(), getBigJankCount(),
+                percentile(50) / 1e6, percentile(90) / 1e6, percentile(99) / 1e6);
+    }
+
+    public static void resetAll() {
+        synchronized (sStats) {
+            for (FrameStats stats : sStats.values()) {
+                stats.reset();
+            }
+        }
+    }
+
+    /**
+     * Writes every collected FrameStats, one per line.
+     */
+    public static void dump(String prefix, PrintWriter writer) {
+        synchronized (sStats) {
+            if (!ENABLED) {
+                writer.println(prefix
+                        + "Frame stats are only collected in debug builds on API 16+");
+            }
+            for (FrameStats stats : sStats.values()) {
+                writer.println(prefix + stats);
+            }
+        }
+    }
+}
@@ -8,7 +8,8 @@ import android.util.Log;
 import android.view.Menu;
 import android.view.MenuItem;
 
-import com.example.android.sunshine.app.sync.SunshineSyncAdapter;
+import java.io.FileDescriptor;
+import java.io.PrintWriter;
 
 
 public class MainActivity extends ActionBarActivity implements ForecastFragment.Callback {
@@ -16,6 +17,9 @@ public class MainActivity extends ActionBarActivity implements ForecastFragment.
     private final String LOG_TAG = MainActivity.class.getSimpleName();
 
     private static final String DETAILFRAGMENT_TAG = "DFTAG";
+    // Debug builds only, see src/debug
+    private static final String FRAME_STATS_ACTIVITY =
+            "com.example.android.sunshine.app.FrameStatsActivity";
 
     private String locationStr;
 
@@ -23,6 +27,7 @@ public class MainActivity extends ActionBarActivity implements ForecastFragment.
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
+        StartupTimeline.mark(StartupTimeline.ACTIVITY_CREATE);
         super.onCreate(savedInstanceState);
         locationStr = Utility.getPreferredLocation(this);
         setContentView(R.layout.activity_main);
@@ -36,9 +41,16 @@ public class MainActivity extends ActionBarActivity implements ForecastFragment.
             // adding or replacing the detail fragment using a
             // fragment transaction.
             if (savedInstanceState == null) {
+                // The fragment stays for the life of the activity, each selection only
+                // retargets it (see onItemSelected)
+                Bundle args = new Bundle();
+                args.putBoolean(DetailFragment.SHARES_FORECAST, true);
+                DetailFragment fragment = new DetailFragment();
+                fragment.setArguments(args);
+
                 getSupportFragmentManager().beginTransaction()
                         .replace(R.id.weather_detail_container,
-                                new DetailFragment(),
+                                fragment,
                                 DETAILFRAGMENT_TAG)
                         .commit();
             }
@@ -57,8 +69,9 @@ public class MainActivity extends ActionBarActivity implements ForecastFragment.
                 .findFragmentById(R.id.fragment_forecast));
         forecastFragment.setUseTodayLayout(!twoPane);
 
-        // MainActivity is created and the SunshineSyncAdapter is initializing
-        SunshineSyncAdapter.initializeSyncAdapter(this);
+        // MainActivity is created: the SunshineSyncAdapter account check and the
+        // database warm-up run in the background instead of delaying the first frame
+        StartupOrchestrator.start(this);
 
         Log.v(LOG_TAG, "onCreate()");
     }
@@ -116,18 +129,25 @@ public class MainActivity extends ActionBarActivity implements ForecastFragment.
     @Override
     public void onItemSelected(Uri contentUri) {
         if (twoPane) {
-            // In two-pane mode, show the detail view in this activity by
-            // adding or replacing the detail fragment using a
-            // fragment transaction.
-            Bundle args = new Bundle();
-            args.putParcelable(DetailFragment.DETAIL_URI, contentUri);
+            // In two-pane mode, show the day in the detail fragment already in this
+            // activity.  It binds from the ForecastModel the list filled, so a selection
+            // costs no fragment transaction, no inflation and usually no query.
+            DetailFragment fragment = (DetailFragment) getSupportFragmentManager()
+                    .findFragmentByTag(DETAILFRAGMENT_TAG);
+            if (fragment != null) {
+                fragment.setUri(contentUri);
+            } else {
+                Bundle args = new Bundle();
+                args.putParcelable(DetailFragment.DETAIL_URI, contentUri);
+                args.putBoolean(DetailFragment.SHARES_FORECAST, true);
 
-            DetailFragment fragment = new DetailFragment();
-            fragment.setArguments(args);
+                fragment = new DetailFragment();
+                fragment.setArguments(args);
 
-            getSupportFragmentManager().beginTransaction()
-                    .replace(R.id.weather_detail_container, fragment, DETAILFRAGMENT_TAG)
-                    .commit();
+                getSupportFragmentManager().beginTransaction()
+                        .replace(R.id.weather_detail_container, fragment, DETAILFRAGMENT_TAG)
+                        .commit();
+            }
         } else {
             // One-pane mode
             Intent intent = new Intent(this, DetailActivity.class)
@@ -136,10 +156,23 @@ public class MainActivity extends ActionBarActivity implements ForecastFragment.
         }
     }
 
+    // adb shell dumpsys activity com.example.android.sunshine.app
+    @Override
+    public void dump(String prefix, FileDescriptor fd, PrintWriter writer, String[] args) {
+        super.dump(prefix, fd, writer, args);
+        writer.println(prefix + "Frame stats:");
+        FrameStats.dump(prefix + "  ", writer);
+        writer.println(prefix + "StrictMode violations:");
+        StrictModeMonitor.dump(prefix + "  ", writer);
+        StartupTimeline.dump(prefix, writer);
+    }
+
     @Override
     public boolean onCreateOptionsMenu(Menu menu) {
         // Inflate the menu; this adds items to the action bar if it is present.
         getMenuInflater().inflate(R.menu.main, menu);
+        // Empty but in debug builds
+        getMenuInflater().inflate(R.menu.debug, menu);
         return true;
     }
 
@@ -153,6 +186,10 @@ public class MainActivity extends ActionBarActivity implements ForecastFragment.
         if (id == R.id.action_settings) {
             startActivity(new Intent(this, SettingsActivity.class));
             return true;
+        } else if (id == R.id.action_frame_stats) {
+            // Only in debug builds, so not a class this code can refer to
+            startActivity(new Intent().setClassName(this, FRAME_STATS_ACTIVITY));
+            return true;
         }
 
         return super.onOptionsItemSelected(item);
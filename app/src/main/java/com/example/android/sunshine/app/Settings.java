@@ -0,0 +1,113 @@
+package com.example.android.sunshine.app;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.preference.PreferenceManager;
+
+/**
+ * Immutable snapshot of the user's settings.  {@link #get(Context)} returns the current
+ * snapshot with a single volatile read; a {@link SharedPreferences.OnSharedPreferenceChangeListener}
+ * replaces it whenever a preference changes, so callers never touch SharedPreferences or look
+ * up the preference keys themselves.
+ */
+public final class Settings {
+
+    private static volatile Settings sCurrent;
+
+    private static Keys sKeys;
+    private static SharedPreferences sPrefs;
+    // SharedPreferences only keeps a weak reference to its listeners
+    private static SharedPreferences.OnSharedPreferenceChangeListener sListener;
+
+    public final String location;
+    public final boolean metric;
+    public final boolean notificationsEnabled;
+    public final long lastNotification;
+
+    private Settings(SharedPreferences prefs, Keys keys) {
+        location = prefs.getString(keys.location, keys.locationDefault);
+        metric = prefs.getString(keys.units, keys.unitsMetric).equals(keys.unitsMetric);
+        notificationsEnabled = prefs.getBoolean(keys.notifications, keys.notificationsDefault);
+        lastNotification = prefs.getLong(keys.lastNotification, 0);
+    }
+
+    public static Settings get(Context context) {
+        Settings settings = sCurrent;
+        if (settings == null) {
+            settings = init(context);
+        }
+        return settings;
+    }
+
+    /**
+     * Stores when the last weather notification was shown.  The snapshot is updated right
+     * away, not when the change listener gets to run.
+     */
+    public static void setLastNotification(Context context, long time) {
+        get(context);
+        synchronized (Settings.class) {
+            SharedPreferences prefs = PreferenceManager.getDefaultSharedPreferences(context);
+            prefs.edit().putLong(sKeys.lastNotification, time).commit();
+            sCurrent = new Settings(prefs, sKeys);
+        }
+    }
+
+    /**
+     * Forgets the settings read so far, so the next {@link #get(Context)} reads them from the
+     * preferences of the context it is given.  For tests that run the app's code against
+     * preferences of their own.
+     */
+    public static synchronized void reset() {
+        if (sPrefs != null) {
+            sPrefs.unregisterOnSharedPreferenceChangeListener(sListener);
+        }
+        sPrefs = null;
+        sListener = null;
+        sCurrent = null;
+    }
+
+    private static synchronized Settings init(Context context) {
+        if (sCurrent == null) {
+            final SharedPreferences prefs =
+                    PreferenceManager.getDefaultSharedPreferences(context.getApplicationContext());
+            sPrefs = prefs;
+            sKeys = new Keys(context);
+            sListener = new SharedPreferences.OnSharedPreferenceChangeListener() {
+                @Override
+                public void onSharedPreferenceChanged(SharedPreferences sharedPreferences,
+                                                      String key) {
+                    synchronized (Settings.class) {
+                        sCurrent = new Settings(sharedPreferences, sKeys);
+                    }
+                }
+            };
+            prefs.registerOnSharedPreferenceChangeListener(sListener);
+            sCurrent = new Settings(prefs, sKeys);
+        }
+        return sCurrent;
+    }
+
+    /**
+     * The preference keys and defaults, looked up from resources once.
+     */
+    private static final class Keys {
+        final String location;
+        final String locationDefault;
+        final String units;
+        final String unitsMetric;
+        final String notifications;
+        final boolean notificationsDefault;
+        final String lastNotification;
+
+        Keys(Context context) {
+            location = context.getString(R.string.pref_location_key);
+            locationDefault = context.getString(R.string.pref_location_default);
+            units = context.getString(R.string.pref_units_key);
+            unitsMetric = context.getString(R.string.pref_units_metric);
+            notifications = context.getString(R.string.pref_notifications_key);
+            notificationsDefault =
+                    Boolean.parseBoolean(context.getString(R.string.pref_notifications_default));
+            lastNotification = context.getString(R.string.pref_last_notification);
+        }
+    }
+}
@@ -1,13 +1,17 @@
 package com.example.android.sunshine.app;
 
 import android.annotation.TargetApi;
+import android.app.SearchManager;
 import android.content.Intent;
 import android.os.Build;
 import android.os.Bundle;
+import android.preference.EditTextPreference;
 import android.preference.ListPreference;
 import android.preference.Preference;
 import android.preference.PreferenceActivity;
 import android.preference.PreferenceManager;
+import android.view.Menu;
+import android.view.MenuItem;
 
 import com.example.android.sunshine.app.sync.SunshineSyncAdapter;
 
@@ -33,6 +37,51 @@ public class SettingsActivity extends PreferenceActivity
         bindPreferenceSummaryToValue(findPreference(getString(R.string.pref_location_key)));
         bindPreferenceSummaryToValue(findPreference(getString(R.string.pref_units_key)));
 
+        handleSearchIntent(getIntent());
+    }
+
+    @Override
+    public boolean onCreateOptionsMenu(Menu menu) {
+        getMenuInflater().inflate(R.menu.settings, menu);
+        return true;
+    }
+
+    @Override
+    public boolean onOptionsItemSelected(MenuItem item) {
+        if (item.getItemId() == R.id.action_search_location) {
+            // Shows the search dialog, with suggestions from the stored locations
+            return onSearchRequested();
+        }
+        return super.onOptionsItemSelected(item);
+    }
+
+    @Override
+    protected void onNewIntent(Intent intent) {
+        super.onNewIntent(intent);
+        setIntent(intent);
+        handleSearchIntent(intent);
+    }
+
+    /**
+     * Stores the location picked from the search suggestions (or typed into the search dialog)
+     * as the preferred location.
+     */
+    private void handleSearchIntent(Intent intent) {
+        String location = null;
+        if (Intent.ACTION_VIEW.equals(intent.getAction())) {
+            // A suggestion carries the location setting of the stored location
+            location = intent.getStringExtra(SearchManager.EXTRA_DATA_KEY);
+        } else if (Intent.ACTION_SEARCH.equals(intent.getAction())) {
+            location = intent.getStringExtra(SearchManager.QUERY);
+        }
+        if (location == null || location.trim().length() == 0) {
+            return;
+        }
+
+        EditTextPreference locationPreference =
+                (EditTextPreference) findPreference(getString(R.string.pref_location_key));
+        locationPreference.setText(location.trim());
+        onPreferenceChange(locationPreference, location.trim());
     }
 
     /**
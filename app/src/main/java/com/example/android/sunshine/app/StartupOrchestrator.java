@@ -0,0 +1,160 @@
+package com.example.android.sunshine.app;
+
+import android.annotation.TargetApi;
+import android.content.ContentProvider;
+import android.content.ContentProviderClient;
+import android.content.Context;
+import android.database.Cursor;
+import android.net.Uri;
+import android.os.Build;
+import android.os.Process;
+import android.support.v4.content.CursorLoader;
+import android.util.Log;
+
+import com.example.android.sunshine.app.data.WeatherContract;
+import com.example.android.sunshine.app.data.WeatherProvider;
+import com.example.android.sunshine.app.sync.SunshineSyncAdapter;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Moves the work MainActivity used to do on the UI thread at startup onto background threads.
+ * The sync account check and the database warm-up (opening the database in the provider and
+ * compiling the forecast query, so the schema check, WAL setup and statement compilation are
+ * done, without reading any rows) run in parallel.  Loaders wait for {@link #awaitReady()}
+ * before querying so they don't race the warm-up for the database lock.  Before Honeycomb
+ * the provider can't be reached directly and nothing is warmed up.
+ */
+public class StartupOrchestrator {
+
+    private static final String LOG_TAG = StartupOrchestrator.class.getSimpleName();
+
+    // Loaders stop waiting after this long, the provider opens the database itself anyway
+    private static final long READY_TIMEOUT_MILLIS = 5000;
+
+    private static final AtomicBoolean sStarted = new AtomicBoolean();
+    private static final CountDownLatch sDatabaseReady = new CountDownLatch(1);
+
+    private StartupOrchestrator() {
+    }
+
+    /**
+     * Starts the background startup work.  Only the first call in a process does anything.
+     */
+    public static void start(Context context) {
+        if (!sStarted.compareAndSet(false, true)) {
+            return;
+        }
+        final Context appContext = context.getApplicationContext();
+
+        ExecutorService executor = Executors.newFixedThreadPool(2, new ThreadFactory() {
+            private final AtomicInteger mCount = new AtomicInteger();
+
+            @Override
+            public Thread newThread(final Runnable r) {
+                return new Thread(new Runnable() {
+                    @Override
+                    public void run() {
+                        Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                        r.run();
+                    }
+                }, "Startup #" + mCount.incrementAndGet());
+            }
+        });
+
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                // Method getSyncAccount will create a new account
+                // if no sunshine.example.com account exists
+                SunshineSyncAdapter.initializeSyncAdapter(appContext);
+                StartupTimeline.mark(StartupTimeline.SYNC_ACCOUNT_READY);
+            }
+        });
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    warmUpDatabase(appContext);
+                } finally {
+                    sDatabaseReady.countDown();
+                }
+            }
+        });
+        executor.shutdown();
+    }
+
+    /**
+     * Blocks until the database warm-up is done.  Must not be called on the UI thread.
+     *
+     * @return true if the database is warm, false if it timed out or startup never ran.
+     */
+    public static boolean awaitReady() {
+        if (!sStarted.get()) {
+            return false;
+        }
+        try {
+            return sDatabaseReady.await(READY_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    public static boolean isReady() {
+        return sDatabaseReady.getCount() == 0;
+    }
+
+    private static void warmUpDatabase(Context context) {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.HONEYCOMB) {
+            return;
+        }
+        long start = System.currentTimeMillis();
+
+        ContentProviderClient client = context.getContentResolver()
+                .acquireContentProviderClient(WeatherContract.CONTENT_AUTHORITY);
+        if (client != null) {
+            try {
+                warmUpProvider(client);
+            } finally {
+                client.release();
+            }
+        }
+
+        Log.v(LOG_TAG, "Database warm-up took " + (System.currentTimeMillis() - start) + "ms");
+    }
+
+    @TargetApi(Build.VERSION_CODES.HONEYCOMB)
+    private static void warmUpProvider(ContentProviderClient client) {
+        ContentProvider provider = client.getLocalContentProvider();
+        if (provider instanceof WeatherProvider) {
+            // Same projection and sort order as the ForecastFragment loader, so the statement
+            // the loader runs is the one compiled here
+            ((WeatherProvider) provider).warmUp(ForecastFragment.FORECAST_COLUMNS,
+                    WeatherContract.WeatherEntry.COLUMN_DATE + " ASC");
+        }
+    }
+
+    /**
+     * A {@link CursorLoader} that waits for the startup warm-up before querying.
+     */
+    public static class ReadyCursorLoader extends CursorLoader {
+
+        public ReadyCursorLoader(Context context, Uri uri, String[] projection, String selection,
+                                 String[] selectionArgs, String sortOrder) {
+            super(context, uri, projection, selection, selectionArgs, sortOrder);
+        }
+
+        @Override
+        public Cursor loadInBackground() {
+            awaitReady();
+            return super.loadInBackground();
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package com.example.android.sunshine.app;
+
+import android.os.Build;
+import android.os.Process;
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.io.PrintWriter;
+import java.lang.reflect.Method;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * When a cold start reached each milestone on the way to the first forecast row drawn with
+ * the provider's data, in milliseconds since the process started:
+ *
+ *     StartupTimeline: process_start=0 application_create=212 activity_create=265 ...
+ *
+ * Each milestone is recorded once per process, later activities don't move it.  The line is
+ * logged when the forecast is drawn and printed by
+ *
+ *     adb shell dumpsys activity com.example.android.sunshine.app
+ *
+ * which is where the startup benchmark, ./gradlew :core:startupBenchmark, reads it from.
+ * Before Nougat the process start isn't known and the timeline starts at the first
+ * milestone this class sees instead, so compare timelines from the same API level only.
+ */
+public final class StartupTimeline {
+
+    private static final String LOG_TAG = StartupTimeline.class.getSimpleName();
+
+    public static final int PROCESS_START = 0;
+    public static final int APPLICATION_CREATE = 1;
+    public static final int ACTIVITY_CREATE = 2;
+    public static final int SYNC_ACCOUNT_READY = 3;
+    public static final int DATABASE_OPEN = 4;
+    public static final int LOADER_QUERY = 5;
+    public static final int FIRST_BIND = 6;
+    public static final int FORECAST_DRAWN = 7;
+
+    // Also the keys the startup benchmark reads
+    static final String[] MILESTONE_NAMES = {
+            "process_start", "application_create", "activity_create", "sync_account",
+            "database_open", "loader_query", "first_bind", "forecast_drawn"
+    };
+
+    // SystemClock.elapsedRealtime() of each milestone, 0 until it's reached
+    private static final AtomicLongArray sTimes = new AtomicLongArray(MILESTONE_NAMES.length);
+
+    static {
+        sTimes.set(PROCESS_START, processStartElapsedRealtime());
+    }
+
+    private StartupTimeline() {
+    }
+
+    /**
+     * Records the milestone, unless it was already reached in this process.
+     *
+     * @return true if this call recorded it.
+     */
+    public static boolean mark(int milestone) {
+        if (sTimes.get(milestone) != 0) {
+            return false;
+        }
+        return sTimes.compareAndSet(milestone, 0, SystemClock.elapsedRealtime());
+    }
+
+    public static boolean isMarked(int milestone) {
+        return sTimes.get(milestone) != 0;
+    }
+
+    /**
+     * @return milliseconds from the process start to the milestone, -1 if it wasn't reached.
+     */
+    public static long millisSinceStart(int milestone) {
+        long time = sTimes.get(milestone);
+        return time != 0 ? time - sTimes.get(PROCESS_START) : -1;
+    }
+
+    /**
+     * @return the milestones reached so far, e.g. "process_start=0 application_create=212".
+     */
+    public static String format() {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < MILESTONE_NAMES.length; i++) {
+            long millis = millisSinceStart(i);
+            if (millis < 0) {
+                continue;
+            }
+            if (builder.length() > 0) {
+                builder.append(' ');
+            }
+            builder.append(MILESTONE_NAMES[i]).append('=').append(millis);
+        }
+        return builder.toString();
+    }
+
+    static void log() {
+        Log.i(LOG_TAG, LOG_TAG + ": " + format());
+    }
+
+    public static void dump(String prefix, PrintWriter writer) {
+        writer.println(prefix + LOG_TAG + ": " + format());
+    }
+
+    // Process.getStartElapsedRealtime, newer than our compile SDK
+    private static long processStartElapsedRealtime() {
+        if (Build.VERSION.SDK_INT >= 24) {
+            try {
+                Method method = Process.class.getMethod("getStartElapsedRealtime");
+                return (Long) method.invoke(null);
+            } catch (Exception e) {
+                Log.w(LOG_TAG, "Unable to get the process start time", e);
+            }
+        }
+        return SystemClock.elapsedRealtime();
+    }
+}
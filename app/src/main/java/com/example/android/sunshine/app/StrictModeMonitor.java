@@ -0,0 +1,183 @@
+package com.example.android.sunshine.app;
+
+import android.os.Build;
+import android.os.StrictMode;
+import android.util.Log;
+
+import java.io.PrintWriter;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executor;
+
+/**
+ * Catches disk and network access on the main thread in debug builds, each one a frame that
+ * may be dropped or an ANR waiting for a slow device.  Violations are logged, and on Pie and
+ * later, where StrictMode tells listeners about them, counted by signature: the kind of
+ * violation and the first Sunshine method on its stack, e.g.
+ *
+ *     DiskReadViolation com.example.android.sunshine.app.ForecastSnapshot.read
+ *
+ * Line numbers are left out so the signature of a known violation survives unrelated edits.
+ * MainThreadIoTest compares the signatures against a baseline and fails on new ones; before
+ * Pie it reads them back from the log.
+ */
+public final class StrictModeMonitor {
+
+    private static final String LOG_TAG = StrictModeMonitor.class.getSimpleName();
+
+    static final boolean ENABLED = BuildConfig.DEBUG;
+
+    // StrictMode.ThreadPolicy.Builder.penaltyListener, newer than our compile SDK
+    static final boolean LISTENER_SUPPORTED = ENABLED && Build.VERSION.SDK_INT >= 28;
+
+    private static final String APP_PACKAGE = "com.example.android.sunshine.app.";
+
+    // Frames that only carry the violation up from where it was detected
+    private static final String[] PLUMBING_PACKAGES = {
+            "android.os.StrictMode", "dalvik.system.BlockGuard", "libcore.", "java.", "sun.",
+            StrictModeMonitor.class.getName()
+    };
+
+    // Counts by signature, in the order they were first seen.  Guarded by itself.
+    private static final Map<String, Integer> sViolations = new LinkedHashMap<String, Integer>();
+
+    private static boolean sListening;
+
+    private StrictModeMonitor() {
+    }
+
+    /**
+     * Turns on the main thread policy.  Call from the main thread, before any activity runs.
+     */
+    public static void install() {
+        if (!ENABLED) {
+            return;
+        }
+        StrictMode.ThreadPolicy.Builder threadPolicy = new StrictMode.ThreadPolicy.Builder()
+                .detectDiskReads()
+                .detectDiskWrites()
+                .detectNetwork()
+                .penaltyLog();
+        if (LISTENER_SUPPORTED) {
+            sListening = addListener(threadPolicy);
+        }
+        StrictMode.setThreadPolicy(threadPolicy.build());
+
+        StrictMode.setVmPolicy(new StrictMode.VmPolicy.Builder()
+                .detectLeakedSqlLiteObjects()
+                .penaltyLog()
+                .build());
+    }
+
+    /**
+     * @return true if violations are being counted, not just logged.
+     */
+    public static boolean isListening() {
+        return sListening;
+    }
+
+    private static boolean addListener(StrictMode.ThreadPolicy.Builder threadPolicy) {
+        try {
+            Class<?> listenerClass =
+                    Class.forName("android.os.StrictMode$OnThreadViolationListener");
+            Object listener = Proxy.newProxyInstance(listenerClass.getClassLoader(),
+                    new Class<?>[] {listenerClass}, new InvocationHandler() {
+                        @Override
+                        public Object invoke(Object proxy, Method method, Object[] args) {
+                            String name = method.getName();
+                            if ("onThreadViolation".equals(name)) {
+                                record((Throwable) args[0]);
+                                return null;
+                            } else if ("equals".equals(name)) {
+                                return proxy == args[0];
+                            } else if ("hashCode".equals(name)) {
+                                return System.identityHashCode(proxy);
+                            }
+                            return LOG_TAG;
+                        }
+                    });
+            Method penaltyListener = StrictMode.ThreadPolicy.Builder.class.getMethod(
+                    "penaltyListener", Executor.class, listenerClass);
+            // Counting is cheap enough to do on the thread that broke the policy
+            penaltyListener.invoke(threadPolicy, new Executor() {
+                @Override
+                public void execute(Runnable command) {
+                    command.run();
+                }
+            }, listener);
+            return true;
+        } catch (Exception e) {
+            Log.w(LOG_TAG, "Unable to listen for StrictMode violations", e);
+            return false;
+        }
+    }
+
+    static void record(Throwable violation) {
+        String signature = signatureOf(violation);
+        synchronized (sViolations) {
+            Integer count = sViolations.get(signature);
+            sViolations.put(signature, count == null ? 1 : count + 1);
+        }
+    }
+
+    static String signatureOf(Throwable violation) {
+        return signatureOf(violation.getClass().getSimpleName(), violation.getStackTrace());
+    }
+
+    /**
+     * @param type the simple name of the violation's class, as Pie names them,
+     * e.g. DiskReadViolation.
+     * @param stack where the violation was detected, innermost frame first.
+     */
+    static String signatureOf(String type, StackTraceElement[] stack) {
+        for (StackTraceElement frame : stack) {
+            if (frame.getClassName().startsWith(APP_PACKAGE) && !isPlumbing(frame)) {
+                return type + " " + frame.getClassName() + "." + frame.getMethodName();
+            }
+        }
+        // Nothing of ours on the stack, e.g. the framework inflating a view
+        for (StackTraceElement frame : stack) {
+            if (!isPlumbing(frame)) {
+                return type + " " + frame.getClassName() + "." + frame.getMethodName();
+            }
+        }
+        return type;
+    }
+
+    private static boolean isPlumbing(StackTraceElement frame) {
+        for (String prefix : PLUMBING_PACKAGES) {
+            if (frame.getClassName().startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return how often each signature was seen since the last {@link #reset()}.
+     */
+    public static Map<String, Integer> getViolations() {
+        synchronized (sViolations) {
+            return new LinkedHashMap<String, Integer>(sViolations);
+        }
+    }
+
+    public static void reset() {
+        synchronized (sViolations) {
+            sViolations.clear();
+        }
+    }
+
+    public static void dump(String prefix, PrintWriter writer) {
+        if (!sListening) {
+            writer.println(prefix + "Not counted on this build or API level, see logcat");
+            return;
+        }
+        for (Map.Entry<String, Integer> violation : getViolations().entrySet()) {
+            writer.println(prefix + violation.getValue() + " x " + violation.getKey());
+        }
+    }
+}
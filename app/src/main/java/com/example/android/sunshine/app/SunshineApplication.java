@@ -0,0 +1,14 @@
+package com.example.android.sunshine.app;
+
+import android.app.Application;
+
+public class SunshineApplication extends Application {
+
+    @Override
+    public void onCreate() {
+        // First, so nothing the app does on the main thread goes unnoticed
+        StrictModeMonitor.install();
+        StartupTimeline.mark(StartupTimeline.APPLICATION_CREATE);
+        super.onCreate();
+    }
+}
@@ -0,0 +1,70 @@
+package com.example.android.sunshine.app;
+
+import android.annotation.TargetApi;
+import android.os.Build;
+import android.os.Trace;
+
+/**
+ * Names the sections of a systrace that belong to Sunshine's own code: the sync phases, each
+ * provider operation, the loaders and the forecast list's binds.  Capture them with
+ *
+ *     python systrace.py -a com.example.android.sunshine.app -o trace.html gfx view
+ *
+ * and sum them up per section with
+ *
+ *     ./gradlew :core:traceSummary -Ptrace=/path/to/trace.html
+ *
+ * Sections are only written when the TRACE_ENABLED build flag is on, in debug builds.
+ * {@link #ENABLED} is that flag alone, a compile-time constant, so in release builds the
+ * calls and the joining of names compile away.  Before Jelly Bean MR2, where android.os.Trace
+ * doesn't exist, debug builds make the calls and nothing is written.  Every
+ * {@link #beginSection} must be matched by an {@link #endSection} on the same thread, so put
+ * the end in a finally block.
+ */
+public final class Tracing {
+
+    public static final boolean ENABLED = BuildConfig.TRACE_ENABLED;
+
+    // Longer section names are rejected by Trace
+    private static final int MAX_NAME_LENGTH = 127;
+
+    private Tracing() {
+    }
+
+    public static void beginSection(String name) {
+        if (ENABLED) {
+            begin(name);
+        }
+    }
+
+    /**
+     * Same as {@link #beginSection(String)} for names in two parts, e.g. an operation and the
+     * URI it was for, which are only joined when tracing is on.
+     */
+    public static void beginSection(String prefix, String name) {
+        if (ENABLED) {
+            begin(prefix + name);
+        }
+    }
+
+    public static void endSection() {
+        if (ENABLED) {
+            end();
+        }
+    }
+
+    @TargetApi(Build.VERSION_CODES.JELLY_BEAN_MR2)
+    private static void begin(String name) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR2) {
+            Trace.beginSection(name.length() > MAX_NAME_LENGTH
+                    ? name.substring(0, MAX_NAME_LENGTH) : name);
+        }
+    }
+
+    @TargetApi(Build.VERSION_CODES.JELLY_BEAN_MR2)
+    private static void end() {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR2) {
+            Trace.endSection();
+        }
+    }
+}
@@ -1,34 +1,34 @@
 package com.example.android.sunshine.app;
 
 import android.content.Context;
-import android.content.SharedPreferences;
-import android.preference.PreferenceManager;
-import android.text.format.Time;
+
+import com.example.android.sunshine.core.Units;
 
 import java.text.DateFormat;
-import java.text.SimpleDateFormat;
 import java.util.Date;
-import java.util.Locale;
 
 public class Utility {
     public static String getPreferredLocation(Context context) {
-        SharedPreferences prefs = PreferenceManager.getDefaultSharedPreferences(context);
-        return prefs.getString(context.getString(R.string.pref_location_key),
-                context.getString(R.string.pref_location_default));
+        return Settings.get(context).location;
     }
 
     public static boolean isMetric(Context context) {
-        SharedPreferences prefs = PreferenceManager.getDefaultSharedPreferences(context);
-        return prefs.getString(context.getString(R.string.pref_units_key),
-                context.getString(R.string.pref_units_metric))
-                .equals(context.getString(R.string.pref_units_metric));
+        return Settings.get(context).metric;
     }
 
     public static String formatTemperature(Context context, double temperature) {
+        return formatTemperature(context, temperature, Settings.get(context).metric);
+    }
+
+    /**
+     * Same as {@link #formatTemperature(Context, double)} for callers formatting many values,
+     * which read the units preference once.
+     */
+    public static String formatTemperature(Context context, double temperature, boolean isMetric) {
         // Data stored in Celsius by default.  If user prefers to see in Fahrenheit, convert
         // the values here.
-        if (!isMetric(context)) {
-            temperature = (temperature * 1.8) + 32;
+        if (!isMetric) {
+            temperature = Units.celsiusToFahrenheit(temperature);
         }
         // Substituting the format arguments as defined in format(String, Object...).
         // For presentation, assume the user doesn't care about tenths of a degree.
@@ -61,36 +61,7 @@ public class Utility {
         // For tomorrow:  "Tomorrow"
         // For the next 5 days: "Wednesday" (just the day name)
         // For all days after that: "Mon Jun 8"
-
-        Time time = new Time();
-        time.setToNow();
-        long currentTime = System.currentTimeMillis();
-        int julianDay = Time.getJulianDay(dateInMilliseconds, time.gmtoff);
-        int currentJulianDay = Time.getJulianDay(currentTime, time.gmtoff);
-
-        // If the date we're building the String for is today's date, the format
-        // is "Today, June 24"
-        if (julianDay == currentJulianDay) {
-            String today = context.getString(R.string.today);
-            int formatId = R.string.format_full_friendly_date;
-            return String.format(context.getString(
-                    formatId,
-                    today,
-                    getFormattedMonthDay(context, dateInMilliseconds)));
-        } else if ( julianDay < currentJulianDay + 7 ) {
-            // If the input date is less than a week in the future, just return the day name.
-            return getDayName(context, dateInMilliseconds);
-        } else {
-            // Otherwise, use the form "Mon 3 Jun" OR "Mon Jun 3"
-            String language = Locale.getDefault().getLanguage();
-            SimpleDateFormat shortenedDateFormat;
-            if (language.equals("uk") || language.equals("ru")) {
-                shortenedDateFormat = new SimpleDateFormat("EEE dd MMM");
-            } else {
-                shortenedDateFormat = new SimpleDateFormat("EEE MMM dd");
-            }
-            return shortenedDateFormat.format(dateInMilliseconds);
-        }
+        return DayFormatter.getInstance(context).getFriendlyDayString(dateInMilliseconds);
     }
 
     /**
@@ -102,24 +73,7 @@ public class Utility {
      * @return
      */
     public static String getDayName(Context context, long dateInMilliseconds) {
-        // If the date is today, return the localized version of "Today" instead of the actual
-        // day name.
-
-        Time t = new Time();
-        t.setToNow();
-        int julianDay = Time.getJulianDay(dateInMilliseconds, t.gmtoff);
-        int currentJulianDay = Time.getJulianDay(System.currentTimeMillis(), t.gmtoff);
-        if (julianDay == currentJulianDay) {
-            return context.getString(R.string.today);
-        } else if ( julianDay == currentJulianDay +1 ) {
-            return context.getString(R.string.tomorrow);
-        } else {
-            Time time = new Time();
-            time.setToNow();
-            // Otherwise, the format is just the day of the week (e.g "Wednesday".
-            SimpleDateFormat dayFormat = new SimpleDateFormat("EEEE");
-            return dayFormat.format(dateInMilliseconds);
-        }
+        return DayFormatter.getInstance(context).getDayName(dateInMilliseconds);
     }
 
     /**
@@ -130,81 +84,41 @@ public class Utility {
      * @return The day in the form of a string formatted "December 6"
      */
     public static String getFormattedMonthDay(Context context, long dateInMilliseconds ) {
-        Time time = new Time();
-        time.setToNow();
-        SimpleDateFormat dbDateFormat = new SimpleDateFormat(Utility.DATE_FORMAT);
-
-        String language = Locale.getDefault().getLanguage();
-        SimpleDateFormat monthDayFormat;
-        if (language.equals("uk") || language.equals("ru")) {
-            monthDayFormat = new SimpleDateFormat("dd MMMM");
-        } else {
-            monthDayFormat = new SimpleDateFormat("MMMM dd");
-        }
-
-        String monthDayString = monthDayFormat.format(dateInMilliseconds);
-        return monthDayString;
+        return DayFormatter.getInstance(context).getFormattedMonthDay(dateInMilliseconds);
     }
 
+    // Indexed by the Units.DIRECTION_ constants
+    private static final int[] WIND_DIRECTIONS = {
+            R.string.wind_direction_N,
+            R.string.wind_direction_NE,
+            R.string.wind_direction_E,
+            R.string.wind_direction_SE,
+            R.string.wind_direction_S,
+            R.string.wind_direction_SW,
+            R.string.wind_direction_W,
+            R.string.wind_direction_NW,
+    };
+
     public static String getFormattedWind(Context context, float windSpeed, float degrees) {
         int windFormat;
-        if (Utility.isMetric(context)) {
+        if (Settings.get(context).metric) {
             windFormat = R.string.format_wind_kmh;
         } else {
             windFormat = R.string.format_wind_mph;
-            windSpeed = .621371192237334f * windSpeed;
+            windSpeed = Units.kmhToMph(windSpeed);
         }
 
         // From wind direction in degrees, determine compass direction as a string (e.g NW)
-        // You know what's fun, writing really long if/else statements with tons of possible
-        // conditions.  Seriously, try it!
-        String direction = "Unknown";
-        if (degrees >= 337.5 || degrees < 22.5) {
-            direction = context.getString(R.string.wind_direction_N);
-        } else if (degrees >= 22.5 && degrees < 67.5) {
-            direction = context.getString(R.string.wind_direction_NE);
-        } else if (degrees >= 67.5 && degrees < 112.5) {
-            direction = context.getString(R.string.wind_direction_E);
-        } else if (degrees >= 112.5 && degrees < 157.5) {
-            direction = context.getString(R.string.wind_direction_SE);
-        } else if (degrees >= 157.5 && degrees < 202.5) {
-            direction = context.getString(R.string.wind_direction_S);
-        } else if (degrees >= 202.5 && degrees < 247.5) {
-            direction = context.getString(R.string.wind_direction_SW);
-        } else if (degrees >= 247.5 && degrees < 292.5) {
-            direction = context.getString(R.string.wind_direction_W);
-        } else if (degrees >= 292.5 || degrees < 22.5) {
-            direction = context.getString(R.string.wind_direction_NW);
-        }
+        int compass = Units.windDirection(degrees);
+        String direction = compass != Units.DIRECTION_UNKNOWN
+                ? context.getString(WIND_DIRECTIONS[compass]) : "Unknown";
         return String.format(context.getString(windFormat), windSpeed, direction);
     }
 
     // Method provide weather description's string res for suitable locale
     public static String getLocaleForecastDescription(Context context, int weatherId) {
-        if (weatherId >= 200 && weatherId <= 232) {
-            return context.getString(R.string.storm);
-        } else if (weatherId >= 300 && weatherId <= 321) {
-            return context.getString(R.string.light_rain);
-        } else if (weatherId >= 500 && weatherId <= 504) {
-            return context.getString(R.string.rain);
-        } else if (weatherId == 511) {
-            return context.getString(R.string.snow);
-        } else if (weatherId >= 520 && weatherId <= 531) {
-            return context.getString(R.string.rain);
-        } else if (weatherId >= 600 && weatherId <= 622) {
-            return context.getString(R.string.snow);
-        } else if (weatherId >= 701 && weatherId <= 761) {
-            return context.getString(R.string.fog);
-        } else if (weatherId == 761 || weatherId == 781) {
-            return context.getString(R.string.storm);
-        } else if (weatherId == 800) {
-            return context.getString(R.string.clear);
-        } else if (weatherId == 801) {
-            return context.getString(R.string.light_clouds);
-        } else if (weatherId >= 802 && weatherId <= 804) {
-            return context.getString(R.string.clouds);
-        }
-        return null;
+        int descriptionResId = WeatherConditionRegistry.get(weatherId).descriptionResId;
+        return descriptionResId != 0 ? context.getString(descriptionResId) : null;
     }
 
     /**
@@ -214,32 +128,7 @@ public class Utility {
      * @return resource id for the corresponding icon. -1 if no relation is found.
      */
     public static int getIconResourceForWeatherCondition(int weatherId) {
-        // Based on weather code data found at:
-        // http://bugs.openweathermap.org/projects/api/wiki/Weather_Condition_Codes
-        if (weatherId >= 200 && weatherId <= 232) {
-            return R.drawable.ic_storm;
-        } else if (weatherId >= 300 && weatherId <= 321) {
-            return R.drawable.ic_light_rain;
-        } else if (weatherId >= 500 && weatherId <= 504) {
-            return R.drawable.ic_rain;
-        } else if (weatherId == 511) {
-            return R.drawable.ic_snow;
-        } else if (weatherId >= 520 && weatherId <= 531) {
-            return R.drawable.ic_rain;
-        } else if (weatherId >= 600 && weatherId <= 622) {
-            return R.drawable.ic_snow;
-        } else if (weatherId >= 701 && weatherId <= 761) {
-            return R.drawable.ic_fog;
-        } else if (weatherId == 761 || weatherId == 781) {
-            return R.drawable.ic_storm;
-        } else if (weatherId == 800) {
-            return R.drawable.ic_clear;
-        } else if (weatherId == 801) {
-            return R.drawable.ic_light_clouds;
-        } else if (weatherId >= 802 && weatherId <= 804) {
-            return R.drawable.ic_cloudy;
-        }
-        return -1;
+        return WeatherConditionRegistry.get(weatherId).iconResId;
     }
 
     /**
@@ -249,31 +138,6 @@ public class Utility {
      * @return resource id for the corresponding image. -1 if no relation is found.
      */
     public static int getArtResourceForWeatherCondition(int weatherId) {
-        // Based on weather code data found at:
-        // http://bugs.openweathermap.org/projects/api/wiki/Weather_Condition_Codes
-        if (weatherId >= 200 && weatherId <= 232) {
-            return R.drawable.art_storm;
-        } else if (weatherId >= 300 && weatherId <= 321) {
-            return R.drawable.art_light_rain;
-        } else if (weatherId >= 500 && weatherId <= 504) {
-            return R.drawable.art_rain;
-        } else if (weatherId == 511) {
-            return R.drawable.art_snow;
-        } else if (weatherId >= 520 && weatherId <= 531) {
-            return R.drawable.art_rain;
-        } else if (weatherId >= 600 && weatherId <= 622) {
-            return R.drawable.art_snow;
-        } else if (weatherId >= 701 && weatherId <= 761) {
-            return R.drawable.art_fog;
-        } else if (weatherId == 761 || weatherId == 781) {
-            return R.drawable.art_storm;
-        } else if (weatherId == 800) {
-            return R.drawable.art_clear;
-        } else if (weatherId == 801) {
-            return R.drawable.art_light_clouds;
-        } else if (weatherId >= 802 && weatherId <= 804) {
-            return R.drawable.art_clouds;
-        }
-        return -1;
+        return WeatherConditionRegistry.get(weatherId).artResId;
     }
 }
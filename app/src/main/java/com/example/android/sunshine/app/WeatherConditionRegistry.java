@@ -0,0 +1,88 @@
+package com.example.android.sunshine.app;
+
+import com.example.android.sunshine.core.WeatherCategories;
+
+/**
+ * Everything the app shows for an OpenWeatherMap condition code, looked up in a dense array
+ * indexed by code.  The array is filled from {@link WeatherCategories}, the one place that
+ * maps codes to categories.
+ */
+public final class WeatherConditionRegistry {
+
+    public static final int MIN_CODE = WeatherCategories.MIN_CODE;
+    public static final int MAX_CODE = WeatherCategories.MAX_CODE;
+
+    public static final int CATEGORY_UNKNOWN = WeatherCategories.UNKNOWN;
+    public static final int CATEGORY_STORM = WeatherCategories.STORM;
+    public static final int CATEGORY_LIGHT_RAIN = WeatherCategories.LIGHT_RAIN;
+    public static final int CATEGORY_RAIN = WeatherCategories.RAIN;
+    public static final int CATEGORY_SNOW = WeatherCategories.SNOW;
+    public static final int CATEGORY_FOG = WeatherCategories.FOG;
+    public static final int CATEGORY_CLEAR = WeatherCategories.CLEAR;
+    public static final int CATEGORY_LIGHT_CLOUDS = WeatherCategories.LIGHT_CLOUDS;
+    public static final int CATEGORY_CLOUDS = WeatherCategories.CLOUDS;
+
+    /**
+     * One weather condition.  Unknown codes get {@link #UNKNOWN}, with -1 resource ids and a
+     * 0 description id, the values the old lookups returned.
+     */
+    public static final class Condition {
+        public final int category;
+        public final int iconResId;
+        public final int artResId;
+        public final int descriptionResId;
+        // 0 (nothing to worry about) to 3 (storm)
+        public final int severity;
+
+        Condition(int category, int iconResId, int artResId, int descriptionResId, int severity) {
+            this.category = category;
+            this.iconResId = iconResId;
+            this.artResId = artResId;
+            this.descriptionResId = descriptionResId;
+            this.severity = severity;
+        }
+    }
+
+    public static final Condition UNKNOWN = new Condition(CATEGORY_UNKNOWN, -1, -1, 0, 0);
+
+    // Indexed by category
+    private static final Condition[] CATEGORIES = {
+            UNKNOWN,
+            new Condition(CATEGORY_STORM, R.drawable.ic_storm,
+                    R.drawable.art_storm, R.string.storm, 3),
+            new Condition(CATEGORY_LIGHT_RAIN, R.drawable.ic_light_rain,
+                    R.drawable.art_light_rain, R.string.light_rain, 1),
+            new Condition(CATEGORY_RAIN, R.drawable.ic_rain,
+                    R.drawable.art_rain, R.string.rain, 2),
+            new Condition(CATEGORY_SNOW, R.drawable.ic_snow,
+                    R.drawable.art_snow, R.string.snow, 2),
+            new Condition(CATEGORY_FOG, R.drawable.ic_fog,
+                    R.drawable.art_fog, R.string.fog, 1),
+            new Condition(CATEGORY_CLEAR, R.drawable.ic_clear,
+                    R.drawable.art_clear, R.string.clear, 0),
+            new Condition(CATEGORY_LIGHT_CLOUDS, R.drawable.ic_light_clouds,
+                    R.drawable.art_light_clouds, R.string.light_clouds, 0),
+            new Condition(CATEGORY_CLOUDS, R.drawable.ic_cloudy,
+                    R.drawable.art_clouds, R.string.clouds, 1),
+    };
+
+    private static final Condition[] CONDITIONS = new Condition[MAX_CODE - MIN_CODE + 1];
+
+    static {
+        for (int code = MIN_CODE; code <= MAX_CODE; code++) {
+            CONDITIONS[code - MIN_CODE] = CATEGORIES[WeatherCategories.get(code)];
+        }
+    }
+
+    private WeatherConditionRegistry() {
+    }
+
+    /**
+     * @param weatherId from OpenWeatherMap API response
+     * @return the condition for the code, {@link #UNKNOWN} if there is none.
+     */
+    public static Condition get(int weatherId) {
+        int index = weatherId - MIN_CODE;
+        return index >= 0 && index < CONDITIONS.length ? CONDITIONS[index] : UNKNOWN;
+    }
+}
@@ -0,0 +1,157 @@
+package com.example.android.sunshine.app.data;
+
+import android.database.Cursor;
+import android.database.CursorWrapper;
+import android.util.Log;
+
+import com.example.android.sunshine.app.BuildConfig;
+
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Wraps every cursor {@link WeatherProvider#query} returns in debug builds and keeps count of
+ * the ones still open, and of the cursor windows they hold.  A cursor that is garbage
+ * collected without being closed is a leak: it is logged with the stack it was queried from,
+ * kept for {@link #getLeaks()} and closed, so its window is freed now rather than whenever
+ * the cursor underneath is finalized.
+ *
+ * The clients are all in the app's process, so closing the cursor the resolver hands out
+ * closes this one.  In release builds cursors are returned as they are.
+ */
+public class LeakTrackingCursor extends CursorWrapper {
+
+    private static final String LOG_TAG = LeakTrackingCursor.class.getSimpleName();
+
+    static final boolean ENABLED = BuildConfig.DEBUG;
+
+    // The default size of a cursor window.  Windows are allocated whole, however few rows
+    // they hold.
+    static final long WINDOW_BYTES = 2 * 1024 * 1024;
+
+    // Only the latest ones keep their stacks
+    static final int MAX_LEAKS_KEPT = 16;
+
+    private static final AtomicInteger sLive = new AtomicInteger();
+    private static final AtomicLong sLiveWindowBytes = new AtomicLong();
+    private static final AtomicInteger sLeakCount = new AtomicInteger();
+    // Guarded by itself
+    private static final List<Throwable> sLeaks = new ArrayList<Throwable>();
+
+    private final Throwable mAllocation;
+    private final long mWindowBytes;
+    private final AtomicBoolean mClosed = new AtomicBoolean();
+
+    /**
+     * @param windowed whether the cursor reads its rows through a cursor window.
+     * @param description what was queried, e.g. the uri.
+     * @return the cursor to hand out, wrapped in debug builds.
+     */
+    static Cursor wrap(Cursor cursor, boolean windowed, String description) {
+        if (!ENABLED || cursor == null) {
+            return cursor;
+        }
+        return new LeakTrackingCursor(cursor, windowed ? WINDOW_BYTES : 0, description);
+    }
+
+    private LeakTrackingCursor(Cursor cursor, long windowBytes, String description) {
+        super(cursor);
+        mAllocation = new Throwable("Cursor for " + description + " was queried here");
+        mWindowBytes = windowBytes;
+        sLive.incrementAndGet();
+        sLiveWindowBytes.addAndGet(windowBytes);
+    }
+
+    @Override
+    public void close() {
+        if (mClosed.compareAndSet(false, true)) {
+            release();
+        }
+        super.close();
+    }
+
+    private void release() {
+        sLive.decrementAndGet();
+        sLiveWindowBytes.addAndGet(-mWindowBytes);
+    }
+
+    @Override
+    protected void finalize() throws Throwable {
+        try {
+            if (mClosed.compareAndSet(false, true)) {
+                release();
+                sLeakCount.incrementAndGet();
+                synchronized (sLeaks) {
+                    if (sLeaks.size() == MAX_LEAKS_KEPT) {
+                        sLeaks.remove(0);
+                    }
+                    sLeaks.add(mAllocation);
+                }
+                Log.e(LOG_TAG, "Cursor finalized without being closed", mAllocation);
+                super.close();
+            }
+        } finally {
+            super.finalize();
+        }
+    }
+
+    /**
+     * @return how many cursors are open.
+     */
+    public static int getLiveCount() {
+        return sLive.get();
+    }
+
+    /**
+     * @return the bytes of cursor window the open cursors hold, at the default window size.
+     */
+    public static long getLiveWindowBytes() {
+        return sLiveWindowBytes.get();
+    }
+
+    /**
+     * @return how many cursors leaked since the last {@link #reset()}.
+     */
+    public static int getLeakCount() {
+        return sLeakCount.get();
+    }
+
+    /**
+     * @return where the latest leaked cursors were queried, the oldest first.
+     */
+    public static List<Throwable> getLeaks() {
+        synchronized (sLeaks) {
+            return new ArrayList<Throwable>(sLeaks);
+        }
+    }
+
+    /**
+     * Forgets the leaks so far.  Open cursors stay counted.
+     */
+    public static void reset() {
+        synchronized (sLeaks) {
+            sLeaks.clear();
+            sLeakCount.set(0);
+        }
+    }
+
+    static void dump(PrintWriter writer) {
+        if (!ENABLED) {
+            writer.println("Cursors are only tracked in debug builds");
+            return;
+        }
+        writer.println("Open cursors: " + getLiveCount() + ", holding "
+                + getLiveWindowBytes() / 1024 + " KB of windows");
+        writer.println("Leaked cursors: " + getLeakCount());
+        for (Throwable leak : getLeaks()) {
+            writer.println("  " + leak.getMessage());
+            for (StackTraceElement frame : leak.getStackTrace()) {
+                writer.println("    at " + frame);
+            }
+        }
+    }
+}
@@ -0,0 +1,350 @@
+package com.example.android.sunshine.app.data;
+
+import android.database.Cursor;
+
+/**
+ * Immutable in-memory spatial index over the stored locations.
+ *
+ * Nearest-neighbour queries use a k-d tree over the unit vectors of the coordinates, where
+ * the straight-line (chord) distance orders points exactly like the great-circle distance, so
+ * there is no special casing for the poles or the antimeridian.  Bounding box queries use the
+ * locations sorted by latitude.  The provider rebuilds the index whenever the location table
+ * changes.
+ */
+class LocationIndex {
+
+    // Mean Earth radius, used to turn chord distances into kilometres
+    static final double EARTH_RADIUS_KM = 6371.0088;
+
+    // Column order expected by fromCursor
+    static final int COL_ID = 0;
+    static final int COL_LOCATION_SETTING = 1;
+    static final int COL_CITY_NAME = 2;
+    static final int COL_COORD_LAT = 3;
+    static final int COL_COORD_LONG = 4;
+
+    final long[] ids;
+    final String[] locationSettings;
+    final String[] cityNames;
+    final double[] lats;
+    final double[] lons;
+
+    private final int mSize;
+    // Unit vector of each location, indexed [axis][location]
+    private final double[][] mPoints;
+    // Location indices arranged as an implicit k-d tree: the node of the range [lo, hi)
+    // is at (lo + hi) / 2, splitting on axis depth % 3.
+    private final int[] mTree;
+    // Location indices sorted by latitude, and those latitudes
+    private final int[] mByLat;
+    private final double[] mSortedLats;
+
+    LocationIndex(long[] ids, String[] locationSettings, String[] cityNames,
+                  double[] lats, double[] lons) {
+        this.ids = ids;
+        this.locationSettings = locationSettings;
+        this.cityNames = cityNames;
+        this.lats = lats;
+        this.lons = lons;
+        mSize = ids.length;
+
+        mPoints = new double[3][mSize];
+        for (int i = 0; i < mSize; i++) {
+            double lat = Math.toRadians(lats[i]);
+            double lon = Math.toRadians(lons[i]);
+            mPoints[0][i] = Math.cos(lat) * Math.cos(lon);
+            mPoints[1][i] = Math.cos(lat) * Math.sin(lon);
+            mPoints[2][i] = Math.sin(lat);
+        }
+
+        mTree = identity(mSize);
+        buildTree(0, mSize, 0);
+
+        mByLat = identity(mSize);
+        sortByKey(mByLat, lats, 0, mSize - 1);
+        mSortedLats = new double[mSize];
+        for (int i = 0; i < mSize; i++) {
+            mSortedLats[i] = lats[mByLat[i]];
+        }
+    }
+
+    /**
+     * Builds the index from a cursor over the location table with the columns in the
+     * order of COL_ID to COL_COORD_LONG.
+     */
+    static LocationIndex fromCursor(Cursor cursor) {
+        int count = cursor.getCount();
+        long[] ids = new long[count];
+        String[] settings = new String[count];
+        String[] cities = new String[count];
+        double[] lats = new double[count];
+        double[] lons = new double[count];
+        for (int i = 0; cursor.moveToPosition(i); i++) {
+            ids[i] = cursor.getLong(COL_ID);
+            settings[i] = cursor.getString(COL_LOCATION_SETTING);
+            cities[i] = cursor.getString(COL_CITY_NAME);
+            lats[i] = cursor.getDouble(COL_COORD_LAT);
+            lons[i] = cursor.getDouble(COL_COORD_LONG);
+        }
+        return new LocationIndex(ids, settings, cities, lats, lons);
+    }
+
+    int size() {
+        return mSize;
+    }
+
+    /**
+     * @return the indices of the (at most) k locations closest to the given point,
+     * closest first.
+     */
+    int[] nearest(double lat, double lon, int k) {
+        k = Math.min(k, mSize);
+        if (k <= 0) {
+            return new int[0];
+        }
+        double latRad = Math.toRadians(lat);
+        double lonRad = Math.toRadians(lon);
+        double[] query = {
+                Math.cos(latRad) * Math.cos(lonRad),
+                Math.cos(latRad) * Math.sin(lonRad),
+                Math.sin(latRad)
+        };
+
+        Neighbours neighbours = new Neighbours(k);
+        searchTree(query, 0, mSize, 0, neighbours);
+        return neighbours.sorted();
+    }
+
+    /**
+     * @return the indices of the locations inside the box, ordered by latitude.  A box with
+     * minLon greater than maxLon crosses the antimeridian.
+     */
+    int[] withinBox(double minLat, double minLon, double maxLat, double maxLon) {
+        int from = lowerBound(mSortedLats, minLat);
+        int[] matches = new int[16];
+        int count = 0;
+        for (int i = from; i < mSize && mSortedLats[i] <= maxLat; i++) {
+            int location = mByLat[i];
+            double lon = lons[location];
+            boolean inside = minLon <= maxLon
+                    ? lon >= minLon && lon <= maxLon
+                    : lon >= minLon || lon <= maxLon;
+            if (inside) {
+                if (count == matches.length) {
+                    int[] grown = new int[count * 2];
+                    System.arraycopy(matches, 0, grown, 0, count);
+                    matches = grown;
+                }
+                matches[count++] = location;
+            }
+        }
+        int[] result = new int[count];
+        System.arraycopy(matches, 0, result, 0, count);
+        return result;
+    }
+
+    /**
+     * @return the great-circle distance from the given point to the location, in kilometres.
+     */
+    double distanceKm(int location, double lat, double lon) {
+        return haversineKm(lat, lon, lats[location], lons[location]);
+    }
+
+    static double haversineKm(double lat1, double lon1, double lat2, double lon2) {
+        double dLat = Math.toRadians(lat2 - lat1);
+        double dLon = Math.toRadians(lon2 - lon1);
+        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2) +
+                Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2)) *
+                        Math.sin(dLon / 2) * Math.sin(dLon / 2);
+        return 2 * EARTH_RADIUS_KM * Math.asin(Math.min(1, Math.sqrt(a)));
+    }
+
+    private void buildTree(int lo, int hi, int depth) {
+        if (hi - lo <= 1) {
+            return;
+        }
+        int mid = (lo + hi) >>> 1;
+        select(mTree, mPoints[depth % 3], lo, hi - 1, mid);
+        buildTree(lo, mid, depth + 1);
+        buildTree(mid + 1, hi, depth + 1);
+    }
+
+    private void searchTree(double[] query, int lo, int hi, int depth, Neighbours neighbours) {
+        if (lo >= hi) {
+            return;
+        }
+        int mid = (lo + hi) >>> 1;
+        int location = mTree[mid];
+
+        double dx = query[0] - mPoints[0][location];
+        double dy = query[1] - mPoints[1][location];
+        double dz = query[2] - mPoints[2][location];
+        neighbours.offer(location, dx * dx + dy * dy + dz * dz);
+
+        int axis = depth % 3;
+        double split = query[axis] - mPoints[axis][location];
+        if (split < 0) {
+            searchTree(query, lo, mid, depth + 1, neighbours);
+            if (split * split < neighbours.worst()) {
+                searchTree(query, mid + 1, hi, depth + 1, neighbours);
+            }
+        } else {
+            searchTree(query, mid + 1, hi, depth + 1, neighbours);
+            if (split * split < neighbours.worst()) {
+                searchTree(query, lo, mid, depth + 1, neighbours);
+            }
+        }
+    }
+
+    private static int[] identity(int size) {
+        int[] indices = new int[size];
+        for (int i = 0; i < size; i++) {
+            indices[i] = i;
+        }
+        return indices;
+    }
+
+    // Quickselect: rearranges indices[lo..hi] so the nth one has its sorted key
+    private static void select(int[] indices, double[] key, int lo, int hi, int nth) {
+        while (hi > lo) {
+            int p = partition(indices, key, lo, hi);
+            if (p == nth) {
+                return;
+            } else if (nth < p) {
+                hi = p - 1;
+            } else {
+                lo = p + 1;
+            }
+        }
+    }
+
+    private static void sortByKey(int[] indices, double[] key, int lo, int hi) {
+        while (hi > lo) {
+            int p = partition(indices, key, lo, hi);
+            // Recurse into the smaller half to bound the stack depth
+            if (p - lo < hi - p) {
+                sortByKey(indices, key, lo, p - 1);
+                lo = p + 1;
+            } else {
+                sortByKey(indices, key, p + 1, hi);
+                hi = p - 1;
+            }
+        }
+    }
+
+    private static int partition(int[] indices, double[] key, int lo, int hi) {
+        int pivotIndex = (lo + hi) >>> 1;
+        double pivot = key[indices[pivotIndex]];
+        swap(indices, pivotIndex, hi);
+        int store = lo;
+        for (int i = lo; i < hi; i++) {
+            if (key[indices[i]] < pivot) {
+                swap(indices, i, store++);
+            }
+        }
+        swap(indices, store, hi);
+        return store;
+    }
+
+    private static void swap(int[] indices, int i, int j) {
+        int tmp = indices[i];
+        indices[i] = indices[j];
+        indices[j] = tmp;
+    }
+
+    private static int lowerBound(double[] sorted, double value) {
+        int lo = 0;
+        int hi = sorted.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (sorted[mid] < value) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    /**
+     * The k best candidates seen so far, as a binary max-heap on squared chord distance.
+     */
+    private static class Neighbours {
+        private final int[] mLocations;
+        private final double[] mDistances;
+        private int mCount;
+
+        Neighbours(int k) {
+            mLocations = new int[k];
+            mDistances = new double[k];
+        }
+
+        double worst() {
+            return mCount < mDistances.length ? Double.POSITIVE_INFINITY : mDistances[0];
+        }
+
+        void offer(int location, double distance) {
+            if (mCount < mDistances.length) {
+                int i = mCount++;
+                mLocations[i] = location;
+                mDistances[i] = distance;
+                siftUp(i);
+            } else if (distance < mDistances[0]) {
+                mLocations[0] = location;
+                mDistances[0] = distance;
+                siftDown(0, mCount);
+            }
+        }
+
+        // Empties the heap, returning the locations closest first
+        int[] sorted() {
+            int[] result = new int[mCount];
+            for (int n = mCount; n > 0; n--) {
+                result[n - 1] = mLocations[0];
+                swap(0, n - 1);
+                siftDown(0, n - 1);
+            }
+            mCount = 0;
+            return result;
+        }
+
+        private void siftUp(int i) {
+            while (i > 0) {
+                int parent = (i - 1) / 2;
+                if (mDistances[parent] >= mDistances[i]) {
+                    return;
+                }
+                swap(parent, i);
+                i = parent;
+            }
+        }
+
+        private void siftDown(int i, int size) {
+            while (true) {
+                int largest = i;
+                int left = 2 * i + 1;
+                int right = left + 1;
+                if (left < size && mDistances[left] > mDistances[largest]) {
+                    largest = left;
+                }
+                if (right < size && mDistances[right] > mDistances[largest]) {
+                    largest = right;
+                }
+                if (largest == i) {
+                    return;
+                }
+                swap(i, largest);
+                i = largest;
+            }
+        }
+
+        private void swap(int i, int j) {
+            int location = mLocations[i];
+            mLocations[i] = mLocations[j];
+            mLocations[j] = location;
+            double distance = mDistances[i];
+            mDistances[i] = mDistances[j];
+            mDistances[j] = distance;
+        }
+    }
+}
@@ -0,0 +1,312 @@
+package com.example.android.sunshine.app.data;
+
+import android.database.AbstractWindowedCursor;
+import android.database.Cursor;
+import android.database.CursorWindow;
+import android.database.CursorWrapper;
+import android.database.MatrixCursor;
+
+import com.example.android.sunshine.app.data.WeatherContract.DiagnosticsEntry;
+import com.example.android.sunshine.core.Percentiles;
+
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * What the provider spent its time on, per operation and URI match: calls, rows returned or
+ * affected, time and how often query cursors had to fill a new window.  Recording only
+ * increments atomic counters, so binder threads never wait on each other for it.
+ *
+ * Latencies go into log2 buckets of microseconds, so the p99 reported is the upper bound of
+ * the bucket it falls in, never less than the real one and at most twice it.
+ */
+class ProviderStats {
+
+    static final int QUERY = 0;
+    static final int INSERT = 1;
+    static final int BULK_INSERT = 2;
+    static final int UPDATE = 3;
+    static final int DELETE = 4;
+    private static final String[] OPERATION_NAMES = {
+            "query", "insert", "bulkInsert", "update", "delete"
+    };
+
+    // Bucket 0 is under 1us, bucket i is [2^(i-1), 2^i) us and the last one is everything
+    // from 2^30 us, about 18 minutes
+    static final int BUCKETS = 32;
+
+    static final class Entry {
+        final String operation;
+        final String uri;
+        final AtomicLong calls = new AtomicLong();
+        final AtomicLong rows = new AtomicLong();
+        final AtomicLong totalNanos = new AtomicLong();
+        final AtomicLong maxNanos = new AtomicLong();
+        final AtomicLong windowFills = new AtomicLong();
+        final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+
+        Entry(String operation, String uri) {
+            this.operation = operation;
+            this.uri = uri;
+        }
+
+        void record(long rowCount, long nanos) {
+            calls.incrementAndGet();
+            rows.addAndGet(rowCount);
+            totalNanos.addAndGet(nanos);
+            buckets.incrementAndGet(bucketOf(nanos / 1000));
+            long max;
+            while (nanos > (max = maxNanos.get()) && !maxNanos.compareAndSet(max, nanos)) {
+                // Lost to a concurrent record, try again against the new maximum
+            }
+        }
+
+        /**
+         * @param percentile between 0 and 100
+         * @return the upper bound in microseconds of the bucket the percentile falls in.
+         */
+        long percentileMicros(double percentile) {
+            long count = 0;
+            long[] counts = new long[BUCKETS];
+            for (int i = 0; i < BUCKETS; i++) {
+                counts[i] = buckets.get(i);
+                count += counts[i];
+            }
+            if (count == 0) {
+                return 0;
+            }
+            long rank = Percentiles.rank(percentile, count);
+            long seen = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                seen += counts[i];
+                if (seen >= rank) {
+                    return upperBoundMicros(i);
+                }
+            }
+            return upperBoundMicros(BUCKETS - 1);
+        }
+
+        void reset() {
+            calls.set(0);
+            rows.set(0);
+            totalNanos.set(0);
+            maxNanos.set(0);
+            windowFills.set(0);
+            for (int i = 0; i < BUCKETS; i++) {
+                buckets.set(i, 0);
+            }
+        }
+    }
+
+    private final int[] mMatches;
+    // Indexed [operation][position of the match in mMatches]
+    private final Entry[][] mEntries;
+
+    /**
+     * @param matches the URI match codes to keep statistics for, each labelled with
+     *                {@link WeatherProvider#getMatchName(int)}.  Anything else is counted as
+     *                the first of them.
+     */
+    ProviderStats(int[] matches) {
+        mMatches = matches;
+        mEntries = new Entry[OPERATION_NAMES.length][matches.length];
+        for (int op = 0; op < OPERATION_NAMES.length; op++) {
+            for (int i = 0; i < matches.length; i++) {
+                mEntries[op][i] = new Entry(OPERATION_NAMES[op],
+                        WeatherProvider.getMatchName(matches[i]));
+            }
+        }
+    }
+
+    static int bucketOf(long micros) {
+        if (micros <= 0) {
+            return 0;
+        }
+        return Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(micros));
+    }
+
+    static long upperBoundMicros(int bucket) {
+        return 1L << bucket;
+    }
+
+    Entry get(int operation, int match) {
+        Entry[] entries = mEntries[operation];
+        for (int i = 0; i < mMatches.length; i++) {
+            if (mMatches[i] == match) {
+                return entries[i];
+            }
+        }
+        return entries[0];
+    }
+
+    void record(int operation, int match, long rows, long nanos) {
+        get(operation, match).record(rows, nanos);
+    }
+
+    /**
+     * Counts the window fills of a query's cursor: the one its first getCount() did, and each
+     * one after as the caller moves past the rows in the window.  Cursors that aren't backed by
+     * a window, like the in-memory ones, are returned as they are.
+     */
+    Cursor trackWindowFills(int match, Cursor cursor) {
+        if (!(cursor instanceof AbstractWindowedCursor)) {
+            return cursor;
+        }
+        Entry entry = get(QUERY, match);
+        AbstractWindowedCursor windowed = (AbstractWindowedCursor) cursor;
+        if (windowed.hasWindow()) {
+            entry.windowFills.incrementAndGet();
+        }
+        return new WindowFillCursor(windowed, entry);
+    }
+
+    /**
+     * @return the entries that were called since the last reset, the one with the most time
+     * in total first.
+     */
+    List<Entry> entries() {
+        List<Entry> entries = new ArrayList<Entry>();
+        for (Entry[] operation : mEntries) {
+            for (Entry entry : operation) {
+                if (entry.calls.get() > 0) {
+                    entries.add(entry);
+                }
+            }
+        }
+        Collections.sort(entries, new Comparator<Entry>() {
+            @Override
+            public int compare(Entry lhs, Entry rhs) {
+                long l = lhs.totalNanos.get();
+                long r = rhs.totalNanos.get();
+                return l < r ? 1 : l > r ? -1 : 0;
+            }
+        });
+        return entries;
+    }
+
+    /**
+     * Clears every counter.  A call recorded while this runs may be partly kept.
+     *
+     * @return the number of entries that had been called.
+     */
+    int reset() {
+        int cleared = 0;
+        for (Entry[] operation : mEntries) {
+            for (Entry entry : operation) {
+                if (entry.calls.get() > 0) {
+                    cleared++;
+                }
+                entry.reset();
+            }
+        }
+        return cleared;
+    }
+
+    Cursor toCursor() {
+        MatrixCursor cursor = new MatrixCursor(DiagnosticsEntry.COLUMNS);
+        for (Entry entry : entries()) {
+            long calls = entry.calls.get();
+            long totalNanos = entry.totalNanos.get();
+            cursor.addRow(new Object[] {
+                    entry.operation,
+                    entry.uri,
+                    calls,
+                    entry.rows.get(),
+                    totalNanos / 1e6,
+                    calls > 0 ? totalNanos / 1e6 / calls : 0.0,
+                    entry.percentileMicros(99) / 1e3,
+                    entry.maxNanos.get() / 1e6,
+                    entry.windowFills.get()
+            });
+        }
+        return cursor;
+    }
+
+    void dump(PrintWriter writer) {
+        writer.println(String.format(Locale.US, "%-10s %-31s %8s %9s %10s %8s %8s %8s %7s",
+                "Operation", "Uri", "Calls", "Rows", "Total ms", "Mean ms", "p99 ms", "Max ms",
+                "Windows"));
+        for (Entry entry : entries()) {
+            long calls = entry.calls.get();
+            double totalMs = entry.totalNanos.get() / 1e6;
+            writer.println(String.format(Locale.US,
+                    "%-10s %-31s %8d %9d %10.2f %8.3f %8.3f %8.3f %7d",
+                    entry.operation, entry.uri, calls, entry.rows.get(), totalMs,
+                    totalMs / calls, entry.percentileMicros(99) / 1e3,
+                    entry.maxNanos.get() / 1e6, entry.windowFills.get()));
+        }
+    }
+
+    /**
+     * Notices the wrapped cursor moving its window, which it does each time the caller moves
+     * outside the rows it holds.
+     */
+    private static class WindowFillCursor extends CursorWrapper {
+        private final AbstractWindowedCursor mCursor;
+        private final Entry mEntry;
+        private CursorWindow mWindow;
+        private int mStart;
+        private int mRows;
+
+        WindowFillCursor(AbstractWindowedCursor cursor, Entry entry) {
+            super(cursor);
+            mCursor = cursor;
+            mEntry = entry;
+            remember();
+        }
+
+        private void remember() {
+            mWindow = mCursor.getWindow();
+            if (mWindow != null) {
+                mStart = mWindow.getStartPosition();
+                mRows = mWindow.getNumRows();
+            }
+        }
+
+        private boolean check(boolean moved) {
+            CursorWindow window = mCursor.getWindow();
+            if (window != null && (window != mWindow || window.getStartPosition() != mStart
+                    || window.getNumRows() != mRows)) {
+                mEntry.windowFills.incrementAndGet();
+                remember();
+            }
+            return moved;
+        }
+
+        @Override
+        public boolean move(int offset) {
+            return check(super.move(offset));
+        }
+
+        @Override
+        public boolean moveToPosition(int position) {
+            return check(super.moveToPosition(position));
+        }
+
+        @Override
+        public boolean moveToFirst() {
+            return check(super.moveToFirst());
+        }
+
+        @Override
+        public boolean moveToLast() {
+            return check(super.moveToLast());
+        }
+
+        @Override
+        public boolean moveToNext() {
+            return check(super.moveToNext());
+        }
+
+        @Override
+        public boolean moveToPrevious() {
+            return check(super.moveToPrevious());
+        }
+    }
+}
@@ -28,6 +28,8 @@ public class WeatherContract {
     // At least, let's hope not.  Don't be that dev, reader.  Don't be that dev.
     public static final String PATH_WEATHER = "weather";
     public static final String PATH_LOCATION = "location";
+    public static final String PATH_SNAPSHOT = "snapshot";
+    public static final String PATH_DIAGNOSTICS = "diagnostics";
 
     // To make it easy to query for the exact date, we normalize all dates that go into
     // the database to the start of the the Julian day at UTC.
@@ -68,6 +70,144 @@ public class WeatherContract {
 
         public static final String COLUMN_COORD_LONG = "coord_long";
 
+        // Full-text index over the city name and location setting, kept in sync with the
+        // location table by triggers.  Its docid is the location _id.
+        public static final String SEARCH_TABLE_NAME = "location_search";
+
+        public static final String PATH_SEARCH = "search";
+
+        // Query parameter limiting the number of search results
+        public static final String PARAM_LIMIT = "limit";
+
+        public static Uri buildLocationSearchUri(String prefix) {
+            return CONTENT_URI.buildUpon().appendPath(PATH_SEARCH).appendPath(prefix).build();
+        }
+
+        public static String getSearchPrefixFromUri(Uri uri) {
+            return uri.getLastPathSegment();
+        }
+
+        public static final String PATH_NEAR = "near";
+        public static final String PATH_BBOX = "bbox";
+
+        // Query parameters of the proximity uris
+        public static final String PARAM_LAT = "lat";
+        public static final String PARAM_LON = "lon";
+        public static final String PARAM_K = "k";
+        public static final String PARAM_MIN_LAT = "minLat";
+        public static final String PARAM_MIN_LON = "minLon";
+        public static final String PARAM_MAX_LAT = "maxLat";
+        public static final String PARAM_MAX_LON = "maxLon";
+
+        // Great-circle distance in kilometres from the queried point, only in proximity results
+        public static final String COLUMN_DISTANCE = "distance";
+
+        /**
+         * @return uri of the k stored locations closest to the given point, closest first.
+         */
+        public static Uri buildLocationNearUri(double lat, double lon, int k) {
+            return CONTENT_URI.buildUpon().appendPath(PATH_NEAR)
+                    .appendQueryParameter(PARAM_LAT, Double.toString(lat))
+                    .appendQueryParameter(PARAM_LON, Double.toString(lon))
+                    .appendQueryParameter(PARAM_K, Integer.toString(k))
+                    .build();
+        }
+
+        /**
+         * @return uri of the stored locations inside the box.  A box with minLon greater than
+         * maxLon crosses the antimeridian.
+         */
+        public static Uri buildLocationBoundingBoxUri(double minLat, double minLon,
+                                                      double maxLat, double maxLon) {
+            return CONTENT_URI.buildUpon().appendPath(PATH_BBOX)
+                    .appendQueryParameter(PARAM_MIN_LAT, Double.toString(minLat))
+                    .appendQueryParameter(PARAM_MIN_LON, Double.toString(minLon))
+                    .appendQueryParameter(PARAM_MAX_LAT, Double.toString(maxLat))
+                    .appendQueryParameter(PARAM_MAX_LON, Double.toString(maxLon))
+                    .build();
+        }
+
+        public static double getCoordinateFromUri(Uri uri, String param) {
+            String value = uri.getQueryParameter(param);
+            if (value == null) {
+                throw new IllegalArgumentException("Missing " + param + " in " + uri);
+            }
+            try {
+                return Double.parseDouble(value);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid " + param + " in " + uri);
+            }
+        }
+
+        public static int getCountFromUri(Uri uri) {
+            String k = uri.getQueryParameter(PARAM_K);
+            try {
+                return k != null ? Integer.parseInt(k) : 1;
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid " + PARAM_K + " in " + uri);
+            }
+        }
+    }
+
+    /*
+        Inner class that defines the binary snapshot of both tables.  Read it with
+        ContentResolver.openInputStream to export the database, write one with
+        ContentResolver.openOutputStream to replace the database contents.
+     */
+    public static final class SnapshotEntry {
+
+        public static final Uri CONTENT_URI =
+                BASE_CONTENT_URI.buildUpon().appendPath(PATH_SNAPSHOT).build();
+
+        public static final String CONTENT_TYPE =
+                "application/vnd." + CONTENT_AUTHORITY + "." + PATH_SNAPSHOT;
+
+        // Query parameter asking the export to deflate the snapshot
+        public static final String PARAM_COMPRESSED = "compressed";
+
+        public static Uri buildSnapshotUri(boolean compressed) {
+            return CONTENT_URI.buildUpon()
+                    .appendQueryParameter(PARAM_COMPRESSED, Boolean.toString(compressed)).build();
+        }
+
+        public static boolean isCompressedFromUri(Uri uri) {
+            return Boolean.parseBoolean(uri.getQueryParameter(PARAM_COMPRESSED));
+        }
+    }
+
+    /*
+        Inner class that defines the provider's own statistics: one row per operation and URI
+        it was called with, the one with the most time in total first.  Deleting the URI
+        clears them.  The same table is printed by
+        adb shell dumpsys activity provider com.example.android.sunshine.app
+     */
+    public static final class DiagnosticsEntry {
+
+        public static final Uri CONTENT_URI =
+                BASE_CONTENT_URI.buildUpon().appendPath(PATH_DIAGNOSTICS).build();
+
+        public static final String CONTENT_TYPE = ContentResolver.CURSOR_DIR_BASE_TYPE + "/" +
+                CONTENT_AUTHORITY + "/" + PATH_DIAGNOSTICS;
+
+        // query, insert, bulkInsert, update or delete
+        public static final String COLUMN_OPERATION = "operation";
+        // The URI match, e.g. WEATHER_WITH_LOCATION
+        public static final String COLUMN_URI = "uri";
+        public static final String COLUMN_CALLS = "calls";
+        // Rows returned by queries, or inserted, updated or deleted
+        public static final String COLUMN_ROWS = "rows";
+        // Times in milliseconds, stored as doubles
+        public static final String COLUMN_TOTAL_MS = "total_ms";
+        public static final String COLUMN_MEAN_MS = "mean_ms";
+        public static final String COLUMN_P99_MS = "p99_ms";
+        public static final String COLUMN_MAX_MS = "max_ms";
+        // How often query cursors loaded a window of rows
+        public static final String COLUMN_WINDOW_FILLS = "window_fills";
+
+        public static final String[] COLUMNS = {
+                COLUMN_OPERATION, COLUMN_URI, COLUMN_CALLS, COLUMN_ROWS, COLUMN_TOTAL_MS,
+                COLUMN_MEAN_MS, COLUMN_P99_MS, COLUMN_MAX_MS, COLUMN_WINDOW_FILLS
+        };
     }
 
     /* Inner class that defines the table contents of the weather table */
@@ -1,24 +1,186 @@
 package com.example.android.sunshine.app.data;
 
+import android.annotation.TargetApi;
 import android.content.Context;
+import android.os.Build;
+import android.database.Cursor;
 import android.database.sqlite.SQLiteDatabase;
 import android.database.sqlite.SQLiteOpenHelper;
+import android.os.Process;
 
+import com.example.android.sunshine.app.StartupTimeline;
 import com.example.android.sunshine.app.data.WeatherContract.LocationEntry;
 import com.example.android.sunshine.app.data.WeatherContract.WeatherEntry;
 
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
 /**
- * Manages a local database for weather data.
+ * Manages a local database for weather data.  Where it lives and how hard SQLite works to
+ * keep it is the helper's {@link Mode}, by default weather.db in the app's databases
+ * directory.
  */
 public class WeatherDbHelper extends SQLiteOpenHelper {
 
     // If you change the database schema, you must increment the database version.
-    private static final int DATABASE_VERSION = 2;
+    private static final int DATABASE_VERSION = 3;
+
+    public static final String DATABASE_NAME = "weather.db";
+
+    // Temporary databases are named weather-temp-<pid>-<count>.db
+    static final String TEMP_DATABASE_PREFIX = "weather-temp-";
+    private static final AtomicInteger sTempCount = new AtomicInteger();
+
+    /**
+     * Where the database is stored and the synchronous and journal_mode pragmas it's opened
+     * with.  A null pragma keeps the platform's setting, which for the journal is write-ahead
+     * logging on Jelly Bean and later.
+     */
+    public static final class Mode {
+
+        public static final int STORAGE_DISK = 0;
+        public static final int STORAGE_TEMP_FILE = 1;
+        public static final int STORAGE_MEMORY = 2;
+
+        private static final String[] STORAGE_NAMES = {"disk", "temp_file", "memory"};
+        private static final List<String> SYNCHRONOUS_VALUES =
+                Arrays.asList("OFF", "NORMAL", "FULL");
+        private static final List<String> JOURNAL_MODES =
+                Arrays.asList("DELETE", "TRUNCATE", "PERSIST", "MEMORY", "WAL", "OFF");
+
+        /**
+         * weather.db, as durable as the platform makes it.
+         */
+        public static final Mode DISK = new Mode(STORAGE_DISK, null, null);
+
+        /**
+         * weather.db without waiting for each commit to reach the disk.  A power loss can
+         * take the last syncs with it or corrupt the file, which is then deleted and synced
+         * again.  For devices where the forecast is only ever a cache, see the
+         * volatile_weather_cache config.
+         */
+        public static final Mode VOLATILE = new Mode(STORAGE_DISK, "OFF", null);
+
+        /**
+         * A file of its own, deleted when the helper is closed, otherwise like {@link #DISK}.
+         * For benchmarks that should measure the real thing without touching weather.db.
+         */
+        public static final Mode TEMP_FILE = new Mode(STORAGE_TEMP_FILE, null, null);
+
+        /**
+         * Memory only, gone when the helper is closed.  For tests.
+         */
+        public static final Mode MEMORY = new Mode(STORAGE_MEMORY, "OFF", null);
+
+        public final int storage;
+        public final String synchronous;
+        public final String journalMode;
 
-    static final String DATABASE_NAME = "weather.db";
+        /**
+         * @param synchronous OFF, NORMAL or FULL, null for the platform's setting.
+         * @param journalMode one of SQLite's journal modes, null for the platform's setting.
+         */
+        public Mode(int storage, String synchronous, String journalMode) {
+            if (storage < STORAGE_DISK || storage > STORAGE_MEMORY) {
+                throw new IllegalArgumentException("Unknown storage: " + storage);
+            }
+            if (synchronous != null && !SYNCHRONOUS_VALUES.contains(synchronous)) {
+                throw new IllegalArgumentException("Unknown synchronous setting: " + synchronous);
+            }
+            if (journalMode != null && !JOURNAL_MODES.contains(journalMode)) {
+                throw new IllegalArgumentException("Unknown journal mode: " + journalMode);
+            }
+            this.storage = storage;
+            this.synchronous = synchronous;
+            this.journalMode = journalMode;
+        }
+
+        // Memory databases have their own journal and no room for a write-ahead log
+        boolean usesWriteAheadLog() {
+            return storage != STORAGE_MEMORY && (journalMode == null || "WAL".equals(journalMode));
+        }
+
+        // e.g. "disk" or "temp_file synchronous=OFF", for logs and benchmark results
+        @Override
+        public String toString() {
+            StringBuilder builder = new StringBuilder(STORAGE_NAMES[storage]);
+            if (synchronous != null) {
+                builder.append(" synchronous=").append(synchronous);
+            }
+            if (journalMode != null) {
+                builder.append(" journal_mode=").append(journalMode);
+            }
+            return builder.toString();
+        }
+    }
+
+    private static volatile Mode sDefaultMode = Mode.DISK;
+
+    private final Context mContext;
+    private final Mode mMode;
+    private final String mName;
+
+    /**
+     * Sets the mode of the helpers created from now on with {@link #WeatherDbHelper(Context)},
+     * the provider's among them.  Tests set it before their provider is created.
+     */
+    public static void setDefaultMode(Mode mode) {
+        sDefaultMode = mode;
+    }
+
+    public static Mode getDefaultMode() {
+        return sDefaultMode;
+    }
 
     public WeatherDbHelper(Context context) {
-        super(context, DATABASE_NAME, null, DATABASE_VERSION);
+        this(context, sDefaultMode);
+    }
+
+    public WeatherDbHelper(Context context, Mode mode) {
+        this(context, mode, databaseName(mode));
+    }
+
+    private WeatherDbHelper(Context context, Mode mode, String name) {
+        super(context, name, null, DATABASE_VERSION);
+        mContext = context;
+        mMode = mode;
+        mName = name;
+        if (mode.usesWriteAheadLog()
+                && Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN) {
+            enableWriteAheadLogging();
+        }
+    }
+
+    private static String databaseName(Mode mode) {
+        switch (mode.storage) {
+            case Mode.STORAGE_TEMP_FILE:
+                return TEMP_DATABASE_PREFIX + Process.myPid() + "-" + sTempCount.incrementAndGet()
+                        + ".db";
+            case Mode.STORAGE_MEMORY:
+                // SQLiteOpenHelper's in-memory database
+                return null;
+            default:
+                return DATABASE_NAME;
+        }
+    }
+
+    public Mode getMode() {
+        return mMode;
+    }
+
+    /**
+     * @return the database's file name, null for a memory database.
+     */
+    public String getName() {
+        return mName;
+    }
+
+    // With write-ahead logging the loaders can read while the sync adapter is writing,
+    // instead of waiting for its transaction to commit.
+    @TargetApi(Build.VERSION_CODES.JELLY_BEAN)
+    private void enableWriteAheadLogging() {
+        setWriteAheadLoggingEnabled(true);
     }
 
     @Override
@@ -65,6 +227,72 @@ public class WeatherDbHelper extends SQLiteOpenHelper {
 
         sqLiteDatabase.execSQL(SQL_CREATE_LOCATION_TABLE);
         sqLiteDatabase.execSQL(SQL_CREATE_WEATHER_TABLE);
+        createLocationSearch(sqLiteDatabase);
+    }
+
+    /**
+     * Creates the full-text index used for location prefix search, and the triggers that keep
+     * it in step with the location table.  FTS4 with prefix indexes needs the SQLite shipped
+     * with Jelly Bean; older releases fall back to FTS3, which answers the same prefix queries
+     * by scanning the term index.
+     */
+    private void createLocationSearch(SQLiteDatabase sqLiteDatabase) {
+        final String module;
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN) {
+            module = "fts4(" + LocationEntry.COLUMN_CITY_NAME + ", " +
+                    LocationEntry.COLUMN_LOCATION_SETTING + ", prefix=\"1,2,3\")";
+        } else {
+            module = "fts3(" + LocationEntry.COLUMN_CITY_NAME + ", " +
+                    LocationEntry.COLUMN_LOCATION_SETTING + ")";
+        }
+        sqLiteDatabase.execSQL("CREATE VIRTUAL TABLE " + LocationEntry.SEARCH_TABLE_NAME +
+                " USING " + module + ";");
+
+        final String insertSearchRow = "INSERT INTO " + LocationEntry.SEARCH_TABLE_NAME + " (" +
+                "docid, " +
+                LocationEntry.COLUMN_CITY_NAME + ", " +
+                LocationEntry.COLUMN_LOCATION_SETTING + ") VALUES (" +
+                "new." + LocationEntry._ID + ", " +
+                "new." + LocationEntry.COLUMN_CITY_NAME + ", " +
+                "new." + LocationEntry.COLUMN_LOCATION_SETTING + "); ";
+        final String deleteSearchRow = "DELETE FROM " + LocationEntry.SEARCH_TABLE_NAME +
+                " WHERE docid = old." + LocationEntry._ID + "; ";
+
+        sqLiteDatabase.execSQL("CREATE TRIGGER " + LocationEntry.SEARCH_TABLE_NAME + "_insert" +
+                " AFTER INSERT ON " + LocationEntry.TABLE_NAME +
+                " BEGIN " + insertSearchRow + "END;");
+        sqLiteDatabase.execSQL("CREATE TRIGGER " + LocationEntry.SEARCH_TABLE_NAME + "_update" +
+                " AFTER UPDATE ON " + LocationEntry.TABLE_NAME +
+                " BEGIN " + deleteSearchRow + insertSearchRow + "END;");
+        sqLiteDatabase.execSQL("CREATE TRIGGER " + LocationEntry.SEARCH_TABLE_NAME + "_delete" +
+                " AFTER DELETE ON " + LocationEntry.TABLE_NAME +
+                " BEGIN " + deleteSearchRow + "END;");
+    }
+
+    @Override
+    public void onOpen(SQLiteDatabase db) {
+        super.onOpen(db);
+        if (mMode.synchronous != null) {
+            db.execSQL("PRAGMA synchronous = " + mMode.synchronous);
+        }
+        if (mMode.journalMode != null && !mMode.usesWriteAheadLog()) {
+            // Answers with the mode it switched to, so it can't go through execSQL
+            Cursor cursor = db.rawQuery("PRAGMA journal_mode = " + mMode.journalMode, null);
+            try {
+                cursor.moveToFirst();
+            } finally {
+                cursor.close();
+            }
+        }
+        StartupTimeline.mark(StartupTimeline.DATABASE_OPEN);
+    }
+
+    @Override
+    public synchronized void close() {
+        super.close();
+        if (mMode.storage == Mode.STORAGE_TEMP_FILE) {
+            mContext.deleteDatabase(mName);
+        }
     }
 
     @Override
@@ -75,6 +303,7 @@ public class WeatherDbHelper extends SQLiteOpenHelper {
         // It does NOT depend on the version number for your application.
         // If you want to update the schema without wiping data, commenting out the next 2 lines
         // should be your top priority before modifying this method.
+        sqLiteDatabase.execSQL("DROP TABLE IF EXISTS " + LocationEntry.SEARCH_TABLE_NAME);
         sqLiteDatabase.execSQL("DROP TABLE IF EXISTS " + LocationEntry.TABLE_NAME);
         sqLiteDatabase.execSQL("DROP TABLE IF EXISTS " + WeatherEntry.TABLE_NAME);
         onCreate(sqLiteDatabase);
@@ -1,24 +1,60 @@
 package com.example.android.sunshine.app.data;
 
 import android.annotation.TargetApi;
+import android.app.SearchManager;
 import android.content.ContentProvider;
 import android.content.ContentValues;
 import android.content.UriMatcher;
+import android.database.AbstractWindowedCursor;
 import android.database.Cursor;
+import android.database.MatrixCursor;
 import android.database.sqlite.SQLiteDatabase;
 import android.database.sqlite.SQLiteQueryBuilder;
+import android.database.sqlite.SQLiteStatement;
 import android.net.Uri;
+import android.os.Build;
+import android.os.ParcelFileDescriptor;
+import android.util.Log;
+
+import com.example.android.sunshine.app.R;
+import com.example.android.sunshine.app.Tracing;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.FileDescriptor;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintWriter;
 
 public class WeatherProvider extends ContentProvider {
 
+    private static final String LOG_TAG = WeatherProvider.class.getSimpleName();
+
     // The URI Matcher used by this content provider.
     private static final UriMatcher sUriMatcher = buildUriMatcher();
     private WeatherDbHelper mOpenHelper;
+    // Built on the first proximity query, dropped whenever the location table changes
+    private volatile LocationIndex mLocationIndex;
+    private ProviderStats mStats;
 
     static final int WEATHER = 100;
     static final int WEATHER_WITH_LOCATION = 101;
     static final int WEATHER_WITH_LOCATION_AND_DATE = 102;
     static final int LOCATION = 300;
+    static final int LOCATION_SEARCH = 301;
+    static final int SEARCH_SUGGEST = 302;
+    static final int LOCATION_NEAR = 303;
+    static final int LOCATION_BBOX = 304;
+    static final int SNAPSHOT = 400;
+    static final int DIAGNOSTICS = 500;
+
+    // What the statistics are kept for, anything else is counted as an unknown URI
+    private static final int[] sStatsMatches = {
+            UriMatcher.NO_MATCH, WEATHER, WEATHER_WITH_LOCATION, WEATHER_WITH_LOCATION_AND_DATE,
+            LOCATION, LOCATION_SEARCH, SEARCH_SUGGEST, LOCATION_NEAR, LOCATION_BBOX
+    };
 
     private static final SQLiteQueryBuilder sWeatherByLocationSettingQueryBuilder;
 
@@ -53,6 +89,32 @@ public class WeatherProvider extends ContentProvider {
                     "." + WeatherContract.LocationEntry.COLUMN_LOCATION_SETTING + " = ? AND " +
                     WeatherContract.WeatherEntry.COLUMN_DATE + " = ? ";
 
+    //location._id IN (SELECT docid FROM location_search WHERE location_search MATCH ?)
+    private static final String sLocationSearchSelection =
+            WeatherContract.LocationEntry.TABLE_NAME +
+                    "." + WeatherContract.LocationEntry._ID + " IN (SELECT docid FROM " +
+                    WeatherContract.LocationEntry.SEARCH_TABLE_NAME + " WHERE " +
+                    WeatherContract.LocationEntry.SEARCH_TABLE_NAME + " MATCH ?)";
+
+    // Columns the search dialog expects from a suggestions provider
+    private static final String[] sSearchSuggestProjection = {
+            WeatherContract.LocationEntry._ID,
+            WeatherContract.LocationEntry.COLUMN_CITY_NAME +
+                    " AS " + SearchManager.SUGGEST_COLUMN_TEXT_1,
+            WeatherContract.LocationEntry.COLUMN_LOCATION_SETTING +
+                    " AS " + SearchManager.SUGGEST_COLUMN_TEXT_2,
+            WeatherContract.LocationEntry.COLUMN_LOCATION_SETTING +
+                    " AS " + SearchManager.SUGGEST_COLUMN_INTENT_EXTRA_DATA
+    };
+
+    private static final String[] sLocationColumns = {
+            WeatherContract.LocationEntry._ID,
+            WeatherContract.LocationEntry.COLUMN_LOCATION_SETTING,
+            WeatherContract.LocationEntry.COLUMN_CITY_NAME,
+            WeatherContract.LocationEntry.COLUMN_COORD_LAT,
+            WeatherContract.LocationEntry.COLUMN_COORD_LONG
+    };
+
     private Cursor getWeatherByLocationSetting(Uri uri, String[] projection, String sortOrder) {
         String locationSetting = WeatherContract.WeatherEntry.getLocationSettingFromUri(uri);
         long startDate = WeatherContract.WeatherEntry.getStartDateFromUri(uri);
@@ -78,6 +140,19 @@ public class WeatherProvider extends ContentProvider {
         );
     }
 
+    /**
+     * Opens the database and compiles the statement of the weather by location and start date
+     * query, so the first load finds it in the connection's statement cache.  Nothing is read,
+     * so no cursor window is filled and the loader doesn't wait for one.
+     */
+    @TargetApi(11)
+    public void warmUp(String[] projection, String sortOrder) {
+        String sql = sWeatherByLocationSettingQueryBuilder.buildQuery(projection,
+                sLocationSettingWithStartDateSelection, null, null, sortOrder, null);
+        SQLiteStatement statement = mOpenHelper.getReadableDatabase().compileStatement(sql);
+        statement.close();
+    }
+
     private Cursor getWeatherByLocationSettingAndDate(
             Uri uri, String[] projection, String sortOrder) {
         String locationSetting = WeatherContract.WeatherEntry.getLocationSettingFromUri(uri);
@@ -93,6 +168,153 @@ public class WeatherProvider extends ContentProvider {
         );
     }
 
+    private Cursor searchLocations(Uri uri, String prefix, String[] projection, String sortOrder) {
+        String match = buildPrefixMatch(prefix);
+        if (match == null) {
+            // Nothing searchable was typed (yet)
+            return new MatrixCursor(projection != null ? projection : sLocationColumns, 0);
+        }
+        if (sortOrder == null) {
+            sortOrder = WeatherContract.LocationEntry.COLUMN_CITY_NAME + " ASC";
+        }
+
+        return mOpenHelper.getReadableDatabase().query(
+                WeatherContract.LocationEntry.TABLE_NAME,
+                projection,
+                sLocationSearchSelection,
+                new String[]{match},
+                null,
+                null,
+                sortOrder,
+                getLimitFromUri(uri)
+        );
+    }
+
+    /**
+     * Turns what the user typed into an FTS query where every word is a prefix,
+     * e.g. "new yo" becomes "new* yo*".  Returns null if there is no word to search for.
+     */
+    static String buildPrefixMatch(String prefix) {
+        if (prefix == null) {
+            return null;
+        }
+        StringBuilder match = new StringBuilder();
+        // Dropping everything but letters and digits also keeps FTS operators out of the query
+        for (String token : prefix.split("[^\\p{L}\\p{N}]+")) {
+            if (token.length() > 0) {
+                if (match.length() > 0) {
+                    match.append(' ');
+                }
+                match.append(token).append('*');
+            }
+        }
+        return match.length() > 0 ? match.toString() : null;
+    }
+
+    private Cursor getLocationsNear(Uri uri, String[] projection) {
+        double lat = WeatherContract.LocationEntry.getCoordinateFromUri(
+                uri, WeatherContract.LocationEntry.PARAM_LAT);
+        double lon = WeatherContract.LocationEntry.getCoordinateFromUri(
+                uri, WeatherContract.LocationEntry.PARAM_LON);
+        int k = WeatherContract.LocationEntry.getCountFromUri(uri);
+
+        LocationIndex index = getLocationIndex();
+        return buildLocationCursor(index, index.nearest(lat, lon, k), projection, lat, lon);
+    }
+
+    private Cursor getLocationsInBoundingBox(Uri uri, String[] projection) {
+        double minLat = WeatherContract.LocationEntry.getCoordinateFromUri(
+                uri, WeatherContract.LocationEntry.PARAM_MIN_LAT);
+        double minLon = WeatherContract.LocationEntry.getCoordinateFromUri(
+                uri, WeatherContract.LocationEntry.PARAM_MIN_LON);
+        double maxLat = WeatherContract.LocationEntry.getCoordinateFromUri(
+                uri, WeatherContract.LocationEntry.PARAM_MAX_LAT);
+        double maxLon = WeatherContract.LocationEntry.getCoordinateFromUri(
+                uri, WeatherContract.LocationEntry.PARAM_MAX_LON);
+
+        LocationIndex index = getLocationIndex();
+        return buildLocationCursor(index, index.withinBox(minLat, minLon, maxLat, maxLon),
+                projection, Double.NaN, Double.NaN);
+    }
+
+    // The distance column is only available when there is a point to measure from
+    private static Cursor buildLocationCursor(LocationIndex index, int[] locations,
+                                              String[] projection, double lat, double lon) {
+        boolean hasDistance = !Double.isNaN(lat);
+        if (projection == null) {
+            projection = sLocationColumns;
+            if (hasDistance) {
+                projection = new String[sLocationColumns.length + 1];
+                System.arraycopy(sLocationColumns, 0, projection, 0, sLocationColumns.length);
+                projection[sLocationColumns.length] = WeatherContract.LocationEntry.COLUMN_DISTANCE;
+            }
+        }
+
+        MatrixCursor cursor = new MatrixCursor(projection, locations.length);
+        Object[] row = new Object[projection.length];
+        for (int location : locations) {
+            for (int i = 0; i < projection.length; i++) {
+                String column = projection[i];
+                if (WeatherContract.LocationEntry._ID.equals(column)) {
+                    row[i] = index.ids[location];
+                } else if (WeatherContract.LocationEntry.COLUMN_LOCATION_SETTING.equals(column)) {
+                    row[i] = index.locationSettings[location];
+                } else if (WeatherContract.LocationEntry.COLUMN_CITY_NAME.equals(column)) {
+                    row[i] = index.cityNames[location];
+                } else if (WeatherContract.LocationEntry.COLUMN_COORD_LAT.equals(column)) {
+                    row[i] = index.lats[location];
+                } else if (WeatherContract.LocationEntry.COLUMN_COORD_LONG.equals(column)) {
+                    row[i] = index.lons[location];
+                } else if (hasDistance &&
+                        WeatherContract.LocationEntry.COLUMN_DISTANCE.equals(column)) {
+                    row[i] = index.distanceKm(location, lat, lon);
+                } else {
+                    throw new IllegalArgumentException("Unknown column: " + column);
+                }
+            }
+            cursor.addRow(row);
+        }
+        return cursor;
+    }
+
+    private LocationIndex getLocationIndex() {
+        LocationIndex index = mLocationIndex;
+        if (index == null) {
+            synchronized (this) {
+                index = mLocationIndex;
+                if (index == null) {
+                    Cursor cursor = mOpenHelper.getReadableDatabase().query(
+                            WeatherContract.LocationEntry.TABLE_NAME,
+                            sLocationColumns, null, null, null, null, null);
+                    try {
+                        index = LocationIndex.fromCursor(cursor);
+                    } finally {
+                        cursor.close();
+                    }
+                    mLocationIndex = index;
+                }
+            }
+        }
+        return index;
+    }
+
+    // Synchronized with the build so an index read before a change can't be published after it
+    private synchronized void invalidateLocationIndex() {
+        mLocationIndex = null;
+    }
+
+    private static String getLimitFromUri(Uri uri) {
+        String limit = uri.getQueryParameter(WeatherContract.LocationEntry.PARAM_LIMIT);
+        if (limit == null) {
+            return null;
+        }
+        try {
+            return Integer.toString(Integer.parseInt(limit));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
     /*
         Students: Here is where you need to create the UriMatcher. This UriMatcher will
         match each URI to the WEATHER, WEATHER_WITH_LOCATION, WEATHER_WITH_LOCATION_AND_DATE,
@@ -113,18 +335,68 @@ public class WeatherProvider extends ContentProvider {
         matcher.addURI(authority, WeatherContract.PATH_WEATHER + "/*/#", WEATHER_WITH_LOCATION_AND_DATE);
 
         matcher.addURI(authority, WeatherContract.PATH_LOCATION, LOCATION);
+        matcher.addURI(authority, WeatherContract.PATH_LOCATION + "/" +
+                WeatherContract.LocationEntry.PATH_SEARCH + "/*", LOCATION_SEARCH);
+        matcher.addURI(authority, WeatherContract.PATH_LOCATION + "/" +
+                WeatherContract.LocationEntry.PATH_NEAR, LOCATION_NEAR);
+        matcher.addURI(authority, WeatherContract.PATH_LOCATION + "/" +
+                WeatherContract.LocationEntry.PATH_BBOX, LOCATION_BBOX);
+
+        // The search dialog asks for suggestions without a query before anything is typed
+        matcher.addURI(authority, SearchManager.SUGGEST_URI_PATH_QUERY, SEARCH_SUGGEST);
+        matcher.addURI(authority, SearchManager.SUGGEST_URI_PATH_QUERY + "/*", SEARCH_SUGGEST);
+
+        matcher.addURI(authority, WeatherContract.PATH_SNAPSHOT, SNAPSHOT);
+        matcher.addURI(authority, WeatherContract.PATH_DIAGNOSTICS, DIAGNOSTICS);
 
         // 3) Return the new matcher!
         return matcher;
     }
 
+    /**
+     * @return the name of a URI match code, to label traces and statistics with.
+     */
+    static String getMatchName(int match) {
+        switch (match) {
+            case WEATHER:
+                return "WEATHER";
+            case WEATHER_WITH_LOCATION:
+                return "WEATHER_WITH_LOCATION";
+            case WEATHER_WITH_LOCATION_AND_DATE:
+                return "WEATHER_WITH_LOCATION_AND_DATE";
+            case LOCATION:
+                return "LOCATION";
+            case LOCATION_SEARCH:
+                return "LOCATION_SEARCH";
+            case SEARCH_SUGGEST:
+                return "SEARCH_SUGGEST";
+            case LOCATION_NEAR:
+                return "LOCATION_NEAR";
+            case LOCATION_BBOX:
+                return "LOCATION_BBOX";
+            case SNAPSHOT:
+                return "SNAPSHOT";
+            case DIAGNOSTICS:
+                return "DIAGNOSTICS";
+            default:
+                return "UNKNOWN";
+        }
+    }
+
     /*
         Students: We've coded this for you.  We just create a new WeatherDbHelper for later use
         here.
      */
     @Override
     public boolean onCreate() {
-        mOpenHelper = new WeatherDbHelper(getContext());
+        // Tests that point the helpers at a database of their own keep it
+        if (getContext().getResources().getBoolean(R.bool.volatile_weather_cache)
+                && WeatherDbHelper.getDefaultMode() == WeatherDbHelper.Mode.DISK) {
+            mOpenHelper = new WeatherDbHelper(getContext(), WeatherDbHelper.Mode.VOLATILE);
+        } else {
+            mOpenHelper = new WeatherDbHelper(getContext());
+        }
+        mStats = new ProviderStats(sStatsMatches);
         return true;
     }
 
@@ -149,6 +421,18 @@ public class WeatherProvider extends ContentProvider {
                 return WeatherContract.WeatherEntry.CONTENT_TYPE;
             case LOCATION:
                 return WeatherContract.LocationEntry.CONTENT_TYPE;
+            case LOCATION_SEARCH:
+                return WeatherContract.LocationEntry.CONTENT_TYPE;
+            case LOCATION_NEAR:
+                return WeatherContract.LocationEntry.CONTENT_TYPE;
+            case LOCATION_BBOX:
+                return WeatherContract.LocationEntry.CONTENT_TYPE;
+            case SEARCH_SUGGEST:
+                return SearchManager.SUGGEST_MIME_TYPE;
+            case SNAPSHOT:
+                return WeatherContract.SnapshotEntry.CONTENT_TYPE;
+            case DIAGNOSTICS:
+                return WeatherContract.DiagnosticsEntry.CONTENT_TYPE;
             default:
                 throw new UnsupportedOperationException("Unknown uri: " + uri);
         }
@@ -157,10 +441,33 @@ public class WeatherProvider extends ContentProvider {
     @Override
     public Cursor query(Uri uri, String[] projection, String selection, String[] selectionArgs,
                         String sortOrder) {
+        final int match = sUriMatcher.match(uri);
+        if (match == DIAGNOSTICS) {
+            // Not counted, so reading the statistics doesn't change them
+            return LeakTrackingCursor.wrap(mStats.toCursor(), false, uri.toString());
+        }
+        Tracing.beginSection("WeatherProvider.query ", getMatchName(match));
+        final long start = System.nanoTime();
+        int rows = 0;
+        try {
+            Cursor cursor = query(match, uri, projection, selection, selectionArgs, sortOrder);
+            // Runs the query and fills the first window now, where it's timed, rather than on
+            // the caller's first move.  The resolver asks for the count straight away anyway.
+            rows = cursor.getCount();
+            return LeakTrackingCursor.wrap(mStats.trackWindowFills(match, cursor),
+                    cursor instanceof AbstractWindowedCursor, uri.toString());
+        } finally {
+            mStats.record(ProviderStats.QUERY, match, rows, System.nanoTime() - start);
+            Tracing.endSection();
+        }
+    }
+
+    private Cursor query(int match, Uri uri, String[] projection, String selection,
+                         String[] selectionArgs, String sortOrder) {
         // Here's the switch statement that, given a URI, will determine what kind of request it is,
         // and query the database accordingly.
         Cursor retCursor;
-        switch (sUriMatcher.match(uri)) {
+        switch (match) {
             // "weather/*/*"
             case WEATHER_WITH_LOCATION_AND_DATE:
             {
@@ -198,6 +505,29 @@ public class WeatherProvider extends ContentProvider {
                 );
                 break;
             }
+            // "location/search/*"
+            case LOCATION_SEARCH: {
+                retCursor = searchLocations(uri,
+                        WeatherContract.LocationEntry.getSearchPrefixFromUri(uri),
+                        projection, sortOrder);
+                break;
+            }
+            // "location/near?lat=&lon=&k="
+            case LOCATION_NEAR: {
+                retCursor = getLocationsNear(uri, projection);
+                break;
+            }
+            // "location/bbox?minLat=&minLon=&maxLat=&maxLon="
+            case LOCATION_BBOX: {
+                retCursor = getLocationsInBoundingBox(uri, projection);
+                break;
+            }
+            // "search_suggest_query" and "search_suggest_query/*"
+            case SEARCH_SUGGEST: {
+                String query = uri.getPathSegments().size() > 1 ? uri.getLastPathSegment() : null;
+                retCursor = searchLocations(uri, query, sSearchSuggestProjection, null);
+                break;
+            }
 
             default:
                 throw new UnsupportedOperationException("Unknown uri: " + uri);
@@ -211,8 +541,22 @@ public class WeatherProvider extends ContentProvider {
      */
     @Override
     public Uri insert(Uri uri, ContentValues values) {
-        final SQLiteDatabase db = mOpenHelper.getWritableDatabase();
         final int match = sUriMatcher.match(uri);
+        Tracing.beginSection("WeatherProvider.insert ", getMatchName(match));
+        final long start = System.nanoTime();
+        int rows = 0;
+        try {
+            Uri inserted = insert(match, uri, values);
+            rows = 1;
+            return inserted;
+        } finally {
+            mStats.record(ProviderStats.INSERT, match, rows, System.nanoTime() - start);
+            Tracing.endSection();
+        }
+    }
+
+    private Uri insert(int match, Uri uri, ContentValues values) {
+        final SQLiteDatabase db = mOpenHelper.getWritableDatabase();
         Uri returnUri;
 
         switch (match) {
@@ -227,6 +571,7 @@ public class WeatherProvider extends ContentProvider {
             }
             case LOCATION: {
                 long _id = db.insert(WeatherContract.LocationEntry.TABLE_NAME, null, values);
+                invalidateLocationIndex();
                 if ( _id > 0 )
                     returnUri = WeatherContract.LocationEntry.buildLocationUri(_id);
                 else
@@ -242,6 +587,23 @@ public class WeatherProvider extends ContentProvider {
 
     @Override
     public int delete(Uri uri, String selection, String[] selectionArgs) {
+        final int match = sUriMatcher.match(uri);
+        if (match == DIAGNOSTICS) {
+            return mStats.reset();
+        }
+        Tracing.beginSection("WeatherProvider.delete ", getMatchName(match));
+        final long start = System.nanoTime();
+        int rows = 0;
+        try {
+            rows = delete(match, uri, selection, selectionArgs);
+            return rows;
+        } finally {
+            mStats.record(ProviderStats.DELETE, match, rows, System.nanoTime() - start);
+            Tracing.endSection();
+        }
+    }
+
+    private int delete(int match, Uri uri, String selection, String[] selectionArgs) {
         // Student: Start by getting a writable database
 
         // Student: Use the uriMatcher to match the WEATHER and LOCATION URI's we are going to
@@ -253,7 +615,6 @@ public class WeatherProvider extends ContentProvider {
         // Oh, and you should notify the listeners here.
 
         final SQLiteDatabase db = mOpenHelper.getWritableDatabase();
-        final int match = sUriMatcher.match(uri);
         int rowsDeleted;
         // this makes delete all rows return the number of rows deleted
         if ( null == selection ) selection = "1";
@@ -265,6 +626,7 @@ public class WeatherProvider extends ContentProvider {
             case LOCATION:
                 rowsDeleted = db.delete(
                         WeatherContract.LocationEntry.TABLE_NAME, selection, selectionArgs);
+                invalidateLocationIndex();
                 break;
             default:
                 throw new UnsupportedOperationException("Unknown uri: " + uri);
@@ -287,10 +649,24 @@ public class WeatherProvider extends ContentProvider {
     @Override
     public int update(
             Uri uri, ContentValues values, String selection, String[] selectionArgs) {
+        final int match = sUriMatcher.match(uri);
+        Tracing.beginSection("WeatherProvider.update ", getMatchName(match));
+        final long start = System.nanoTime();
+        int rows = 0;
+        try {
+            rows = update(match, uri, values, selection, selectionArgs);
+            return rows;
+        } finally {
+            mStats.record(ProviderStats.UPDATE, match, rows, System.nanoTime() - start);
+            Tracing.endSection();
+        }
+    }
+
+    private int update(
+            int match, Uri uri, ContentValues values, String selection, String[] selectionArgs) {
         // Student: This is a lot like the delete function.  We return the number of rows impacted
         // by the update.
         final SQLiteDatabase db = mOpenHelper.getWritableDatabase();
-        final int match = sUriMatcher.match(uri);
         int rowsUpdated;
 
         switch (match) {
@@ -302,6 +678,7 @@ public class WeatherProvider extends ContentProvider {
             case LOCATION:
                 rowsUpdated = db.update(WeatherContract.LocationEntry.TABLE_NAME, values, selection,
                         selectionArgs);
+                invalidateLocationIndex();
                 break;
             default:
                 throw new UnsupportedOperationException("Unknown uri: " + uri);
@@ -317,8 +694,21 @@ public class WeatherProvider extends ContentProvider {
     // than inserting them individually
     @Override
     public int bulkInsert(Uri uri, ContentValues[] values) {
-        final SQLiteDatabase db = mOpenHelper.getWritableDatabase();
         final int match = sUriMatcher.match(uri);
+        Tracing.beginSection("WeatherProvider.bulkInsert ", getMatchName(match));
+        final long start = System.nanoTime();
+        int rows = 0;
+        try {
+            rows = bulkInsert(match, uri, values);
+            return rows;
+        } finally {
+            mStats.record(ProviderStats.BULK_INSERT, match, rows, System.nanoTime() - start);
+            Tracing.endSection();
+        }
+    }
+
+    private int bulkInsert(int match, Uri uri, ContentValues[] values) {
+        final SQLiteDatabase db = mOpenHelper.getWritableDatabase();
         switch (match) {
             case WEATHER:
                 db.beginTransaction();
@@ -344,6 +734,133 @@ public class WeatherProvider extends ContentProvider {
         }
     }
 
+    // adb shell dumpsys activity provider com.example.android.sunshine.app
+    // Only called on Jelly Bean MR2 and later, query DiagnosticsEntry.CONTENT_URI before that.
+    @Override
+    public void dump(FileDescriptor fd, PrintWriter writer, String[] args) {
+        mStats.dump(writer);
+        LeakTrackingCursor.dump(writer);
+    }
+
+    // The snapshot is streamed through a pipe: reading it exports both tables, writing it
+    // replaces them.  The work happens on a background thread so the caller can consume or
+    // produce the stream while we're still encoding or decoding it.  From KitKat on the pipe
+    // is a reliable one, and a failed import or export closes its end with the error, which
+    // the caller sees through ParcelFileDescriptor.checkError().
+    @Override
+    public ParcelFileDescriptor openFile(Uri uri, String mode) throws FileNotFoundException {
+        if (sUriMatcher.match(uri) != SNAPSHOT) {
+            throw new FileNotFoundException("Unknown uri: " + uri);
+        }
+
+        final ParcelFileDescriptor[] pipe;
+        try {
+            pipe = Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT
+                    ? ParcelFileDescriptor.createReliablePipe()
+                    : ParcelFileDescriptor.createPipe();
+        } catch (IOException e) {
+            throw new FileNotFoundException("Unable to open pipe for " + uri);
+        }
+
+        if (mode.contains("w")) {
+            new Thread(new SnapshotImporter(pipe[0]), "WeatherSnapshotImport").start();
+            return pipe[1];
+        } else {
+            int flags = WeatherContract.SnapshotEntry.isCompressedFromUri(uri)
+                    ? WeatherSnapshot.FLAG_COMPRESSED : 0;
+            new Thread(new SnapshotExporter(pipe[1], flags), "WeatherSnapshotExport").start();
+            return pipe[0];
+        }
+    }
+
+    private class SnapshotExporter implements Runnable {
+        private final ParcelFileDescriptor mOutput;
+        private final int mFlags;
+
+        SnapshotExporter(ParcelFileDescriptor output, int flags) {
+            mOutput = output;
+            mFlags = flags;
+        }
+
+        @Override
+        public void run() {
+            OutputStream out = new BufferedOutputStream(
+                    new ParcelFileDescriptor.AutoCloseOutputStream(mOutput));
+            try {
+                WeatherSnapshot.write(mOpenHelper.getReadableDatabase(), out, mFlags);
+            } catch (IOException e) {
+                Log.e(LOG_TAG, "Error exporting weather snapshot", e);
+                closeWithError(mOutput, e);
+            } catch (RuntimeException e) {
+                // The database, on a thread of our own where nothing else would catch it
+                Log.e(LOG_TAG, "Error exporting weather snapshot", e);
+                closeWithError(mOutput, e);
+            } finally {
+                try {
+                    out.close();
+                } catch (IOException e) {
+                    Log.e(LOG_TAG, "Error closing snapshot stream", e);
+                }
+            }
+        }
+    }
+
+    private class SnapshotImporter implements Runnable {
+        private final ParcelFileDescriptor mInput;
+
+        SnapshotImporter(ParcelFileDescriptor input) {
+            mInput = input;
+        }
+
+        @Override
+        public void run() {
+            InputStream in = new BufferedInputStream(
+                    new ParcelFileDescriptor.AutoCloseInputStream(mInput));
+            try {
+                int imported = WeatherSnapshot.read(mOpenHelper.getWritableDatabase(), in);
+                invalidateLocationIndex();
+                Log.d(LOG_TAG, "Weather snapshot imported. " + imported + " records inserted");
+
+                getContext().getContentResolver()
+                        .notifyChange(WeatherContract.LocationEntry.CONTENT_URI, null);
+                getContext().getContentResolver()
+                        .notifyChange(WeatherContract.WeatherEntry.CONTENT_URI, null);
+            } catch (IOException e) {
+                Log.e(LOG_TAG, "Error importing weather snapshot", e);
+                closeWithError(mInput, e);
+            } catch (RuntimeException e) {
+                // The database, on a thread of our own where nothing else would catch it
+                Log.e(LOG_TAG, "Error importing weather snapshot", e);
+                closeWithError(mInput, e);
+            } finally {
+                try {
+                    in.close();
+                } catch (IOException e) {
+                    Log.e(LOG_TAG, "Error closing snapshot stream", e);
+                }
+            }
+        }
+    }
+
+    // Tells the other end of a reliable pipe why this end was closed.  Closing it again
+    // afterwards does nothing.
+    @TargetApi(19)
+    private static void closeWithError(ParcelFileDescriptor descriptor, Exception error) {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.KITKAT) {
+            return;
+        }
+        try {
+            descriptor.closeWithError(String.valueOf(error.getMessage()));
+        } catch (IOException e) {
+            Log.e(LOG_TAG, "Error closing snapshot stream", e);
+        }
+    }
+
+    // For the benchmarks in this package that fill the database directly
+    WeatherDbHelper getOpenHelper() {
+        return mOpenHelper;
+    }
+
     // You do not need to call this method. This is a method specifically to assist the testing
     // framework in running smoothly. You can read more at:
     // http://developer.android.com/reference/android/content/ContentProvider.html#shutdown()
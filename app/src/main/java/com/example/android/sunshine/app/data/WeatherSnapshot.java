@@ -0,0 +1,372 @@
+package com.example.android.sunshine.app.data;
+
+import android.database.Cursor;
+import android.database.SQLException;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+
+import com.example.android.sunshine.app.data.WeatherContract.LocationEntry;
+import com.example.android.sunshine.app.data.WeatherContract.WeatherEntry;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Reads and writes a compact binary snapshot of the location and weather tables.
+ *
+ * The layout is:
+ * <pre>
+ *   int   magic ("SUNS")
+ *   short version
+ *   byte  flags (FLAG_COMPRESSED: everything after the header is deflated)
+ *   table location, table weather
+ * </pre>
+ * where each table is a row count followed by its columns, and each column is its name, a
+ * type tag and a length-prefixed block holding the values of every row.  Columns are looked up
+ * by name on import, so unknown columns are skipped and the order doesn't matter.  Since
+ * version 2 every text value is preceded by a flag telling whether it is null.
+ *
+ * A snapshot may come from anywhere, so import checks it before trusting it: row counts and
+ * block lengths must be in range and every known block must hold exactly its rows' values.
+ * Anything else, including rows the database rejects, is an IOException and leaves the tables
+ * as they were.
+ *
+ * Importing replaces the contents of both tables inside a single transaction, inserting through
+ * precompiled statements, which is much cheaper than replaying the JSON through the sync adapter;
+ * SnapshotBenchmark measures by how much.
+ */
+public class WeatherSnapshot {
+
+    public static final int FLAG_COMPRESSED = 1;
+
+    static final int MAGIC = 0x53554E53;
+    static final int VERSION = 2;
+    // Text values have no null flag
+    private static final int VERSION_NO_NULLS = 1;
+
+    // Far more rows than any sync stores, and few enough that decoding them can't exhaust
+    // the heap
+    static final int MAX_ROWS = 1 << 18;
+    // The largest column block that is read into memory
+    static final int MAX_BLOCK_BYTES = 1 << 24;
+
+    private static final byte TYPE_LONG = 1;
+    private static final byte TYPE_DOUBLE = 2;
+    private static final byte TYPE_TEXT = 3;
+
+    // Column names and types of each table, in the order they are written
+    private static final String[] LOCATION_COLUMNS = {
+            LocationEntry._ID,
+            LocationEntry.COLUMN_LOCATION_SETTING,
+            LocationEntry.COLUMN_CITY_NAME,
+            LocationEntry.COLUMN_COORD_LAT,
+            LocationEntry.COLUMN_COORD_LONG
+    };
+    private static final byte[] LOCATION_TYPES = {
+            TYPE_LONG, TYPE_TEXT, TYPE_TEXT, TYPE_DOUBLE, TYPE_DOUBLE
+    };
+
+    private static final String[] WEATHER_COLUMNS = {
+            WeatherEntry.COLUMN_LOC_KEY,
+            WeatherEntry.COLUMN_DATE,
+            WeatherEntry.COLUMN_SHORT_DESC,
+            WeatherEntry.COLUMN_WEATHER_ID,
+            WeatherEntry.COLUMN_MIN_TEMP,
+            WeatherEntry.COLUMN_MAX_TEMP,
+            WeatherEntry.COLUMN_HUMIDITY,
+            WeatherEntry.COLUMN_PRESSURE,
+            WeatherEntry.COLUMN_WIND_SPEED,
+            WeatherEntry.COLUMN_DEGREES
+    };
+    private static final byte[] WEATHER_TYPES = {
+            TYPE_LONG, TYPE_LONG, TYPE_TEXT, TYPE_LONG, TYPE_DOUBLE,
+            TYPE_DOUBLE, TYPE_DOUBLE, TYPE_DOUBLE, TYPE_DOUBLE, TYPE_DOUBLE
+    };
+
+    private WeatherSnapshot() {
+    }
+
+    /**
+     * Writes every location and weather row of the database to the given stream.
+     * The stream is flushed but not closed.
+     */
+    public static void write(SQLiteDatabase db, OutputStream out, int flags) throws IOException {
+        DataOutputStream header = new DataOutputStream(out);
+        header.writeInt(MAGIC);
+        header.writeShort(VERSION);
+        header.writeByte(flags);
+        header.flush();
+
+        DeflaterOutputStream deflater = null;
+        DataOutputStream body;
+        if ((flags & FLAG_COMPRESSED) != 0) {
+            deflater = new DeflaterOutputStream(out, new Deflater(Deflater.BEST_SPEED));
+            body = new DataOutputStream(deflater);
+        } else {
+            body = header;
+        }
+
+        writeTable(db, body, LocationEntry.TABLE_NAME, LOCATION_COLUMNS, LOCATION_TYPES);
+        writeTable(db, body, WeatherEntry.TABLE_NAME, WEATHER_COLUMNS, WEATHER_TYPES);
+
+        if (deflater != null) {
+            body.flush();
+            deflater.finish();
+        }
+        out.flush();
+    }
+
+    /**
+     * Replaces the contents of the location and weather tables with the snapshot read from the
+     * given stream.  The stream is not closed.
+     *
+     * @return the number of rows imported into both tables.
+     */
+    public static int read(SQLiteDatabase db, InputStream in) throws IOException {
+        DataInputStream header = new DataInputStream(in);
+        if (header.readInt() != MAGIC) {
+            throw new IOException("Not a weather snapshot");
+        }
+        int version = header.readShort();
+        if (version < VERSION_NO_NULLS || version > VERSION) {
+            throw new IOException("Unsupported weather snapshot version " + version);
+        }
+        int flags = header.readByte();
+
+        DataInputStream body = header;
+        if ((flags & FLAG_COMPRESSED) != 0) {
+            body = new DataInputStream(new InflaterInputStream(in));
+        }
+
+        // Decode everything before touching the database so a truncated stream
+        // leaves the existing data alone.
+        Object[] locations = new Object[LOCATION_COLUMNS.length];
+        int locationCount =
+                readTable(body, version, LOCATION_COLUMNS, LOCATION_TYPES, locations);
+        Object[] weather = new Object[WEATHER_COLUMNS.length];
+        int weatherCount = readTable(body, version, WEATHER_COLUMNS, WEATHER_TYPES, weather);
+
+        db.beginTransaction();
+        try {
+            db.delete(WeatherEntry.TABLE_NAME, null, null);
+            db.delete(LocationEntry.TABLE_NAME, null, null);
+
+            insertRows(db, LocationEntry.TABLE_NAME, LOCATION_COLUMNS, LOCATION_TYPES,
+                    locations, locationCount);
+            insertRows(db, WeatherEntry.TABLE_NAME, WEATHER_COLUMNS, WEATHER_TYPES,
+                    weather, weatherCount);
+
+            db.setTransactionSuccessful();
+        } catch (SQLException e) {
+            // e.g. a location setting twice, or weather of a location that isn't there
+            throw new IOException("Weather snapshot rejected by the database", e);
+        } finally {
+            db.endTransaction();
+        }
+        return locationCount + weatherCount;
+    }
+
+    private static void writeTable(SQLiteDatabase db, DataOutputStream out, String table,
+                                   String[] columns, byte[] types) throws IOException {
+        Cursor cursor = db.query(table, columns, null, null, null, null, null);
+        try {
+            int rowCount = cursor.getCount();
+
+            // One buffer per column, filled in a single pass over the cursor
+            ByteArrayOutputStream[] buffers = new ByteArrayOutputStream[columns.length];
+            DataOutputStream[] blocks = new DataOutputStream[columns.length];
+            for (int i = 0; i < columns.length; i++) {
+                buffers[i] = new ByteArrayOutputStream(rowCount * 8);
+                blocks[i] = new DataOutputStream(buffers[i]);
+            }
+
+            while (cursor.moveToNext()) {
+                for (int i = 0; i < columns.length; i++) {
+                    switch (types[i]) {
+                        case TYPE_LONG:
+                            blocks[i].writeLong(cursor.getLong(i));
+                            break;
+                        case TYPE_DOUBLE:
+                            blocks[i].writeDouble(cursor.getDouble(i));
+                            break;
+                        default:
+                            String value = cursor.getString(i);
+                            blocks[i].writeBoolean(value != null);
+                            if (value != null) {
+                                blocks[i].writeUTF(value);
+                            }
+                            break;
+                    }
+                }
+            }
+
+            out.writeInt(rowCount);
+            out.writeByte(columns.length);
+            for (int i = 0; i < columns.length; i++) {
+                out.writeUTF(columns[i]);
+                out.writeByte(types[i]);
+                out.writeInt(buffers[i].size());
+                buffers[i].writeTo(out);
+            }
+        } finally {
+            cursor.close();
+        }
+    }
+
+    // Fills values with one long[], double[] or String[] per expected column
+    private static int readTable(DataInputStream in, int version, String[] columns,
+                                 byte[] types, Object[] values) throws IOException {
+        int rowCount = in.readInt();
+        if (rowCount < 0 || rowCount > MAX_ROWS) {
+            throw new IOException("Weather snapshot has " + rowCount + " rows");
+        }
+        int columnCount = in.readUnsignedByte();
+
+        for (int c = 0; c < columnCount; c++) {
+            String name = in.readUTF();
+            byte type = in.readByte();
+            int length = in.readInt();
+            if (length < 0 || length > MAX_BLOCK_BYTES) {
+                throw new IOException("Weather snapshot column " + name + " is " + length
+                        + " bytes");
+            }
+
+            int index = indexOf(columns, name);
+            if (index == -1 || types[index] != type) {
+                // A column this version doesn't know about
+                skipFully(in, length);
+                continue;
+            }
+
+            // Checked before anything is allocated for the rows
+            long minLength = (long) rowCount * minValueBytes(type, version);
+            if (type == TYPE_TEXT ? length < minLength : length != minLength) {
+                throw new IOException("Weather snapshot column " + name + " is " + length
+                        + " bytes for " + rowCount + " rows");
+            }
+            byte[] bytes = new byte[length];
+            in.readFully(bytes);
+            ByteArrayInputStream buffer = new ByteArrayInputStream(bytes);
+            values[index] = readColumn(new DataInputStream(buffer), type, version, rowCount);
+            if (buffer.available() != 0) {
+                throw new IOException("Weather snapshot column " + name + " has "
+                        + buffer.available() + " bytes after its values");
+            }
+        }
+
+        for (int i = 0; i < columns.length; i++) {
+            if (values[i] == null) {
+                throw new IOException("Weather snapshot is missing column " + columns[i]);
+            }
+        }
+        return rowCount;
+    }
+
+    private static Object readColumn(DataInputStream block, byte type, int version,
+                                     int rowCount) throws IOException {
+        switch (type) {
+            case TYPE_LONG: {
+                long[] longs = new long[rowCount];
+                for (int r = 0; r < rowCount; r++) {
+                    longs[r] = block.readLong();
+                }
+                return longs;
+            }
+            case TYPE_DOUBLE: {
+                double[] doubles = new double[rowCount];
+                for (int r = 0; r < rowCount; r++) {
+                    doubles[r] = block.readDouble();
+                }
+                return doubles;
+            }
+            default: {
+                String[] strings = new String[rowCount];
+                for (int r = 0; r < rowCount; r++) {
+                    if (version == VERSION_NO_NULLS || block.readBoolean()) {
+                        strings[r] = block.readUTF();
+                    }
+                }
+                return strings;
+            }
+        }
+    }
+
+    // The fewest bytes a value of the type takes
+    private static int minValueBytes(byte type, int version) {
+        if (type != TYPE_TEXT) {
+            return 8;
+        }
+        // The null flag alone, or an empty string's length
+        return version == VERSION_NO_NULLS ? 2 : 1;
+    }
+
+    private static void skipFully(DataInputStream in, int length) throws IOException {
+        while (length > 0) {
+            int skipped = in.skipBytes(length);
+            if (skipped == 0) {
+                // Throws at the end of the stream, skipBytes doesn't
+                in.readByte();
+                skipped = 1;
+            }
+            length -= skipped;
+        }
+    }
+
+    private static void insertRows(SQLiteDatabase db, String table, String[] columns,
+                                   byte[] types, Object[] values, int rowCount) {
+        StringBuilder sql = new StringBuilder("INSERT INTO ").append(table).append(" (");
+        for (int i = 0; i < columns.length; i++) {
+            sql.append(i == 0 ? "" : ", ").append(columns[i]);
+        }
+        sql.append(") VALUES (");
+        for (int i = 0; i < columns.length; i++) {
+            sql.append(i == 0 ? "?" : ", ?");
+        }
+        sql.append(")");
+
+        SQLiteStatement insert = db.compileStatement(sql.toString());
+        try {
+            for (int r = 0; r < rowCount; r++) {
+                for (int i = 0; i < columns.length; i++) {
+                    // bind indices are 1-based
+                    switch (types[i]) {
+                        case TYPE_LONG:
+                            insert.bindLong(i + 1, ((long[]) values[i])[r]);
+                            break;
+                        case TYPE_DOUBLE:
+                            insert.bindDouble(i + 1, ((double[]) values[i])[r]);
+                            break;
+                        default:
+                            String value = ((String[]) values[i])[r];
+                            if (value == null) {
+                                insert.bindNull(i + 1);
+                            } else {
+                                insert.bindString(i + 1, value);
+                            }
+                            break;
+                    }
+                }
+                insert.executeInsert();
+            }
+        } finally {
+            insert.close();
+        }
+    }
+
+    private static int indexOf(String[] columns, String name) {
+        for (int i = 0; i < columns.length; i++) {
+            if (columns[i].equals(name)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
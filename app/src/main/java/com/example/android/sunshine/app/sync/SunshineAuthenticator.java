@@ -80,4 +80,13 @@ public class SunshineAuthenticator extends AbstractAccountAuthenticator {
             Account account, String[] strings) throws NetworkErrorException {
         throw new UnsupportedOperationException();
     }
+
+    // The account may always be removed, but the sync adapter must check for it again
+    @Override
+    public Bundle getAccountRemovalAllowed(
+            AccountAuthenticatorResponse r,
+            Account account) throws NetworkErrorException {
+        SunshineSyncAdapter.onAccountRemoved();
+        return super.getAccountRemovalAllowed(r, account);
+    }
 }
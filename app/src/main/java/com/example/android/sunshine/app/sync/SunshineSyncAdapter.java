@@ -11,31 +11,32 @@ import android.content.ContentUris;
 import android.content.ContentValues;
 import android.content.Context;
 import android.content.Intent;
-import android.content.SharedPreferences;
 import android.content.SyncRequest;
 import android.content.SyncResult;
 import android.content.res.Resources;
 import android.database.Cursor;
 import android.graphics.Bitmap;
-import android.graphics.BitmapFactory;
 import android.net.Uri;
 import android.os.Build;
 import android.os.Bundle;
-import android.preference.PreferenceManager;
 import android.support.v4.app.NotificationCompat;
 import android.support.v4.app.TaskStackBuilder;
 import android.text.format.Time;
 import android.util.Log;
 
+import com.example.android.sunshine.app.BitmapCache;
 import com.example.android.sunshine.app.BuildConfig;
+import com.example.android.sunshine.app.ForecastSnapshot;
 import com.example.android.sunshine.app.MainActivity;
 import com.example.android.sunshine.app.R;
+import com.example.android.sunshine.app.Settings;
+import com.example.android.sunshine.app.Tracing;
 import com.example.android.sunshine.app.Utility;
 import com.example.android.sunshine.app.data.WeatherContract;
+import com.example.android.sunshine.core.Forecast;
+import com.example.android.sunshine.core.ForecastParser;
 
-import org.json.JSONArray;
 import org.json.JSONException;
-import org.json.JSONObject;
 
 import java.io.BufferedReader;
 import java.io.IOException;
@@ -43,6 +44,7 @@ import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.net.HttpURLConnection;
 import java.net.URL;
+import java.util.Arrays;
 import java.util.Locale;
 import java.util.Vector;
 
@@ -54,6 +56,25 @@ public class SunshineSyncAdapter extends AbstractThreadedSyncAdapter {
     public static final int SYNC_INTERVAL = 60 * 180;
     public static final int SYNC_FLEXTIME = SYNC_INTERVAL/3;
 
+    // Syncs this location setting instead of the preferred one
+    public static final String EXTRA_LOCATION = "location";
+
+    // Possible parameters are avaiable at OWM's forecast API page, at
+    // http://openweathermap.org/API#forecast
+    static final String FORECAST_BASE_URL = "http://api.openweathermap.org/data/2.5/forecast/daily";
+
+    // The phases of a sync, each timed and traced on its own
+    static final int PHASE_FETCH = 0;
+    static final int PHASE_PARSE = 1;
+    static final int PHASE_STORE = 2;
+    static final int PHASE_SNAPSHOT = 3;
+    static final int PHASE_NOTIFY = 4;
+    static final String[] PHASE_NAMES = {"fetch", "parse", "store", "snapshot", "notify"};
+    private static final String[] PHASE_SECTIONS = {
+            "SunshineSync.fetch", "SunshineSync.parse", "SunshineSync.store",
+            "SunshineSync.snapshot", "SunshineSync.notify"
+    };
+
     private static final long DAY_IN_MILLIS = 1000 * 60 * 60 * 24;
     private static final int WEATHER_NOTIFICATION_ID = 3004;
 
@@ -70,17 +91,62 @@ public class SunshineSyncAdapter extends AbstractThreadedSyncAdapter {
     private static final int INDEX_MIN_TEMP = 2;
     private static final int INDEX_SHORT_DESC = 3;
 
+    // Set once the sync account is known to exist, so later calls skip the AccountManager.
+    // Cleared when the account is removed, see onAccountRemoved().
+    private static volatile boolean sAccountVerified;
+
+    private String mForecastBaseUrl = FORECAST_BASE_URL;
+    // Time spent in each phase by the last sync, reset when the next one starts.  Syncs of
+    // one adapter run one after the other.
+    private final long[] mPhaseNanos = new long[PHASE_NAMES.length];
+
     public SunshineSyncAdapter(Context context, boolean autoInitialize) {
         super(context, autoInitialize);
     }
 
+    /**
+     * Points the adapter at another forecast server, e.g. a local one in tests.
+     */
+    void setForecastBaseUrl(String forecastBaseUrl) {
+        mForecastBaseUrl = forecastBaseUrl;
+    }
+
+    /**
+     * @return the nanoseconds the last sync spent in each phase, indexed by PHASE_*.
+     */
+    long[] getPhaseNanos() {
+        return mPhaseNanos.clone();
+    }
+
+    private long beginPhase(int phase) {
+        Tracing.beginSection(PHASE_SECTIONS[phase]);
+        return System.nanoTime();
+    }
+
+    private void endPhase(int phase, long start) {
+        mPhaseNanos[phase] += System.nanoTime() - start;
+        Tracing.endSection();
+    }
+
     // This is what happens when a sync occurs
     // Fetch the weather data and store it in the database
     @Override
     public void onPerformSync(Account account, Bundle extras, String authority, ContentProviderClient provider, SyncResult syncResult) {
         Log.d(LOG_TAG, "Starting synchronization...");
+        Tracing.beginSection("SunshineSync");
+        try {
+            performSync(extras);
+        } finally {
+            Tracing.endSection();
+        }
+    }
 
-        String locationQuery = Utility.getPreferredLocation(getContext());
+    private void performSync(Bundle extras) {
+        String locationQuery = extras != null ? extras.getString(EXTRA_LOCATION) : null;
+        if (locationQuery == null) {
+            locationQuery = Utility.getPreferredLocation(getContext());
+        }
+        Arrays.fill(mPhaseNanos, 0);
 
         // Code from FetchWeatherTask’s doInBackground method and
         // after from SunshineService's onHandleIntent method copied below because
@@ -89,11 +155,6 @@ public class SunshineSyncAdapter extends AbstractThreadedSyncAdapter {
         // AbstractThreadedSyncAdapter provides a background thread
         // to run the server fetch on, just like IntentService does
 
-        // These two need to be declared outside the try/catch
-        // so that they can be closed in the finally block.
-        HttpURLConnection urlConnection = null;
-        BufferedReader reader = null;
-
         // Will contain the raw JSON response as a string.
         String forecastJsonStr = null;
 
@@ -103,17 +164,13 @@ public class SunshineSyncAdapter extends AbstractThreadedSyncAdapter {
 
         try {
             // Construct the URL for the OpenWeatherMap query
-            // Possible parameters are avaiable at OWM's forecast API page, at
-            // http://openweathermap.org/API#forecast
-            final String FORECAST_BASE_URL =
-                    "http://api.openweathermap.org/data/2.5/forecast/daily?";
             final String QUERY_PARAM = "q";
             final String FORMAT_PARAM = "mode";
             final String UNITS_PARAM = "units";
             final String DAYS_PARAM = "cnt";
             final String APPID_PARAM = "APPID";
 
-            Uri builtUri = Uri.parse(FORECAST_BASE_URL).buildUpon()
+            Uri builtUri = Uri.parse(mForecastBaseUrl).buildUpon()
                     .appendQueryParameter(QUERY_PARAM, locationQuery)
                     .appendQueryParameter(FORMAT_PARAM, format)
                     .appendQueryParameter(UNITS_PARAM, units)
@@ -123,6 +180,37 @@ public class SunshineSyncAdapter extends AbstractThreadedSyncAdapter {
 
             URL url = new URL(builtUri.toString());
 
+            long start = beginPhase(PHASE_FETCH);
+            try {
+                forecastJsonStr = fetchForecastJson(url);
+            } finally {
+                endPhase(PHASE_FETCH, start);
+            }
+            if (forecastJsonStr == null) {
+                // Nothing to parse
+                return;
+            }
+            getWeatherDataFromJson(forecastJsonStr, locationQuery);
+        } catch (IOException e) {
+            Log.e(LOG_TAG, "Error ", e);
+            // If the code didn't successfully get the weather data, there's no point in attempting
+            // to parse it.
+        } catch (JSONException e) {
+            Log.e(LOG_TAG, e.getMessage(), e);
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * @return the response from the forecast server, null if it was empty.
+     */
+    private String fetchForecastJson(URL url) throws IOException {
+        // These two need to be declared outside the try/catch
+        // so that they can be closed in the finally block.
+        HttpURLConnection urlConnection = null;
+        BufferedReader reader = null;
+
+        try {
             // Create the request to OpenWeatherMap, and open the connection
             urlConnection = (HttpURLConnection) url.openConnection();
             urlConnection.setRequestMethod("GET");
@@ -133,7 +221,7 @@ public class SunshineSyncAdapter extends AbstractThreadedSyncAdapter {
             StringBuffer buffer = new StringBuffer();
             if (inputStream == null) {
                 // Nothing to do.
-                return;
+                return null;
             }
             reader = new BufferedReader(new InputStreamReader(inputStream));
 
@@ -147,17 +235,9 @@ public class SunshineSyncAdapter extends AbstractThreadedSyncAdapter {
 
             if (buffer.length() == 0) {
                 // Stream was empty.  No point in parsing.
-                return;
+                return null;
             }
-            forecastJsonStr = buffer.toString();
-            getWeatherDataFromJson(forecastJsonStr, locationQuery);
-        } catch (IOException e) {
-            Log.e(LOG_TAG, "Error ", e);
-            // If the code didn't successfully get the weather data, there's no point in attempting
-            // to parse it.
-        } catch (JSONException e) {
-            Log.e(LOG_TAG, e.getMessage(), e);
-            e.printStackTrace();
+            return buffer.toString();
         } finally {
             if (urlConnection != null) {
                 urlConnection.disconnect();
@@ -170,7 +250,6 @@ public class SunshineSyncAdapter extends AbstractThreadedSyncAdapter {
                 }
             }
         }
-        return;
     }
 
     /**
@@ -184,53 +263,29 @@ public class SunshineSyncAdapter extends AbstractThreadedSyncAdapter {
                                         String locationSetting)
             throws JSONException {
 
-        // Now we have a String representing the complete forecast in JSON Format.
-        // Fortunately parsing is easy:  constructor takes the JSON string and converts it
-        // into an Object hierarchy for us.
-
-        // These are the names of the JSON objects that need to be extracted.
-
-        // Location information
-        final String OWM_CITY = "city";
-        final String OWM_CITY_NAME = "name";
-        final String OWM_COORD = "coord";
-
-        // Location coordinate
-        final String OWM_LATITUDE = "lat";
-        final String OWM_LONGITUDE = "lon";
-
-        // Weather information.  Each day's forecast info is an element of the "list" array.
-        final String OWM_LIST = "list";
-
-        final String OWM_PRESSURE = "pressure";
-        final String OWM_HUMIDITY = "humidity";
-        final String OWM_WINDSPEED = "speed";
-        final String OWM_WIND_DIRECTION = "deg";
-
-        // All temperatures are children of the "temp" object.
-        final String OWM_TEMPERATURE = "temp";
-        final String OWM_MAX = "max";
-        final String OWM_MIN = "min";
-
-        final String OWM_WEATHER = "weather";
-        final String OWM_DESCRIPTION = "main";
-        final String OWM_WEATHER_ID = "id";
-
         try {
-            JSONObject forecastJson = new JSONObject(forecastJsonStr);
-            JSONArray weatherArray = forecastJson.getJSONArray(OWM_LIST);
-
-            JSONObject cityJson = forecastJson.getJSONObject(OWM_CITY);
-            String cityName = cityJson.getString(OWM_CITY_NAME);
-
-            JSONObject cityCoord = cityJson.getJSONObject(OWM_COORD);
-            double cityLatitude = cityCoord.getDouble(OWM_LATITUDE);
-            double cityLongitude = cityCoord.getDouble(OWM_LONGITUDE);
+            // The parsing itself lives in the core module, where it can be benchmarked
+            Forecast forecast;
+            long start = beginPhase(PHASE_PARSE);
+            try {
+                forecast = ForecastParser.parse(forecastJsonStr);
+            } finally {
+                endPhase(PHASE_PARSE, start);
+            }
 
-            long locationId = addLocation(locationSetting, cityName, cityLatitude, cityLongitude);
+            // Looking up or inserting the location is database work too, and on a first
+            // sync it is an insert of its own
+            long locationId;
+            start = beginPhase(PHASE_STORE);
+            try {
+                locationId = addLocation(locationSetting, forecast.cityName,
+                        forecast.latitude, forecast.longitude);
+            } finally {
+                endPhase(PHASE_STORE, start);
+            }
 
             // Insert the new weather information into the database
-            Vector<ContentValues> cVVector = new Vector<ContentValues>(weatherArray.length());
+            Vector<ContentValues> cVVector = new Vector<ContentValues>(forecast.days.size());
 
             // OWM returns daily forecasts based upon the local time of the city that is being
             // asked for, which means that we need to know the GMT offset to translate this data
@@ -249,56 +304,24 @@ public class SunshineSyncAdapter extends AbstractThreadedSyncAdapter {
             // now we work exclusively in UTC
             dayTime = new Time();
 
-            for(int i = 0; i < weatherArray.length(); i++) {
-                // These are the values that will be collected.
-                long dateTime;
-                double pressure;
-                int humidity;
-                double windSpeed;
-                double windDirection;
-
-                double high;
-                double low;
-
-                String description;
-                int weatherId;
-
-                // Get the JSON object representing the day
-                JSONObject dayForecast = weatherArray.getJSONObject(i);
+            for(int i = 0; i < forecast.days.size(); i++) {
+                Forecast.Day day = forecast.days.get(i);
 
                 // Cheating to convert this to UTC time, which is what we want anyhow
-                dateTime = dayTime.setJulianDay(julianStartDay+i);
-
-                pressure = dayForecast.getDouble(OWM_PRESSURE);
-                humidity = dayForecast.getInt(OWM_HUMIDITY);
-                windSpeed = dayForecast.getDouble(OWM_WINDSPEED);
-                windDirection = dayForecast.getDouble(OWM_WIND_DIRECTION);
-
-                // Description is in a child array called "weather", which is 1 element long.
-                // That element also contains a weather code.
-                JSONObject weatherObject =
-                        dayForecast.getJSONArray(OWM_WEATHER).getJSONObject(0);
-                description = weatherObject.getString(OWM_DESCRIPTION);
-                weatherId = weatherObject.getInt(OWM_WEATHER_ID);
-
-                // Temperatures are in a child object called "temp".  Try not to name variables
-                // "temp" when working with temperature.  It confuses everybody.
-                JSONObject temperatureObject = dayForecast.getJSONObject(OWM_TEMPERATURE);
-                high = temperatureObject.getDouble(OWM_MAX);
-                low = temperatureObject.getDouble(OWM_MIN);
+                long dateTime = dayTime.setJulianDay(julianStartDay+i);
 
                 ContentValues weatherValues = new ContentValues();
 
                 weatherValues.put(WeatherContract.WeatherEntry.COLUMN_LOC_KEY, locationId);
                 weatherValues.put(WeatherContract.WeatherEntry.COLUMN_DATE, dateTime);
-                weatherValues.put(WeatherContract.WeatherEntry.COLUMN_HUMIDITY, humidity);
-                weatherValues.put(WeatherContract.WeatherEntry.COLUMN_PRESSURE, pressure);
-                weatherValues.put(WeatherContract.WeatherEntry.COLUMN_WIND_SPEED, windSpeed);
-                weatherValues.put(WeatherContract.WeatherEntry.COLUMN_DEGREES, windDirection);
-                weatherValues.put(WeatherContract.WeatherEntry.COLUMN_MAX_TEMP, high);
-                weatherValues.put(WeatherContract.WeatherEntry.COLUMN_MIN_TEMP, low);
-                weatherValues.put(WeatherContract.WeatherEntry.COLUMN_SHORT_DESC, description);
-                weatherValues.put(WeatherContract.WeatherEntry.COLUMN_WEATHER_ID, weatherId);
+                weatherValues.put(WeatherContract.WeatherEntry.COLUMN_HUMIDITY, day.humidity);
+                weatherValues.put(WeatherContract.WeatherEntry.COLUMN_PRESSURE, day.pressure);
+                weatherValues.put(WeatherContract.WeatherEntry.COLUMN_WIND_SPEED, day.windSpeed);
+                weatherValues.put(WeatherContract.WeatherEntry.COLUMN_DEGREES, day.windDirection);
+                weatherValues.put(WeatherContract.WeatherEntry.COLUMN_MAX_TEMP, day.high);
+                weatherValues.put(WeatherContract.WeatherEntry.COLUMN_MIN_TEMP, day.low);
+                weatherValues.put(WeatherContract.WeatherEntry.COLUMN_SHORT_DESC, day.description);
+                weatherValues.put(WeatherContract.WeatherEntry.COLUMN_WEATHER_ID, day.weatherId);
 
                 cVVector.add(weatherValues);
             }
@@ -309,21 +332,43 @@ public class SunshineSyncAdapter extends AbstractThreadedSyncAdapter {
                 ContentValues[] cvArray = new ContentValues[cVVector.size()];
                 cVVector.toArray(cvArray);
 
-                // Insert new data to database
-                inserted = getContext().getContentResolver()
-                        .bulkInsert(WeatherContract.WeatherEntry.CONTENT_URI, cvArray);
+                start = beginPhase(PHASE_STORE);
+                try {
+                    // Insert new data to database
+                    inserted = getContext().getContentResolver()
+                            .bulkInsert(WeatherContract.WeatherEntry.CONTENT_URI, cvArray);
+
+                    // Delete old data to avoid build up an endless history
+                    String yesterdayDate = Long.toString(dayTime.setJulianDay(julianStartDay - 1));
+                    getContext().getContentResolver().delete(
+                            WeatherContract.WeatherEntry.CONTENT_URI,
+                            WeatherContract.WeatherEntry.COLUMN_DATE + " <= ?",
+                            new String[] {yesterdayDate});
+                } finally {
+                    endPhase(PHASE_STORE, start);
+                }
 
-                // Delete old data to avoid build up an endless history
-                String yesterdayDate = Long.toString(dayTime.setJulianDay(julianStartDay - 1));
-                getContext().getContentResolver().delete(
-                        WeatherContract.WeatherEntry.CONTENT_URI,
-                        WeatherContract.WeatherEntry.COLUMN_DATE + " <= ?",
-                        new String[] {yesterdayDate});
+                // Refresh the file the forecast list draws its first frame from, which only
+                // ever holds the preferred location
+                if (locationSetting.equals(Utility.getPreferredLocation(getContext()))) {
+                    start = beginPhase(PHASE_SNAPSHOT);
+                    try {
+                        ForecastSnapshot.write(getContext(), locationSetting);
+                    } finally {
+                        endPhase(PHASE_SNAPSHOT, start);
+                    }
+                }
 
-                notifyWeather();
+                start = beginPhase(PHASE_NOTIFY);
+                try {
+                    notifyWeather();
+                } finally {
+                    endPhase(PHASE_NOTIFY, start);
+                }
             }
 
-            Log.d(LOG_TAG, "Sunshine sync service completed. " + inserted + " records inserted");
+            Log.d(LOG_TAG, "Sunshine sync service completed. " + inserted + " records inserted, "
+                    + formatPhases());
 
         } catch (JSONException e) {
             Log.e(LOG_TAG, e.getMessage(), e);
@@ -331,6 +376,18 @@ public class SunshineSyncAdapter extends AbstractThreadedSyncAdapter {
         }
     }
 
+    private String formatPhases() {
+        StringBuilder phases = new StringBuilder();
+        for (int i = 0; i < PHASE_NAMES.length; i++) {
+            if (i > 0) {
+                phases.append(", ");
+            }
+            phases.append(PHASE_NAMES[i]).append(' ')
+                    .append(mPhaseNanos[i] / 1000000).append("ms");
+        }
+        return phases.toString();
+    }
+
     // Method notifyWeather:
     // 1. Checks whether you’ve already shown a notification today.
     // 2. If you haven’t, then it connects to the database and gets a cursor for the current day.
@@ -340,21 +397,15 @@ public class SunshineSyncAdapter extends AbstractThreadedSyncAdapter {
     private void notifyWeather() {
         Context context = getContext();
         // Get the weather notifications preference
-        SharedPreferences prefs = PreferenceManager.getDefaultSharedPreferences(context);
-        String displayNotificationsKey = context.getString(R.string.pref_notifications_key);
-        Boolean displayNotifications = prefs.getBoolean(
-                displayNotificationsKey,
-                Boolean.parseBoolean(context.getString(R.string.pref_notifications_default))
-        );
+        Settings settings = Settings.get(context);
         // If weather notifications preference is enabled (true) then display notifications
-        if (displayNotifications) {
+        if (settings.notificationsEnabled) {
             // Checking the last update and notify if it' the first of the day
-            String lastNotificationKey = context.getString(R.string.pref_last_notification);
-            long lastSync = prefs.getLong(lastNotificationKey, 0);
+            long lastSync = settings.lastNotification;
 
             if (System.currentTimeMillis() - lastSync >= DAY_IN_MILLIS) {
                 // Last sync was more than 1 day ago, let's send a notification with the weather.
-                String locationQuery = Utility.getPreferredLocation(context);
+                String locationQuery = settings.location;
 
                 Uri weatherUri = WeatherContract.WeatherEntry
                         .buildWeatherLocationWithDate(locationQuery, System.currentTimeMillis());
@@ -363,76 +414,96 @@ public class SunshineSyncAdapter extends AbstractThreadedSyncAdapter {
                 Cursor cursor = context.getContentResolver()
                         .query(weatherUri, NOTIFY_WEATHER_PROJECTION, null, null, null);
 
-                if (cursor.moveToFirst()) {
-                    int weatherId = cursor.getInt(INDEX_WEATHER_ID);
-                    double high = cursor.getDouble(INDEX_MAX_TEMP);
-                    double low = cursor.getDouble(INDEX_MIN_TEMP);
-                    String desc = cursor.getString(INDEX_SHORT_DESC);
-
-                    int iconId = Utility.getIconResourceForWeatherCondition(weatherId);
-                    Resources resources = context.getResources();
-                    Bitmap largeIcon = BitmapFactory.decodeResource(
-                            resources,
-                            Utility.getArtResourceForWeatherCondition(weatherId)
-                    );
-                    String title = context.getString(R.string.app_name);
-
-                    String contentText;
-                    String language = Locale.getDefault().getLanguage();
-
-                    // Define the text of the forecast in line with current locale
-                    if (language.equals("uk") || language.equals("ru")) {
-                        contentText = String.format(
-                                context.getString(R.string.format_notification),
-                                Utility.getLocaleForecastDescription(context, weatherId),
-                                Utility.formatTemperature(context, high),
-                                Utility.formatTemperature(context, low));
-                    } else {
-                        contentText = String.format(
-                                context.getString(R.string.format_notification),
-                                desc,
-                                Utility.formatTemperature(context, high),
-                                Utility.formatTemperature(context, low));
+                if (cursor == null) {
+                    return;
+                }
+                // Read what the notification needs, the cursor is closed before building it
+                int weatherId;
+                double high;
+                double low;
+                String desc;
+                try {
+                    if (!cursor.moveToFirst()) {
+                        return;
                     }
+                    weatherId = cursor.getInt(INDEX_WEATHER_ID);
+                    high = cursor.getDouble(INDEX_MAX_TEMP);
+                    low = cursor.getDouble(INDEX_MIN_TEMP);
+                    desc = cursor.getString(INDEX_SHORT_DESC);
+                } finally {
+                    cursor.close();
+                }
 
-                    // Build Notification
-                    NotificationCompat.Builder notificationBuilder =
-                            new NotificationCompat.Builder(getContext())
-                                    .setColor(resources.getColor(R.color.sunshine_light_blue))
-                                    .setSmallIcon(iconId)
-                                    .setLargeIcon(largeIcon)
-                                    .setContentTitle(title)
-                                    .setContentText(contentText);
-
-                    // Creates an explicit intent for the MainActivity
-                    // Opening the app is sufficient
-                    Intent resultIntent = new Intent(context, MainActivity.class);
-
-                    // The stack builder object will contain an artificial back stack for the
-                    // started Activity.
-                    // This ensures that navigating backward from the Activity leads out of
-                    // your application to the Home screen.
-                    TaskStackBuilder stackBuilder = TaskStackBuilder.create(context);
-                    // Adds the Intent that starts the MainActivity to the top of the stack
-                    stackBuilder.addNextIntent(resultIntent);
-                    PendingIntent resultPendingIntent =
-                            stackBuilder.getPendingIntent(
-                                    0,
-                                    PendingIntent.FLAG_UPDATE_CURRENT
-                            );
-                    notificationBuilder.setContentIntent(resultPendingIntent);
-
-                    NotificationManager notificationManager =
-                            (NotificationManager) getContext().getSystemService(Context.NOTIFICATION_SERVICE);
-                    // WEATHER_NOTIFICATION_ID allows you to update the notification later on.
-                    notificationManager.notify(WEATHER_NOTIFICATION_ID, notificationBuilder.build());
-
-                    // Refreshing last sync
-                    SharedPreferences.Editor editor = prefs.edit();
-                    editor.putLong(lastNotificationKey, System.currentTimeMillis());
-                    editor.commit();
+                int iconId = Utility.getIconResourceForWeatherCondition(weatherId);
+                Resources resources = context.getResources();
+                // Decoded at the size the notification shows it
+                int largeIconWidth = 0;
+                int largeIconHeight = 0;
+                if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.HONEYCOMB) {
+                    largeIconWidth = resources.getDimensionPixelSize(
+                            android.R.dimen.notification_large_icon_width);
+                    largeIconHeight = resources.getDimensionPixelSize(
+                            android.R.dimen.notification_large_icon_height);
                 }
-                cursor.close();
+                Bitmap largeIcon = BitmapCache.getInstance(context).getBitmap(
+                        Utility.getArtResourceForWeatherCondition(weatherId),
+                        largeIconWidth,
+                        largeIconHeight
+                );
+                String title = context.getString(R.string.app_name);
+
+                String contentText;
+                String language = Locale.getDefault().getLanguage();
+
+                // Define the text of the forecast in line with current locale
+                if (language.equals("uk") || language.equals("ru")) {
+                    contentText = String.format(
+                            context.getString(R.string.format_notification),
+                            Utility.getLocaleForecastDescription(context, weatherId),
+                            Utility.formatTemperature(context, high, settings.metric),
+                            Utility.formatTemperature(context, low, settings.metric));
+                } else {
+                    contentText = String.format(
+                            context.getString(R.string.format_notification),
+                            desc,
+                            Utility.formatTemperature(context, high, settings.metric),
+                            Utility.formatTemperature(context, low, settings.metric));
+                }
+
+                // Build Notification
+                NotificationCompat.Builder notificationBuilder =
+                        new NotificationCompat.Builder(getContext())
+                                .setColor(resources.getColor(R.color.sunshine_light_blue))
+                                .setSmallIcon(iconId)
+                                .setLargeIcon(largeIcon)
+                                .setContentTitle(title)
+                                .setContentText(contentText);
+
+                // Creates an explicit intent for the MainActivity
+                // Opening the app is sufficient
+                Intent resultIntent = new Intent(context, MainActivity.class);
+
+                // The stack builder object will contain an artificial back stack for the
+                // started Activity.
+                // This ensures that navigating backward from the Activity leads out of
+                // your application to the Home screen.
+                TaskStackBuilder stackBuilder = TaskStackBuilder.create(context);
+                // Adds the Intent that starts the MainActivity to the top of the stack
+                stackBuilder.addNextIntent(resultIntent);
+                PendingIntent resultPendingIntent =
+                        stackBuilder.getPendingIntent(
+                                0,
+                                PendingIntent.FLAG_UPDATE_CURRENT
+                        );
+                notificationBuilder.setContentIntent(resultPendingIntent);
+
+                NotificationManager notificationManager =
+                        (NotificationManager) getContext().getSystemService(Context.NOTIFICATION_SERVICE);
+                // WEATHER_NOTIFICATION_ID allows you to update the notification later on.
+                notificationManager.notify(WEATHER_NOTIFICATION_ID, notificationBuilder.build());
+
+                // Refreshing last sync
+                Settings.setLastNotification(context, System.currentTimeMillis());
             }
         }
 
@@ -448,8 +519,6 @@ public class SunshineSyncAdapter extends AbstractThreadedSyncAdapter {
      * @return the row ID of the added location.
      */
     long addLocation(String locationSetting, String cityName, double lat, double lon) {
-        long locationId;
-
         // First, check if the location with this city name exists in the db
         Cursor locationCursor = getContext().getContentResolver().query(
                 WeatherContract.LocationEntry.CONTENT_URI,
@@ -458,34 +527,35 @@ public class SunshineSyncAdapter extends AbstractThreadedSyncAdapter {
                 new String[]{locationSetting},
                 null);
 
-        if (locationCursor.moveToFirst()) {
-            int locationIdIndex = locationCursor.getColumnIndex(WeatherContract.LocationEntry._ID);
-            locationId = locationCursor.getLong(locationIdIndex);
-        } else {
-            // Now that the content provider is set up, inserting rows of data is pretty simple.
-            // First create a ContentValues object to hold the data you want to insert.
-            ContentValues locationValues = new ContentValues();
-
-            // Then add the data, along with the corresponding name of the data type,
-            // so the content provider knows what kind of value is being inserted.
-            locationValues.put(WeatherContract.LocationEntry.COLUMN_CITY_NAME, cityName);
-            locationValues.put(WeatherContract.LocationEntry.COLUMN_LOCATION_SETTING, locationSetting);
-            locationValues.put(WeatherContract.LocationEntry.COLUMN_COORD_LAT, lat);
-            locationValues.put(WeatherContract.LocationEntry.COLUMN_COORD_LONG, lon);
-
-            // Finally, insert location data into the database.
-            Uri insertedUri = getContext().getContentResolver().insert(
-                    WeatherContract.LocationEntry.CONTENT_URI,
-                    locationValues
-            );
-
-            // The resulting URI contains the ID for the row.  Extract the locationId from the Uri.
-            locationId = ContentUris.parseId(insertedUri);
+        try {
+            if (locationCursor.moveToFirst()) {
+                int locationIdIndex = locationCursor.getColumnIndex(WeatherContract.LocationEntry._ID);
+                return locationCursor.getLong(locationIdIndex);
+            }
+        } finally {
+            locationCursor.close();
         }
 
-        locationCursor.close();
+        // Now that the content provider is set up, inserting rows of data is pretty simple.
+        // First create a ContentValues object to hold the data you want to insert.
+        ContentValues locationValues = new ContentValues();
+
+        // Then add the data, along with the corresponding name of the data type,
+        // so the content provider knows what kind of value is being inserted.
+        locationValues.put(WeatherContract.LocationEntry.COLUMN_CITY_NAME, cityName);
+        locationValues.put(WeatherContract.LocationEntry.COLUMN_LOCATION_SETTING, locationSetting);
+        locationValues.put(WeatherContract.LocationEntry.COLUMN_COORD_LAT, lat);
+        locationValues.put(WeatherContract.LocationEntry.COLUMN_COORD_LONG, lon);
+
+        // Finally, insert location data into the database.
+        Uri insertedUri = getContext().getContentResolver().insert(
+                WeatherContract.LocationEntry.CONTENT_URI,
+                locationValues
+        );
+
+        // The resulting URI contains the ID for the row.  Extract the locationId from the Uri.
         // Wait, that worked?  Yes!
-        return locationId;
+        return ContentUris.parseId(insertedUri);
     }
 
     /**
@@ -554,14 +624,43 @@ public class SunshineSyncAdapter extends AbstractThreadedSyncAdapter {
      * @return a fake account.
      */
     public static Account getSyncAccount(Context context) {
-        // Get an instance of the Android account manager
-        AccountManager accountManager =
-                (AccountManager) context.getSystemService(Context.ACCOUNT_SERVICE);
-
         // Create the account type and default account
         Account newAccount = new Account(
                 context.getString(R.string.app_name), context.getString(R.string.sync_account_type));
 
+        if (sAccountVerified) {
+            return newAccount;
+        }
+
+        // The startup thread and the UI may both get here first; only one of them
+        // should create the account.
+        synchronized (SunshineSyncAdapter.class) {
+            if (sAccountVerified) {
+                return newAccount;
+            }
+            if (!createAccountIfNeeded(context, newAccount)) {
+                return null;
+            }
+            sAccountVerified = true;
+        }
+        return newAccount;
+    }
+
+    /**
+     * Forgets that the sync account exists, so the next {@link #getSyncAccount} looks it up
+     * and creates it again.  Called by the authenticator when the user removes the account.
+     */
+    static void onAccountRemoved() {
+        synchronized (SunshineSyncAdapter.class) {
+            sAccountVerified = false;
+        }
+    }
+
+    private static boolean createAccountIfNeeded(Context context, Account newAccount) {
+        // Get an instance of the Android account manager
+        AccountManager accountManager =
+                (AccountManager) context.getSystemService(Context.ACCOUNT_SERVICE);
+
         // If the password doesn't exist, the account doesn't exist
         if ( null == accountManager.getPassword(newAccount) ) {
 
@@ -570,7 +669,7 @@ public class SunshineSyncAdapter extends AbstractThreadedSyncAdapter {
          * If successful, return the Account object, otherwise report an error.
          */
             if (!accountManager.addAccountExplicitly(newAccount, "", null)) {
-                return null;
+                return false;
             }
             /*
              * If you don't set android:syncable="true" in
@@ -579,9 +678,12 @@ public class SunshineSyncAdapter extends AbstractThreadedSyncAdapter {
              * here.
              */
 
+            // The account exists from here on, onAccountCreated's immediate sync relies on it
+            sAccountVerified = true;
+
             // Method onAccountCreated configures the periodic sync and calls for an immediate sync.
             onAccountCreated(newAccount, context);
         }
-        return newAccount;
+        return true;
     }
 }
\ No newline at end of file
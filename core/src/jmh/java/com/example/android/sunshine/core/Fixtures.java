@@ -0,0 +1,54 @@
+package com.example.android.sunshine.core;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Forecast payloads for the benchmarks, built from a 14 day London forecast recorded from
+ * OpenWeatherMap.  Other sizes repeat its days, so every size parses the same kind of values.
+ */
+final class Fixtures {
+
+    private static final String RECORDED = "/forecast_14.json";
+
+    private Fixtures() {
+    }
+
+    /**
+     * @return the recorded payload with its list cut or repeated to the given number of days.
+     */
+    static String forecast(int days) throws IOException, JSONException {
+        JSONObject recorded = new JSONObject(read(RECORDED));
+        JSONArray recordedDays = recorded.getJSONArray("list");
+        JSONArray list = new JSONArray();
+        for (int i = 0; i < days; i++) {
+            list.put(recordedDays.get(i % recordedDays.length()));
+        }
+        recorded.put("list", list);
+        recorded.put("cnt", days);
+        return recorded.toString();
+    }
+
+    private static String read(String resource) throws IOException {
+        InputStream in = Fixtures.class.getResourceAsStream(resource);
+        if (in == null) {
+            throw new IOException("Missing fixture " + resource);
+        }
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+            return out.toString("UTF-8");
+        } finally {
+            in.close();
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package com.example.android.sunshine.core;
+
+import org.json.JSONException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parses a whole forecast payload, what the sync adapter does once per sync.  The bigger sizes
+ * stand in for a kiosk syncing many cities.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ForecastParserBenchmark {
+
+    @Param({"1", "14", "100", "10000"})
+    public int days;
+
+    private String json;
+
+    @Setup
+    public void setUp() throws IOException, JSONException {
+        json = Fixtures.forecast(days);
+    }
+
+    @Benchmark
+    public Forecast parse() throws JSONException {
+        return ForecastParser.parse(json);
+    }
+}
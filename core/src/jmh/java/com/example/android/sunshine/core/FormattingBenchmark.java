@@ -0,0 +1,60 @@
+package com.example.android.sunshine.core;
+
+import org.json.JSONException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The per day work of showing a parsed forecast: converting temperatures and wind speed to
+ * imperial units, the wind's compass direction and the condition category.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class FormattingBenchmark {
+
+    @Param({"1", "14", "100", "10000"})
+    public int days;
+
+    private List<Forecast.Day> forecast;
+
+    @Setup
+    public void setUp() throws IOException, JSONException {
+        forecast = ForecastParser.parse(Fixtures.forecast(days)).days;
+    }
+
+    @Benchmark
+    public void convertUnits(Blackhole blackhole) {
+        for (int i = 0; i < forecast.size(); i++) {
+            Forecast.Day day = forecast.get(i);
+            blackhole.consume(Units.celsiusToFahrenheit(day.high));
+            blackhole.consume(Units.celsiusToFahrenheit(day.low));
+            blackhole.consume(Units.kmhToMph((float) day.windSpeed));
+        }
+    }
+
+    @Benchmark
+    public void windDirection(Blackhole blackhole) {
+        for (int i = 0; i < forecast.size(); i++) {
+            blackhole.consume(Units.windDirection((float) forecast.get(i).windDirection));
+        }
+    }
+
+    @Benchmark
+    public void conditionCategory(Blackhole blackhole) {
+        for (int i = 0; i < forecast.size(); i++) {
+            blackhole.consume(WeatherCategories.get(forecast.get(i).weatherId));
+        }
+    }
+}
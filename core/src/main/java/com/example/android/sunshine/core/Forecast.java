@@ -0,0 +1,48 @@
+package com.example.android.sunshine.core;
+
+import java.util.List;
+
+/**
+ * One OpenWeatherMap daily forecast as parsed by {@link ForecastParser}: the city it is for and
+ * its days, in the order the server sent them, the first one being today.
+ */
+public final class Forecast {
+
+    public final String cityName;
+    public final double latitude;
+    public final double longitude;
+    public final List<Day> days;
+
+    public Forecast(String cityName, double latitude, double longitude, List<Day> days) {
+        this.cityName = cityName;
+        this.latitude = latitude;
+        this.longitude = longitude;
+        this.days = days;
+    }
+
+    /**
+     * The values of one day, in the units they were requested in (metric).
+     */
+    public static final class Day {
+        public final double pressure;
+        public final int humidity;
+        public final double windSpeed;
+        public final double windDirection;
+        public final double high;
+        public final double low;
+        public final String description;
+        public final int weatherId;
+
+        public Day(double pressure, int humidity, double windSpeed, double windDirection,
+                   double high, double low, String description, int weatherId) {
+            this.pressure = pressure;
+            this.humidity = humidity;
+            this.windSpeed = windSpeed;
+            this.windDirection = windDirection;
+            this.high = high;
+            this.low = low;
+            this.description = description;
+            this.weatherId = weatherId;
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.example.android.sunshine.core;
+
+/**
+ * Percentiles by the nearest-rank method: the p-th percentile of n samples is the smallest
+ * sample with at least p% of the samples at or below it, always one of the samples.  Shared by
+ * the frame, provider and benchmark stats so their numbers mean the same thing.
+ */
+public final class Percentiles {
+
+    private Percentiles() {
+    }
+
+    /**
+     * @param percentile between 0 and 100
+     * @param count how many samples there are, at least one.
+     * @return the 1-based rank of the sample at the given percentile once they are sorted.
+     */
+    public static long rank(double percentile, long count) {
+        long rank = (long) Math.ceil(percentile / 100.0 * count);
+        return Math.max(1, Math.min(count, rank));
+    }
+
+    /**
+     * @param sorted samples in ascending order.
+     * @param percentile between 0 and 100
+     * @return the sample at the given percentile, 0 if there are none.
+     */
+    public static long percentile(long[] sorted, double percentile) {
+        return percentile(sorted, sorted.length, percentile);
+    }
+
+    /**
+     * Same as {@link #percentile(long[], double)}, for the first count samples of an array
+     * that is only partly filled.
+     */
+    public static long percentile(long[] sorted, int count, double percentile) {
+        if (count == 0) {
+            return 0;
+        }
+        return sorted[(int) rank(percentile, count) - 1];
+    }
+}
@@ -0,0 +1,47 @@
+package com.example.android.sunshine.core;
+
+/**
+ * Conversions between the metric values stored in the database and what the user prefers to
+ * see.
+ */
+public final class Units {
+
+    // Compass directions, in clockwise order
+    public static final int DIRECTION_UNKNOWN = -1;
+    public static final int DIRECTION_N = 0;
+    public static final int DIRECTION_NE = 1;
+    public static final int DIRECTION_E = 2;
+    public static final int DIRECTION_SE = 3;
+    public static final int DIRECTION_S = 4;
+    public static final int DIRECTION_SW = 5;
+    public static final int DIRECTION_W = 6;
+    public static final int DIRECTION_NW = 7;
+
+    private static final float MILES_PER_KILOMETER = .621371192237334f;
+
+    private Units() {
+    }
+
+    public static double celsiusToFahrenheit(double celsius) {
+        return (celsius * 1.8) + 32;
+    }
+
+    public static float kmhToMph(float kmh) {
+        return MILES_PER_KILOMETER * kmh;
+    }
+
+    /**
+     * From wind direction in degrees, determine the compass direction, each one covering the
+     * 45 degrees around it.
+     *
+     * @return one of the DIRECTION_ constants, {@link #DIRECTION_UNKNOWN} for NaN.
+     */
+    public static int windDirection(float degrees) {
+        if (degrees >= 337.5 || degrees < 22.5) {
+            return DIRECTION_N;
+        } else if (degrees >= 22.5) {
+            return (int) ((degrees + 22.5f) / 45);
+        }
+        return DIRECTION_UNKNOWN;
+    }
+}
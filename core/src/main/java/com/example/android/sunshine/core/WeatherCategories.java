@@ -0,0 +1,64 @@
+package com.example.android.sunshine.core;
+
+/**
+ * Groups OpenWeatherMap condition codes into the categories the app has icons and art for,
+ * looked up in a dense array indexed by code.  The array is filled from
+ * {@link #CONDITION_RANGES}, based on the weather code data found at:
+ * http://bugs.openweathermap.org/projects/api/wiki/Weather_Condition_Codes
+ */
+public final class WeatherCategories {
+
+    public static final int MIN_CODE = 200;
+    public static final int MAX_CODE = 804;
+
+    public static final int UNKNOWN = 0;
+    public static final int STORM = 1;
+    public static final int LIGHT_RAIN = 2;
+    public static final int RAIN = 3;
+    public static final int SNOW = 4;
+    public static final int FOG = 5;
+    public static final int CLEAR = 6;
+    public static final int LIGHT_CLOUDS = 7;
+    public static final int CLOUDS = 8;
+
+    public static final int COUNT = 9;
+
+    // First code, last code, category.  Later rows override earlier ones.
+    private static final int[][] CONDITION_RANGES = {
+            {200, 232, STORM},          // Thunderstorm
+            {300, 321, LIGHT_RAIN},     // Drizzle
+            {500, 504, RAIN},           // Rain
+            {511, 511, SNOW},           // Freezing rain
+            {520, 531, RAIN},           // Shower rain
+            {600, 622, SNOW},           // Snow
+            {701, 760, FOG},            // Mist, smoke, haze, sand, fog
+            {761, 761, STORM},          // Dust
+            {781, 781, STORM},          // Tornado
+            {800, 800, CLEAR},          // Clear sky
+            {801, 801, LIGHT_CLOUDS},   // Few clouds
+            {802, 804, CLOUDS},         // Scattered to overcast clouds
+    };
+
+    // UNKNOWN is 0, so codes no range covers need no filling
+    private static final byte[] CATEGORIES = new byte[MAX_CODE - MIN_CODE + 1];
+
+    static {
+        for (int[] range : CONDITION_RANGES) {
+            for (int code = range[0]; code <= range[1]; code++) {
+                CATEGORIES[code - MIN_CODE] = (byte) range[2];
+            }
+        }
+    }
+
+    private WeatherCategories() {
+    }
+
+    /**
+     * @param weatherId from OpenWeatherMap API response
+     * @return the category of the code, {@link #UNKNOWN} if there is none.
+     */
+    public static int get(int weatherId) {
+        int index = weatherId - MIN_CODE;
+        return index >= 0 && index < CATEGORIES.length ? CATEGORIES[index] : UNKNOWN;
+    }
+}
@@ -0,0 +1,75 @@
+package com.example.android.sunshine.core;
+
+import junit.framework.TestCase;
+
+import org.json.JSONException;
+
+public class TestForecastParser extends TestCase {
+
+    private static final String FORECAST = "{\"city\":{\"id\":2643743,\"name\":\"London\","
+            + "\"coord\":{\"lon\":-0.12574,\"lat\":51.50853},\"country\":\"GB\"},"
+            + "\"cod\":\"200\",\"cnt\":2,\"list\":["
+            + "{\"dt\":1451998800,\"temp\":{\"day\":7.5,\"min\":4.25,\"max\":9.75},"
+            + "\"pressure\":1012.5,\"humidity\":81,"
+            + "\"weather\":[{\"id\":500,\"main\":\"Rain\",\"description\":\"light rain\"}],"
+            + "\"speed\":5.5,\"deg\":225},"
+            + "{\"dt\":1452085200,\"temp\":{\"day\":3,\"min\":-1,\"max\":5},"
+            + "\"pressure\":1030,\"humidity\":60,"
+            + "\"weather\":[{\"id\":800,\"main\":\"Clear\",\"description\":\"sky is clear\"}],"
+            + "\"speed\":1,\"deg\":0}]}";
+
+    public void testParsesCityAndDays() throws JSONException {
+        Forecast forecast = ForecastParser.parse(FORECAST);
+
+        assertEquals("London", forecast.cityName);
+        assertEquals(51.50853, forecast.latitude, 1e-9);
+        assertEquals(-0.12574, forecast.longitude, 1e-9);
+        assertEquals(2, forecast.days.size());
+
+        Forecast.Day day = forecast.days.get(0);
+        assertEquals(1012.5, day.pressure, 1e-9);
+        assertEquals(81, day.humidity);
+        assertEquals(5.5, day.windSpeed, 1e-9);
+        assertEquals(225.0, day.windDirection, 1e-9);
+        assertEquals(9.75, day.high, 1e-9);
+        assertEquals(4.25, day.low, 1e-9);
+        assertEquals("Rain", day.description);
+        assertEquals(500, day.weatherId);
+
+        assertEquals(800, forecast.days.get(1).weatherId);
+        assertEquals(-1.0, forecast.days.get(1).low, 1e-9);
+    }
+
+    public void testMissingFieldsFail() {
+        try {
+            ForecastParser.parse("{\"list\":[]}");
+            fail("Error: A forecast without a city was parsed");
+        } catch (JSONException expected) {
+        }
+    }
+
+    public void testUnitConversions() {
+        assertEquals(32.0, Units.celsiusToFahrenheit(0), 1e-9);
+        assertEquals(212.0, Units.celsiusToFahrenheit(100), 1e-9);
+        assertEquals(6.2137f, Units.kmhToMph(10f), 1e-4f);
+    }
+
+    public void testWindDirections() {
+        assertEquals(Units.DIRECTION_N, Units.windDirection(0f));
+        assertEquals(Units.DIRECTION_N, Units.windDirection(350f));
+        assertEquals(Units.DIRECTION_N, Units.windDirection(22.4f));
+        assertEquals(Units.DIRECTION_NE, Units.windDirection(22.5f));
+        assertEquals(Units.DIRECTION_SW, Units.windDirection(225f));
+        assertEquals(Units.DIRECTION_NW, Units.windDirection(337.4f));
+        assertEquals(Units.DIRECTION_UNKNOWN, Units.windDirection(Float.NaN));
+    }
+
+    public void testCategories() {
+        assertEquals(WeatherCategories.STORM, WeatherCategories.get(211));
+        assertEquals(WeatherCategories.SNOW, WeatherCategories.get(511));
+        assertEquals(WeatherCategories.STORM, WeatherCategories.get(761));
+        assertEquals(WeatherCategories.CLEAR, WeatherCategories.get(800));
+        assertEquals(WeatherCategories.UNKNOWN, WeatherCategories.get(199));
+        assertEquals(WeatherCategories.UNKNOWN, WeatherCategories.get(900));
+    }
+}
@@ -0,0 +1,34 @@
+package com.example.android.sunshine.core;
+
+import junit.framework.TestCase;
+
+public class TestPercentiles extends TestCase {
+
+    public void testNearestRank() {
+        long[] sorted = {100, 200, 300, 400, 500, 600, 700, 800, 900, 1000};
+        assertEquals(100, Percentiles.percentile(sorted, 0));
+        assertEquals(100, Percentiles.percentile(sorted, 10));
+        // Just over a rank rounds up to the next sample
+        assertEquals(200, Percentiles.percentile(sorted, 10.5));
+        assertEquals(500, Percentiles.percentile(sorted, 50));
+        assertEquals(900, Percentiles.percentile(sorted, 90));
+        assertEquals(1000, Percentiles.percentile(sorted, 99));
+        assertEquals(1000, Percentiles.percentile(sorted, 100));
+    }
+
+    public void testPartlyFilled() {
+        long[] sorted = {1, 2, 3, 0, 0, 0};
+        assertEquals(2, Percentiles.percentile(sorted, 3, 50));
+        assertEquals(3, Percentiles.percentile(sorted, 3, 100));
+        assertEquals(0, Percentiles.percentile(sorted, 0, 50));
+        assertEquals(0, Percentiles.percentile(new long[0], 50));
+    }
+
+    public void testRank() {
+        assertEquals(1, Percentiles.rank(0, 4));
+        assertEquals(2, Percentiles.rank(50, 4));
+        assertEquals(3, Percentiles.rank(51, 4));
+        assertEquals(4, Percentiles.rank(100, 4));
+        assertEquals(1, Percentiles.rank(50, 1));
+    }
+}
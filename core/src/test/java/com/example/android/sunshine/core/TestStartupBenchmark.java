@@ -0,0 +1,79 @@
+package com.example.android.sunshine.core;
+
+import junit.framework.TestCase;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Random;
+
+public class TestStartupBenchmark extends TestCase {
+
+    private static final String AM_START = ""
+            + "Starting: Intent { cmp=com.example.android.sunshine.app/.MainActivity }\n"
+            + "Status: ok\n"
+            + "Activity: com.example.android.sunshine.app/.MainActivity\n"
+            + "ThisTime: 498\n"
+            + "TotalTime: 512\n"
+            + "WaitTime: 530\n"
+            + "Complete\n";
+
+    private static final String DUMP = ""
+            + "TASK com.example.android.sunshine.app id=12\n"
+            + "  ACTIVITY com.example.android.sunshine.app/.MainActivity 3b1c2e0 pid=2080\n"
+            + "    Local Activity 41d5c8 State:\n"
+            + "    Frame stats:\n"
+            + "      forecast_list: 0 frames\n"
+            + "    StartupTimeline: process_start=0 application_create=212 activity_create=265"
+            + " database_open=301 loader_query=388 first_bind=402 forecast_drawn=431\n";
+
+    // An empty database: nothing to draw until a sync, which this launch doesn't wait for
+    private static final String EMPTY_DUMP = ""
+            + "    StartupTimeline: process_start=0 application_create=208 activity_create=259"
+            + " sync_account=280 database_open=297 loader_query=342\n";
+
+    public void testParseTotalTime() {
+        assertEquals(512, StartupBenchmark.parseTotalTime(AM_START));
+        assertEquals(-1, StartupBenchmark.parseTotalTime("Error: Activity not started\n"));
+    }
+
+    public void testParseTimeline() {
+        Map<String, Long> milestones = StartupBenchmark.parseTimeline(DUMP);
+        assertEquals(7, milestones.size());
+        assertEquals("process_start", milestones.keySet().iterator().next());
+        assertEquals(Long.valueOf(301), milestones.get("database_open"));
+        assertEquals(Long.valueOf(431), milestones.get(StartupBenchmark.LAST_MILESTONE));
+        // Not reached yet
+        assertNull(milestones.get("sync_account"));
+
+        assertNull(StartupBenchmark.parseTimeline("No activities found\n"));
+    }
+
+    public void testPercentiles() {
+        StartupBenchmark.Scenario scenario = new StartupBenchmark.Scenario("warm-db");
+        ArrayList<Long> shuffled = new ArrayList<Long>();
+        for (long millis = 1; millis <= 10; millis++) {
+            shuffled.add(millis * 100);
+        }
+        Collections.shuffle(shuffled, new Random(42));
+        for (long millis : shuffled) {
+            scenario.add(StartupBenchmark.LAST_MILESTONE, millis);
+        }
+
+        assertEquals(10, scenario.count(StartupBenchmark.LAST_MILESTONE));
+        assertEquals(500, scenario.percentile(StartupBenchmark.LAST_MILESTONE, 50));
+        assertEquals(900, scenario.percentile(StartupBenchmark.LAST_MILESTONE, 90));
+        assertEquals(-1, scenario.percentile("first_bind", 50));
+    }
+
+    public void testScenarioEnd() {
+        StartupBenchmark.Scenario warm = new StartupBenchmark.Scenario("warm-db");
+        StartupBenchmark.Scenario empty = new StartupBenchmark.Scenario("empty-db",
+                StartupBenchmark.EMPTY_LAST_MILESTONE);
+
+        assertTrue(warm.isComplete(StartupBenchmark.parseTimeline(DUMP)));
+        assertFalse(warm.isComplete(StartupBenchmark.parseTimeline(EMPTY_DUMP)));
+        assertTrue(empty.isComplete(StartupBenchmark.parseTimeline(EMPTY_DUMP)));
+        assertFalse(empty.isComplete(null));
+    }
+}
@@ -0,0 +1,63 @@
+package com.example.android.sunshine.core;
+
+import junit.framework.TestCase;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.List;
+
+public class TestTraceSummary extends TestCase {
+
+    // Two threads, nested sections, a framework section, a mark from before the capture and
+    // the older line format without tgid and flags
+    private static final String TRACE = ""
+            + "<!DOCTYPE html>\n"
+            + "<script class=\"trace-data\" type=\"application/text\">\n"
+            + "# tracer: nop\n"
+            + "  SyncAdapterThr-2101  ( 2080) [001] ...1  100.000000: tracing_mark_write: B|2080|SunshineSync\n"
+            + "  SyncAdapterThr-2101  ( 2080) [001] ...1  100.000500: tracing_mark_write: B|2080|SunshineSync.fetch\n"
+            + "  SyncAdapterThr-2101  ( 2080) [001] ...1  100.250500: tracing_mark_write: E\n"
+            + "  SyncAdapterThr-2101  ( 2080) [001] ...1  100.251000: tracing_mark_write: B|2080|WeatherProvider.bulkInsert WEATHER\n"
+            + "  ndroid.sunshine-2080  ( 2080) [000] ...1  100.260000: tracing_mark_write: B|2080|ForecastAdapter.bindView\n"
+            + "  ndroid.sunshine-2080  ( 2080) [000] ...1  100.262000: tracing_mark_write: E|2080\n"
+            + "  ndroid.sunshine-2080  ( 2080) [000] ...1  100.270000: tracing_mark_write: B|2080|Choreographer#doFrame\n"
+            + "  ndroid.sunshine-2080  ( 2080) [000] ...1  100.275000: tracing_mark_write: E|2080\n"
+            + "  ndroid.sunshine-2080  ( 2080) [000] ...1  100.280000: tracing_mark_write: E|2080\n"
+            + "  SyncAdapterThr-2101  ( 2080) [001] ...1  100.301000: tracing_mark_write: E\n"
+            + "  SyncAdapterThr-2101  ( 2080) [001] ...1  100.400000: tracing_mark_write: E\n"
+            + "  ndroid.sunshine-2080  [000]  100.500000: tracing_mark_write: B|2080|ForecastAdapter.bindView\n"
+            + "  ndroid.sunshine-2080  [000]  100.506000: tracing_mark_write: E\n"
+            + "</script>\n";
+
+    public void testSectionsArePaired() throws IOException {
+        TraceSummary summary = new TraceSummary(TraceSummary.SUNSHINE_PREFIXES);
+        summary.read(new StringReader(TRACE));
+
+        assertEquals(400000, summary.get("SunshineSync").total());
+        assertEquals(250000, summary.get("SunshineSync.fetch").total());
+        assertEquals(50000, summary.get("WeatherProvider.bulkInsert WEATHER").total());
+
+        TraceSummary.Section bind = summary.get("ForecastAdapter.bindView");
+        assertEquals(2, bind.count());
+        assertEquals(8000, bind.total());
+        assertEquals(2000, bind.percentile(50));
+        assertEquals(6000, bind.percentile(99));
+
+        // Only Sunshine's sections, the longest first
+        assertNull(summary.get("Choreographer#doFrame"));
+        List<TraceSummary.Section> sections = summary.sections();
+        assertEquals(4, sections.size());
+        assertEquals("SunshineSync", sections.get(0).name);
+    }
+
+    public void testAllSections() throws IOException {
+        TraceSummary summary = new TraceSummary(null);
+        summary.read(new StringReader(TRACE));
+        assertEquals(5000, summary.get("Choreographer#doFrame").total());
+    }
+
+    public void testParseMicros() {
+        assertEquals(8443613240L, TraceSummary.parseMicros("8443.613240"));
+        assertEquals(1500000, TraceSummary.parseMicros("1.5"));
+    }
+}
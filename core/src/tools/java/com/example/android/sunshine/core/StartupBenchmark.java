@@ -0,0 +1,262 @@
+package com.example.android.sunshine.core;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Cold-starts the app on a connected device again and again and reports the median and 90th
+ * percentile of each startup milestone, read from the StartupTimeline line MainActivity dumps,
+ * along with the launch time am start -W measures.  Run it with
+ *
+ *     ./gradlew :core:startupBenchmark [-Plaunches=20] [-Pserial=emulator-5554]
+ *
+ * after installing a debuggable build that has synced at least once.  Three scenarios:
+ *
+ *  - warm-db, the database and the forecast snapshot as the last sync left them.
+ *  - no-snapshot, the snapshot deleted before every launch, so the first frame waits for the
+ *    database.  Against warm-db it is what the snapshot saves on a cold start.
+ *  - empty-db, both deleted before every launch, the first start after installing.  There
+ *    is no forecast to draw until a sync fetches one, so these launches end when the loader
+ *    has found the database empty, at loader_query, and leave the network out.
+ *
+ * Only a sync writes the snapshot and the empty-db launches leave the app without data, so
+ * the scenarios run in that order.
+ */
+public final class StartupBenchmark {
+
+    static final String PACKAGE = "com.example.android.sunshine.app";
+    private static final String ACTIVITY = PACKAGE + "/.MainActivity";
+
+    // What each launch deletes in the no-snapshot and empty-db scenarios, relative to the
+    // app's data directory
+    private static final String[] SNAPSHOT = {"files/forecast.snapshot"};
+    private static final String[] APP_DATA = {
+            "databases/weather.db", "databases/weather.db-journal", "databases/weather.db-wal",
+            "databases/weather.db-shm", "files/forecast.snapshot"
+    };
+
+    static final String LAUNCH_TIME = "am_total_time";
+    static final String LAST_MILESTONE = "forecast_drawn";
+    // Where a launch without any data ends, the sync that would bring the forecast aside
+    static final String EMPTY_LAST_MILESTONE = "loader_query";
+
+    private static final int DEFAULT_LAUNCHES = 10;
+    private static final long DRAWN_TIMEOUT_MILLIS = 15000;
+
+    // "TotalTime: 532", the launch up to the first frame, or to reportFullyDrawn if sooner
+    private static final Pattern TOTAL_TIME = Pattern.compile("TotalTime:\\s*(\\d+)");
+    private static final Pattern TIMELINE = Pattern.compile("StartupTimeline:(.*)");
+    private static final Pattern MILESTONE = Pattern.compile("(\\w+)=(\\d+)");
+
+    /**
+     * Every launch's times of one scenario, by milestone.
+     */
+    static final class Scenario {
+        final String name;
+        // The milestone each launch waits for
+        final String lastMilestone;
+        private final Map<String, List<Long>> mTimes = new LinkedHashMap<String, List<Long>>();
+
+        Scenario(String name) {
+            this(name, LAST_MILESTONE);
+        }
+
+        Scenario(String name, String lastMilestone) {
+            this.name = name;
+            this.lastMilestone = lastMilestone;
+        }
+
+        /**
+         * @return whether a launch that reached these milestones is over.
+         */
+        boolean isComplete(Map<String, Long> milestones) {
+            return milestones != null && milestones.containsKey(lastMilestone);
+        }
+
+        void add(String milestone, long millis) {
+            List<Long> times = mTimes.get(milestone);
+            if (times == null) {
+                times = new ArrayList<Long>();
+                mTimes.put(milestone, times);
+            }
+            times.add(millis);
+        }
+
+        void addAll(Map<String, Long> milestones) {
+            for (Map.Entry<String, Long> milestone : milestones.entrySet()) {
+                add(milestone.getKey(), milestone.getValue());
+            }
+        }
+
+        /**
+         * @param percentile between 0 and 100
+         * @return the time at the given percentile (nearest-rank method), -1 if never reached.
+         */
+        long percentile(String milestone, double percentile) {
+            List<Long> times = mTimes.get(milestone);
+            if (times == null || times.isEmpty()) {
+                return -1;
+            }
+            long[] sorted = new long[times.size()];
+            for (int i = 0; i < sorted.length; i++) {
+                sorted[i] = times.get(i);
+            }
+            Arrays.sort(sorted);
+            return Percentiles.percentile(sorted, percentile);
+        }
+
+        int count(String milestone) {
+            List<Long> times = mTimes.get(milestone);
+            return times == null ? 0 : times.size();
+        }
+
+        void print(PrintStream out) {
+            out.println(name);
+            out.println(String.format(Locale.US, "  %-20s %7s %9s %9s", "Milestone", "Count",
+                    "p50 ms", "p90 ms"));
+            for (String milestone : mTimes.keySet()) {
+                out.println(String.format(Locale.US, "  %-20s %7d %9d %9d", milestone,
+                        count(milestone), percentile(milestone, 50),
+                        percentile(milestone, 90)));
+            }
+        }
+    }
+
+    private final String[] mAdb;
+
+    StartupBenchmark(String serial) {
+        mAdb = serial != null ? new String[] {"adb", "-s", serial} : new String[] {"adb"};
+    }
+
+    /**
+     * @return the milliseconds am start -W reports, -1 if it didn't report any.
+     */
+    static long parseTotalTime(String amOutput) {
+        Matcher matcher = TOTAL_TIME.matcher(amOutput);
+        return matcher.find() ? Long.parseLong(matcher.group(1)) : -1;
+    }
+
+    /**
+     * @return the milestones of the first StartupTimeline line in the dump, in their order,
+     *         or null if there is no such line.
+     */
+    static Map<String, Long> parseTimeline(String dump) {
+        Matcher line = TIMELINE.matcher(dump);
+        if (!line.find()) {
+            return null;
+        }
+        Map<String, Long> milestones = new LinkedHashMap<String, Long>();
+        Matcher milestone = MILESTONE.matcher(line.group(1));
+        while (milestone.find()) {
+            milestones.put(milestone.group(1), Long.parseLong(milestone.group(2)));
+        }
+        return milestones;
+    }
+
+    /**
+     * @param deleted the files to delete before every launch, relative to the app's data
+     *                directory
+     */
+    void run(Scenario scenario, String[] deleted, int launches)
+            throws IOException, InterruptedException {
+        // One launch first, so the app is compiled and its files are in the page cache
+        for (int i = -1; i < launches; i++) {
+            shell("am", "force-stop", PACKAGE);
+            for (String file : deleted) {
+                shell("run-as", PACKAGE, "rm", "-f", file);
+            }
+            long totalTime = parseTotalTime(shell("am", "start", "-W", "-n", ACTIVITY));
+            Map<String, Long> milestones = awaitTimeline(scenario);
+            if (i < 0) {
+                continue;
+            }
+            if (totalTime >= 0) {
+                scenario.add(LAUNCH_TIME, totalTime);
+            }
+            if (milestones != null) {
+                scenario.addAll(milestones);
+            } else {
+                System.err.println(scenario.name + " launch " + (i + 1) + ": "
+                        + scenario.lastMilestone + " was not reached in time");
+            }
+        }
+        shell("am", "force-stop", PACKAGE);
+    }
+
+    private Map<String, Long> awaitTimeline(Scenario scenario)
+            throws IOException, InterruptedException {
+        long deadline = System.currentTimeMillis() + DRAWN_TIMEOUT_MILLIS;
+        while (System.currentTimeMillis() < deadline) {
+            Map<String, Long> milestones = parseTimeline(shell("dumpsys", "activity", PACKAGE));
+            if (scenario.isComplete(milestones)) {
+                return milestones;
+            }
+            Thread.sleep(250);
+        }
+        return null;
+    }
+
+    private String shell(String... command) throws IOException, InterruptedException {
+        List<String> args = new ArrayList<String>(Arrays.asList(mAdb));
+        args.add("shell");
+        args.addAll(Arrays.asList(command));
+        Process process = new ProcessBuilder(args).redirectErrorStream(true).start();
+        String output = readFully(process.getInputStream());
+        int status = process.waitFor();
+        if (status != 0) {
+            throw new IOException(args + " exited with " + status + ": " + output);
+        }
+        return output;
+    }
+
+    private static String readFully(InputStream in) throws IOException {
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[4096];
+            int count;
+            while ((count = in.read(buffer)) != -1) {
+                out.write(buffer, 0, count);
+            }
+            return out.toString("UTF-8");
+        } finally {
+            in.close();
+        }
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int launches = DEFAULT_LAUNCHES;
+        String serial = null;
+        for (int i = 0; i < args.length; i++) {
+            if ("--launches".equals(args[i]) && i + 1 < args.length) {
+                launches = Integer.parseInt(args[++i]);
+            } else if ("--serial".equals(args[i]) && i + 1 < args.length) {
+                serial = args[++i];
+            } else {
+                System.err.println("Usage: StartupBenchmark [--launches N] [--serial SERIAL]");
+                System.exit(1);
+            }
+        }
+
+        StartupBenchmark benchmark = new StartupBenchmark(serial);
+        Scenario warm = new Scenario("warm-db");
+        benchmark.run(warm, new String[0], launches);
+        Scenario noSnapshot = new Scenario("no-snapshot");
+        benchmark.run(noSnapshot, SNAPSHOT, launches);
+        Scenario empty = new Scenario("empty-db", EMPTY_LAST_MILESTONE);
+        benchmark.run(empty, APP_DATA, launches);
+
+        warm.print(System.out);
+        noSnapshot.print(System.out);
+        empty.print(System.out);
+    }
+}
@@ -0,0 +1,227 @@
+package com.example.android.sunshine.core;
+
+import java.io.BufferedReader;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.io.Reader;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Sums up the trace sections in a captured systrace: how often each one ran, for how long in
+ * total and its duration percentiles.  Reads the HTML systrace.py writes, or the plain text of
+ * atrace, and pairs each thread's begin and end marks.  Run it with
+ *
+ *     ./gradlew :core:traceSummary -Ptrace=/path/to/trace.html
+ *
+ * By default only Sunshine's own sections are listed, those named in the app's Tracing calls.
+ * Pass --all for every section in the trace, the framework's too.
+ */
+public final class TraceSummary {
+
+    static final String[] SUNSHINE_PREFIXES = {
+            "SunshineSync", "WeatherProvider", "ForecastFragment", "DetailFragment",
+            "ForecastAdapter", "ForecastLoader",
+    };
+
+    // "  thread-name-1234  (  567) [001] ...1  8443.613240: tracing_mark_write: B|567|Name"
+    // The tgid in parentheses and the flags are missing from older traces.
+    private static final Pattern MARK = Pattern.compile(
+            "^\\s*.+?-(\\d+)\\s+(?:\\(\\s*[-\\d]+\\)\\s+)?\\[\\d+\\]\\s+(?:[^\\s:]+\\s+)?"
+                    + "(\\d+\\.\\d+):\\s+tracing_mark_write:\\s+([BE])(?:\\|\\d+\\|?(.*))?$");
+
+    /**
+     * Every completed run of one section.
+     */
+    static final class Section {
+        final String name;
+        private long[] mDurations = new long[16];
+        private int mCount;
+        private long mTotal;
+        private boolean mSorted;
+
+        Section(String name) {
+            this.name = name;
+        }
+
+        void add(long durationMicros) {
+            if (mCount == mDurations.length) {
+                mDurations = Arrays.copyOf(mDurations, mCount * 2);
+            }
+            mDurations[mCount++] = durationMicros;
+            mTotal += durationMicros;
+            mSorted = false;
+        }
+
+        int count() {
+            return mCount;
+        }
+
+        long total() {
+            return mTotal;
+        }
+
+        /**
+         * @param percentile between 0 and 100
+         * @return the duration at the given percentile in microseconds (nearest-rank method)
+         */
+        long percentile(double percentile) {
+            if (mCount == 0) {
+                return 0;
+            }
+            if (!mSorted) {
+                Arrays.sort(mDurations, 0, mCount);
+                mSorted = true;
+            }
+            return Percentiles.percentile(mDurations, mCount, percentile);
+        }
+    }
+
+    private final String[] mPrefixes;
+    private final Map<String, Section> mSections = new HashMap<String, Section>();
+    // Open sections by thread id, each a stack of {name, start}
+    private final Map<String, Deque<Object[]>> mOpen = new HashMap<String, Deque<Object[]>>();
+    private int mUnmatched;
+
+    /**
+     * @param prefixes the sections to keep, null for all of them.
+     */
+    TraceSummary(String[] prefixes) {
+        mPrefixes = prefixes;
+    }
+
+    void read(Reader in) throws IOException {
+        BufferedReader reader = new BufferedReader(in);
+        String line;
+        while ((line = reader.readLine()) != null) {
+            Matcher matcher = MARK.matcher(line);
+            if (matcher.matches()) {
+                mark(matcher.group(1), parseMicros(matcher.group(2)),
+                        matcher.group(3).charAt(0) == 'B', matcher.group(4));
+            }
+        }
+    }
+
+    private void mark(String thread, long micros, boolean begin, String name) {
+        Deque<Object[]> open = mOpen.get(thread);
+        if (open == null) {
+            open = new ArrayDeque<Object[]>();
+            mOpen.put(thread, open);
+        }
+        if (begin) {
+            open.push(new Object[] {name != null ? name.trim() : "", micros});
+            return;
+        }
+        if (open.isEmpty()) {
+            // Began before the capture did
+            mUnmatched++;
+            return;
+        }
+        Object[] section = open.pop();
+        String sectionName = (String) section[0];
+        if (!isKept(sectionName)) {
+            return;
+        }
+        Section stats = mSections.get(sectionName);
+        if (stats == null) {
+            stats = new Section(sectionName);
+            mSections.put(sectionName, stats);
+        }
+        stats.add(micros - (Long) section[1]);
+    }
+
+    private boolean isKept(String name) {
+        if (mPrefixes == null) {
+            return true;
+        }
+        for (String prefix : mPrefixes) {
+            if (name.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // "8443.613240" seconds, without going through a double
+    static long parseMicros(String timestamp) {
+        int dot = timestamp.indexOf('.');
+        String fraction = (timestamp.substring(dot + 1) + "000000").substring(0, 6);
+        return Long.parseLong(timestamp.substring(0, dot)) * 1000000 + Long.parseLong(fraction);
+    }
+
+    Section get(String name) {
+        return mSections.get(name);
+    }
+
+    /**
+     * @return the sections, the one with the most time in total first.
+     */
+    List<Section> sections() {
+        List<Section> sections = new ArrayList<Section>(mSections.values());
+        Collections.sort(sections, new Comparator<Section>() {
+            @Override
+            public int compare(Section lhs, Section rhs) {
+                return lhs.total() < rhs.total() ? 1 : lhs.total() > rhs.total() ? -1 : 0;
+            }
+        });
+        return sections;
+    }
+
+    void print(PrintStream out) {
+        out.println(String.format(Locale.US, "%-55s %7s %10s %9s %9s %9s %9s %9s",
+                "Section", "Count", "Total ms", "Mean ms", "p50 ms", "p90 ms", "p99 ms", "Max ms"));
+        for (Section section : sections()) {
+            out.println(String.format(Locale.US,
+                    "%-55s %7d %10.2f %9.3f %9.3f %9.3f %9.3f %9.3f",
+                    section.name, section.count(), section.total() / 1e3,
+                    section.total() / 1e3 / section.count(),
+                    section.percentile(50) / 1e3, section.percentile(90) / 1e3,
+                    section.percentile(99) / 1e3, section.percentile(100) / 1e3));
+        }
+        int stillOpen = 0;
+        for (Deque<Object[]> open : mOpen.values()) {
+            stillOpen += open.size();
+        }
+        if (mUnmatched > 0 || stillOpen > 0) {
+            out.println(mUnmatched + " section(s) ended without a begin and " + stillOpen +
+                    " never ended, the capture cut them off");
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        boolean all = false;
+        String file = null;
+        for (String arg : args) {
+            if ("--all".equals(arg)) {
+                all = true;
+            } else {
+                file = arg;
+            }
+        }
+        if (file == null) {
+            System.err.println("Usage: TraceSummary [--all] trace.html");
+            System.exit(1);
+        }
+
+        TraceSummary summary = new TraceSummary(all ? null : SUNSHINE_PREFIXES);
+        Reader in = new InputStreamReader(new FileInputStream(file), "UTF-8");
+        try {
+            summary.read(in);
+        } finally {
+            in.close();
+        }
+        summary.print(System.out);
+    }
+}